@@ -137,6 +137,7 @@ import com.mirth.connect.model.ConnectorMetaData;
 import com.mirth.connect.model.DashboardChannelInfo;
 import com.mirth.connect.model.DashboardStatus;
 import com.mirth.connect.model.DashboardStatus.StatusType;
+import com.mirth.connect.model.DashboardStatusChanges;
 import com.mirth.connect.model.EncryptionSettings;
 import com.mirth.connect.model.InvalidChannel;
 import com.mirth.connect.model.MetaData;
@@ -248,6 +249,8 @@ public class Frame extends JXFrame {
     private AttachmentExportDialog attachmentExportDialog;
     private KeyEventDispatcher keyEventDispatcher = null;
     private int deployedChannelCount;
+    private long statusVersion;
+    private String statusFilter;
     private DebugOptions debugOptions;
     private static final int REFRESH_BLOCK_SIZE = 100;
 
@@ -2419,10 +2422,44 @@ public class Frame extends JXFrame {
     }
 
     public void doRefreshStatuses(boolean queue) {
+        doRefreshStatuses(queue, false);
+    }
+
+    /**
+     * Refreshes the dashboard with only the statuses that changed since the last refresh. Falls
+     * back to a full refresh if the server no longer knows the last status version.
+     */
+    public void doRefreshStatusChanges() {
+        doRefreshStatuses(false, true);
+    }
+
+    private void doRefreshStatuses(boolean queue, final boolean changesOnly) {
         QueuingSwingWorkerTask<Void, DashboardStatus> task = new QueuingSwingWorkerTask<Void, DashboardStatus>("doRefreshStatuses", "Loading statistics...") {
             @Override
             public Void doInBackground() {
                 try {
+                    for (DashboardColumnPlugin plugin : LoadedExtensions.getInstance().getDashboardColumnPlugins().values()) {
+                        plugin.tableUpdate(status);
+                    }
+
+                    String filter = dashboardPanel.getUserTags();
+                    long since = changesOnly && status != null && StringUtils.equals(filter, statusFilter) ? statusVersion : 0;
+                    DashboardStatusChanges statusChanges = mirthClient.getChannelStatusChanges(since, 0, filter);
+                    statusVersion = statusChanges.getVersion();
+                    statusFilter = filter;
+
+                    if (!statusChanges.isFullRefresh()) {
+                        List<DashboardStatus> changedStatuses = statusChanges.getDashboardStatuses();
+                        status = mergeStatusChanges(status, statusChanges);
+                        deployedChannelCount = statusChanges.getDeployedChannelCount();
+
+                        if (CollectionUtils.isNotEmpty(changedStatuses)) {
+                            publish(changedStatuses.toArray(new DashboardStatus[changedStatuses.size()]));
+                        }
+                        return null;
+                    }
+
+                    // Groups, dependencies and tags are only reloaded with the full status list
                     channelPanel.retrieveGroups();
                     channelPanel.retrieveDependencies();
 
@@ -2431,11 +2468,6 @@ public class Frame extends JXFrame {
                         tagsPanel.refresh();
                     }
 
-                    for (DashboardColumnPlugin plugin : LoadedExtensions.getInstance().getDashboardColumnPlugins().values()) {
-                        plugin.tableUpdate(status);
-                    }
-
-                    String filter = dashboardPanel.getUserTags();
                     DashboardChannelInfo dashboardStatusList = mirthClient.getDashboardChannelInfo(REFRESH_BLOCK_SIZE, filter);
                     status = dashboardStatusList.getDashboardStatuses();
                     Set<String> remainingIds = dashboardStatusList.getRemainingChannelIds();
@@ -2465,6 +2497,7 @@ public class Frame extends JXFrame {
                     }
                 } catch (ClientException e) {
                     status = null;
+                    statusVersion = 0;
                     SwingUtilities.invokeLater(() -> {
                         alertThrowable(PlatformUI.MIRTH_FRAME, e, e.getMessage(), false, TaskConstants.DASHBOARD_REFRESH);
                     });
@@ -2502,6 +2535,24 @@ public class Frame extends JXFrame {
         new QueuingSwingWorker<Void, DashboardStatus>(task, queue).executeDelegate();
     }
 
+    private List<DashboardStatus> mergeStatusChanges(List<DashboardStatus> statuses, DashboardStatusChanges statusChanges) {
+        Map<String, DashboardStatus> statusMap = new LinkedHashMap<String, DashboardStatus>();
+
+        for (DashboardStatus dashboardStatus : statuses) {
+            statusMap.put(dashboardStatus.getChannelId(), dashboardStatus);
+        }
+
+        for (DashboardStatus dashboardStatus : statusChanges.getDashboardStatuses()) {
+            statusMap.put(dashboardStatus.getChannelId(), dashboardStatus);
+        }
+
+        for (String channelId : statusChanges.getRemovedChannelIds()) {
+            statusMap.remove(channelId);
+        }
+
+        return new ArrayList<DashboardStatus>(statusMap.values());
+    }
+
     public int getDeployedChannelCount() {
         return deployedChannelCount;
     }
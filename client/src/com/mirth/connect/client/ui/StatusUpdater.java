@@ -40,7 +40,7 @@ public class StatusUpdater implements Runnable {
             // Stop this thread if the current content page is neither dashboard nor alert panel
             if (parent.currentContentPage != null) {
                 if (parent.currentContentPage == parent.dashboardPanel) {
-                    parent.doRefreshStatuses(false);
+                    parent.doRefreshStatusChanges();
                 } else if (parent.currentContentPage == parent.alertPanel) {
                     parent.doRefreshAlerts(false);
                 } else {
@@ -70,6 +70,7 @@ public class DestinationSettingsPanel extends JPanel {
     private int threadCount;
     private String threadAssignmentVariable;
     private int queueBufferSize;
+    private int queueBatchSize;
     private Set<ConnectorPluginProperties> pluginProperties;
 
     public DestinationSettingsPanel() {
@@ -110,6 +111,8 @@ public class DestinationSettingsPanel extends JPanel {
             queueBufferSize = channelSetup.defaultQueueBufferSize;
         }
 
+        queueBatchSize = Math.max(properties.getQueueBatchSize(), 1);
+
         validateResponseLabel.setEnabled(propertiesInterface.canValidateResponse());
         validateResponseYesRadio.setEnabled(propertiesInterface.canValidateResponse());
         validateResponseNoRadio.setEnabled(propertiesInterface.canValidateResponse());
@@ -153,6 +156,7 @@ public class DestinationSettingsPanel extends JPanel {
         properties.setThreadAssignmentVariable(threadAssignmentVariable);
         properties.setValidateResponse(validateResponseYesRadio.isSelected());
         properties.setQueueBufferSize(queueBufferSize);
+        properties.setQueueBatchSize(queueBatchSize);
         properties.setReattachAttachments(reattachAttachmentsYesRadio.isSelected());
         properties.setPluginProperties(pluginProperties);
     }
@@ -225,6 +229,10 @@ public class DestinationSettingsPanel extends JPanel {
                     list.add("Group By " + threadAssignmentVariable);
                 }
             }
+
+            if (queueBatchSize > 1) {
+                list.add("Batch Size " + String.valueOf(queueBatchSize));
+            }
         }
 
         advancedQueueSettingsValueLabel.setText(StringUtils.join(list, " / "));
@@ -387,6 +395,9 @@ public class DestinationSettingsPanel extends JPanel {
             queueBufferSizeLabel.setEnabled(queueEnabled);
             queueBufferSizeField.setEnabled(queueEnabled);
             queueBufferSizeField.setText(String.valueOf(queueBufferSize));
+            queueBatchSizeLabel.setEnabled(queueEnabled);
+            queueBatchSizeField.setEnabled(queueEnabled);
+            queueBatchSizeField.setText(String.valueOf(queueBatchSize));
 
             for (AbstractConnectorPropertiesPanel cppPanel : pluginPropertiesPanels.values()) {
                 cppPanel.setProperties(null, cppPanel.getDefaults(), Mode.DESTINATION, null);
@@ -410,6 +421,7 @@ public class DestinationSettingsPanel extends JPanel {
             retryCountField.setBackground(null);
             retryIntervalField.setBackground(null);
             queueThreadsField.setBackground(null);
+            queueBatchSizeField.setBackground(null);
 
             String errors = "";
 
@@ -433,6 +445,11 @@ public class DestinationSettingsPanel extends JPanel {
                 errors += "Queue buffer size must be greater than zero.\n";
             }
 
+            if (queueBatchSizeField.isEnabled() && NumberUtils.toInt(queueBatchSizeField.getText(), 0) <= 0) {
+                errors += "Queue batch size must be greater than zero.\n";
+                queueBatchSizeField.setBackground(UIConstants.INVALID_COLOR);
+            }
+
             if (StringUtils.isNotBlank(errors)) {
                 PlatformUI.MIRTH_FRAME.alertError(this, errors);
                 return false;
@@ -446,6 +463,7 @@ public class DestinationSettingsPanel extends JPanel {
             threadCount = NumberUtils.toInt(queueThreadsField.getText(), 1);
             threadAssignmentVariable = threadAssignmentVariableField.getText();
             queueBufferSize = NumberUtils.toInt(queueBufferSizeField.getText());
+            queueBatchSize = NumberUtils.toInt(queueBatchSizeField.getText(), 1);
 
             pluginProperties = null;
             if (!pluginPropertiesPanels.isEmpty()) {
@@ -581,6 +599,11 @@ public class DestinationSettingsPanel extends JPanel {
             queueBufferSizeField.setDocument(new MirthFieldConstraints(0, false, false, true));
             queueBufferSizeField.setToolTipText("<html>The buffer size for the destination queue.<br/>Up to this many connector messages may<br/>be held in memory at once when queuing.</html>");
 
+            queueBatchSizeLabel = new JLabel("Queue Batch Size:");
+            queueBatchSizeField = new JTextField();
+            queueBatchSizeField.setDocument(new MirthFieldConstraints(0, false, false, true));
+            queueBatchSizeField.setToolTipText("<html>The maximum number of queued messages that each queue thread sends<br/>at once and commits in one transaction. Connectors that cannot send<br/>a batch still send the messages one at a time. Use 1 to disable batching.</html>");
+
             pluginPropertiesPanels = new LinkedHashMap<String, AbstractConnectorPropertiesPanel>();
 
             for (ConnectorPropertiesPlugin plugin : LoadedExtensions.getInstance().getConnectorPropertiesPlugins().values()) {
@@ -612,7 +635,7 @@ public class DestinationSettingsPanel extends JPanel {
         private void initLayout() {
             setLayout(new MigLayout("insets 8, novisualpadding, hidemode 3, fill", "", "[grow][][]"));
 
-            containerPanel.setLayout(new MigLayout("insets 8, novisualpadding, hidemode 3, fill", "[]13[grow]", "[][][][][][][][][grow]"));
+            containerPanel.setLayout(new MigLayout("insets 8, novisualpadding, hidemode 3, fill", "[]13[grow]", "[][][][][][][][][][grow]"));
             containerPanel.add(retryCountLabel, "right");
             containerPanel.add(retryCountField, "w 75!");
             containerPanel.add(retryIntervalLabel, "newline, right");
@@ -632,6 +655,8 @@ public class DestinationSettingsPanel extends JPanel {
             containerPanel.add(threadAssignmentVariableField, "w 75!");
             containerPanel.add(queueBufferSizeLabel, "newline, right");
             containerPanel.add(queueBufferSizeField, "w 75!");
+            containerPanel.add(queueBatchSizeLabel, "newline, right");
+            containerPanel.add(queueBatchSizeField, "w 75!");
 
             for (AbstractConnectorPropertiesPanel cppPanel : pluginPropertiesPanels.values()) {
                 for (Component[] row : cppPanel.getLayoutComponents()) {
@@ -691,6 +716,8 @@ public class DestinationSettingsPanel extends JPanel {
         private JTextField threadAssignmentVariableField;
         private JLabel queueBufferSizeLabel;
         private JTextField queueBufferSizeField;
+        private JLabel queueBatchSizeLabel;
+        private JTextField queueBatchSizeField;
         private Map<String, AbstractConnectorPropertiesPanel> pluginPropertiesPanels;
         private JButton okButton;
         private JButton cancelButton;
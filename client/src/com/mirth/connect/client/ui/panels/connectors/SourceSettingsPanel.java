@@ -122,6 +122,16 @@ public class SourceSettingsPanel extends JPanel {
             batchResponseLastRadio.setSelected(true);
         }
 
+        processBatchConcurrentlyLabel.setEnabled(propertiesInterface.canBatch() && properties.isProcessBatch());
+        processBatchConcurrentlyYesRadio.setEnabled(propertiesInterface.canBatch() && properties.isProcessBatch());
+        processBatchConcurrentlyNoRadio.setEnabled(propertiesInterface.canBatch() && properties.isProcessBatch());
+
+        if (properties.isProcessBatchConcurrently()) {
+            processBatchConcurrentlyYesRadio.setSelected(true);
+        } else {
+            processBatchConcurrentlyNoRadio.setSelected(true);
+        }
+
         enableMaxProcessingThreads();
         processingThreadsField.setText(String.valueOf(properties.getProcessingThreads()));
     }
@@ -255,6 +265,8 @@ public class SourceSettingsPanel extends JPanel {
 
         properties.setFirstResponse(batchResponseFirstRadio.isSelected());
 
+        properties.setProcessBatchConcurrently(processBatchConcurrentlyYesRadio.isSelected());
+
         properties.setProcessingThreads(NumberUtils.toInt(processingThreadsField.getText(), 0));
     }
 
@@ -384,6 +396,21 @@ public class SourceSettingsPanel extends JPanel {
         batchResponseLastRadio.setToolTipText("<html>Each message in the batch contains its own response that is generated via the method selected above.<br> Select either the response from the first or last message in the batch to be sent back to the originating system.</html>");
         batchResponseButtonGroup.add(batchResponseLastRadio);
 
+        processBatchConcurrentlyLabel = new JLabel("Process Batch Concurrently:");
+        ButtonGroup processBatchConcurrentlyButtonGroup = new ButtonGroup();
+
+        String toolTipText = "<html>Select Yes to dispatch the messages of a batch on up to one thread per processing thread,<br>instead of one after another. Responses are still handled in batch order.<br>Only used when Max Processing Threads is greater than 1.</html>";
+
+        processBatchConcurrentlyYesRadio = new MirthRadioButton("Yes");
+        processBatchConcurrentlyYesRadio.setBackground(getBackground());
+        processBatchConcurrentlyYesRadio.setToolTipText(toolTipText);
+        processBatchConcurrentlyButtonGroup.add(processBatchConcurrentlyYesRadio);
+
+        processBatchConcurrentlyNoRadio = new MirthRadioButton("No");
+        processBatchConcurrentlyNoRadio.setBackground(getBackground());
+        processBatchConcurrentlyNoRadio.setToolTipText(toolTipText);
+        processBatchConcurrentlyButtonGroup.add(processBatchConcurrentlyNoRadio);
+
         processingThreadsLabel = new JLabel("Max Processing Threads:");
 
         processingThreadsField = new MirthTextField();
@@ -407,6 +434,9 @@ public class SourceSettingsPanel extends JPanel {
         add(batchResponseLabel, "newline, right");
         add(batchResponseFirstRadio, "split");
         add(batchResponseLastRadio);
+        add(processBatchConcurrentlyLabel, "newline, right");
+        add(processBatchConcurrentlyYesRadio, "split");
+        add(processBatchConcurrentlyNoRadio);
         add(processingThreadsLabel, "newline, right");
         add(processingThreadsField, "w 50!");
     }
@@ -419,12 +449,18 @@ public class SourceSettingsPanel extends JPanel {
         batchResponseLabel.setEnabled(true);
         batchResponseFirstRadio.setEnabled(true);
         batchResponseLastRadio.setEnabled(true);
+        processBatchConcurrentlyLabel.setEnabled(true);
+        processBatchConcurrentlyYesRadio.setEnabled(true);
+        processBatchConcurrentlyNoRadio.setEnabled(true);
     }
 
     private void processBatchNoRadioActionPerformed(ActionEvent evt) {
         batchResponseLabel.setEnabled(false);
         batchResponseFirstRadio.setEnabled(false);
         batchResponseLastRadio.setEnabled(false);
+        processBatchConcurrentlyLabel.setEnabled(false);
+        processBatchConcurrentlyYesRadio.setEnabled(false);
+        processBatchConcurrentlyNoRadio.setEnabled(false);
     }
 
     private JLabel sourceQueueLabel;
@@ -440,6 +476,9 @@ public class SourceSettingsPanel extends JPanel {
     private JLabel batchResponseLabel;
     private MirthRadioButton batchResponseFirstRadio;
     private MirthRadioButton batchResponseLastRadio;
+    private JLabel processBatchConcurrentlyLabel;
+    private MirthRadioButton processBatchConcurrentlyYesRadio;
+    private MirthRadioButton processBatchConcurrentlyNoRadio;
     private JLabel processingThreadsLabel;
     private MirthTextField processingThreadsField;
 }
\ No newline at end of file
@@ -133,6 +133,8 @@ public class FileReader extends ConnectorSettingsPanel {
             properties.setSortBy(FileReceiverProperties.SORT_BY_DATE);
         }
 
+        properties.setProcessFilesConcurrently(processFilesConcurrentlyYesRadio.isSelected());
+
         properties.setCharsetEncoding(parent.getSelectedEncodingForConnector(charsetEncodingComboBox));
         properties.setFileFilter(fileNameFilterField.getText());
         properties.setRegex(filenameFilterRegexCheckBox.isSelected());
@@ -297,6 +299,12 @@ public class FileReader extends ConnectorSettingsPanel {
             sortByComboBox.setSelectedItem("Date");
         }
 
+        if (props.isProcessFilesConcurrently()) {
+            processFilesConcurrentlyYesRadio.setSelected(true);
+        } else {
+            processFilesConcurrentlyNoRadio.setSelected(true);
+        }
+
         parent.setPreviousSelectedEncodingForConnector(charsetEncodingComboBox, props.getCharsetEncoding());
 
         fileNameFilterField.setText(props.getFileFilter());
@@ -788,6 +796,28 @@ public class FileReader extends ConnectorSettingsPanel {
         sortByComboBox.setModel(new DefaultComboBoxModel(new String[] { "Date", "Name", "Size" }));
         sortByComboBox.setToolTipText("<html>Selects the order in which files should be processed, if there are multiple files available to be processed.<br>Files can be processed by Date (oldest last modification date first), Size (smallest first) or name (a before z, etc.).</html>");
 
+        processFilesConcurrentlyLabel = new JLabel();
+        processFilesConcurrentlyLabel.setText("Process Files Concurrently:");
+
+        processFilesConcurrentlyYesRadio = new MirthRadioButton();
+        processFilesConcurrentlyYesRadio.setBackground(UIConstants.BACKGROUND_COLOR);
+        processFilesConcurrentlyYesRadio.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 0));
+        processFilesConcurrentlyYesRadio.setText("Yes");
+        processFilesConcurrentlyYesRadio.setToolTipText("<html>Select Yes to process the files of a poll on up to one thread per source processing thread.<br>The file that completes the poll is still processed last.</html>");
+        processFilesConcurrentlyYesRadio.setMargin(new Insets(0, 0, 0, 0));
+
+        processFilesConcurrentlyNoRadio = new MirthRadioButton();
+        processFilesConcurrentlyNoRadio.setBackground(UIConstants.BACKGROUND_COLOR);
+        processFilesConcurrentlyNoRadio.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 0));
+        processFilesConcurrentlyNoRadio.setSelected(true);
+        processFilesConcurrentlyNoRadio.setText("No");
+        processFilesConcurrentlyNoRadio.setToolTipText("Select No to process the files of a poll one at a time, in the sorted order.");
+        processFilesConcurrentlyNoRadio.setMargin(new Insets(0, 0, 0, 0));
+
+        processFilesConcurrentlyButtonGroup = new ButtonGroup();
+        processFilesConcurrentlyButtonGroup.add(processFilesConcurrentlyYesRadio);
+        processFilesConcurrentlyButtonGroup.add(processFilesConcurrentlyNoRadio);
+
         fileTypeLabel = new JLabel();
         fileTypeLabel.setText("File Type:");
 
@@ -928,6 +958,10 @@ public class FileReader extends ConnectorSettingsPanel {
         add(sortFilesByLabel, "newline");
         add(sortByComboBox, "w 75!, spanx");
 
+        add(processFilesConcurrentlyLabel, "newline");
+        add(processFilesConcurrentlyYesRadio, "split 2, spanx");
+        add(processFilesConcurrentlyNoRadio);
+
         add(fileTypeLabel, "newline");
         add(fileTypeBinary, "split 2, spanx");
         add(fileTypeText);
@@ -1298,6 +1332,10 @@ public class FileReader extends ConnectorSettingsPanel {
     private JLabel schemeLabel;
     private MirthComboBox sortByComboBox;
     private JLabel sortFilesByLabel;
+    private ButtonGroup processFilesConcurrentlyButtonGroup;
+    private JLabel processFilesConcurrentlyLabel;
+    private MirthRadioButton processFilesConcurrentlyNoRadio;
+    private MirthRadioButton processFilesConcurrentlyYesRadio;
     private JButton testConnectionButton;
     private MirthTextField timeoutField;
     private JLabel timeoutLabel;
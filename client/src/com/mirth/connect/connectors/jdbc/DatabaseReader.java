@@ -96,6 +96,7 @@ public class DatabaseReader extends ConnectorSettingsPanel {
         properties.setKeepConnectionOpen(keepConnectionOpenYesRadio.isSelected());
         properties.setAggregateResults(aggregateResultsYesRadio.isSelected());
         properties.setCacheResults(cacheResultsYesRadio.isSelected());
+        properties.setStreamResults(streamResultsYesRadio.isSelected());
         properties.setFetchSize(fetchSizeField.getText());
         properties.setRetryCount(retryCountField.getText());
         properties.setRetryInterval(retryIntervalField.getText());
@@ -150,6 +151,12 @@ public class DatabaseReader extends ConnectorSettingsPanel {
             keepConnectionOpenNoRadio.setSelected(true);
         }
 
+        if (props.isStreamResults()) {
+            streamResultsYesRadio.setSelected(true);
+        } else {
+            streamResultsNoRadio.setSelected(true);
+        }
+
         if (props.isCacheResults()) {
             cacheResultsYesRadio.setSelected(true);
             cacheResultsYesButtonActionPerformed();
@@ -528,6 +535,19 @@ public class DatabaseReader extends ConnectorSettingsPanel {
         cacheResultsNoRadio.addActionListener(evt -> cacheResultsNoButtonActionPerformed());
         cacheResultsButtonGroup.add(cacheResultsNoRadio);
 
+        streamResultsLabel = new JLabel("Stream Results:");
+        ButtonGroup streamResultsButtonGroup = new ButtonGroup();
+
+        streamResultsYesRadio = new MirthRadioButton("Yes");
+        streamResultsYesRadio.setBackground(getBackground());
+        streamResultsYesRadio.addActionListener(evt -> streamResultsActionPerformed());
+        streamResultsButtonGroup.add(streamResultsYesRadio);
+
+        streamResultsNoRadio = new MirthRadioButton("No");
+        streamResultsNoRadio.setBackground(getBackground());
+        streamResultsNoRadio.addActionListener(evt -> streamResultsActionPerformed());
+        streamResultsButtonGroup.add(streamResultsNoRadio);
+
         fetchSizeLabel = new JLabel("Fetch Size:");
         fetchSizeField = new MirthTextField();
         fetchSizeField.setDocument(new MirthFieldConstraints(9, false, false, true));
@@ -627,6 +647,9 @@ public class DatabaseReader extends ConnectorSettingsPanel {
 
         cacheResultsYesRadio.setToolTipText("<html>Cache the entire result set in memory prior to processing messages.</html>");
         cacheResultsNoRadio.setToolTipText("<html>Do not cache the entire result set in memory prior to processing messages.</html>");
+        toolTipText = "<html>If enabled, the rows returned by the query are read through a cursor, using the fetch size,<br/>while the rows read before them are processed, instead of being loaded into memory at once.<br/>Cache Results is ignored in this mode. Some drivers (e.g. MySQL) need additional URL options to stream.</html>";
+        streamResultsYesRadio.setToolTipText(toolTipText);
+        streamResultsNoRadio.setToolTipText(toolTipText);
         fetchSizeField.setToolTipText("<html>The JDBC ResultSet fetch size to be used when fetching results from the current cursor position.</html>");
         retryCountField.setToolTipText("<html>The number of times to retry executing the statement or script if an error occurs.</html>");
         retryIntervalField.setToolTipText("<html>The amount of time that should elapse between retry attempts.</html>");
@@ -643,7 +666,7 @@ public class DatabaseReader extends ConnectorSettingsPanel {
     }
 
     private void initLayout() {
-        setLayout(new MigLayout("insets 0, novisualpadding, hidemode 3, fill, gap 6", "[]12[grow]", "[][][][][][][][][][][][][sgy][][sgy]"));
+        setLayout(new MigLayout("insets 0, novisualpadding, hidemode 3, fill, gap 6", "[]12[grow]", "[][][][][][][][][][][][][][sgy][][sgy]"));
 
         add(driverLabel, "right");
         add(driverComboBox, "split 3");
@@ -668,6 +691,9 @@ public class DatabaseReader extends ConnectorSettingsPanel {
         add(cacheResultsLabel, "newline, right");
         add(cacheResultsYesRadio, "split");
         add(cacheResultsNoRadio);
+        add(streamResultsLabel, "newline, right");
+        add(streamResultsYesRadio, "split");
+        add(streamResultsNoRadio);
         add(fetchSizeLabel, "newline, right");
         add(fetchSizeField, "w 121!");
         add(retryCountLabel, "newline, right");
@@ -827,6 +853,10 @@ public class DatabaseReader extends ConnectorSettingsPanel {
         keepConnectionOpenNoRadio.setEnabled(true);
         keepConnectionOpenYesRadio.setEnabled(true);
 
+        streamResultsLabel.setEnabled(true);
+        streamResultsNoRadio.setEnabled(true);
+        streamResultsYesRadio.setEnabled(true);
+
         aggregateResultsActionPerformed(aggregateResultsYesRadio.isSelected());
 
         update();
@@ -855,6 +885,10 @@ public class DatabaseReader extends ConnectorSettingsPanel {
         cacheResultsNoRadio.setEnabled(false);
         cacheResultsYesRadio.setEnabled(false);
 
+        streamResultsLabel.setEnabled(false);
+        streamResultsNoRadio.setEnabled(false);
+        streamResultsYesRadio.setEnabled(false);
+
         fetchSizeField.setEnabled(false);
         fetchSizeLabel.setEnabled(false);
         update();
@@ -887,6 +921,10 @@ public class DatabaseReader extends ConnectorSettingsPanel {
         fetchSizeLabel.setEnabled(useJavaScriptNoRadio.isSelected());
     }
 
+    private void streamResultsActionPerformed() {
+        aggregateResultsActionPerformed(aggregateResultsYesRadio.isSelected());
+    }
+
     private void updateNeverActionPerformed() {
         postProcessSQLLabel.setEnabled(false);
         postProcessSQLTextPane.setEnabled(false);
@@ -1034,6 +1072,15 @@ public class DatabaseReader extends ConnectorSettingsPanel {
             runPostProcessSQLOnceRadio.setText("Once after all messages");
             runPostProcessSQLOnceRadio.setToolTipText("<html>Run the post-process statement/script only after all messages have finished processing.</html>");
         }
+
+        // Streamed results are never cached, and are always fetched using the fetch size
+        if (useJavaScriptNoRadio.isSelected() && streamResultsYesRadio.isSelected()) {
+            cacheResultsLabel.setEnabled(false);
+            cacheResultsYesRadio.setEnabled(false);
+            cacheResultsNoRadio.setEnabled(false);
+            fetchSizeField.setEnabled(true);
+            fetchSizeLabel.setEnabled(true);
+        }
     }
 
     private JLabel driverLabel;
@@ -1059,6 +1106,9 @@ public class DatabaseReader extends ConnectorSettingsPanel {
     private JLabel cacheResultsLabel;
     private MirthRadioButton cacheResultsYesRadio;
     private MirthRadioButton cacheResultsNoRadio;
+    private JLabel streamResultsLabel;
+    private MirthRadioButton streamResultsYesRadio;
+    private MirthRadioButton streamResultsNoRadio;
     private JLabel fetchSizeLabel;
     private MirthTextField fetchSizeField;
     private JLabel retryCountLabel;
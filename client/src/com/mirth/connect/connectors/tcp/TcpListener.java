@@ -107,6 +107,7 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
         properties.setBufferSize(bufferSizeField.getText());
         properties.setMaxConnections(maxConnectionsField.getText());
         properties.setKeepConnectionOpen(keepConnectionOpenYesRadio.isSelected());
+        properties.setEventDrivenConnections(eventDrivenConnectionsYesRadio.isSelected());
         properties.setCharsetEncoding(parent.getSelectedEncodingForConnector(charsetEncodingComboBox));
         properties.setDataTypeBinary(dataTypeBinaryRadio.isSelected());
 
@@ -176,6 +177,12 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
             keepConnectionOpenNoRadio.setSelected(true);
         }
 
+        if (props.isEventDrivenConnections()) {
+            eventDrivenConnectionsYesRadio.setSelected(true);
+        } else {
+            eventDrivenConnectionsNoRadio.setSelected(true);
+        }
+
         if (props.isDataTypeBinary()) {
             dataTypeBinaryRadio.setSelected(true);
             dataTypeBinaryRadioActionPerformed();
@@ -418,6 +425,17 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
         keepConnectionOpenNoRadio.setBackground(getBackground());
         keepConnectionOpenGroup.add(keepConnectionOpenNoRadio);
 
+        eventDrivenConnectionsLabel = new JLabel("Event-Driven Connections:");
+        ButtonGroup eventDrivenConnectionsGroup = new ButtonGroup();
+
+        eventDrivenConnectionsYesRadio = new MirthRadioButton("Yes");
+        eventDrivenConnectionsYesRadio.setBackground(getBackground());
+        eventDrivenConnectionsGroup.add(eventDrivenConnectionsYesRadio);
+
+        eventDrivenConnectionsNoRadio = new MirthRadioButton("No");
+        eventDrivenConnectionsNoRadio.setBackground(getBackground());
+        eventDrivenConnectionsGroup.add(eventDrivenConnectionsNoRadio);
+
         dataTypeLabel = new JLabel("Data Type:");
         ButtonGroup dataTypeButtonGroup = new ButtonGroup();
 
@@ -509,6 +527,10 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
         keepConnectionOpenYesRadio.setToolTipText(toolTipText);
         keepConnectionOpenNoRadio.setToolTipText(toolTipText);
 
+        toolTipText = "<html>Select Yes to watch idle client connections on a single thread, and only use a thread per connection<br/>while a message is being received and processed. This is useful for many mostly idle connections.<br/>Select No to use a dedicated thread for each client connection.<br/>Only used in Server mode, and only supported with the default socket configuration (e.g. not with TLS).</html>";
+        eventDrivenConnectionsYesRadio.setToolTipText(toolTipText);
+        eventDrivenConnectionsNoRadio.setToolTipText(toolTipText);
+
         toolTipText = "<html>Select Binary if the inbound messages are raw byte streams; the payload will be Base64 encoded.<br>Select Text if the inbound messages are text streams; the payload will be encoded with the specified character set encoding.</html>";
         dataTypeBinaryRadio.setToolTipText(toolTipText);
         dataTypeTextRadio.setToolTipText(toolTipText);
@@ -531,7 +553,7 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
     }
 
     private void initLayout() {
-        setLayout(new MigLayout("insets 0, novisualpadding, hidemode 3, gap 12 6", "", "[][]4[]4[][]4[]4[][][][]4[]4[]4[]4[]4[][]"));
+        setLayout(new MigLayout("insets 0, novisualpadding, hidemode 3, gap 12 6", "", "[][]4[]4[][]4[]4[][][][]4[]4[]4[]4[]4[]4[][]"));
 
         add(transmissionModeLabel, "right");
         add(transmissionModeComboBox, "h 22!, split 2");
@@ -562,6 +584,9 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
         add(keepConnectionOpenLabel, "newline, right");
         add(keepConnectionOpenYesRadio, "split 2");
         add(keepConnectionOpenNoRadio);
+        add(eventDrivenConnectionsLabel, "newline, right");
+        add(eventDrivenConnectionsYesRadio, "split 2");
+        add(eventDrivenConnectionsNoRadio);
         add(dataTypeLabel, "newline, right");
         add(dataTypeBinaryRadio, "split 2");
         add(dataTypeTextRadio);
@@ -618,6 +643,9 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
         reconnectIntervalField.setEnabled(true);
         maxConnectionsLabel.setEnabled(false);
         maxConnectionsField.setEnabled(false);
+        eventDrivenConnectionsLabel.setEnabled(false);
+        eventDrivenConnectionsYesRadio.setEnabled(false);
+        eventDrivenConnectionsNoRadio.setEnabled(false);
     }
 
     private void modeServerRadioActionPerformed() {
@@ -632,6 +660,9 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
         reconnectIntervalField.setEnabled(false);
         maxConnectionsLabel.setEnabled(true);
         maxConnectionsField.setEnabled(true);
+        eventDrivenConnectionsLabel.setEnabled(true);
+        eventDrivenConnectionsYesRadio.setEnabled(true);
+        eventDrivenConnectionsNoRadio.setEnabled(true);
     }
 
     private void transmissionModeComboBoxActionPerformed() {
@@ -725,6 +756,9 @@ public class TcpListener extends ConnectorSettingsPanel implements ActionListene
     private JLabel keepConnectionOpenLabel;
     private MirthRadioButton keepConnectionOpenYesRadio;
     private MirthRadioButton keepConnectionOpenNoRadio;
+    private JLabel eventDrivenConnectionsLabel;
+    private MirthRadioButton eventDrivenConnectionsYesRadio;
+    private MirthRadioButton eventDrivenConnectionsNoRadio;
     private JLabel dataTypeLabel;
     private MirthRadioButton dataTypeBinaryRadio;
     private MirthRadioButton dataTypeTextRadio;
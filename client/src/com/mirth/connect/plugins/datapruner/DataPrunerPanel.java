@@ -32,6 +32,7 @@ import javax.swing.border.TitledBorder;
 import net.miginfocom.swing.MigLayout;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 
 import com.mirth.connect.client.core.ClientException;
@@ -53,6 +54,7 @@ import com.mirth.connect.util.messagewriter.MessageWriterOptions;
 public class DataPrunerPanel extends AbstractSettingsPanel {
     private static final int MIN_PRUNING_BLOCK_SIZE = 50;
     private static final int MAX_PRUNING_BLOCK_SIZE = 10000;
+    private static final int MAX_WORKER_COUNT = 16;
     private final static Color ACTIVE_STATUS_COLOR = new Color(200, 0, 0);
     private final static Color INACTIVE_STATUS_COLOR = new Color(0, 100, 0);
     private final static Color UNKNOWN_STATUS_COLOR = new Color(0, 0, 0);
@@ -80,6 +82,8 @@ public class DataPrunerPanel extends AbstractSettingsPanel {
         initLayout();
 
         blockSizeTextField.setDocument(new MirthFieldConstraints(0, false, false, true));
+        workerCountTextField.setDocument(new MirthFieldConstraints(0, false, false, true));
+        blockDelayTextField.setDocument(new MirthFieldConstraints(0, false, false, true));
         pruneEventAgeTextField.setDocument(new MirthFieldConstraints(0, false, false, true));
     }
 
@@ -125,6 +129,8 @@ public class DataPrunerPanel extends AbstractSettingsPanel {
         archiverPanel.resetInvalidProperties();
         pruneEventAgeTextField.setBackground(null);
         blockSizeTextField.setBackground(null);
+        workerCountTextField.setBackground(null);
+        blockDelayTextField.setBackground(null);
 
         pollingSettingsPanel.setInvalidProperties(false, false);
         if (yesEnabledRadio.isSelected()) {
@@ -150,6 +156,23 @@ public class DataPrunerPanel extends AbstractSettingsPanel {
             valid = false;
         }
 
+        int workerCount = NumberUtils.toInt(workerCountTextField.getText());
+        if (workerCount < 1 || workerCount > MAX_WORKER_COUNT) {
+            workerCountTextField.setBackground(UIConstants.INVALID_COLOR);
+            builder.append("\n");
+            builder.append("Workers must be between 1 and " + MAX_WORKER_COUNT + ".");
+
+            valid = false;
+        }
+
+        if (StringUtils.isBlank(blockDelayTextField.getText())) {
+            blockDelayTextField.setBackground(UIConstants.INVALID_COLOR);
+            builder.append("\n");
+            builder.append("Block Delay is required.");
+
+            valid = false;
+        }
+
         if (pruneEventsYes.isSelected() && StringUtils.isBlank(pruneEventAgeTextField.getText())) {
             pruneEventAgeTextField.setBackground(UIConstants.INVALID_COLOR);
             builder.append("\n");
@@ -321,6 +344,9 @@ public class DataPrunerPanel extends AbstractSettingsPanel {
             blockSizeTextField.setText("1000");
         }
 
+        workerCountTextField.setText(StringUtils.defaultIfEmpty(properties.getProperty("workerCount"), "1"));
+        blockDelayTextField.setText(StringUtils.defaultIfEmpty(properties.getProperty("blockDelay"), "0"));
+
         if (Boolean.parseBoolean(properties.getProperty("pruneEvents", Boolean.FALSE.toString()))) {
             pruneEventsYes.setSelected(true);
             pruneEventsNo.setSelected(false);
@@ -372,6 +398,8 @@ public class DataPrunerPanel extends AbstractSettingsPanel {
         properties.setProperty("pollingProperties", serializer.serialize(pollingSettingsPanel.getProperties()));
 
         properties.setProperty("pruningBlockSize", blockSizeTextField.getText());
+        properties.setProperty("workerCount", workerCountTextField.getText());
+        properties.setProperty("blockDelay", blockDelayTextField.getText());
         properties.setProperty("pruneEvents", Boolean.toString(pruneEventsYes.isSelected()));
         properties.setProperty("maxEventAge", pruneEventAgeTextField.getText());
 
@@ -494,6 +522,16 @@ public class DataPrunerPanel extends AbstractSettingsPanel {
         blockSizeTextField = new MirthTextField();
         blockSizeTextField.setToolTipText("<html>The number of messages that will be pruned at a time. This value must<br/>be between 50 and 10000. The recommended value for most servers is 1000.</html>");
 
+        workerCountLabel = new JLabel("Workers:");
+        workerCountTextField = new MirthTextField();
+        workerCountTextField.setToolTipText("<html>The number of channels that will be pruned at the same time. This value must<br/>be between 1 and 16. Use 1 to prune one channel at a time.</html>");
+
+        blockDelayLabel = new JLabel("Block Delay:");
+        blockDelayTextField = new MirthTextField();
+        blockDelayTextField.setToolTipText("<html>The number of milliseconds to pause after each block of deletes, to leave the database<br/>time for message processing. Use 0 to prune without pausing.</html>");
+
+        blockDelayMsLabel = new JLabel("ms");
+
         pruneEventsLabel = new JLabel("Prune Events:");
 
         pruneEventsYes = new MirthRadioButton("Yes");
@@ -561,6 +599,11 @@ public class DataPrunerPanel extends AbstractSettingsPanel {
         pruneSettingsPanel.setLayout(new MigLayout("hidemode 3, novisualpadding, insets 0", "11[right]12[left]"));
         pruneSettingsPanel.add(blockSizeLabel);
         pruneSettingsPanel.add(blockSizeTextField, "w 75!, h 22!, wrap");
+        pruneSettingsPanel.add(workerCountLabel);
+        pruneSettingsPanel.add(workerCountTextField, "w 75!, h 22!, wrap");
+        pruneSettingsPanel.add(blockDelayLabel);
+        pruneSettingsPanel.add(blockDelayTextField, "w 75!, h 22!, split");
+        pruneSettingsPanel.add(blockDelayMsLabel, "gapleft 8, wrap");
         pruneSettingsPanel.add(pruneEventsLabel);
         pruneSettingsPanel.add(pruneEventsYes, "split");
         pruneSettingsPanel.add(pruneEventsNo, "wrap");
@@ -612,6 +655,11 @@ public class DataPrunerPanel extends AbstractSettingsPanel {
     private JPanel pruneSettingsPanel;
     private JLabel blockSizeLabel;
     private MirthTextField blockSizeTextField;
+    private JLabel workerCountLabel;
+    private MirthTextField workerCountTextField;
+    private JLabel blockDelayLabel;
+    private MirthTextField blockDelayTextField;
+    private JLabel blockDelayMsLabel;
     private JLabel pruneEventsLabel;
     private MirthRadioButton pruneEventsYes;
     private MirthRadioButton pruneEventsNo;
@@ -25,6 +25,13 @@ public class DatabaseConstants {
     public static final String DATABASE_TEST_QUERY = "database.test-query";
     public static final String DATABASE_CONN_MAX_RETRY = "database.connection.maxretry";
     public static final String DATABASE_CONN_RETRY_TIMEOUT = "database.connection.retrywaitinmilliseconds";
+    public static final String DATABASE_MESSAGE_ID_BLOCK_SIZE = "database.message-id-block-size";
+    public static final String DATABASE_GROUP_COMMIT = "database.group-commit";
+    public static final String DATABASE_GROUP_COMMIT_WRITERS = "database.group-commit.writers";
+    public static final String DATABASE_GROUP_COMMIT_MAX_SIZE = "database.group-commit.max-size";
+    public static final String DATABASE_CONTENT_INDEX = "database.content-index";
+    public static final String DATABASE_CONTENT_INDEX_QUEUE_SIZE = "database.content-index.queue-size";
+    public static final String DATABASE_COMPACT_MAPS = "database.compact-maps";
 
     public static final String DATABASE_READONLY = "database-readonly";
     public static final String DATABASE_READONLY_URL = "database-readonly.url";
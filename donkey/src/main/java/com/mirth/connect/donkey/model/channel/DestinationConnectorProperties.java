@@ -36,6 +36,7 @@ public class DestinationConnectorProperties implements Serializable, Migratable,
     private boolean validateResponse;
     private Map<String, String> resourceIds;
     private int queueBufferSize;
+    private int queueBatchSize;
     private boolean reattachAttachments;
     private Set<ConnectorPluginProperties> pluginProperties;
 
@@ -57,6 +58,7 @@ public class DestinationConnectorProperties implements Serializable, Migratable,
         this.resourceIds = new LinkedHashMap<String, String>();
         resourceIds.put("Default Resource", "[Default Resource]");
         this.queueBufferSize = 0;
+        this.queueBatchSize = 1;
         reattachAttachments = true;
     }
 
@@ -73,6 +75,7 @@ public class DestinationConnectorProperties implements Serializable, Migratable,
         validateResponse = props.isValidateResponse();
         resourceIds = new LinkedHashMap<String, String>(props.getResourceIds());
         queueBufferSize = props.getQueueBufferSize();
+        queueBatchSize = props.getQueueBatchSize();
         reattachAttachments = props.isReattachAttachments();
 
         if (props.getPluginProperties() != null) {
@@ -179,6 +182,18 @@ public class DestinationConnectorProperties implements Serializable, Migratable,
         this.queueBufferSize = queueBufferSize;
     }
 
+    /**
+     * The maximum number of queued messages that a queue thread sends with one dispatcher call and
+     * commits in one transaction. Values of one or less send messages one at a time.
+     */
+    public int getQueueBatchSize() {
+        return queueBatchSize;
+    }
+
+    public void setQueueBatchSize(int queueBatchSize) {
+        this.queueBatchSize = queueBatchSize;
+    }
+
     public boolean isReattachAttachments() {
         return reattachAttachments;
     }
@@ -277,6 +292,7 @@ public class DestinationConnectorProperties implements Serializable, Migratable,
         purgedProperties.put("validateResponse", validateResponse);
         purgedProperties.put("resourceIdsCount", resourceIds.size());
         purgedProperties.put("queueBufferSize", queueBufferSize);
+        purgedProperties.put("queueBatchSize", queueBatchSize);
         purgedProperties.put("reattachAttachments", reattachAttachments);
 
         Set<Map<String, Object>> purgedPluginProperties = new HashSet<Map<String, Object>>();
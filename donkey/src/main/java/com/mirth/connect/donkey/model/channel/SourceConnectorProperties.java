@@ -73,6 +73,7 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
     private boolean respondAfterProcessing;
     private boolean processBatch;
     private boolean firstResponse;
+    private boolean processBatchConcurrently;
     private int processingThreads;
     private Map<String, String> resourceIds;
     private int queueBufferSize;
@@ -86,6 +87,7 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
         this.respondAfterProcessing = true;
         this.processBatch = false;
         this.firstResponse = false;
+        this.processBatchConcurrently = false;
         this.processingThreads = 1;
         this.resourceIds = new LinkedHashMap<String, String>();
         resourceIds.put("Default Resource", "[Default Resource]");
@@ -124,6 +126,18 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
         this.firstResponse = firstResponse;
     }
 
+    /**
+     * If true, the messages of a batch are dispatched by up to one thread per processing thread
+     * instead of one after another. Responses are still handled in batch order.
+     */
+    public boolean isProcessBatchConcurrently() {
+        return processBatchConcurrently;
+    }
+
+    public void setProcessBatchConcurrently(boolean processBatchConcurrently) {
+        this.processBatchConcurrently = processBatchConcurrently;
+    }
+
     public int getProcessingThreads() {
         return processingThreads;
     }
@@ -225,6 +239,7 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
         purgedProperties.put("respondAfterProcessing", respondAfterProcessing);
         purgedProperties.put("processBatch", processBatch);
         purgedProperties.put("firstResponse", firstResponse);
+        purgedProperties.put("processBatchConcurrently", processBatchConcurrently);
         purgedProperties.put("processingThreads", processingThreads);
         purgedProperties.put("resourceIdsCount", resourceIds.size());
         purgedProperties.put("queueBufferSize", queueBufferSize);
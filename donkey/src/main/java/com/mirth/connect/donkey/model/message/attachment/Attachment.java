@@ -9,7 +9,13 @@
 
 package com.mirth.connect.donkey.model.message.attachment;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+
+import org.apache.commons.io.IOUtils;
 
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
@@ -20,6 +26,7 @@ public class Attachment implements Serializable {
     private String type;
     private boolean encrypt;
     private String encryptionHeader;
+    private transient InputStream binaryStream;
 
     public Attachment() {
 
@@ -49,12 +56,58 @@ public class Attachment implements Serializable {
         this.id = id;
     }
 
+    /**
+     * Returns the attachment content. If the content was set as a stream, the stream is read fully
+     * into memory first, so large attachments should be read with getBinaryStream instead.
+     */
     public byte[] getContent() {
+        if (content == null && binaryStream != null) {
+            try {
+                content = IOUtils.toByteArray(binaryStream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                IOUtils.closeQuietly(binaryStream);
+                binaryStream = null;
+            }
+        }
+
         return content;
     }
 
     public void setContent(byte[] content) {
         this.content = content;
+        this.binaryStream = null;
+    }
+
+    /**
+     * Returns true if the content was set as a stream that has not been read yet.
+     */
+    public boolean hasBinaryStream() {
+        return binaryStream != null;
+    }
+
+    /**
+     * Returns a stream over the attachment content. If the content was set as a stream, that
+     * stream is returned and can only be read once.
+     */
+    public InputStream getBinaryStream() {
+        if (binaryStream != null) {
+            InputStream binaryStream = this.binaryStream;
+            this.binaryStream = null;
+            return binaryStream;
+        }
+
+        return content != null ? new ByteArrayInputStream(content) : null;
+    }
+
+    /**
+     * Sets the attachment content as a stream, so that it can be stored without being held in
+     * memory as a whole. The stream is closed once it has been read.
+     */
+    public void setBinaryStream(InputStream binaryStream) {
+        this.binaryStream = binaryStream;
+        this.content = null;
     }
 
     public String getType() {
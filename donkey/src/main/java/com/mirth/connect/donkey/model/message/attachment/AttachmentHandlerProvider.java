@@ -9,6 +9,7 @@
 
 package com.mirth.connect.donkey.model.message.attachment;
 
+import java.io.OutputStream;
 import java.util.Map;
 
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
@@ -24,6 +25,8 @@ public interface AttachmentHandlerProvider {
 
     public byte[] reAttachMessage(String raw, ConnectorMessage connectorMessage, String charsetEncoding, boolean binary, boolean reattach, boolean localOnly, Map<String, Attachment> remainingAttachments);
 
+    public void reAttachMessage(String raw, ConnectorMessage connectorMessage, String charsetEncoding, boolean binary, boolean reattach, OutputStream outputStream) throws Exception;
+
     public String reAttachMessage(ConnectorMessage message, boolean reattach);
 
     public String reAttachMessage(String raw, ConnectorMessage message, boolean reattach);
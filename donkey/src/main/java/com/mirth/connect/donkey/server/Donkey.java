@@ -9,6 +9,8 @@
 
 package com.mirth.connect.donkey.server;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -30,6 +32,8 @@ import com.mirth.connect.donkey.server.controllers.ChannelController;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
 import com.mirth.connect.donkey.server.data.DonkeyStatisticsUpdater;
+import com.mirth.connect.donkey.server.data.buffered.GroupCommitWriter;
+import com.mirth.connect.donkey.server.data.index.MessageContentIndex;
 import com.mirth.connect.donkey.server.data.jdbc.JdbcDaoFactory;
 import com.mirth.connect.donkey.server.data.jdbc.XmlQuerySource;
 import com.mirth.connect.donkey.server.data.jdbc.XmlQuerySource.XmlQuerySourceException;
@@ -64,6 +68,8 @@ public class Donkey {
     private Encryptor encryptor;
     private EventDispatcher eventDispatcher;
     private DonkeyStatisticsUpdater statisticsUpdater;
+    private GroupCommitWriter groupCommitWriter;
+    private MessageContentIndex contentIndex;
     private Logger logger = LogManager.getLogger(getClass());
     private boolean running = false;
 
@@ -134,6 +140,28 @@ public class Donkey {
         statisticsUpdater = new DonkeyStatisticsUpdater(daoFactory, updateInterval);
         statisticsUpdater.start();
 
+        if (Boolean.parseBoolean(dbProperties.getProperty(DatabaseConstants.DATABASE_GROUP_COMMIT))) {
+            int writerCount = NumberUtils.toInt(dbProperties.getProperty(DatabaseConstants.DATABASE_GROUP_COMMIT_WRITERS), GroupCommitWriter.DEFAULT_WRITER_COUNT);
+            int maxGroupSize = NumberUtils.toInt(dbProperties.getProperty(DatabaseConstants.DATABASE_GROUP_COMMIT_MAX_SIZE), GroupCommitWriter.DEFAULT_MAX_GROUP_SIZE);
+            groupCommitWriter = new GroupCommitWriter(writerCount, maxGroupSize);
+            groupCommitWriter.start();
+        } else {
+            groupCommitWriter = null;
+        }
+
+        contentIndex = null;
+        if (Boolean.parseBoolean(dbProperties.getProperty(DatabaseConstants.DATABASE_CONTENT_INDEX))) {
+            int queueSize = NumberUtils.toInt(dbProperties.getProperty(DatabaseConstants.DATABASE_CONTENT_INDEX_QUEUE_SIZE), MessageContentIndex.DEFAULT_QUEUE_SIZE);
+            MessageContentIndex index = new MessageContentIndex(new File(donkeyConfiguration.getAppData(), "contentindex"), queueSize);
+
+            try {
+                index.start();
+                contentIndex = index;
+            } catch (IOException e) {
+                logger.error("Could not start the message content index, content searches will only use the database.", e);
+            }
+        }
+
         running = true;
     }
 
@@ -150,6 +178,11 @@ public class Donkey {
         jdbcDaoFactory.setSerializerProvider(serializerProvider);
         jdbcDaoFactory.setQuerySource(xmlQuerySource);
 
+        if (!readOnly) {
+            jdbcDaoFactory.setMessageIdBlockSize(NumberUtils.toInt(donkeyConfiguration.getDonkeyProperties().getProperty(DatabaseConstants.DATABASE_MESSAGE_ID_BLOCK_SIZE), 1));
+            jdbcDaoFactory.setCompactMaps(Boolean.parseBoolean(donkeyConfiguration.getDonkeyProperties().getProperty(DatabaseConstants.DATABASE_COMPACT_MAPS)));
+        }
+
         return jdbcDaoFactory;
     }
 
@@ -173,11 +206,30 @@ public class Donkey {
         return statisticsUpdater;
     }
 
+    public GroupCommitWriter getGroupCommitWriter() {
+        return groupCommitWriter;
+    }
+
+    /**
+     * Returns the message content index, or null if it is not enabled.
+     */
+    public MessageContentIndex getContentIndex() {
+        return contentIndex;
+    }
+
     public void stopEngine() {
+        if (groupCommitWriter != null) {
+            groupCommitWriter.shutdown();
+        }
+
         if (statisticsUpdater != null) {
             statisticsUpdater.shutdown();
         }
 
+        if (contentIndex != null) {
+            contentIndex.stop();
+        }
+
         running = false;
     }
 
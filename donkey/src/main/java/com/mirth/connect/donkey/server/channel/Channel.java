@@ -85,6 +85,7 @@ import com.mirth.connect.donkey.server.message.batch.BatchAdaptorFactory;
 import com.mirth.connect.donkey.server.queue.ConnectorMessageQueueDataSource;
 import com.mirth.connect.donkey.server.queue.DestinationQueue;
 import com.mirth.connect.donkey.server.queue.SourceQueue;
+import com.mirth.connect.donkey.util.ActionTimer;
 import com.mirth.connect.donkey.util.Base64Util;
 import com.mirth.connect.donkey.util.MessageMaps;
 import com.mirth.connect.donkey.util.Serializer;
@@ -105,6 +106,8 @@ public class Channel implements Runnable {
 
     private StorageSettings storageSettings = new StorageSettings();
     private DonkeyDaoFactory daoFactory;
+    private ActionTimer latencyTimer = new ActionTimer();
+    private ActionTimer daoTimer = new ActionTimer();
     private EventDispatcher eventDispatcher = Donkey.getInstance().getEventDispatcher();
     private Serializer serializer = Donkey.getInstance().getSerializer();
     private MessageMaps messageMaps;
@@ -249,6 +252,21 @@ public class Channel implements Runnable {
         this.daoFactory = daoFactory;
     }
 
+    /**
+     * Returns the timer of the channel wide processing stages, such as the preprocessor and
+     * postprocessor. The stages of each connector are logged to the timer of the connector.
+     */
+    public ActionTimer getLatencyTimer() {
+        return latencyTimer;
+    }
+
+    /**
+     * Returns the timer that the DAO factory of the channel logs its database operations to.
+     */
+    public ActionTimer getDaoTimer() {
+        return daoTimer;
+    }
+
     protected EventDispatcher getEventDispatcher() {
         return eventDispatcher;
     }
@@ -1633,11 +1651,15 @@ public class Channel implements Runnable {
 
         ThreadUtils.checkInterruptedStatus();
 
+        long preProcessorStartTime = System.nanoTime();
+
         try {
             processedRawContent = preProcessor.doPreProcess(sourceMessage);
         } catch (DonkeyException e) {
             sourceMessage.setStatus(Status.ERROR);
             sourceMessage.setProcessingError(e.getFormattedError());
+        } finally {
+            latencyTimer.logSince("preprocessor", preProcessorStartTime);
         }
 
         /*
@@ -1671,6 +1693,8 @@ public class Channel implements Runnable {
             }
 
             // send the message to the source filter/transformer and then update it's status
+            long filterTransformerStartTime = System.nanoTime();
+
             try {
                 sourceConnector.getFilterTransformerExecutor().processConnectorMessage(sourceMessage);
             } catch (DonkeyException e) {
@@ -1680,6 +1704,8 @@ public class Channel implements Runnable {
 
                 sourceMessage.setStatus(Status.ERROR);
                 sourceMessage.setProcessingError(e.getFormattedError());
+            } finally {
+                sourceConnector.getLatencyTimer().logSince("filterTransformer", filterTransformerStartTime);
             }
 
             dao.updateStatus(sourceMessage, Status.RECEIVED);
@@ -1984,11 +2010,15 @@ public class Channel implements Runnable {
         boolean storePostProcessorError = false;
         ConnectorMessage sourceConnectorMessage = finalMessage.getConnectorMessages().get(0);
 
+        long postProcessorStartTime = System.nanoTime();
+
         try {
             response = postProcessor.doPostProcess(finalMessage);
         } catch (DonkeyException e) {
             sourceConnectorMessage.setPostProcessorError(e.getFormattedError());
             storePostProcessorError = true;
+        } finally {
+            latencyTimer.logSince("postprocessor", postProcessorStartTime);
         }
 
         // Place all destination and custom responses into the source response map
@@ -17,6 +17,7 @@ import com.mirth.connect.donkey.model.channel.DebugOptions;
 import com.mirth.connect.donkey.model.channel.DeployedState;
 import com.mirth.connect.donkey.server.ConnectorTaskException;
 import com.mirth.connect.donkey.server.message.DataType;
+import com.mirth.connect.donkey.util.ActionTimer;
 
 public abstract class Connector {
     protected Channel channel;
@@ -30,6 +31,7 @@ public abstract class Connector {
     private Map<String, Integer> destinationIdMap;
     private FilterTransformerExecutor filterTransformerExecutor;
     private Set<String> resourceIds;
+    private ActionTimer latencyTimer = new ActionTimer();
 
     public abstract void onDeploy() throws ConnectorTaskException;
     
@@ -135,6 +137,14 @@ public abstract class Connector {
         this.resourceIds = resourceIds;
     }
 
+    /**
+     * Returns the timer that the processing stages of this connector, such as the filter/transformer,
+     * are logged to.
+     */
+    public ActionTimer getLatencyTimer() {
+        return latencyTimer;
+    }
+
     protected String getConfigurationClass() {
         return null;
     }
@@ -9,13 +9,16 @@
 
 package com.mirth.connect.donkey.server.channel;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 
@@ -82,6 +85,33 @@ public abstract class DestinationConnector extends Connector implements Runnable
 
     public abstract Response send(ConnectorProperties connectorProperties, ConnectorMessage message) throws InterruptedException;
 
+    /**
+     * Sends a batch of queued messages, which is used instead of sending them one at a time when
+     * the queue batch size is greater than one. Dispatchers can override this to deliver the whole
+     * batch at once, for example in one transaction.
+     * 
+     * Returns one response per message, in the same order. A null response means that the message
+     * was not attempted, and it stays queued. Because messages must be delivered in order, a
+     * dispatcher should not attempt any further messages once one of them fails. The default
+     * implementation sends the messages one at a time and stops at the first one that is not sent.
+     */
+    public List<Response> send(List<ConnectorProperties> connectorProperties, List<ConnectorMessage> messages) throws InterruptedException {
+        List<Response> responses = new ArrayList<Response>(messages.size());
+        boolean failed = false;
+
+        for (int i = 0; i < messages.size(); i++) {
+            if (failed) {
+                responses.add(null);
+            } else {
+                Response response = send(connectorProperties.get(i), messages.get(i));
+                responses.add(response);
+                failed = response == null || response.getStatus() != Status.SENT;
+            }
+        }
+
+        return responses;
+    }
+
     public DestinationQueue getQueue() {
         return queue;
     }
@@ -258,6 +288,13 @@ public abstract class DestinationConnector extends Connector implements Runnable
         return (destinationConnectorProperties != null && destinationConnectorProperties.isRotate());
     }
 
+    /**
+     * Returns the maximum number of queued messages that a queue thread sends at once.
+     */
+    public int getQueueBatchSize() {
+        return destinationConnectorProperties != null ? Math.max(destinationConnectorProperties.getQueueBatchSize(), 1) : 1;
+    }
+
     public boolean willAttemptSend() {
         return !isQueueEnabled() || (destinationConnectorProperties.isSendFirst() && queue.size() == 0 && !isForceQueue() && (channel.getQueueHandler() == null || channel.getQueueHandler().allowSendFirst(this)));
     }
@@ -324,6 +361,9 @@ public abstract class DestinationConnector extends Connector implements Runnable
                     thread.interruptIfWaitingRetryInterval();
                 }
 
+                // Wake up any queue threads waiting for messages so they see the stop flag
+                queue.signalAvailable();
+
                 for (Thread thread : queueThreads.values()) {
                     thread.join();
                 }
@@ -407,6 +447,8 @@ public abstract class DestinationConnector extends Connector implements Runnable
     }
 
     public void transform(DonkeyDao dao, ConnectorMessage message, Status previousStatus, boolean initialAttempt) throws InterruptedException {
+        long filterTransformerStartTime = System.nanoTime();
+
         try {
             getFilterTransformerExecutor().processConnectorMessage(message);
         } catch (DonkeyException e) {
@@ -416,6 +458,8 @@ public abstract class DestinationConnector extends Connector implements Runnable
 
             message.setStatus(Status.ERROR);
             message.setProcessingError(e.getFormattedError());
+        } finally {
+            getLatencyTimer().logSince("filterTransformer", filterTransformerStartTime);
         }
 
         // Insert errors if necessary
@@ -566,7 +610,7 @@ public abstract class DestinationConnector extends Connector implements Runnable
         // ResponseTransformerExecutor could be null if the ResponseTransformer was removed before recovering
         if (responseTransformerExecutor != null) {
             try {
-                responseTransformerExecutor.runResponseTransformer(dao, message, response, isQueueEnabled(), storageSettings, serializer);
+                runResponseTransformer(dao, message, response, serializer);
 
                 String error = null;
                 if (StringUtils.isNotBlank(response.getError())) {
@@ -622,11 +666,18 @@ public abstract class DestinationConnector extends Connector implements Runnable
         Long lastMessageId = null;
         boolean canAcquire = true;
         Lock statusUpdateLock = null;
+        long availableSequence = 0;
         queue.registerThreadId();
 
+        if (getQueueBatchSize() > 1) {
+            runBatches(serializer, retryIntervalMillis, waitingRetryInterval);
+            return;
+        }
+
         do {
             try {
                 if (canAcquire) {
+                    availableSequence = queue.getAvailableSequence();
                     connectorMessage = queue.acquire();
                 }
 
@@ -660,90 +711,18 @@ public abstract class DestinationConnector extends Connector implements Runnable
 
                         dao = daoFactory.getDao();
                         Status previousStatus = connectorMessage.getStatus();
+                        ConnectorProperties connectorProperties = prepareQueuedMessage(dao, connectorMessage, serializer);
 
-                        Class<?> connectorPropertiesClass = getConnectorProperties().getClass();
-                        Class<?> serializedPropertiesClass = null;
-
-                        ConnectorProperties connectorProperties = null;
+                        if (connectorProperties != null) {
+                            Response response = handleSend(connectorProperties, connectorMessage);
+                            connectorMessage.setSendAttempts(connectorMessage.getSendAttempts() + 1);
 
-                        /*
-                         * If we're not regenerating connector properties, use the serialized sent
-                         * content from the database. It's possible that the channel had Regenerate
-                         * Template and Include Filter/Transformer enabled at one point, and then
-                         * was disabled later, so we also have to make sure the sent content exists.
-                         */
-                        if (!destinationConnectorProperties.isRegenerateTemplate() && connectorMessage.getSent() != null) {
-                            // Attempt to get the sent properties from the in-memory cache. If it doesn't exist, deserialize from the actual sent content.
-                            connectorProperties = connectorMessage.getSentProperties();
-                            if (connectorProperties == null) {
-                                connectorProperties = serializer.deserialize(connectorMessage.getSent().getContent(), ConnectorProperties.class);
-                                connectorMessage.setSentProperties(connectorProperties);
+                            if (response == null) {
+                                throw new RuntimeException("Received null response from destination " + destinationName + ".");
                             }
+                            response.fixStatus(isQueueEnabled());
 
-                            serializedPropertiesClass = connectorProperties.getClass();
-                        } else {
-                            connectorProperties = ((DestinationConnectorPropertiesInterface) getConnectorProperties()).clone();
-                        }
-
-                        /*
-                         * Verify that the connector properties stored in the connector message
-                         * match the properties from the current connector. Otherwise the connector
-                         * type has changed and the message will be set to errored. If we're
-                         * regenerating the connector properties then it doesn't matter.
-                         */
-                        if (connectorMessage.getSent() == null || destinationConnectorProperties.isRegenerateTemplate() || serializedPropertiesClass == connectorPropertiesClass) {
-                            ThreadUtils.checkInterruptedStatus();
-
-                            /*
-                             * If a historical queued message has not yet been transformed and the
-                             * current queue settings do not include the filter/transformer, force
-                             * the message to ERROR.
-                             */
-                            if (connectorMessage.getSent() == null && !includeFilterTransformerInQueue()) {
-                                connectorMessage.setStatus(Status.ERROR);
-                                connectorMessage.setProcessingError("Queued message has not yet been transformed, and Include Filter/Transformer is currently disabled.");
-
-                                dao.updateStatus(connectorMessage, previousStatus);
-                                dao.updateErrors(connectorMessage);
-                            } else {
-                                if (includeFilterTransformerInQueue()) {
-                                    transform(dao, connectorMessage, previousStatus, connectorMessage.getSent() == null);
-                                }
-
-                                if (connectorMessage.getStatus() == Status.QUEUED) {
-                                    /*
-                                     * Replace the connector properties if necessary. Again for
-                                     * historical queue reasons, we need to check whether the sent
-                                     * content exists.
-                                     */
-                                    if (connectorMessage.getSent() == null || destinationConnectorProperties.isRegenerateTemplate()) {
-                                        replaceConnectorProperties(connectorProperties, connectorMessage);
-                                        MessageContent sentContent = getSentContent(connectorMessage, connectorProperties);
-                                        connectorMessage.setSent(sentContent);
-
-                                        if (sentContent != null && storageSettings.isStoreSent()) {
-                                            ThreadUtils.checkInterruptedStatus();
-                                            dao.storeMessageContent(sentContent);
-                                        }
-                                    }
-
-                                    Response response = handleSend(connectorProperties, connectorMessage);
-                                    connectorMessage.setSendAttempts(connectorMessage.getSendAttempts() + 1);
-
-                                    if (response == null) {
-                                        throw new RuntimeException("Received null response from destination " + destinationName + ".");
-                                    }
-                                    response.fixStatus(isQueueEnabled());
-
-                                    afterSend(dao, connectorMessage, response, previousStatus);
-                                }
-                            }
-                        } else {
-                            connectorMessage.setStatus(Status.ERROR);
-                            connectorMessage.setProcessingError("Mismatched connector properties detected in queued message. The connector type may have changed since the message was queued.\nFOUND: " + serializedPropertiesClass.getSimpleName() + "\nEXPECTED: " + connectorPropertiesClass.getSimpleName());
-
-                            dao.updateStatus(connectorMessage, previousStatus);
-                            dao.updateErrors(connectorMessage);
+                            afterSend(dao, connectorMessage, response, previousStatus);
                         }
 
                         /*
@@ -849,10 +828,10 @@ public abstract class DestinationConnector extends Connector implements Runnable
                     }
                 } else {
                     /*
-                     * This is necessary because there is no blocking peek. If the queue is empty,
-                     * wait some time to free up the cpu.
+                     * If the queue is empty, block until a message is added or put back into the
+                     * queue. The empty sleep time is only an upper bound on the wait.
                      */
-                    Thread.sleep(queueEmptySleepTime);
+                    queue.awaitAvailable(availableSequence, queueEmptySleepTime, TimeUnit.MILLISECONDS);
                 }
             } catch (InterruptedException e) {
                 // Stop this thread if it was halted
@@ -894,15 +873,363 @@ public abstract class DestinationConnector extends Connector implements Runnable
         } while ((getCurrentState() == DeployedState.STARTED || getCurrentState() == DeployedState.STARTING) && !stopQueue.get());
     }
 
+    /**
+     * Prepares a queued message to be sent, transforming it and replacing the connector properties
+     * if necessary. Returns the connector properties to send the message with, or null if the
+     * message should not be sent because its status was changed.
+     */
+    private ConnectorProperties prepareQueuedMessage(DonkeyDao dao, ConnectorMessage connectorMessage, Serializer serializer) throws InterruptedException {
+        Status previousStatus = connectorMessage.getStatus();
+
+        Class<?> connectorPropertiesClass = getConnectorProperties().getClass();
+        Class<?> serializedPropertiesClass = null;
+
+        ConnectorProperties connectorProperties = null;
+
+        /*
+         * If we're not regenerating connector properties, use the serialized sent
+         * content from the database. It's possible that the channel had Regenerate
+         * Template and Include Filter/Transformer enabled at one point, and then
+         * was disabled later, so we also have to make sure the sent content exists.
+         */
+        if (!destinationConnectorProperties.isRegenerateTemplate() && connectorMessage.getSent() != null) {
+            // Attempt to get the sent properties from the in-memory cache. If it doesn't exist, deserialize from the actual sent content.
+            connectorProperties = connectorMessage.getSentProperties();
+            if (connectorProperties == null) {
+                connectorProperties = serializer.deserialize(connectorMessage.getSent().getContent(), ConnectorProperties.class);
+                connectorMessage.setSentProperties(connectorProperties);
+            }
+
+            serializedPropertiesClass = connectorProperties.getClass();
+        } else {
+            connectorProperties = ((DestinationConnectorPropertiesInterface) getConnectorProperties()).clone();
+        }
+
+        /*
+         * Verify that the connector properties stored in the connector message
+         * match the properties from the current connector. Otherwise the connector
+         * type has changed and the message will be set to errored. If we're
+         * regenerating the connector properties then it doesn't matter.
+         */
+        if (connectorMessage.getSent() == null || destinationConnectorProperties.isRegenerateTemplate() || serializedPropertiesClass == connectorPropertiesClass) {
+            ThreadUtils.checkInterruptedStatus();
+
+            /*
+             * If a historical queued message has not yet been transformed and the
+             * current queue settings do not include the filter/transformer, force
+             * the message to ERROR.
+             */
+            if (connectorMessage.getSent() == null && !includeFilterTransformerInQueue()) {
+                connectorMessage.setStatus(Status.ERROR);
+                connectorMessage.setProcessingError("Queued message has not yet been transformed, and Include Filter/Transformer is currently disabled.");
+
+                dao.updateStatus(connectorMessage, previousStatus);
+                dao.updateErrors(connectorMessage);
+            } else {
+                if (includeFilterTransformerInQueue()) {
+                    transform(dao, connectorMessage, previousStatus, connectorMessage.getSent() == null);
+                }
+
+                if (connectorMessage.getStatus() == Status.QUEUED) {
+                    /*
+                     * Replace the connector properties if necessary. Again for
+                     * historical queue reasons, we need to check whether the sent
+                     * content exists.
+                     */
+                    if (connectorMessage.getSent() == null || destinationConnectorProperties.isRegenerateTemplate()) {
+                        replaceConnectorProperties(connectorProperties, connectorMessage);
+                        MessageContent sentContent = getSentContent(connectorMessage, connectorProperties);
+                        connectorMessage.setSent(sentContent);
+
+                        if (sentContent != null && storageSettings.isStoreSent()) {
+                            ThreadUtils.checkInterruptedStatus();
+                            dao.storeMessageContent(sentContent);
+                        }
+                    }
+
+                    return connectorProperties;
+                }
+            }
+        } else {
+            connectorMessage.setStatus(Status.ERROR);
+            connectorMessage.setProcessingError("Mismatched connector properties detected in queued message. The connector type may have changed since the message was queued.\nFOUND: " + serializedPropertiesClass.getSimpleName() + "\nEXPECTED: " + connectorPropertiesClass.getSimpleName());
+
+            dao.updateStatus(connectorMessage, previousStatus);
+            dao.updateErrors(connectorMessage);
+        }
+
+        return null;
+    }
+
+    /**
+     * The queue thread loop used when the queue batch size is greater than one. Up to one batch of
+     * messages is acquired from the queue, sent with one dispatcher call, and their statuses are
+     * committed in one transaction. Messages that stay queued are kept and retried first, unless
+     * the queue rotates.
+     */
+    private void runBatches(Serializer serializer, int retryIntervalMillis, AtomicBoolean waitingRetryInterval) {
+        List<ConnectorMessage> batch = new ArrayList<ConnectorMessage>();
+        boolean retry = false;
+        int batchSize = getQueueBatchSize();
+
+        do {
+            try {
+                long availableSequence = queue.getAvailableSequence();
+
+                // Messages kept from the previous batch come first, so they are still sent in order
+                while (batch.size() < batchSize) {
+                    ConnectorMessage connectorMessage = queue.acquire();
+                    if (connectorMessage == null) {
+                        break;
+                    }
+                    batch.add(connectorMessage);
+                }
+
+                if (!batch.isEmpty()) {
+                    if (retry || batch.get(0).isAttemptedFirst()) {
+                        try {
+                            waitingRetryInterval.set(true);
+                            Thread.sleep(retryIntervalMillis);
+                        } finally {
+                            synchronized (waitingRetryInterval) {
+                                waitingRetryInterval.set(false);
+                            }
+                        }
+
+                        batch.get(0).setAttemptedFirst(false);
+                    }
+
+                    retry = processBatch(batch, serializer);
+                } else {
+                    // If the queue is empty, block until a message is added or put back into the queue
+                    retry = false;
+                    queue.awaitAvailable(availableSequence, queueEmptySleepTime, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                // Stop this thread if it was halted
+                return;
+            } catch (Throwable t) {
+                logger.error("Error in queue thread for channel " + channel.getName() + " (" + channel.getChannelId() + ") on destination " + destinationName + ".\n" + ExceptionUtils.getStackTrace(t));
+                getChannel().getEventDispatcher().dispatchEvent(new ErrorEvent(getChannelId(), getMetaDataId(), null, ErrorEventType.DESTINATION_CONNECTOR, getDestinationName(), getConnectorProperties().getName(), t.getMessage(), t));
+
+                try {
+                    waitingRetryInterval.set(true);
+                    Thread.sleep(retryIntervalMillis);
+                    retry = false;
+                } catch (InterruptedException e1) {
+                    // Stop this thread if it was halted
+                    return;
+                } finally {
+                    synchronized (waitingRetryInterval) {
+                        waitingRetryInterval.set(false);
+                    }
+                }
+            }
+        } while ((getCurrentState() == DeployedState.STARTED || getCurrentState() == DeployedState.STARTING) && !stopQueue.get());
+    }
+
+    /**
+     * Sends and commits one batch of queued messages. Finished messages are released and removed
+     * from the batch, and the remaining ones are kept to be retried. Returns true if any message
+     * stayed queued.
+     */
+    private boolean processBatch(List<ConnectorMessage> batch, Serializer serializer) throws InterruptedException {
+        DonkeyDao dao = null;
+        boolean commitSuccess = false;
+        boolean exceptionCaught = false;
+        boolean queued = false;
+        Lock statusUpdateLock = null;
+
+        try {
+            dao = daoFactory.getDao();
+
+            List<ConnectorProperties> sendProperties = new ArrayList<ConnectorProperties>(batch.size());
+            List<ConnectorMessage> sendMessages = new ArrayList<ConnectorMessage>(batch.size());
+            List<Status> previousStatuses = new ArrayList<Status>(batch.size());
+
+            for (ConnectorMessage connectorMessage : batch) {
+                Status previousStatus = connectorMessage.getStatus();
+                ConnectorProperties connectorProperties = prepareQueuedMessage(dao, connectorMessage, serializer);
+
+                if (connectorProperties != null) {
+                    sendProperties.add(connectorProperties);
+                    sendMessages.add(connectorMessage);
+                    previousStatuses.add(previousStatus);
+                }
+            }
+
+            if (!sendMessages.isEmpty()) {
+                List<Response> responses = handleSend(sendProperties, sendMessages);
+
+                if (responses == null || responses.size() != sendMessages.size()) {
+                    throw new RuntimeException("Received " + (responses == null ? "no responses" : responses.size() + " responses") + " for " + sendMessages.size() + " messages from destination " + destinationName + ".");
+                }
+
+                for (int i = 0; i < sendMessages.size(); i++) {
+                    Response response = responses.get(i);
+
+                    // Messages that were not attempted stay queued without counting a send attempt
+                    if (response != null) {
+                        ConnectorMessage connectorMessage = sendMessages.get(i);
+                        connectorMessage.setSendAttempts(connectorMessage.getSendAttempts() + 1);
+                        response.fixStatus(isQueueEnabled());
+
+                        afterSend(dao, connectorMessage, response, previousStatuses.get(i));
+                    }
+                }
+            }
+
+            for (ConnectorMessage connectorMessage : batch) {
+                if (connectorMessage.getStatus() != Status.QUEUED) {
+                    // See run() for why the read lock is needed before committing a non-QUEUED status
+                    Lock lock = queue.getStatusUpdateLock();
+                    lock.lock();
+                    statusUpdateLock = lock;
+                    break;
+                }
+            }
+
+            ThreadUtils.checkInterruptedStatus();
+            dao.commit(storageSettings.isDurable());
+            commitSuccess = true;
+
+            for (ConnectorMessage connectorMessage : batch) {
+                // Only actually attempt to remove content if the status is SENT
+                if (connectorMessage.getStatus().isCompleted()) {
+                    try {
+                        channel.removeContent(dao, null, connectorMessage.getMessageId(), true, true);
+                    } catch (RuntimeException e) {
+                        logger.error("Error removing content for message " + connectorMessage.getMessageId() + " for channel " + channel.getName() + " (" + channel.getChannelId() + ") on destination " + destinationName + ". This error is expected if the message was manually removed from the queue.", e);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error processing a batch of " + batch.size() + " queued messages starting with " + batch.get(0).toString() + " for channel " + channel.getName() + " (" + channel.getChannelId() + ") on destination " + destinationName + ". This error is expected if a message was manually removed from the queue.", e);
+            exceptionCaught = true;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Throwable t) {
+            logger.error("Error processing a batch of " + batch.size() + " queued messages starting with " + batch.get(0).toString() + " for channel " + channel.getName() + " (" + channel.getChannelId() + ") on destination " + destinationName + ".", t);
+            getChannel().getEventDispatcher().dispatchEvent(new ErrorEvent(getChannelId(), getMetaDataId(), batch.get(0).getMessageId(), ErrorEventType.DESTINATION_CONNECTOR, getDestinationName(), getConnectorProperties().getName(), t.getMessage(), t));
+            exceptionCaught = true;
+        } finally {
+            if (dao != null) {
+                if (!commitSuccess) {
+                    try {
+                        dao.rollback();
+                    } catch (Exception e) {}
+                }
+                dao.close();
+            }
+
+            try {
+                if (exceptionCaught) {
+                    // As in run(), invalidate the queue because any of the messages may have been deleted
+                    synchronized (queue) {
+                        for (ConnectorMessage connectorMessage : batch) {
+                            queue.release(connectorMessage, true);
+                        }
+                        batch.clear();
+
+                        // Release the read lock now before calling invalidate
+                        if (statusUpdateLock != null) {
+                            statusUpdateLock.unlock();
+                            statusUpdateLock = null;
+                        }
+
+                        queue.invalidate(true, false);
+                    }
+                } else {
+                    for (Iterator<ConnectorMessage> iterator = batch.iterator(); iterator.hasNext();) {
+                        ConnectorMessage connectorMessage = iterator.next();
+
+                        if (connectorMessage.getStatus() != Status.QUEUED) {
+                            queue.release(connectorMessage, true);
+                            iterator.remove();
+                        } else if (destinationConnectorProperties.isRotate()) {
+                            queue.release(connectorMessage, false);
+                            iterator.remove();
+                            queued = true;
+                        } else if (queue.releaseIfDeleted(connectorMessage)) {
+                            iterator.remove();
+                        } else {
+                            queued = true;
+                        }
+                    }
+                }
+            } finally {
+                // Always release the read lock if we obtained it
+                if (statusUpdateLock != null) {
+                    statusUpdateLock.unlock();
+                }
+            }
+        }
+
+        return queued;
+    }
+
+    private List<Response> handleSend(List<ConnectorProperties> connectorProperties, List<ConnectorMessage> messages) throws InterruptedException {
+        Calendar sendDate = Calendar.getInstance();
+        long dispatcherId = getDispatcherId();
+
+        for (ConnectorMessage message : messages) {
+            message.setSendDate(sendDate);
+            message.setDispatcherId(dispatcherId);
+        }
+
+        List<Response> responses;
+        long startTime = System.nanoTime();
+        try {
+            responses = send(connectorProperties, messages);
+        } finally {
+            getLatencyTimer().logSince("send", startTime);
+        }
+
+        if (responses != null) {
+            Calendar responseDate = Calendar.getInstance();
+
+            for (int i = 0; i < responses.size() && i < messages.size(); i++) {
+                Response response = responses.get(i);
+                ConnectorMessage message = messages.get(i);
+
+                if (response != null && response.isValidate() && response.getStatus() == Status.SENT) {
+                    response = responseValidator.validate(response, message);
+                    responses.set(i, response);
+
+                    if (response.getStatus() != Status.SENT) {
+                        channel.getEventDispatcher().dispatchEvent(new ErrorEvent(getChannelId(), getMetaDataId(), message.getMessageId(), ErrorEventType.RESPONSE_VALIDATION, getDestinationName(), connectorProperties.get(i).getName(), response.getStatusMessage(), null));
+                    }
+                }
+
+                message.setResponseDate(responseDate);
+            }
+        }
+
+        return responses;
+    }
+
+    private void runResponseTransformer(DonkeyDao dao, ConnectorMessage message, Response response, Serializer serializer) throws InterruptedException, DonkeyException {
+        long startTime = System.nanoTime();
+
+        try {
+            responseTransformerExecutor.runResponseTransformer(dao, message, response, isQueueEnabled(), storageSettings, serializer);
+        } finally {
+            getLatencyTimer().logSince("responseTransformer", startTime);
+        }
+    }
+
     private Response handleSend(ConnectorProperties connectorProperties, ConnectorMessage message) throws InterruptedException {
         message.setSendDate(Calendar.getInstance());
         Response response;
 
         long dispatcherId = getDispatcherId();
+        long startTime = System.nanoTime();
         try {
             message.setDispatcherId(dispatcherId);
             response = send(connectorProperties, message);
         } finally {
+            getLatencyTimer().logSince("send", startTime);
+
             /*
              * A negative dispatcher ID indicates that this was one of multiple processing threads,
              * so push the dispatcher ID back on the stack.
@@ -960,7 +1287,7 @@ public abstract class DestinationConnector extends Connector implements Runnable
 
         try {
             // Perform transformation
-            responseTransformerExecutor.runResponseTransformer(dao, message, response, isQueueEnabled(), storageSettings, serializer);
+            runResponseTransformer(dao, message, response, serializer);
 
             String error = null;
             if (StringUtils.isNotBlank(response.getError())) {
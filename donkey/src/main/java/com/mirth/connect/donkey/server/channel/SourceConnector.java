@@ -9,12 +9,21 @@
 
 package com.mirth.connect.donkey.server.channel;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -191,7 +200,17 @@ public abstract class SourceConnector extends Connector {
             throw e;
         }
 
-        return channel.dispatchRawMessage(rawMessage, false);
+        return dispatchRawMessageToChannel(rawMessage, false);
+    }
+
+    private DispatchResult dispatchRawMessageToChannel(RawMessage rawMessage, boolean batch) throws ChannelException {
+        long startTime = System.nanoTime();
+
+        try {
+            return channel.dispatchRawMessage(rawMessage, batch);
+        } finally {
+            getLatencyTimer().logSince("receive", startTime);
+        }
     }
 
     public Boolean dispatchBatchMessage(BatchRawMessage batchRawMessage, ResponseHandler responseHandler) throws BatchMessageException {
@@ -218,8 +237,12 @@ public abstract class SourceConnector extends Connector {
 
         BatchAdaptor batchAdaptor = null;
         boolean messagesExist = false;
+        ExecutorService executor = null;
+        Deque<PendingBatchMessage> pendingMessages = new ArrayDeque<PendingBatchMessage>();
         // Attempt to start the batch. It will not start if the batch adaptor factory is in the process of being stopped
         if (batchAdaptorFactory.startBatch()) {
+            boolean batchSuccess = false;
+
             try {
                 // Tell the response handler which response to store
                 responseHandler.setUseFirstResponse(batchAdaptorFactory.isUseFirstReponse());
@@ -227,6 +250,8 @@ public abstract class SourceConnector extends Connector {
                 // Create a new adaptor for this batch
                 batchAdaptor = batchAdaptorFactory.createBatchAdaptor(batchRawMessage);
 
+                int dispatchWindow = batchAdaptorFactory.getDispatchWindow();
+                Semaphore dispatchPermits = batchAdaptorFactory.getDispatchPermits();
                 Long batchSet = null;
                 String message;
                 // Get the next message for this batch
@@ -248,42 +273,84 @@ public abstract class SourceConnector extends Connector {
                     }
 
                     // Create a new RawMessage to be dispatched
-                    RawMessage rawMessage = new RawMessage(message, destinationMetaDataIds, sourceMap, batchRawMessage.getAttachments());
+                    final RawMessage rawMessage = new RawMessage(message, destinationMetaDataIds, sourceMap, batchRawMessage.getAttachments());
+                    PendingBatchMessage pendingMessage = new PendingBatchMessage(batchAdaptor.getBatchSequenceId(), batchAdaptor.isBatchComplete());
+
+                    /*
+                     * The first message is always dispatched by this thread because the others need
+                     * its message Id. After that, messages may be dispatched by other threads while
+                     * this thread reads ahead, but responses are still processed in batch order.
+                     */
+                    if (dispatchWindow > 1 && batchSet != null) {
+                        if (executor == null) {
+                            executor = Executors.newFixedThreadPool(dispatchWindow, new BatchDispatchThreadFactory());
+                        }
 
-                    DispatchResult dispatchResult = null;
-                    try {
-                        // Dispatch the message
-                        dispatchResult = channel.dispatchRawMessage(rawMessage, true);
-                        // Set the dispatch result for this message into the response handler
-                        responseHandler.setDispatchResult(dispatchResult);
-
-                        // If this was the first message in the batch, keep track of the message Id
-                        if (batchAdaptor.getBatchSequenceId() == 1) {
-                            batchSet = dispatchResult.getMessageId();
+                        // Keep at most one message per processing thread in flight across all batches
+                        acquireDispatchPermit(dispatchPermits, pendingMessages, responseHandler);
+                        pendingMessage.dispatchPermits = dispatchPermits;
+
+                        try {
+                            pendingMessage.future = executor.submit(new Callable<DispatchResult>() {
+                                @Override
+                                public DispatchResult call() throws Exception {
+                                    return dispatchRawMessageToChannel(rawMessage, true);
+                                }
+                            });
+                        } catch (RuntimeException e) {
+                            pendingMessage.releaseDispatchPermit();
+                            throw e;
+                        }
+
+                        pendingMessages.add(pendingMessage);
+                    } else {
+                        try {
+                            // Dispatch the message
+                            pendingMessage.dispatchResult = dispatchRawMessageToChannel(rawMessage, true);
+                        } catch (ChannelException e) {
+                            pendingMessage.channelException = e;
+                        }
+
+                        if (pendingMessage.dispatchResult != null && pendingMessage.batchSequenceId == 1) {
+                            // If this was the first message in the batch, keep track of the message Id
+                            batchSet = pendingMessage.dispatchResult.getMessageId();
                         }
 
                         // Clear attachments from the batch raw message
                         batchRawMessage.setAttachments(null);
 
-                        try {
-                            // Allow the response handler to process the result
-                            responseHandler.responseProcess(batchAdaptor.getBatchSequenceId(), batchAdaptor.isBatchComplete());
-                        } catch (Exception e) {
-                            // Stop the entire batch if an exceptions occurs processing a response
-                            throw new BatchMessageException("Failed to process response for batch message at message " + batchAdaptor.getBatchSequenceId(), e);
-                        }
-                    } catch (ChannelException e) {
-                        // Call back to the response handler if a channel exception occurred. The message should not have been persisted
-                        responseHandler.responseError(e);
-                        throw new BatchMessageException("Failed to process batch message at message " + batchAdaptor.getBatchSequenceId(), e);
-                    } finally {
-                        finishDispatch(dispatchResult);
+                        processBatchResponse(pendingMessage, responseHandler);
                     }
                 }
+
+                while (!pendingMessages.isEmpty()) {
+                    processBatchResponse(pendingMessages.poll(), responseHandler);
+                }
+
+                batchSuccess = true;
             } finally {
                 try {
+                    if (!batchSuccess) {
+                        // Messages already dispatched still need to be finished to release their process lock permits
+                        for (PendingBatchMessage pendingMessage : pendingMessages) {
+                            pendingMessage.await();
+
+                            try {
+                                finishDispatch(pendingMessage.dispatchResult);
+                            } finally {
+                                pendingMessage.releaseDispatchPermit();
+                            }
+                        }
+                    }
+
+                    if (executor != null) {
+                        executor.shutdown();
+                    }
+
                     // Cleanup any resources used by the batch adaptor
-                    batchAdaptor.cleanup();
+                    if (batchAdaptor != null) {
+                        batchAdaptor.cleanup();
+                    }
                 } finally {
                     // Finish the batch
                     batchAdaptorFactory.finishBatch();
@@ -294,6 +361,134 @@ public abstract class SourceConnector extends Connector {
         return messagesExist;
     }
 
+    private void processBatchResponse(PendingBatchMessage pendingMessage, ResponseHandler responseHandler) throws BatchMessageException {
+        pendingMessage.await();
+
+        try {
+            if (pendingMessage.channelException != null) {
+                // Call back to the response handler if a channel exception occurred. The message should not have been persisted
+                responseHandler.responseError(pendingMessage.channelException);
+                throw new BatchMessageException("Failed to process batch message at message " + pendingMessage.batchSequenceId, pendingMessage.channelException);
+            }
+
+            if (pendingMessage.error != null) {
+                throw new BatchMessageException("Failed to process batch message at message " + pendingMessage.batchSequenceId, pendingMessage.error);
+            }
+
+            // Set the dispatch result for this message into the response handler
+            responseHandler.setDispatchResult(pendingMessage.dispatchResult);
+
+            try {
+                // Allow the response handler to process the result
+                responseHandler.responseProcess(pendingMessage.batchSequenceId, pendingMessage.batchComplete);
+            } catch (Exception e) {
+                // Stop the entire batch if an exceptions occurs processing a response
+                throw new BatchMessageException("Failed to process response for batch message at message " + pendingMessage.batchSequenceId, e);
+            }
+        } finally {
+            try {
+                finishDispatch(pendingMessage.dispatchResult);
+            } finally {
+                pendingMessage.releaseDispatchPermit();
+            }
+        }
+    }
+
+    /**
+     * Waits for a dispatch permit. While none is available and this batch still has messages in
+     * flight, the oldest of them is finished instead, which releases its permit. Blocking without
+     * finishing them could deadlock when every permit is held by messages of waiting batches.
+     */
+    private void acquireDispatchPermit(Semaphore dispatchPermits, Deque<PendingBatchMessage> pendingMessages, ResponseHandler responseHandler) throws BatchMessageException {
+        while (!dispatchPermits.tryAcquire()) {
+            if (pendingMessages.isEmpty()) {
+                try {
+                    dispatchPermits.acquire();
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BatchMessageException("Interrupted while waiting to dispatch a batch message", e);
+                }
+            }
+
+            processBatchResponse(pendingMessages.poll(), responseHandler);
+        }
+    }
+
+    /**
+     * A message of a batch and the result of dispatching it, which is only known once its future
+     * completes if it was dispatched by another thread.
+     */
+    private static class PendingBatchMessage {
+        private int batchSequenceId;
+        private boolean batchComplete;
+        private Future<DispatchResult> future;
+        private Semaphore dispatchPermits;
+        private DispatchResult dispatchResult;
+        private ChannelException channelException;
+        private Throwable error;
+
+        private PendingBatchMessage(int batchSequenceId, boolean batchComplete) {
+            this.batchSequenceId = batchSequenceId;
+            this.batchComplete = batchComplete;
+        }
+
+        /**
+         * Releases the dispatch permit taken for this message, if any, once it has been finished.
+         */
+        private void releaseDispatchPermit() {
+            if (dispatchPermits != null) {
+                dispatchPermits.release();
+                dispatchPermits = null;
+            }
+        }
+
+        /**
+         * Waits for the dispatch to complete. The dispatching thread is never cancelled, because a
+         * message it persists holds a process lock permit until it is finished.
+         */
+        private void await() {
+            if (future == null) {
+                return;
+            }
+
+            boolean interrupted = false;
+
+            try {
+                while (true) {
+                    try {
+                        dispatchResult = future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof ChannelException) {
+                            channelException = (ChannelException) e.getCause();
+                        } else {
+                            error = e.getCause();
+                        }
+                        break;
+                    }
+                }
+            } finally {
+                future = null;
+
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private class BatchDispatchThreadFactory implements ThreadFactory {
+        private AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "Batch Dispatch Thread " + threadNumber.getAndIncrement() + " on " + channel.getName() + " (" + getChannelId() + ")");
+        }
+    }
+
     /**
      * Handles a response generated for a message that was recovered by the channel
      * 
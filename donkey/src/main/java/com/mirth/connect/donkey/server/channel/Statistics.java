@@ -1,8 +1,8 @@
 /*
  * Copyright (c) Mirth Corporation. All rights reserved.
- * 
+ *
  * http://www.mirthcorp.com
- * 
+ *
  * The software in this package is published under the terms of the MPL license a copy of which has
  * been included with this distribution in the LICENSE.txt file.
  */
@@ -17,9 +17,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-
-import org.apache.commons.lang3.ArrayUtils;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.mirth.connect.donkey.model.event.MessageEventType;
 import com.mirth.connect.donkey.model.message.Status;
@@ -32,7 +30,12 @@ public class Statistics {
     public static final Status[] TRACKED_STATUSES = new Status[] { Status.RECEIVED, Status.FILTERED,
             Status.SENT, Status.ERROR };
 
-    private Map<String, Map<Integer, Map<Status, AtomicLong>>> stats = new ConcurrentHashMap<String, Map<Integer, Map<Status, AtomicLong>>>();
+    /*
+     * Each channel keeps its counters in a flat array indexed by metaDataId, with the aggregate
+     * channel counters (metaDataId null) in the first slot. Each slot holds one counter per tracked
+     * status, so updating a statistic doesn't need any map lookups or allocations.
+     */
+    private Map<String, ChannelStatistics> stats = new ConcurrentHashMap<String, ChannelStatistics>();
     private EventDispatcher eventDispatcher;
     private boolean sendEvents;
     private boolean allowNegatives;
@@ -49,57 +52,27 @@ public class Statistics {
     public Map<String, Map<Integer, Map<Status, Long>>> getStats() {
         Map<String, Map<Integer, Map<Status, Long>>> stats = new HashMap<String, Map<Integer, Map<Status, Long>>>();
 
-        for (Entry<String, Map<Integer, Map<Status, AtomicLong>>> channelEntry : this.stats.entrySet()) {
-            Map<Integer, Map<Status, Long>> channelMap = new LinkedHashMap<Integer, Map<Status, Long>>();
-
-            for (Entry<Integer, Map<Status, AtomicLong>> metaDataEntry : channelEntry.getValue().entrySet()) {
-                Map<Status, Long> statusMap = new LinkedHashMap<Status, Long>();
-
-                for (Entry<Status, AtomicLong> statusEntry : metaDataEntry.getValue().entrySet()) {
-                    statusMap.put(statusEntry.getKey(), statusEntry.getValue().get());
-                }
-
-                channelMap.put(metaDataEntry.getKey(), statusMap);
-            }
-
-            stats.put(channelEntry.getKey(), channelMap);
+        for (Entry<String, ChannelStatistics> channelEntry : this.stats.entrySet()) {
+            stats.put(channelEntry.getKey(), toMap(channelEntry.getValue()));
         }
 
         return stats;
     }
 
     public Map<Integer, Map<Status, Long>> getChannelStats(String channelId) {
-        Map<Integer, Map<Status, Long>> channelStats = new LinkedHashMap<Integer, Map<Status, Long>>();
-
-        for (Entry<Integer, Map<Status, AtomicLong>> metaDataEntry : getChannelStatsMap(channelId).entrySet()) {
-            Map<Status, Long> statusMap = new LinkedHashMap<Status, Long>();
-
-            for (Entry<Status, AtomicLong> statusEntry : metaDataEntry.getValue().entrySet()) {
-                statusMap.put(statusEntry.getKey(), statusEntry.getValue().get());
-            }
-
-            channelStats.put(metaDataEntry.getKey(), statusMap);
-        }
-
-        return channelStats;
+        return toMap(getChannelStatistics(channelId));
     }
 
     public Map<Status, Long> getConnectorStats(String channelId, Integer metaDataId) {
-        Map<Status, Long> statusMap = new LinkedHashMap<Status, Long>();
-
-        for (Entry<Status, AtomicLong> statusEntry : getConnectorStatsMap(getChannelStatsMap(channelId), metaDataId).entrySet()) {
-            statusMap.put(statusEntry.getKey(), statusEntry.getValue().get());
-        }
-
-        return statusMap;
+        return toMap(getChannelStatistics(channelId).getCounters(metaDataId));
     }
 
     public boolean isEmpty() {
-        if (!stats.isEmpty()) {
-            for (Map<Integer, Map<Status, AtomicLong>> channelMap : stats.values()) {
-                for (Map<Status, AtomicLong> statusMap : channelMap.values()) {
-                    for (AtomicLong diff : statusMap.values()) {
-                        if (diff.get() != 0) {
+        for (ChannelStatistics channelStats : stats.values()) {
+            for (AtomicLongArray counters : channelStats.counters) {
+                if (counters != null) {
+                    for (int i = 0; i < TRACKED_STATUSES.length; i++) {
+                        if (counters.get(i) != 0) {
                             return false;
                         }
                     }
@@ -128,91 +101,91 @@ public class Statistics {
             return;
         }
 
-        Map<Status, Long> statsDiff = new LinkedHashMap<Status, Long>();
-        statsDiff.put(incrementStatus, 1L);
+        ChannelStatistics channelStats = getChannelStatistics(channelId);
+        update(channelStats, channelId, metaDataId, incrementStatus, 1L);
 
         if (decrementStatus != null) {
-            statsDiff.put(decrementStatus, -1L);
+            update(channelStats, channelId, metaDataId, decrementStatus, -1L);
         }
-
-        update(channelId, metaDataId, statsDiff);
     }
 
     public void update(String channelId, int metaDataId, Map<Status, Long> statsDiff) {
-        Map<Integer, Map<Status, AtomicLong>> channelStats = getChannelStatsMap(channelId);
-        Map<Status, AtomicLong> aggregateStats = getConnectorStatsMap(channelStats, null);
-        Map<Status, AtomicLong> connectorStats = getConnectorStatsMap(channelStats, metaDataId);
+        ChannelStatistics channelStats = getChannelStatistics(channelId);
 
         for (Entry<Status, Long> statsEntry : statsDiff.entrySet()) {
-            Long diff = statsEntry.getValue();
+            update(channelStats, channelId, metaDataId, statsEntry.getKey(), statsEntry.getValue());
+        }
+    }
 
-            if (ArrayUtils.contains(TRACKED_STATUSES, statsEntry.getKey()) && diff != 0) {
-                Status status = statsEntry.getKey();
+    private void update(ChannelStatistics channelStats, String channelId, int metaDataId, Status status, long diff) {
+        int index = getIndex(status);
 
-                AtomicLong statValue = connectorStats.get(status);
-                Long connectorCount = updateStat(statValue, diff);
+        if (index >= 0 && diff != 0) {
+            long connectorCount = updateStat(channelStats.getCounters(metaDataId), index, diff);
 
-                // update the channel statistics
-                switch (status) {
-                    // update the following statuses based on the source connector
-                    case RECEIVED:
-                        if (metaDataId == 0) {
-                            updateStat(aggregateStats.get(status), diff);
-                        }
-                        break;
-
-                    // update the following statuses based on the source and destination connectors
-                    case FILTERED:
-                    case ERROR:
-                        updateStat(aggregateStats.get(status), diff);
-                        break;
-
-                    // update the following statuses based on the destination connectors
-                    case SENT:
-                        if (metaDataId > 0) {
-                            updateStat(aggregateStats.get(status), diff);
-                        }
-                        break;
+            // update the channel statistics
+            switch (status) {
+                // update the following statuses based on the source connector
+                case RECEIVED:
+                    if (metaDataId == 0) {
+                        updateStat(channelStats.getCounters(null), index, diff);
+                    }
+                    break;
+
+                // update the following statuses based on the source and destination connectors
+                case FILTERED:
+                case ERROR:
+                    updateStat(channelStats.getCounters(null), index, diff);
+                    break;
+
+                // update the following statuses based on the destination connectors
+                case SENT:
+                    if (metaDataId > 0) {
+                        updateStat(channelStats.getCounters(null), index, diff);
+                    }
+                    break;
 
-                    default:
-                        break;
-                }
+                default:
+                    break;
+            }
 
-                if (sendEvents) {
-                    MessageEventType type = MessageEventType.fromStatus(status);
-                    if (type != null) {
-                        // Dispatch a message event if the the status is in MessageEventType and the connector stat was updated
-                        if (eventDispatcher == null) {
-                            eventDispatcher = Donkey.getInstance().getEventDispatcher();
-                        }
-                        eventDispatcher.dispatchEvent(new MessageEvent(channelId, metaDataId, type, connectorCount, diff <= 0));
+            if (sendEvents) {
+                MessageEventType type = MessageEventType.fromStatus(status);
+                if (type != null) {
+                    // Dispatch a message event if the the status is in MessageEventType and the connector stat was updated
+                    if (eventDispatcher == null) {
+                        eventDispatcher = Donkey.getInstance().getEventDispatcher();
                     }
+                    eventDispatcher.dispatchEvent(new MessageEvent(channelId, metaDataId, type, connectorCount, diff <= 0));
                 }
             }
         }
     }
 
-    private long updateStat(AtomicLong stat, Long diff) {
-        // stats values can not go below zero. If we are decrementing, synchronize so threads don't decrement below zero accidentally
+    private long updateStat(AtomicLongArray counters, int index, long diff) {
+        // stats values can not go below zero. If we are decrementing, floor the resulting value at zero.
         if (!allowNegatives && diff < 0) {
-            synchronized (stat) {
-                long connectorDiff = diff;
-                long statValueL = stat.get();
-                // if the resulting value < 0, floor the resulting value at zero.
-                if (statValueL + diff < 0L) {
-                    connectorDiff = -statValueL;
-                }
-                return stat.addAndGet(connectorDiff);
-            }
-        } else { // else just do an add like usual. Atomic Long will make sure multiple threads increment correctly.
-            return stat.addAndGet(diff);
+            long current;
+            long updated;
+
+            do {
+                current = counters.get(index);
+                updated = Math.max(current + diff, 0L);
+            } while (!counters.compareAndSet(index, current, updated));
+
+            return updated;
+        } else {
+            return counters.addAndGet(index, diff);
         }
     }
 
     public void overwrite(String channelId, Integer metaDataId, Map<Status, Long> stats) {
-        Map<Status, AtomicLong> connectorStats = getConnectorStatsMap(getChannelStatsMap(channelId), metaDataId);
+        AtomicLongArray counters = getChannelStatistics(channelId).getCounters(metaDataId);
         for (Entry<Status, Long> entry : stats.entrySet()) {
-            connectorStats.get(entry.getKey()).set(entry.getValue());
+            int index = getIndex(entry.getKey());
+            if (index >= 0) {
+                counters.set(index, entry.getValue());
+            }
         }
     }
 
@@ -220,12 +193,70 @@ public class Statistics {
      * Updates (increments/decrements) values from another Statistics object
      */
     public void update(Statistics statistics) {
-        for (Entry<String, Map<Integer, Map<Status, Long>>> entry : statistics.getStats().entrySet()) {
-            for (Entry<Integer, Map<Status, Long>> connectorEntry : entry.getValue().entrySet()) {
-                Integer metaDataId = connectorEntry.getKey();
+        for (Entry<String, ChannelStatistics> entry : statistics.stats.entrySet()) {
+            String channelId = entry.getKey();
+            AtomicLongArray[] counters = entry.getValue().counters;
+            ChannelStatistics channelStats = null;
+
+            // Skip the aggregate counters, since they are updated along with the connector counters
+            for (int slot = 1; slot < counters.length; slot++) {
+                if (counters[slot] != null) {
+                    for (int index = 0; index < TRACKED_STATUSES.length; index++) {
+                        long diff = counters[slot].get(index);
+
+                        if (diff != 0) {
+                            if (channelStats == null) {
+                                channelStats = getChannelStatistics(channelId);
+                            }
+                            update(channelStats, channelId, slot - 1, TRACKED_STATUSES[index], diff);
+                        }
+                    }
+                }
+            }
+        }
+    }
 
-                if (metaDataId != null) {
-                    update(entry.getKey(), metaDataId, connectorEntry.getValue());
+    /**
+     * Moves all counter values, including the aggregate channel counters, into another Statistics
+     * object and sets them to zero in this one. Each value is taken atomically, so updates made
+     * while draining are either moved or left for the next drain, but never lost. No events are
+     * dispatched and the values are added to the target as they are.
+     */
+    public void drainTo(Statistics target) {
+        for (Entry<String, ChannelStatistics> entry : stats.entrySet()) {
+            AtomicLongArray[] counters = entry.getValue().counters;
+            ChannelStatistics targetChannelStats = null;
+
+            for (int slot = 0; slot < counters.length; slot++) {
+                if (counters[slot] != null) {
+                    for (int index = 0; index < TRACKED_STATUSES.length; index++) {
+                        if (counters[slot].get(index) != 0) {
+                            long value = counters[slot].getAndSet(index, 0L);
+
+                            if (value != 0) {
+                                if (targetChannelStats == null) {
+                                    targetChannelStats = target.getChannelStatistics(entry.getKey());
+                                }
+                                targetChannelStats.getCounters(slot == 0 ? null : slot - 1).addAndGet(index, value);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets all counters to zero, but keeps the channels and connectors that have been tracked so far
+     * so that they don't need to be created again.
+     */
+    public void reset() {
+        for (ChannelStatistics channelStats : stats.values()) {
+            for (AtomicLongArray counters : channelStats.counters) {
+                if (counters != null) {
+                    for (int index = 0; index < TRACKED_STATUSES.length; index++) {
+                        counters.set(index, 0L);
+                    }
                 }
             }
         }
@@ -233,9 +264,10 @@ public class Statistics {
 
     public void resetStats(String channelId, Integer metaDataId, Set<Status> statuses) {
         for (Status status : statuses) {
-            if (ArrayUtils.contains(TRACKED_STATUSES, status)) {
-                Map<Status, AtomicLong> connectorStats = getConnectorStatsMap(getChannelStatsMap(channelId), metaDataId);
-                connectorStats.get(status).set(0L);
+            int index = getIndex(status);
+
+            if (index >= 0) {
+                getChannelStatistics(channelId).getCounters(metaDataId).set(index, 0L);
 
                 if (sendEvents && metaDataId != null) {
                     MessageEventType type = MessageEventType.fromStatus(status);
@@ -254,32 +286,22 @@ public class Statistics {
     }
 
     public void remove(String channelId) {
-        synchronized (stats) {
-            Map<Integer, Map<Status, AtomicLong>> channelStats = stats.get(channelId);
-
-            if (channelStats != null) {
-                synchronized (channelStats) {
-                    stats.remove(channelId);
-                }
-            }
-        }
+        stats.remove(channelId);
     }
 
     public void clear() {
-        synchronized (stats) {
-            stats.clear();
-        }
+        stats.clear();
     }
 
-    private Map<Integer, Map<Status, AtomicLong>> getChannelStatsMap(String channelId) {
-        Map<Integer, Map<Status, AtomicLong>> channelStats = stats.get(channelId);
+    private ChannelStatistics getChannelStatistics(String channelId) {
+        ChannelStatistics channelStats = stats.get(channelId);
 
         if (channelStats == null) {
             synchronized (stats) {
                 channelStats = stats.get(channelId);
 
                 if (channelStats == null) {
-                    channelStats = new LinkedHashMap<Integer, Map<Status, AtomicLong>>();
+                    channelStats = new ChannelStatistics();
                     stats.put(channelId, channelStats);
                 }
             }
@@ -288,29 +310,84 @@ public class Statistics {
         return channelStats;
     }
 
-    private Map<Status, AtomicLong> getConnectorStatsMap(Map<Integer, Map<Status, AtomicLong>> channelStats, Integer metaDataId) {
-        Map<Status, AtomicLong> connectorStats = channelStats.get(metaDataId);
+    private static Map<Integer, Map<Status, Long>> toMap(ChannelStatistics channelStats) {
+        Map<Integer, Map<Status, Long>> channelMap = new LinkedHashMap<Integer, Map<Status, Long>>();
+        AtomicLongArray[] counters = channelStats.counters;
 
-        if (connectorStats == null) {
-            synchronized (channelStats) {
-                connectorStats = channelStats.get(metaDataId);
+        for (int slot = 0; slot < counters.length; slot++) {
+            if (counters[slot] != null) {
+                channelMap.put(slot == 0 ? null : slot - 1, toMap(counters[slot]));
+            }
+        }
+
+        return channelMap;
+    }
 
-                if (connectorStats == null) {
-                    connectorStats = new LinkedHashMap<Status, AtomicLong>();
-                    connectorStats.put(Status.RECEIVED, new AtomicLong(0L));
-                    connectorStats.put(Status.FILTERED, new AtomicLong(0L));
-                    connectorStats.put(Status.SENT, new AtomicLong(0L));
-                    connectorStats.put(Status.ERROR, new AtomicLong(0L));
+    private static Map<Status, Long> toMap(AtomicLongArray counters) {
+        Map<Status, Long> statusMap = new LinkedHashMap<Status, Long>();
 
-                    channelStats.put(metaDataId, connectorStats);
-                }
+        for (int index = 0; index < TRACKED_STATUSES.length; index++) {
+            statusMap.put(TRACKED_STATUSES[index], counters.get(index));
+        }
+
+        return statusMap;
+    }
+
+    private static int getIndex(Status status) {
+        if (status != null) {
+            switch (status) {
+                case RECEIVED:
+                    return 0;
+                case FILTERED:
+                    return 1;
+                case SENT:
+                    return 2;
+                case ERROR:
+                    return 3;
+                default:
+                    break;
             }
         }
 
-        return connectorStats;
+        return -1;
     }
 
     public static Set<Status> getTrackedStatuses() {
         return new HashSet<Status>(Arrays.asList(TRACKED_STATUSES));
     }
-}
\ No newline at end of file
+
+    private static class ChannelStatistics {
+        /*
+         * Copied on write when a new connector is added, so it can always be read without locking.
+         * Slot 0 holds the aggregate channel counters and slot metaDataId + 1 holds the counters
+         * for that connector. The aggregate counters always exist.
+         */
+        private volatile AtomicLongArray[] counters = new AtomicLongArray[] {
+                new AtomicLongArray(TRACKED_STATUSES.length) };
+
+        private AtomicLongArray getCounters(Integer metaDataId) {
+            int slot = metaDataId == null ? 0 : metaDataId + 1;
+            AtomicLongArray[] counters = this.counters;
+
+            if (slot < counters.length && counters[slot] != null) {
+                return counters[slot];
+            }
+
+            if (slot < 0) {
+                throw new IllegalArgumentException("Invalid metadata ID: " + metaDataId);
+            }
+
+            synchronized (this) {
+                counters = this.counters;
+
+                if (slot >= counters.length || counters[slot] == null) {
+                    counters = Arrays.copyOf(counters, Math.max(counters.length, slot + 1));
+                    counters[slot] = new AtomicLongArray(TRACKED_STATUSES.length);
+                    this.counters = counters;
+                }
+
+                return counters[slot];
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@
 
 package com.mirth.connect.donkey.server.data;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -128,6 +129,12 @@ public interface DonkeyDao {
 
     public Attachment getMessageAttachment(String channelId, String attachmentId, Long messageId);
 
+    /**
+     * Writes the content of an attachment to the given stream one segment at a time, and returns
+     * false if the attachment does not exist.
+     */
+    public boolean writeMessageAttachment(String channelId, String attachmentId, Long messageId, OutputStream outputStream);
+
     public Statistics getChannelStatistics(String serverId);
 
     public Statistics getChannelTotalStatistics(String serverId);
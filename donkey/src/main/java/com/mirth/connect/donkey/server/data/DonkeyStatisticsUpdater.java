@@ -9,13 +9,9 @@
 
 package com.mirth.connect.donkey.server.data;
 
-import java.util.Map;
-import java.util.Map.Entry;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import com.mirth.connect.donkey.model.message.Status;
 import com.mirth.connect.donkey.server.channel.Statistics;
 
 public class DonkeyStatisticsUpdater extends Thread implements StatisticsUpdater {
@@ -25,6 +21,7 @@ public class DonkeyStatisticsUpdater extends Thread implements StatisticsUpdater
     private DonkeyDaoFactory daoFactory;
     private int updateInterval;
     private Statistics statistics = new Statistics(false, true);
+    private Statistics pendingStatistics = new Statistics(false, true);
     private Logger logger = LogManager.getLogger(getClass());
 
     public DonkeyStatisticsUpdater(DonkeyDaoFactory daoFactory, int updateInterval) {
@@ -78,28 +75,23 @@ public class DonkeyStatisticsUpdater extends Thread implements StatisticsUpdater
 
     private void commit() throws InterruptedException {
         if (!statistics.isEmpty() && daoFactory != null) {
-            Statistics tempStats = new Statistics(false, true);
-
-            Map<String, Map<Integer, Map<Status, Long>>> stats = statistics.getStats();
-            tempStats.update(stats);
+            /*
+             * Move the accumulated statistics into the pending object, so that updates arriving while
+             * they are committed are kept for the next commit. The pending object is reused, so this
+             * doesn't allocate anything once every channel and connector has been seen.
+             */
+            statistics.drainTo(pendingStatistics);
 
             DonkeyDao dao = daoFactory.getDao();
             boolean commitSuccess = false;
             try {
-                dao.addChannelStatistics(tempStats);
+                dao.addChannelStatistics(pendingStatistics);
                 dao.commit();
                 commitSuccess = true;
-
-                // Invert the stats and update them on the Statistics object
-                for (Map<Integer, Map<Status, Long>> channelMap : stats.values()) {
-                    for (Map<Status, Long> connectorMap : channelMap.values()) {
-                        for (Entry<Status, Long> entry : connectorMap.entrySet()) {
-                            entry.setValue(-entry.getValue());
-                        }
-                    }
-                }
-                statistics.update(stats);
             } catch (Throwable t) {
+                // Put the statistics back so they are committed next time
+                pendingStatistics.drainTo(statistics);
+
                 if (t instanceof InterruptedException) {
                     throw (InterruptedException) t;
                 }
@@ -110,11 +102,14 @@ public class DonkeyStatisticsUpdater extends Thread implements StatisticsUpdater
 
                     for (String channelId : e.getChannelIds()) {
                         statistics.remove(channelId);
+                        pendingStatistics.remove(channelId);
                     }
                 } else {
                     logger.error("Unable to update statistics.", t);
                 }
             } finally {
+                pendingStatistics.reset();
+
                 if (dao != null) {
                     if (!commitSuccess) {
                         try {
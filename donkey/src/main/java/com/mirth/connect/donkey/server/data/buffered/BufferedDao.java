@@ -9,6 +9,7 @@
 
 package com.mirth.connect.donkey.server.data.buffered;
 
+import java.io.OutputStream;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,10 @@ import com.mirth.connect.donkey.server.channel.Statistics;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
 import com.mirth.connect.donkey.server.data.StatisticsUpdater;
+import com.mirth.connect.donkey.server.data.jdbc.JdbcDaoFactory;
+import com.mirth.connect.donkey.server.data.jdbc.MessageIdBlockAllocator;
+import com.mirth.connect.donkey.server.data.timed.TimedDao;
+import com.mirth.connect.donkey.util.ActionTimer;
 import com.mirth.connect.donkey.util.SerializerProvider;
 
 public class BufferedDao implements DonkeyDao {
@@ -40,6 +45,8 @@ public class BufferedDao implements DonkeyDao {
     private boolean decryptData;
     private StatisticsUpdater statisticsUpdater;
     private Queue<DaoTask> tasks = new LinkedList<DaoTask>();
+    private GroupCommitWriter groupCommitWriter;
+    private ActionTimer timer;
     private boolean closed = false;
     private Logger logger = LogManager.getLogger(this.getClass());
 
@@ -53,6 +60,14 @@ public class BufferedDao implements DonkeyDao {
         this.statisticsUpdater = statisticsUpdater;
     }
 
+    public void setGroupCommitWriter(GroupCommitWriter groupCommitWriter) {
+        this.groupCommitWriter = groupCommitWriter;
+    }
+
+    public void setTimer(ActionTimer timer) {
+        this.timer = timer;
+    }
+
     @Override
     public void setEncryptData(boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData) {
         this.encryptMessageContent = encryptMessageContent;
@@ -96,6 +111,10 @@ public class BufferedDao implements DonkeyDao {
     private DonkeyDao getDelegateDao() {
         DonkeyDao dao = daoFactory.getDao(serializerProvider);
 
+        if (timer != null) {
+            dao = new TimedDao(dao, timer);
+        }
+
         dao.setEncryptData(encryptMessageContent, encryptAttachments, encryptCustomMetaData);
         dao.setDecryptData(decryptData);
         dao.setStatisticsUpdater(statisticsUpdater);
@@ -104,51 +123,26 @@ public class BufferedDao implements DonkeyDao {
     }
 
     private void executeTasks(Boolean durable) {
+        if (groupCommitWriter != null) {
+            long startTime = System.nanoTime();
+
+            try {
+                groupCommitWriter.execute(daoFactory, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater, timer, tasks, durable);
+            } finally {
+                if (timer != null) {
+                    // Includes the time spent waiting for the shared transaction to be committed
+                    timer.logSince("groupCommit", startTime);
+                }
+            }
+            return;
+        }
+
         DonkeyDao dao = getDelegateDao();
         boolean commitSuccess = false;
 
         try {
             while (!tasks.isEmpty()) {
-                DaoTask task = tasks.poll();
-                Object[] p = task.getParameters();
-
-                // @formatter:off
-                switch (task.getTaskType()) {
-                    case INSERT_MESSAGE: dao.insertMessage((Message) p[0]); break;
-                    case INSERT_CONNECTOR_MESSAGE: dao.insertConnectorMessage((ConnectorMessage) p[0], (Boolean) p[1], (Boolean) p[2]); break;
-                    case INSERT_MESSAGE_CONTENT: dao.insertMessageContent((MessageContent) p[0]); break;
-                    case BATCH_INSERT_MESSAGE_CONTENT: dao.batchInsertMessageContent((MessageContent) p[0]); break;
-                    case EXECUTE_BATCH_INSERT_MESSAGE_CONTENT: dao.executeBatchInsertMessageContent((String) p[0]); break;
-                    case INSERT_MESSAGE_ATTACHMENT: dao.insertMessageAttachment((String) p[0], (Long) p[1], (Attachment) p[2]); break;
-                    case UPDATE_MESSAGE_ATTACHMENT: dao.updateMessageAttachment((String) p[0], (Long) p[1], (Attachment) p[2]); break;
-                    case INSERT_META_DATA: dao.insertMetaData((ConnectorMessage) p[0], (List<MetaDataColumn>) p[1]); break;
-                    case STORE_META_DATA: dao.storeMetaData((ConnectorMessage) p[0], (List<MetaDataColumn>) p[1]); break;
-                    case STORE_MESSAGE_CONTENT: dao.storeMessageContent((MessageContent) p[0]); break;
-                    case STORE_CHANNEL_STATISTICS: dao.addChannelStatistics((Statistics) p[0]); break;
-                    case UPDATE_SEND_ATTEMPTS: dao.updateSendAttempts((ConnectorMessage) p[0]); break;
-                    case UPDATE_STATUS: dao.updateStatus((ConnectorMessage) p[0], (Status) p[1]); break;
-                    case UPDATE_ERRORS: dao.updateErrors((ConnectorMessage) p[0]); break;
-                    case UPDATE_MAPS: dao.updateMaps((ConnectorMessage) p[0]); break;
-                    case UPDATE_SOURCE_MAP: dao.updateSourceMap((ConnectorMessage) p[0]); break;
-                    case UPDATE_RESPONSE_MAP: dao.updateResponseMap((ConnectorMessage) p[0]); break;
-                    case MARK_AS_PROCESSED: dao.markAsProcessed((String) p[0], (Long) p[1]); break;
-                    case RESET_MESSAGE: dao.resetMessage((String) p[0], (Long) p[1]); break;
-                    case DELETE_MESSAGE: dao.deleteMessage((String) p[0], (Long) p[1]); break;
-                    case DELETE_CONNECTOR_MESSAGES: dao.deleteConnectorMessages((String) p[0], (Long) p[1], (Set<Integer>) p[2]); break;
-                    case DELETE_MESSAGE_STATISTICS: dao.deleteMessageStatistics((String) p[0], (Long) p[1], (Set<Integer>) p[2]); break;
-                    case DELETE_ALL_MESSAGES: dao.deleteAllMessages((String) p[0]); break;
-                    case DELETE_MESSAGE_CONTENT: dao.deleteMessageContent((String) p[0], (Long) p[1]); break;
-                    case DELETE_MESSAGE_CONTENT_BY_META_DATA_IDS: dao.deleteMessageContentByMetaDataIds((String) p[0], (Long) p[1], (Set<Integer>) p[2]); break;
-                    case DELETE_MESSAGE_ATTACHMENTS: dao.deleteMessageAttachments((String) p[0], (Long) p[1]); break;
-                    case CREATE_CHANNEL: dao.createChannel((String) p[0], (Long) p[1]); break;
-                    case REMOVE_CHANNEL: dao.removeChannel((String) p[0]); break;
-                    case ADD_META_DATA_COLUMN: dao.addMetaDataColumn((String) p[0], (MetaDataColumn) p[1]); break;
-                    case REMOVE_META_DATA_COLUMN: dao.removeMetaDataColumn((String) p[0], (String) p[1]); break;
-                    case RESET_STATISTICS: dao.resetStatistics((String) p[0], (Integer) p[1], (Set<Status>) p[2]); break;
-                    case RESET_ALL_STATISTICS: dao.resetAllStatistics((String) p[0]); break;
-                    case GET_PORTS_IN_USE: dao.getPortsInUse(); break;
-                }
-                // @formatter:on
+                executeTask(dao, tasks.poll());
             }
 
             if (durable == null) {
@@ -171,6 +165,48 @@ public class BufferedDao implements DonkeyDao {
         }
     }
 
+    static void executeTask(DonkeyDao dao, DaoTask task) {
+        Object[] p = task.getParameters();
+
+        // @formatter:off
+        switch (task.getTaskType()) {
+            case INSERT_MESSAGE: dao.insertMessage((Message) p[0]); break;
+            case INSERT_CONNECTOR_MESSAGE: dao.insertConnectorMessage((ConnectorMessage) p[0], (Boolean) p[1], (Boolean) p[2]); break;
+            case INSERT_MESSAGE_CONTENT: dao.insertMessageContent((MessageContent) p[0]); break;
+            case BATCH_INSERT_MESSAGE_CONTENT: dao.batchInsertMessageContent((MessageContent) p[0]); break;
+            case EXECUTE_BATCH_INSERT_MESSAGE_CONTENT: dao.executeBatchInsertMessageContent((String) p[0]); break;
+            case INSERT_MESSAGE_ATTACHMENT: dao.insertMessageAttachment((String) p[0], (Long) p[1], (Attachment) p[2]); break;
+            case UPDATE_MESSAGE_ATTACHMENT: dao.updateMessageAttachment((String) p[0], (Long) p[1], (Attachment) p[2]); break;
+            case INSERT_META_DATA: dao.insertMetaData((ConnectorMessage) p[0], (List<MetaDataColumn>) p[1]); break;
+            case STORE_META_DATA: dao.storeMetaData((ConnectorMessage) p[0], (List<MetaDataColumn>) p[1]); break;
+            case STORE_MESSAGE_CONTENT: dao.storeMessageContent((MessageContent) p[0]); break;
+            case STORE_CHANNEL_STATISTICS: dao.addChannelStatistics((Statistics) p[0]); break;
+            case UPDATE_SEND_ATTEMPTS: dao.updateSendAttempts((ConnectorMessage) p[0]); break;
+            case UPDATE_STATUS: dao.updateStatus((ConnectorMessage) p[0], (Status) p[1]); break;
+            case UPDATE_ERRORS: dao.updateErrors((ConnectorMessage) p[0]); break;
+            case UPDATE_MAPS: dao.updateMaps((ConnectorMessage) p[0]); break;
+            case UPDATE_SOURCE_MAP: dao.updateSourceMap((ConnectorMessage) p[0]); break;
+            case UPDATE_RESPONSE_MAP: dao.updateResponseMap((ConnectorMessage) p[0]); break;
+            case MARK_AS_PROCESSED: dao.markAsProcessed((String) p[0], (Long) p[1]); break;
+            case RESET_MESSAGE: dao.resetMessage((String) p[0], (Long) p[1]); break;
+            case DELETE_MESSAGE: dao.deleteMessage((String) p[0], (Long) p[1]); break;
+            case DELETE_CONNECTOR_MESSAGES: dao.deleteConnectorMessages((String) p[0], (Long) p[1], (Set<Integer>) p[2]); break;
+            case DELETE_MESSAGE_STATISTICS: dao.deleteMessageStatistics((String) p[0], (Long) p[1], (Set<Integer>) p[2]); break;
+            case DELETE_ALL_MESSAGES: dao.deleteAllMessages((String) p[0]); break;
+            case DELETE_MESSAGE_CONTENT: dao.deleteMessageContent((String) p[0], (Long) p[1]); break;
+            case DELETE_MESSAGE_CONTENT_BY_META_DATA_IDS: dao.deleteMessageContentByMetaDataIds((String) p[0], (Long) p[1], (Set<Integer>) p[2]); break;
+            case DELETE_MESSAGE_ATTACHMENTS: dao.deleteMessageAttachments((String) p[0], (Long) p[1]); break;
+            case CREATE_CHANNEL: dao.createChannel((String) p[0], (Long) p[1]); break;
+            case REMOVE_CHANNEL: dao.removeChannel((String) p[0]); break;
+            case ADD_META_DATA_COLUMN: dao.addMetaDataColumn((String) p[0], (MetaDataColumn) p[1]); break;
+            case REMOVE_META_DATA_COLUMN: dao.removeMetaDataColumn((String) p[0], (String) p[1]); break;
+            case RESET_STATISTICS: dao.resetStatistics((String) p[0], (Integer) p[1], (Set<Status>) p[2]); break;
+            case RESET_ALL_STATISTICS: dao.resetAllStatistics((String) p[0]); break;
+            case GET_PORTS_IN_USE: dao.getPortsInUse(); break;
+        }
+        // @formatter:on
+    }
+
     @Override
     public void rollback() {
         tasks.clear();
@@ -426,6 +462,15 @@ public class BufferedDao implements DonkeyDao {
 
     @Override
     public long getNextMessageId(String channelId) {
+        if (daoFactory instanceof JdbcDaoFactory) {
+            MessageIdBlockAllocator messageIdAllocator = ((JdbcDaoFactory) daoFactory).getMessageIdAllocator();
+
+            // Only borrow a connection when a new block of IDs needs to be reserved
+            if (messageIdAllocator != null) {
+                return messageIdAllocator.getNextMessageId(channelId);
+            }
+        }
+
         DonkeyDao dao = getDelegateDao();
 
         try {
@@ -459,6 +504,17 @@ public class BufferedDao implements DonkeyDao {
         }
     }
 
+    @Override
+    public boolean writeMessageAttachment(String channelId, String attachmentId, Long messageId, OutputStream outputStream) {
+        DonkeyDao dao = getDelegateDao();
+
+        try {
+            return dao.writeMessageAttachment(channelId, attachmentId, messageId, outputStream);
+        } finally {
+            dao.close();
+        }
+    }
+
     @Override
     public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId) {
         DonkeyDao dao = getDelegateDao();
@@ -13,6 +13,7 @@ import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
 import com.mirth.connect.donkey.server.data.StatisticsUpdater;
 import com.mirth.connect.donkey.server.data.jdbc.ConnectionPool;
+import com.mirth.connect.donkey.util.ActionTimer;
 import com.mirth.connect.donkey.util.SerializerProvider;
 
 public class BufferedDaoFactory implements DonkeyDaoFactory {
@@ -23,6 +24,8 @@ public class BufferedDaoFactory implements DonkeyDaoFactory {
     private boolean encryptCustomMetaData = false;
     private boolean decryptData = true;
     private StatisticsUpdater statisticsUpdater;
+    private GroupCommitWriter groupCommitWriter;
+    private ActionTimer timer;
 
     public BufferedDaoFactory(DonkeyDaoFactory delegateFactory, SerializerProvider serializerProvider, StatisticsUpdater statisticsUpdater) {
         this.delegateFactory = delegateFactory;
@@ -38,6 +41,30 @@ public class BufferedDaoFactory implements DonkeyDaoFactory {
         this.delegateFactory = delegateFactory;
     }
 
+    public GroupCommitWriter getGroupCommitWriter() {
+        return groupCommitWriter;
+    }
+
+    /**
+     * If set, the DAOs created by this factory commit their tasks through the given writer, sharing
+     * transactions with other DAOs that commit at the same time.
+     */
+    public void setGroupCommitWriter(GroupCommitWriter groupCommitWriter) {
+        this.groupCommitWriter = groupCommitWriter;
+    }
+
+    public ActionTimer getTimer() {
+        return timer;
+    }
+
+    /**
+     * If set, the time taken by each operation that the DAOs created by this factory execute
+     * against the delegate factory is logged to the given timer.
+     */
+    public void setTimer(ActionTimer timer) {
+        this.timer = timer;
+    }
+
     @Override
     public void setEncryptData(boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData) {
         this.encryptMessageContent = encryptMessageContent;
@@ -62,7 +89,10 @@ public class BufferedDaoFactory implements DonkeyDaoFactory {
 
     @Override
     public DonkeyDao getDao(SerializerProvider serializerProvider) {
-        return new BufferedDao(delegateFactory, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater);
+        BufferedDao dao = new BufferedDao(delegateFactory, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater);
+        dao.setGroupCommitWriter(groupCommitWriter);
+        dao.setTimer(timer);
+        return dao;
     }
 
     @Override
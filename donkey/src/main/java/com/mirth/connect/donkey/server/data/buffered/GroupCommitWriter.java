@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.buffered;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.attachment.Attachment;
+import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.data.DonkeyDaoException;
+import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
+import com.mirth.connect.donkey.server.data.StatisticsUpdater;
+import com.mirth.connect.donkey.server.data.timed.TimedDao;
+import com.mirth.connect.donkey.util.ActionTimer;
+import com.mirth.connect.donkey.util.SerializerProvider;
+
+/**
+ * Executes the task lists of many BufferedDao instances in shared transactions. Threads committing
+ * a BufferedDao hand their tasks to the writer and block until the transaction containing them has
+ * been committed, so each commit is still durable when it returns. While a transaction is being
+ * committed, newly submitted task lists queue up and are written together in the next one.
+ *
+ * If a shared transaction fails, it is rolled back and each task list in it is retried in its own
+ * transaction, so only the commit that actually caused the failure receives the exception. Task
+ * lists that can't be executed twice, such as ones inserting an attachment from a stream, are
+ * always written in their own transaction and never retried.
+ */
+public class GroupCommitWriter {
+    public static final int DEFAULT_WRITER_COUNT = 1;
+    public static final int DEFAULT_MAX_GROUP_SIZE = 100;
+
+    private static final Submission STOP = new Submission(null, null, false, false, false, false, null, null, null, null);
+
+    private int writerCount;
+    private int maxGroupSize;
+    private BlockingQueue<Submission> queue = new LinkedBlockingQueue<Submission>();
+    private List<Thread> writerThreads = new ArrayList<Thread>();
+    private volatile boolean running = false;
+    private Logger logger = LogManager.getLogger(getClass());
+
+    public GroupCommitWriter(int writerCount, int maxGroupSize) {
+        this.writerCount = writerCount > 0 ? writerCount : DEFAULT_WRITER_COUNT;
+        this.maxGroupSize = maxGroupSize > 0 ? maxGroupSize : DEFAULT_MAX_GROUP_SIZE;
+    }
+
+    public int getWriterCount() {
+        return writerCount;
+    }
+
+    public int getMaxGroupSize() {
+        return maxGroupSize;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+
+        for (int i = 1; i <= writerCount; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runWriter();
+                }
+            }, "Group Commit Writer Thread " + i);
+            thread.setDaemon(true);
+            thread.start();
+            writerThreads.add(thread);
+        }
+    }
+
+    /**
+     * Stops the writer threads after all task lists that have already been submitted are written.
+     * Task lists submitted afterwards are executed in the calling thread.
+     */
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+
+        // Writer threads stop once they reach these, after everything submitted before them
+        for (int i = 0; i < writerThreads.size(); i++) {
+            queue.add(STOP);
+        }
+
+        for (Thread thread : writerThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        writerThreads.clear();
+
+        // Anything still queued at this point was submitted while the threads were stopping
+        List<Submission> remaining = new ArrayList<Submission>();
+        queue.drainTo(remaining);
+        for (Submission submission : remaining) {
+            if (submission != STOP) {
+                executeIndividually(submission);
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Writes the given tasks and blocks until they have been committed. Any exception thrown while
+     * executing or committing them is rethrown in the calling thread. If a timer is given, the time
+     * taken by each of the tasks is logged to it.
+     */
+    public void execute(DonkeyDaoFactory daoFactory, SerializerProvider serializerProvider, boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData, boolean decryptData, StatisticsUpdater statisticsUpdater, ActionTimer timer, Queue<DaoTask> tasks, Boolean durable) {
+        Submission submission = new Submission(daoFactory, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater, timer, new ArrayList<DaoTask>(tasks), durable);
+        tasks.clear();
+
+        if (!submission.isGroupable()) {
+            executeIndividually(submission);
+        } else if (running) {
+            queue.add(submission);
+
+            // If the writer was shut down in the meantime, nothing may be left to pick it up
+            if (!running && queue.remove(submission)) {
+                executeIndividually(submission);
+            }
+
+            submission.await();
+        } else {
+            executeIndividually(submission);
+        }
+
+        if (submission.error != null) {
+            if (submission.error instanceof RuntimeException) {
+                throw (RuntimeException) submission.error;
+            } else if (submission.error instanceof Error) {
+                throw (Error) submission.error;
+            }
+
+            throw new DonkeyDaoException(submission.error);
+        }
+    }
+
+    private void runWriter() {
+        List<Submission> group = new ArrayList<Submission>();
+        boolean stop = false;
+
+        while (!stop) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+
+            queue.drainTo(group, maxGroupSize - 1);
+
+            int stopCount = 0;
+            for (Iterator<Submission> iterator = group.iterator(); iterator.hasNext();) {
+                if (iterator.next() == STOP) {
+                    iterator.remove();
+                    stopCount++;
+                }
+            }
+
+            if (stopCount > 0) {
+                stop = true;
+
+                // Leave any extra stop signals for the other writer threads
+                for (int i = 1; i < stopCount; i++) {
+                    queue.add(STOP);
+                }
+            }
+
+            try {
+                if (!group.isEmpty()) {
+                    writeGroup(group);
+                }
+            } catch (Throwable t) {
+                logger.error("Error writing group commit", t);
+
+                for (Submission submission : group) {
+                    if (!submission.isDone()) {
+                        submission.complete(t);
+                    }
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<Submission> group) {
+        /*
+         * Task lists that use different DAO factories, serializers or statistics updaters can't share
+         * a connection, so each distinct combination gets its own transaction.
+         */
+        Map<List<Object>, List<Submission>> transactions = new LinkedHashMap<List<Object>, List<Submission>>();
+
+        for (Submission submission : group) {
+            List<Object> key = new ArrayList<Object>(3);
+            key.add(submission.daoFactory);
+            key.add(submission.serializerProvider);
+            key.add(submission.statisticsUpdater);
+
+            List<Submission> submissions = transactions.get(key);
+            if (submissions == null) {
+                submissions = new ArrayList<Submission>();
+                transactions.put(key, submissions);
+            }
+            submissions.add(submission);
+        }
+
+        for (List<Submission> submissions : transactions.values()) {
+            if (submissions.size() == 1) {
+                executeIndividually(submissions.get(0));
+            } else {
+                try {
+                    executeTransaction(submissions);
+
+                    for (Submission submission : submissions) {
+                        submission.complete(null);
+                    }
+                } catch (Throwable t) {
+                    logger.debug("Group commit of " + submissions.size() + " task lists failed, retrying them individually", t);
+
+                    for (Submission submission : submissions) {
+                        executeIndividually(submission);
+                    }
+                }
+            }
+        }
+    }
+
+    private void executeIndividually(Submission submission) {
+        try {
+            executeTransaction(Collections.singletonList(submission));
+            submission.complete(null);
+        } catch (Throwable t) {
+            submission.complete(t);
+        }
+    }
+
+    private void executeTransaction(List<Submission> submissions) {
+        Submission first = submissions.get(0);
+        DonkeyDao dao = first.daoFactory.getDao(first.serializerProvider);
+        boolean commitSuccess = false;
+
+        try {
+            dao.setStatisticsUpdater(first.statisticsUpdater);
+            Boolean durable = Boolean.FALSE;
+            String batchChannelId = null;
+
+            for (Submission submission : submissions) {
+                dao.setEncryptData(submission.encryptMessageContent, submission.encryptAttachments, submission.encryptCustomMetaData);
+                dao.setDecryptData(submission.decryptData);
+                DonkeyDao taskDao = submission.timer != null ? new TimedDao(dao, submission.timer) : dao;
+
+                for (DaoTask task : submission.tasks) {
+                    /*
+                     * Consecutive content inserts for the same channel are sent as one JDBC batch.
+                     * Content is encrypted when it is added to the batch, so the batch can span
+                     * task lists with different encryption settings.
+                     */
+                    if (task.getTaskType() == DaoTaskType.INSERT_MESSAGE_CONTENT) {
+                        MessageContent messageContent = (MessageContent) task.getParameters()[0];
+
+                        if (batchChannelId != null && !batchChannelId.equals(messageContent.getChannelId())) {
+                            dao.executeBatchInsertMessageContent(batchChannelId);
+                        }
+
+                        dao.batchInsertMessageContent(messageContent);
+                        batchChannelId = messageContent.getChannelId();
+                    } else {
+                        if (batchChannelId != null) {
+                            dao.executeBatchInsertMessageContent(batchChannelId);
+                            batchChannelId = null;
+                        }
+
+                        BufferedDao.executeTask(taskDao, task);
+                    }
+                }
+
+                // The transaction is durable if any of the task lists in it need to be
+                if (submission.durable == null) {
+                    durable = null;
+                } else if (durable != null && submission.durable) {
+                    durable = Boolean.TRUE;
+                }
+            }
+
+            if (batchChannelId != null) {
+                dao.executeBatchInsertMessageContent(batchChannelId);
+            }
+
+            if (durable == null) {
+                dao.commit();
+            } else {
+                dao.commit(durable);
+            }
+
+            commitSuccess = true;
+        } finally {
+            if (!commitSuccess) {
+                try {
+                    dao.rollback();
+                } catch (Exception e) {}
+            }
+            dao.close();
+        }
+    }
+
+    private static class Submission {
+        private DonkeyDaoFactory daoFactory;
+        private SerializerProvider serializerProvider;
+        private boolean encryptMessageContent;
+        private boolean encryptAttachments;
+        private boolean encryptCustomMetaData;
+        private boolean decryptData;
+        private StatisticsUpdater statisticsUpdater;
+        private ActionTimer timer;
+        private List<DaoTask> tasks;
+        private Boolean durable;
+        private CountDownLatch done = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        private Submission(DonkeyDaoFactory daoFactory, SerializerProvider serializerProvider, boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData, boolean decryptData, StatisticsUpdater statisticsUpdater, ActionTimer timer, List<DaoTask> tasks, Boolean durable) {
+            this.daoFactory = daoFactory;
+            this.serializerProvider = serializerProvider;
+            this.encryptMessageContent = encryptMessageContent;
+            this.encryptAttachments = encryptAttachments;
+            this.encryptCustomMetaData = encryptCustomMetaData;
+            this.decryptData = decryptData;
+            this.statisticsUpdater = statisticsUpdater;
+            this.timer = timer;
+            this.tasks = tasks;
+            this.durable = durable;
+        }
+
+        private void complete(Throwable error) {
+            this.error = error;
+            done.countDown();
+        }
+
+        /*
+         * Tasks that alter the channel tables may be committed implicitly by the database, so they
+         * are never combined with other task lists. Attachments given as a stream can only be read
+         * once, so they couldn't be inserted again if the group had to be retried.
+         */
+        private boolean isGroupable() {
+            for (DaoTask task : tasks) {
+                switch (task.getTaskType()) {
+                    case CREATE_CHANNEL:
+                    case REMOVE_CHANNEL:
+                    case ADD_META_DATA_COLUMN:
+                    case REMOVE_META_DATA_COLUMN:
+                        return false;
+                    case INSERT_MESSAGE_ATTACHMENT:
+                    case UPDATE_MESSAGE_ATTACHMENT:
+                        if (((Attachment) task.getParameters()[2]).hasBinaryStream()) {
+                            return false;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        /*
+         * The tasks will be committed whether or not the calling thread is interrupted, so keep
+         * waiting until the outcome is known and restore the interrupt status afterwards.
+         */
+        private void await() {
+            boolean interrupted = false;
+
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * The content index of a single channel. Each key is a content type and a case folded trigram of
+ * the content, and its postings are the IDs of the messages containing it. New postings are kept
+ * in memory until they are flushed to a segment file, and segments are merged once there are too
+ * many of them or once pruned messages should be removed.
+ *
+ * Only messages with an ID of at least getFirstMessageId() are covered by the index, which is the
+ * first message created after the index started. Methods that change the buffer or the segments
+ * must be called while holding the lock of the owning MessageContentIndex, except for merge().
+ */
+class ChannelContentIndex {
+    private static final String STATE_FILE = "channel.properties";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+
+    private String channelId;
+    private File directory;
+    private AtomicLong firstMessageId = new AtomicLong(-1);
+    private AtomicLong maxCreatedMessageId = new AtomicLong(-1);
+    private volatile long coverageFloor = 0;
+
+    private Map<Long, LongList> buffer = new HashMap<Long, LongList>();
+    private int bufferedPostings = 0;
+    private List<ContentIndexSegment> segments = new ArrayList<ContentIndexSegment>();
+    private int nextSegment = 1;
+    private LongList removedRanges = new LongList();
+    private long lastRemoval = 0;
+    private int generation = 0;
+
+    ChannelContentIndex(String channelId, File directory) {
+        this.channelId = channelId;
+        this.directory = directory;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public long getFirstMessageId() {
+        return firstMessageId.get();
+    }
+
+    /**
+     * Called when a message is inserted. The first message created starts the coverage of the
+     * index, since all of its content will be seen.
+     */
+    public void messageCreated(long messageId) {
+        long max;
+        while ((max = maxCreatedMessageId.get()) < messageId && !maxCreatedMessageId.compareAndSet(max, messageId)) {}
+
+        if (firstMessageId.get() < 0) {
+            firstMessageId.compareAndSet(-1, Math.max(messageId, coverageFloor));
+        }
+    }
+
+    public boolean isCovered(long messageId) {
+        long first = firstMessageId.get();
+        return first >= 0 && messageId >= first;
+    }
+
+    /**
+     * Called when content could not be queued. Any message created so far may now be missing from
+     * the index, so the coverage is moved past all of them.
+     */
+    public void invalidate() {
+        long next = maxCreatedMessageId.get() + 1;
+        long first;
+        while ((first = firstMessageId.get()) < next && !firstMessageId.compareAndSet(first, next)) {}
+    }
+
+    public void add(long messageId, int contentType, String content) {
+        LongList keys = getKeys(contentType, content);
+
+        for (int i = 0; i < keys.size(); i++) {
+            Long key = keys.get(i);
+            LongList postings = buffer.get(key);
+
+            if (postings == null) {
+                postings = new LongList();
+                buffer.put(key, postings);
+            }
+
+            postings.add(messageId);
+        }
+
+        bufferedPostings += keys.size();
+    }
+
+    public int getBufferedPostings() {
+        return bufferedPostings;
+    }
+
+    public void flush() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        FileUtils.forceMkdir(directory);
+
+        long[] keys = new long[buffer.size()];
+        int index = 0;
+        for (Long key : buffer.keySet()) {
+            keys[index++] = key;
+        }
+        Arrays.sort(keys);
+
+        ContentIndexSegment.Writer writer = new ContentIndexSegment.Writer(newSegmentFile());
+        try {
+            for (long key : keys) {
+                LongList postings = buffer.get(key);
+                postings.sortDistinct();
+                writer.add(key, postings.array(), postings.size());
+            }
+        } catch (IOException e) {
+            writer.abort();
+            throw e;
+        }
+
+        segments.add(ContentIndexSegment.open(writer.finish()));
+        buffer.clear();
+        bufferedPostings = 0;
+    }
+
+    public void removeMessages(long minMessageId, long maxMessageId) {
+        removedRanges.add(minMessageId);
+        removedRanges.add(maxMessageId);
+        lastRemoval = System.currentTimeMillis();
+    }
+
+    public boolean isMergeNeeded(int maxSegments, long removalDelay) {
+        return segments.size() > maxSegments || (!removedRanges.isEmpty() && System.currentTimeMillis() - lastRemoval >= removalDelay);
+    }
+
+    /**
+     * Returns the sorted IDs of messages between minMessageId and maxMessageId that may contain
+     * all of the given strings in content of any of the given types.
+     */
+    public LongList search(int[] contentTypes, List<String> strings, long minMessageId, long maxMessageId) throws IOException {
+        LongList result = new LongList();
+
+        for (int contentType : contentTypes) {
+            LongList matches = null;
+
+            for (int i = 0; i < strings.size() && (matches == null || !matches.isEmpty()); i++) {
+                LongList keys = getKeys(contentType, strings.get(i));
+
+                for (int j = 0; j < keys.size() && (matches == null || !matches.isEmpty()); j++) {
+                    LongList postings = getPostings(keys.get(j), minMessageId, maxMessageId);
+                    matches = matches == null ? postings : intersect(matches, postings);
+                }
+            }
+
+            if (matches != null) {
+                for (int i = 0; i < matches.size(); i++) {
+                    result.add(matches.get(i));
+                }
+            }
+        }
+
+        result.sortDistinct();
+        return result;
+    }
+
+    private LongList getPostings(long key, long minMessageId, long maxMessageId) throws IOException {
+        LongList postings = new LongList();
+        LongList buffered = buffer.get(key);
+
+        if (buffered != null) {
+            for (int i = 0; i < buffered.size(); i++) {
+                addInRange(postings, buffered.get(i), minMessageId, maxMessageId);
+            }
+        }
+
+        for (ContentIndexSegment segment : segments) {
+            int index = segment.indexOf(key);
+
+            if (index >= 0) {
+                for (long messageId : segment.getPostings(index)) {
+                    addInRange(postings, messageId, minMessageId, maxMessageId);
+                }
+            }
+        }
+
+        postings.sortDistinct();
+        return postings;
+    }
+
+    private void addInRange(LongList postings, long messageId, long minMessageId, long maxMessageId) {
+        if (messageId >= minMessageId && messageId <= maxMessageId) {
+            postings.add(messageId);
+        }
+    }
+
+    private LongList intersect(LongList first, LongList second) {
+        LongList result = new LongList(Math.min(first.size(), second.size()));
+        int i = 0;
+        int j = 0;
+
+        while (i < first.size() && j < second.size()) {
+            long a = first.get(i);
+            long b = second.get(j);
+
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                result.add(a);
+                i++;
+                j++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Takes a snapshot of the segments and removed messages to merge. Must be called while holding
+     * the index lock.
+     */
+    public Merge prepareMerge() {
+        return new Merge(new ArrayList<ContentIndexSegment>(segments), removedRanges.toArray(), newSegmentFile(), generation);
+    }
+
+    /**
+     * Merges the segments of a snapshot into a single segment file, without the removed messages.
+     * This is the only expensive operation, so it is done without holding the index lock. Returns
+     * null if nothing is left in the merged segment.
+     */
+    public File merge(Merge merge) throws IOException {
+        List<ContentIndexSegment> sources = merge.segments;
+        int[] positions = new int[sources.size()];
+        long[][] removed = getSortedRanges(merge.removedRanges);
+        boolean empty = true;
+
+        ContentIndexSegment.Writer writer = new ContentIndexSegment.Writer(merge.file);
+        try {
+            while (true) {
+                long key = Long.MAX_VALUE;
+                boolean found = false;
+
+                for (int i = 0; i < sources.size(); i++) {
+                    if (positions[i] < sources.get(i).getKeyCount() && sources.get(i).getKey(positions[i]) <= key) {
+                        key = sources.get(i).getKey(positions[i]);
+                        found = true;
+                    }
+                }
+
+                if (!found) {
+                    break;
+                }
+
+                LongList postings = new LongList();
+
+                for (int i = 0; i < sources.size(); i++) {
+                    ContentIndexSegment segment = sources.get(i);
+
+                    if (positions[i] < segment.getKeyCount() && segment.getKey(positions[i]) == key) {
+                        for (long messageId : segment.getPostings(positions[i])) {
+                            if (!isRemoved(removed, messageId)) {
+                                postings.add(messageId);
+                            }
+                        }
+
+                        positions[i]++;
+                    }
+                }
+
+                if (!postings.isEmpty()) {
+                    postings.sortDistinct();
+                    writer.add(key, postings.array(), postings.size());
+                    empty = false;
+                }
+            }
+        } catch (IOException e) {
+            writer.abort();
+            throw e;
+        }
+
+        writer.finish();
+
+        if (empty) {
+            merge.file.delete();
+            return null;
+        }
+
+        return merge.file;
+    }
+
+    /**
+     * Replaces the merged segments with the merged file. Must be called while holding the index
+     * lock. If the channel was cleared in the meantime, the merged file is discarded instead.
+     */
+    public void completeMerge(Merge merge, File file) throws IOException {
+        if (merge.generation != generation) {
+            if (file != null) {
+                file.delete();
+            }
+            return;
+        }
+
+        if (file != null) {
+            segments.add(0, ContentIndexSegment.open(file));
+        }
+
+        for (ContentIndexSegment segment : merge.segments) {
+            segments.remove(segment);
+            segment.delete();
+        }
+
+        // Only ranges that were removed before the snapshot have been applied
+        LongList remaining = new LongList();
+        for (int i = merge.removedRanges.length; i < removedRanges.size(); i++) {
+            remaining.add(removedRanges.get(i));
+        }
+        removedRanges = remaining;
+    }
+
+    /**
+     * Removes all content after all messages of the channel were deleted. Messages created before
+     * this point are no longer covered.
+     */
+    public void clear() {
+        for (ContentIndexSegment segment : segments) {
+            segment.delete();
+        }
+
+        segments.clear();
+        buffer.clear();
+        bufferedPostings = 0;
+        removedRanges = new LongList();
+        generation++;
+
+        coverageFloor = maxCreatedMessageId.get() + 1;
+        firstMessageId.set(-1);
+    }
+
+    public void close() {
+        for (ContentIndexSegment segment : segments) {
+            segment.close();
+        }
+    }
+
+    public void delete() {
+        close();
+        generation++;
+        FileUtils.deleteQuietly(directory);
+    }
+
+    public void save() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("channelId", channelId);
+        properties.setProperty("firstMessageId", Long.toString(firstMessageId.get()));
+        properties.setProperty("maxCreatedMessageId", Long.toString(maxCreatedMessageId.get()));
+        properties.setProperty("coverageFloor", Long.toString(coverageFloor));
+        properties.setProperty("nextSegment", Integer.toString(nextSegment));
+
+        StringBuilder ranges = new StringBuilder();
+        for (int i = 0; i < removedRanges.size(); i += 2) {
+            if (ranges.length() > 0) {
+                ranges.append(',');
+            }
+            ranges.append(removedRanges.get(i)).append('-').append(removedRanges.get(i + 1));
+        }
+        properties.setProperty("removedRanges", ranges.toString());
+
+        FileUtils.forceMkdir(directory);
+        try (OutputStream out = new FileOutputStream(new File(directory, STATE_FILE))) {
+            properties.store(out, null);
+        }
+    }
+
+    public static ChannelContentIndex load(File directory) throws IOException {
+        File stateFile = new File(directory, STATE_FILE);
+        if (!stateFile.exists()) {
+            throw new IOException("Content index state not found in " + directory);
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(stateFile)) {
+            properties.load(in);
+        }
+
+        ChannelContentIndex index = new ChannelContentIndex(properties.getProperty("channelId", directory.getName()), directory);
+        index.firstMessageId.set(NumberUtils.toLong(properties.getProperty("firstMessageId"), -1));
+        index.maxCreatedMessageId.set(NumberUtils.toLong(properties.getProperty("maxCreatedMessageId"), -1));
+        index.coverageFloor = NumberUtils.toLong(properties.getProperty("coverageFloor"), 0);
+        index.nextSegment = NumberUtils.toInt(properties.getProperty("nextSegment"), 1);
+
+        for (String range : StringUtils.split(properties.getProperty("removedRanges", ""), ',')) {
+            index.removedRanges.add(Long.parseLong(StringUtils.substringBefore(range, "-")));
+            index.removedRanges.add(Long.parseLong(StringUtils.substringAfter(range, "-")));
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+
+            try {
+                for (File file : files) {
+                    if (file.getName().startsWith(SEGMENT_PREFIX) && file.getName().endsWith(SEGMENT_SUFFIX)) {
+                        index.segments.add(ContentIndexSegment.open(file));
+                    }
+                }
+            } catch (IOException e) {
+                index.close();
+                throw e;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the trigram keys of the given text, sorted and without duplicates.
+     */
+    static LongList getKeys(int contentType, String text) {
+        LongList keys = new LongList(Math.max(text.length() - 2, 1));
+
+        if (text.length() >= 3) {
+            long prefix = (long) contentType << 48;
+            long first = fold(text.charAt(0));
+            long second = fold(text.charAt(1));
+
+            for (int i = 2; i < text.length(); i++) {
+                long third = fold(text.charAt(i));
+                keys.add(prefix | first << 32 | second << 16 | third);
+                first = second;
+                second = third;
+            }
+
+            keys.sortDistinct();
+        }
+
+        return keys;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static long[][] getSortedRanges(long[] ranges) {
+        int count = ranges.length / 2;
+        long[][] sorted = new long[count][];
+
+        for (int i = 0; i < count; i++) {
+            sorted[i] = new long[] { ranges[i * 2], ranges[i * 2 + 1] };
+        }
+
+        Arrays.sort(sorted, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return Long.compare(a[0], b[0]);
+            }
+        });
+
+        // Coalesce overlapping ranges so that a binary search on the start finds the only candidate
+        List<long[]> coalesced = new ArrayList<long[]>();
+        for (long[] range : sorted) {
+            long[] last = coalesced.isEmpty() ? null : coalesced.get(coalesced.size() - 1);
+
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                coalesced.add(range);
+            }
+        }
+
+        return coalesced.toArray(new long[coalesced.size()][]);
+    }
+
+    private static boolean isRemoved(long[][] ranges, long messageId) {
+        int low = 0;
+        int high = ranges.length - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if (ranges[middle][1] < messageId) {
+                low = middle + 1;
+            } else if (ranges[middle][0] > messageId) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private File newSegmentFile() {
+        return new File(directory, SEGMENT_PREFIX + String.format("%08d", nextSegment++) + SEGMENT_SUFFIX);
+    }
+
+    static class Merge {
+        private List<ContentIndexSegment> segments;
+        private long[] removedRanges;
+        private File file;
+        private int generation;
+
+        private Merge(List<ContentIndexSegment> segments, long[] removedRanges, File file, int generation) {
+            this.segments = segments;
+            this.removedRanges = removedRanges;
+            this.file = file;
+            this.generation = generation;
+        }
+    }
+}
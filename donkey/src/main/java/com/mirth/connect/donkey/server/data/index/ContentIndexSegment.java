@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * An immutable file of posting lists. Postings are written first, each one as a sorted list of
+ * message IDs encoded as variable length deltas, followed by a dictionary of the sorted keys and
+ * the position of their postings, and a footer pointing to the dictionary. The dictionary is kept
+ * in memory and postings are read from the file when they are needed. A RandomAccessFile is used
+ * rather than a FileChannel, since a channel is closed when a thread reading it is interrupted.
+ */
+class ContentIndexSegment {
+    private static final int MAGIC = 0x4D434958;
+    private static final int VERSION = 1;
+    private static final int FOOTER_LENGTH = 16;
+
+    private File file;
+    private RandomAccessFile randomAccessFile;
+    private long[] keys;
+    private long[] offsets;
+    private int[] lengths;
+
+    private ContentIndexSegment(File file, RandomAccessFile randomAccessFile, long[] keys, long[] offsets, int[] lengths) {
+        this.file = file;
+        this.randomAccessFile = randomAccessFile;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getKeyCount() {
+        return keys.length;
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public int indexOf(long key) {
+        return Arrays.binarySearch(keys, key);
+    }
+
+    /**
+     * Returns the sorted message IDs stored for the key at the given dictionary index.
+     */
+    public long[] getPostings(int index) throws IOException {
+        byte[] bytes = new byte[lengths[index]];
+
+        synchronized (randomAccessFile) {
+            randomAccessFile.seek(offsets[index]);
+            randomAccessFile.readFully(bytes);
+        }
+
+        return decode(bytes);
+    }
+
+    public void close() {
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            // Nothing else to do, the file is only read
+        }
+    }
+
+    public void delete() {
+        close();
+        file.delete();
+    }
+
+    public static ContentIndexSegment open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+        try {
+            long size = randomAccessFile.length();
+            if (size < FOOTER_LENGTH) {
+                throw new IOException("Content index segment " + file.getName() + " is truncated");
+            }
+
+            randomAccessFile.seek(size - FOOTER_LENGTH);
+            if (randomAccessFile.readInt() != MAGIC || randomAccessFile.readInt() != VERSION) {
+                throw new IOException("Content index segment " + file.getName() + " is not valid");
+            }
+
+            long dictionaryOffset = randomAccessFile.readLong();
+            int count;
+            long[] keys;
+            long[] offsets;
+            int[] lengths;
+
+            try (FileInputStream fileInputStream = new FileInputStream(file)) {
+                fileInputStream.getChannel().position(dictionaryOffset);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(fileInputStream, 65536));
+
+                count = in.readInt();
+                keys = new long[count];
+                offsets = new long[count];
+                lengths = new int[count];
+
+                for (int i = 0; i < count; i++) {
+                    keys[i] = in.readLong();
+                    offsets[i] = in.readLong();
+                    lengths[i] = in.readInt();
+                }
+            }
+
+            return new ContentIndexSegment(file, randomAccessFile, keys, offsets, lengths);
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes segment files. Keys must be added in ascending order, each with sorted, distinct
+     * message IDs.
+     */
+    static class Writer {
+        private File file;
+        private DataOutputStream out;
+        private long position = 0;
+        private LongList keys = new LongList();
+        private LongList offsets = new LongList();
+        private LongList lengths = new LongList();
+        private byte[] buffer = new byte[1024];
+
+        public Writer(File file) throws IOException {
+            this.file = file;
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+        }
+
+        public void add(long key, long[] postings, int count) throws IOException {
+            if (count == 0) {
+                return;
+            }
+
+            int length = 0;
+            long previous = 0;
+
+            for (int i = 0; i < count; i++) {
+                if (buffer.length - length < 10) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+
+                long delta = postings[i] - previous;
+                previous = postings[i];
+
+                while ((delta & ~0x7FL) != 0) {
+                    buffer[length++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                buffer[length++] = (byte) delta;
+            }
+
+            out.write(buffer, 0, length);
+            keys.add(key);
+            offsets.add(position);
+            lengths.add(length);
+            position += length;
+        }
+
+        public File finish() throws IOException {
+            try {
+                out.writeInt(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    out.writeLong(keys.get(i));
+                    out.writeLong(offsets.get(i));
+                    out.writeInt((int) lengths.get(i));
+                }
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(position);
+                out.close();
+            } catch (IOException e) {
+                abort();
+                throw e;
+            }
+
+            return file;
+        }
+
+        public void abort() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // The file is deleted anyway
+            }
+
+            file.delete();
+        }
+    }
+
+    private static long[] decode(byte[] bytes) {
+        LongList postings = new LongList();
+        long previous = 0;
+        int index = 0;
+
+        while (index < bytes.length) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+
+            do {
+                b = bytes[index++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            previous += delta;
+            postings.add(previous);
+        }
+
+        return postings.toArray();
+    }
+}
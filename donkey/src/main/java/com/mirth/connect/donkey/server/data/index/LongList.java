@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.index;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive longs, so posting lists don't box every message ID.
+ */
+class LongList {
+    private long[] values;
+    private int size = 0;
+
+    public LongList() {
+        this(4);
+    }
+
+    public LongList(int capacity) {
+        values = new long[Math.max(capacity, 1)];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        values[size++] = value;
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    public long last() {
+        return values[size - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Sorts the values and removes duplicates.
+     */
+    public void sortDistinct() {
+        if (size < 2) {
+            return;
+        }
+
+        Arrays.sort(values, 0, size);
+        int count = 1;
+
+        for (int i = 1; i < size; i++) {
+            if (values[i] != values[count - 1]) {
+                values[count++] = values[i];
+            }
+        }
+
+        size = count;
+    }
+
+    /**
+     * Returns the backing array, which is only valid up to size().
+     */
+    public long[] array() {
+        return values;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
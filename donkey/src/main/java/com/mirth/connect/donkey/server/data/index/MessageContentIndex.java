@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mirth.connect.donkey.model.message.ContentType;
+
+/**
+ * A local trigram index of stored message content, used to narrow down content searches before
+ * they are run against the database. The DAO hands content to the index as it is stored and a
+ * background thread adds it, so storing messages never waits for the index. Searches return the
+ * messages that may contain the searched text, which must still be verified by the database since
+ * the index ignores case and wildcards and does not notice when content is updated or deleted.
+ *
+ * Only messages created while the index is running are covered. Older messages, and any message
+ * whose content could not be queued, are below the first covered message ID of the channel and
+ * must be searched in the database as before. The index is dropped if the server was not shut down
+ * cleanly, since content stored while it was not running would be missing.
+ */
+public class MessageContentIndex {
+    public static final int DEFAULT_QUEUE_SIZE = 100000;
+
+    private static final String DIRTY_FILE = "index.dirty";
+    private static final int MAX_BUFFERED_POSTINGS = 4000000;
+    private static final int MAX_SEGMENTS = 8;
+    private static final long REMOVAL_MERGE_DELAY = 60000;
+    private static final int[] ALL_CONTENT_TYPES;
+
+    static {
+        ContentType[] contentTypes = ContentType.values();
+        ALL_CONTENT_TYPES = new int[contentTypes.length];
+
+        for (int i = 0; i < contentTypes.length; i++) {
+            ALL_CONTENT_TYPES[i] = contentTypes[i].getContentTypeCode();
+        }
+    }
+
+    private File directory;
+    private BlockingQueue<Entry> queue;
+    private Semaphore queued = new Semaphore(0);
+    private Map<String, ChannelContentIndex> channels = new ConcurrentHashMap<String, ChannelContentIndex>();
+    private Thread indexerThread;
+    private volatile boolean running = false;
+    private Logger logger = LogManager.getLogger(getClass());
+
+    public MessageContentIndex(File directory, int queueSize) {
+        this.directory = directory;
+        queue = new LinkedBlockingQueue<Entry>(queueSize > 0 ? queueSize : DEFAULT_QUEUE_SIZE);
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+
+        File dirtyFile = new File(directory, DIRTY_FILE);
+
+        if (dirtyFile.exists()) {
+            logger.info("The message content index was not closed properly and will be rebuilt from new messages.");
+            FileUtils.deleteDirectory(directory);
+        }
+
+        FileUtils.forceMkdir(directory);
+
+        File[] channelDirectories = directory.listFiles();
+        if (channelDirectories != null) {
+            for (File channelDirectory : channelDirectories) {
+                if (channelDirectory.isDirectory()) {
+                    try {
+                        ChannelContentIndex channel = ChannelContentIndex.load(channelDirectory);
+                        channels.put(channel.getChannelId(), channel);
+                    } catch (IOException e) {
+                        logger.warn("Could not load the message content index in " + channelDirectory + ", it will be rebuilt from new messages.", e);
+                        FileUtils.deleteQuietly(channelDirectory);
+                    }
+                }
+            }
+        }
+
+        FileUtils.touch(dirtyFile);
+        running = true;
+
+        indexerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runIndexer();
+            }
+        }, "Message Content Indexer Thread");
+        indexerThread.setDaemon(true);
+        indexerThread.start();
+    }
+
+    /**
+     * Indexes everything that was queued, writes it to disk and marks the index as closed properly.
+     * The indexer thread is not interrupted, since it may be writing a segment, and stops within
+     * a second.
+     */
+    public void stop() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+
+            running = false;
+        }
+
+        try {
+            indexerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            boolean saved = true;
+            drain();
+
+            for (ChannelContentIndex channel : channels.values()) {
+                try {
+                    if (saved) {
+                        channel.flush();
+                        channel.save();
+                    }
+                } catch (IOException e) {
+                    logger.error("Could not save the message content index for channel " + channel.getChannelId() + ".", e);
+                    saved = false;
+                } finally {
+                    channel.close();
+                }
+            }
+
+            channels.clear();
+
+            if (saved) {
+                FileUtils.deleteQuietly(new File(directory, DIRTY_FILE));
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Called when a message is inserted, before any of its content is stored.
+     */
+    public void messageCreated(String channelId, long messageId) {
+        if (!running) {
+            return;
+        }
+
+        ChannelContentIndex channel = channels.get(channelId);
+
+        if (channel == null) {
+            synchronized (channels) {
+                channel = channels.get(channelId);
+
+                if (channel == null) {
+                    channel = new ChannelContentIndex(channelId, new File(directory, channelId));
+                    channels.put(channelId, channel);
+                }
+            }
+        }
+
+        channel.messageCreated(messageId);
+    }
+
+    /**
+     * Queues content to be indexed. Content of messages that are not covered is ignored, and if
+     * the queue is full the coverage of the channel starts over after the messages created so far.
+     */
+    public void contentStored(String channelId, long messageId, ContentType contentType, String content) {
+        if (!running || content == null || content.length() < 3) {
+            return;
+        }
+
+        ChannelContentIndex channel = channels.get(channelId);
+
+        if (channel != null && channel.isCovered(messageId)) {
+            if (queue.offer(new Entry(channel, messageId, contentType.getContentTypeCode(), content))) {
+                queued.release();
+            } else {
+                channel.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Records that messages were pruned. Their postings are removed when the segments of the
+     * channel are merged next.
+     */
+    public synchronized void removeMessages(String channelId, long minMessageId, long maxMessageId) {
+        ChannelContentIndex channel = channels.get(channelId);
+
+        if (channel != null) {
+            channel.removeMessages(minMessageId, maxMessageId);
+        }
+    }
+
+    public synchronized void removeMessages(String channelId, List<Long> messageIds) {
+        ChannelContentIndex channel = channels.get(channelId);
+
+        if (channel != null) {
+            for (Long messageId : messageIds) {
+                channel.removeMessages(messageId, messageId);
+            }
+        }
+    }
+
+    /**
+     * Removes the content of all messages of a channel.
+     */
+    public synchronized void removeAllMessages(String channelId) {
+        ChannelContentIndex channel = channels.get(channelId);
+
+        if (channel != null) {
+            drain();
+            channel.clear();
+        }
+    }
+
+    /**
+     * Removes the index of a channel that was removed.
+     */
+    public synchronized void removeChannel(String channelId) {
+        ChannelContentIndex channel = channels.remove(channelId);
+
+        if (channel != null) {
+            drain();
+            channel.delete();
+        }
+    }
+
+    /**
+     * Returns the messages between minMessageId and maxMessageId that may contain all of the given
+     * search strings in content of the given type, or in content of any type if the type is null.
+     * The strings are treated like SQL LIKE patterns, so they only match around wildcards.
+     *
+     * @return The candidate messages, or null if the index cannot narrow down the search, in which
+     *         case it must be run against the database as a whole.
+     */
+    public synchronized SearchResult search(String channelId, Integer contentType, List<String> searches, long minMessageId, long maxMessageId) {
+        ChannelContentIndex channel = channels.get(channelId);
+
+        if (!running || channel == null || channel.getFirstMessageId() < 0 || searches == null) {
+            return null;
+        }
+
+        List<String> strings = new ArrayList<String>();
+        for (String search : searches) {
+            strings.addAll(getIndexableStrings(search));
+        }
+
+        if (strings.isEmpty()) {
+            return null;
+        }
+
+        try {
+            // Content stored before the search must be found, even if it is still queued
+            drain();
+
+            long firstMessageId = channel.getFirstMessageId();
+            LongList messageIds = channel.search(contentType != null ? new int[] { contentType } : ALL_CONTENT_TYPES, strings, Math.max(minMessageId, firstMessageId), maxMessageId);
+            return new SearchResult(firstMessageId, messageIds.toArray());
+        } catch (Exception e) {
+            logger.error("Could not search the message content index for channel " + channelId + ", searching the database instead.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Splits a LIKE pattern around the characters that are wildcards or escapes in any of the
+     * supported databases, and returns the parts that are long enough to be found in the index.
+     */
+    static List<String> getIndexableStrings(String search) {
+        List<String> strings = new ArrayList<String>();
+        int start = 0;
+
+        for (int i = 0; i <= search.length(); i++) {
+            if (i == search.length() || "%_[]\\".indexOf(search.charAt(i)) >= 0) {
+                if (i - start >= 3) {
+                    strings.add(search.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+
+        return strings;
+    }
+
+    /*
+     * Entries are only taken from the queue while holding the lock, so a search that drains the
+     * queue can't miss an entry that the indexer thread has taken but not added yet.
+     */
+    private void runIndexer() {
+        while (running) {
+            try {
+                queued.tryAcquire(1, TimeUnit.SECONDS);
+                List<ChannelContentIndex> mergeChannels = new ArrayList<ChannelContentIndex>();
+
+                synchronized (this) {
+                    queued.drainPermits();
+                    drain();
+
+                    int bufferedPostings = 0;
+                    for (ChannelContentIndex channel : channels.values()) {
+                        bufferedPostings += channel.getBufferedPostings();
+                    }
+
+                    for (ChannelContentIndex channel : channels.values()) {
+                        if (bufferedPostings > MAX_BUFFERED_POSTINGS) {
+                            channel.flush();
+                        }
+
+                        if (channel.isMergeNeeded(MAX_SEGMENTS, REMOVAL_MERGE_DELAY)) {
+                            mergeChannels.add(channel);
+                        }
+                    }
+                }
+
+                for (ChannelContentIndex channel : mergeChannels) {
+                    merge(channel);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                logger.error("Error in the message content indexer.", t);
+            }
+        }
+    }
+
+    private void merge(ChannelContentIndex channel) throws IOException {
+        ChannelContentIndex.Merge merge;
+
+        synchronized (this) {
+            if (channels.get(channel.getChannelId()) != channel) {
+                return;
+            }
+            merge = channel.prepareMerge();
+        }
+
+        File file = channel.merge(merge);
+
+        synchronized (this) {
+            channel.completeMerge(merge, file);
+        }
+    }
+
+    private void drain() {
+        Entry entry;
+
+        while ((entry = queue.poll()) != null) {
+            add(entry);
+        }
+    }
+
+    private void add(Entry entry) {
+        // Content queued before a channel was removed is discarded
+        if (channels.get(entry.channel.getChannelId()) == entry.channel && entry.channel.isCovered(entry.messageId)) {
+            entry.channel.add(entry.messageId, entry.contentType, entry.content);
+        }
+    }
+
+    public static class SearchResult {
+        private long firstMessageId;
+        private long[] messageIds;
+
+        private SearchResult(long firstMessageId, long[] messageIds) {
+            this.firstMessageId = firstMessageId;
+            this.messageIds = messageIds;
+        }
+
+        /**
+         * Returns the first message ID covered by the index. Messages with lower IDs must be
+         * searched in the database.
+         */
+        public long getFirstMessageId() {
+            return firstMessageId;
+        }
+
+        /**
+         * Returns true if the given covered message may match the search.
+         */
+        public boolean contains(long messageId) {
+            return Arrays.binarySearch(messageIds, messageId) >= 0;
+        }
+
+        public int size() {
+            return messageIds.length;
+        }
+    }
+
+    private static class Entry {
+        private ChannelContentIndex channel;
+        private long messageId;
+        private int contentType;
+        private String content;
+
+        private Entry(ChannelContentIndex channel, long messageId, int contentType, String content) {
+            this.channel = channel;
+            this.messageId = messageId;
+            this.contentType = contentType;
+            this.content = content;
+        }
+    }
+}
@@ -10,6 +10,9 @@
 package com.mirth.connect.donkey.server.data.jdbc;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -34,6 +37,8 @@ import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -58,6 +63,7 @@ import com.mirth.connect.donkey.server.data.ChannelDoesNotExistException;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.DonkeyDaoException;
 import com.mirth.connect.donkey.server.data.StatisticsUpdater;
+import com.mirth.connect.donkey.server.data.index.MessageContentIndex;
 import com.mirth.connect.donkey.util.MapUtil;
 import com.mirth.connect.donkey.util.SerializerProvider;
 
@@ -85,6 +91,10 @@ public class JdbcDao implements DonkeyDao {
     private String statsServerId;
     private boolean transactionAlteredChannels = false;
     private char quoteChar = '"';
+    private MessageIdBlockAllocator messageIdAllocator;
+    private boolean compactMaps = false;
+    private List<IndexUpdate> indexUpdates = new ArrayList<IndexUpdate>();
+    private Set<String> messageIdBlockRequests = new HashSet<String>();
     private Logger logger = LogManager.getLogger(this.getClass());
 
     protected JdbcDao(Donkey donkey, Connection connection, QuerySource querySource, PreparedStatementSource statementSource, SerializerProvider serializerProvider, boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData, boolean decryptData, StatisticsUpdater statisticsUpdater, Statistics currentStats, Statistics totalStats, String statsServerId) {
@@ -133,6 +143,39 @@ public class JdbcDao implements DonkeyDao {
         this.quoteChar = quoteChar;
     }
 
+    public void setMessageIdAllocator(MessageIdBlockAllocator messageIdAllocator) {
+        this.messageIdAllocator = messageIdAllocator;
+    }
+
+    public void setCompactMaps(boolean compactMaps) {
+        this.compactMaps = compactMaps;
+    }
+
+    private MessageContentIndex getContentIndex() {
+        return donkey != null ? donkey.getContentIndex() : null;
+    }
+
+    /*
+     * Content is only indexed as it is stored. Encrypted content is never matched by a content
+     * search, so it doesn't need to be indexed either.
+     */
+    private void indexContent(String channelId, long messageId, ContentType contentType, String content, boolean encrypted) {
+        if (!encrypted) {
+            updateIndex(new IndexUpdate(IndexUpdateType.CONTENT_STORED, channelId, messageId, contentType, content));
+        }
+    }
+
+    /*
+     * Changes to the content index are applied when the transaction is committed, so that nothing
+     * is indexed for a rolled back transaction, and nothing is indexed twice if the same tasks are
+     * executed again in a new transaction.
+     */
+    private void updateIndex(IndexUpdate update) {
+        if (getContentIndex() != null) {
+            indexUpdates.add(update);
+        }
+    }
+
     @Override
     public void insertMessage(Message message) {
         logger.debug(message.getChannelId() + "/" + message.getMessageId() + ": inserting message");
@@ -170,6 +213,8 @@ public class JdbcDao implements DonkeyDao {
             }
 
             statement.executeUpdate();
+
+            updateIndex(new IndexUpdate(IndexUpdateType.MESSAGE_CREATED, message.getChannelId(), message.getMessageId(), null, null));
         } catch (SQLException e) {
             throw new DonkeyDaoException(e);
         } finally {
@@ -236,6 +281,8 @@ public class JdbcDao implements DonkeyDao {
 
             statement.addBatch();
             statement.clearParameters();
+
+            indexContent(messageContent.getChannelId(), messageContent.getMessageId(), messageContent.getContentType(), content, encrypted);
         } catch (SQLException e) {
             throw new DonkeyDaoException(e);
         } finally {
@@ -292,6 +339,8 @@ public class JdbcDao implements DonkeyDao {
 
             statement.executeUpdate();
             statement.clearParameters();
+
+            indexContent(channelId, messageId, contentType, content, encrypted);
         } catch (SQLException e) {
             throw new DonkeyDaoException(e);
         } finally {
@@ -341,6 +390,8 @@ public class JdbcDao implements DonkeyDao {
                 statement.executeUpdate();
                 statement.clearParameters();
             }
+
+            indexContent(channelId, messageId, contentType, content, encrypted);
         } catch (SQLException e) {
             throw new DonkeyDaoException(e);
         } finally {
@@ -510,13 +561,17 @@ public class JdbcDao implements DonkeyDao {
         logger.debug(channelId + "/" + messageId + ": inserting message attachment");
 
         PreparedStatement statement = null;
+        PushbackInputStream binaryStream = null;
         try {
             String encryptionHeader = attachment.getEncryptionHeader();
-            byte[] content = attachment.getContent();
+            byte[] content = null;
             if (encryptAttachments && encryptor != null && !attachment.isEncrypted()) {
-                EncryptedData result = encryptor.encrypt(content);
+                // The attachment is encrypted as a whole, so it has to be read into memory
+                EncryptedData result = encryptor.encrypt(attachment.getContent());
                 encryptionHeader = result.getHeader();
                 content = result.getEncryptedData();
+            } else if (!attachment.hasBinaryStream()) {
+                content = attachment.getContent();
             }
 
             statement = prepareStatement("insertMessageAttachment", channelId);
@@ -528,7 +583,28 @@ public class JdbcDao implements DonkeyDao {
             // The size of each segment of the attachment.
             int chunkSize = 10000000;
 
-            if (content.length <= chunkSize) {
+            if (content == null) {
+                // Read the streamed content one segment at a time, so only one segment is held in memory
+                binaryStream = new PushbackInputStream(attachment.getBinaryStream());
+                int segmentIndex = 1;
+                boolean done = false;
+
+                while (!done) {
+                    byte[] segment = IOUtils.toByteArray(new BoundedInputStream(binaryStream, chunkSize));
+                    statement.setInt(4, segmentIndex++);
+                    statement.setInt(5, segment.length);
+                    statement.setBytes(6, segment);
+                    statement.executeUpdate();
+
+                    // Check whether any bytes are left without starting another segment
+                    int nextByte = segment.length == chunkSize ? binaryStream.read() : -1;
+                    if (nextByte == -1) {
+                        done = true;
+                    } else {
+                        binaryStream.unread(nextByte);
+                    }
+                }
+            } else if (content.length <= chunkSize) {
                 // If there is only one segment, just store it
                 statement.setInt(4, 1);
                 statement.setInt(5, content.length);
@@ -561,9 +637,10 @@ public class JdbcDao implements DonkeyDao {
 
             // Clear the parameters because the data held in memory could be quite large.
             statement.clearParameters();
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             throw new DonkeyDaoException(e);
         } finally {
+            IOUtils.closeQuietly(binaryStream);
             closeDatabaseObjectIfNeeded(statement);
         }
     }
@@ -1081,7 +1158,11 @@ public class JdbcDao implements DonkeyDao {
             } else {
                 Map<String, Object> map = mapContent.getMap();
                 if (MapUtils.isNotEmpty(map)) {
-                    content = MapUtil.serializeMap(serializerProvider.getSerializer(metaDataId), map);
+                    if (compactMaps) {
+                        content = MapUtil.serializeMapCompact(serializerProvider.getSerializer(metaDataId), map);
+                    } else {
+                        content = MapUtil.serializeMap(serializerProvider.getSerializer(metaDataId), map);
+                    }
                 }
             }
 
@@ -1195,6 +1276,8 @@ public class JdbcDao implements DonkeyDao {
             }
 
             removedChannelIds.add(channelId);
+
+            updateIndex(new IndexUpdate(IndexUpdateType.CHANNEL_REMOVED, channelId, 0, null, null));
         } catch (SQLException e) {
             throw new DonkeyDaoException(e);
         } finally {
@@ -1291,6 +1374,7 @@ public class JdbcDao implements DonkeyDao {
                 statement.executeUpdate();
             }
 
+            updateIndex(new IndexUpdate(IndexUpdateType.ALL_MESSAGES_REMOVED, channelId, 0, null, null));
         } catch (SQLException e) {
             throw new DonkeyDaoException(e);
         } finally {
@@ -1468,12 +1552,37 @@ public class JdbcDao implements DonkeyDao {
 
     @Override
     public long getNextMessageId(String channelId) {
+        if (messageIdAllocator != null) {
+            Long id = messageIdAllocator.getReservedMessageId(channelId);
+
+            if (id != null) {
+                return id;
+            }
+
+            /*
+             * Borrowing a second connection to reserve a new block while this one is held could
+             * exhaust the pool, so this ID is taken in the current transaction instead, and the
+             * next block is reserved on this connection once the transaction is committed.
+             */
+            messageIdBlockRequests.add(channelId);
+        }
+
+        return reserveMessageIds(channelId, 1);
+    }
+
+    /**
+     * Reserves the given number of consecutive message IDs from the channel's message sequence and
+     * returns the first one. Any count greater than 1 requires the incrementMessageIdSequenceBlock
+     * query.
+     */
+    protected long reserveMessageIds(String channelId, int count) {
         Statement statement = null;
         ResultSet resultSet = null;
 
         try {
             Map<String, Object> values = new HashMap<String, Object>();
             values.put("localChannelId", getLocalChannelId(channelId));
+            values.put("blockSize", count);
 
             statement = connection.createStatement();
 
@@ -1486,7 +1595,9 @@ public class JdbcDao implements DonkeyDao {
             long id = resultSet.getLong(1);
             close(resultSet);
 
-            if (querySource.queryExists("incrementMessageIdSequence")) {
+            if (count > 1) {
+                statement.executeUpdate(querySource.getQuery("incrementMessageIdSequenceBlock", values));
+            } else if (querySource.queryExists("incrementMessageIdSequence")) {
                 statement.executeUpdate(querySource.getQuery("incrementMessageIdSequence", values));
             }
 
@@ -1676,6 +1787,52 @@ public class JdbcDao implements DonkeyDao {
         }
     }
 
+    @Override
+    public boolean writeMessageAttachment(String channelId, String attachmentId, Long messageId, OutputStream outputStream) {
+        ResultSet resultSet = null;
+        PreparedStatement statement = null;
+        try {
+            statement = prepareStatement("selectMessageAttachment", channelId);
+            statement.setString(1, attachmentId);
+            statement.setLong(2, messageId);
+            // Fetch one segment at a time so that only one segment is held in memory
+            statement.setFetchSize(1);
+            resultSet = statement.executeQuery();
+
+            boolean found = false;
+
+            while (resultSet.next()) {
+                if (!found) {
+                    found = true;
+
+                    if (decryptData && encryptor != null && resultSet.getString("encryption_header") != null) {
+                        // Encrypted attachments can only be decrypted as a whole
+                        close(resultSet);
+                        closeDatabaseObjectIfNeeded(statement);
+                        resultSet = null;
+                        statement = null;
+
+                        outputStream.write(getMessageAttachment(channelId, attachmentId, messageId).getContent());
+                        return true;
+                    }
+                }
+
+                byte[] segment = resultSet.getBytes("content");
+
+                if (segment != null) {
+                    outputStream.write(segment);
+                }
+            }
+
+            return found;
+        } catch (SQLException | IOException e) {
+            throw new DonkeyDaoException(e);
+        } finally {
+            close(resultSet);
+            closeDatabaseObjectIfNeeded(statement);
+        }
+    }
+
     @Override
     public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId) {
         PreparedStatement statement = null;
@@ -2466,16 +2623,53 @@ public class JdbcDao implements DonkeyDao {
             }
         }
 
-        transactionStats.clear();
+        if (messageIdAllocator != null) {
+            // discard any reserved message IDs for channels whose sequence was dropped
+            for (String channelId : removedChannelIds) {
+                messageIdAllocator.invalidate(channelId);
+            }
+        }
+
+        if (!indexUpdates.isEmpty()) {
+            MessageContentIndex contentIndex = getContentIndex();
+
+            if (contentIndex != null) {
+                for (IndexUpdate update : indexUpdates) {
+                    update.apply(contentIndex);
+                }
+            }
+
+            indexUpdates.clear();
+        }
+
+        transactionStats.reset();
+
+        // The transaction is complete, so the next blocks can be reserved in their own transactions
+        if (messageIdAllocator != null && !messageIdBlockRequests.isEmpty()) {
+            Set<String> channelIds = new HashSet<String>(messageIdBlockRequests);
+            messageIdBlockRequests.clear();
+
+            for (String channelId : channelIds) {
+                try {
+                    messageIdAllocator.reserveBlock(channelId, this);
+                } catch (Exception e) {
+                    // The next message will try again
+                    logger.warn("Failed to reserve a block of message IDs for channel " + channelId + ".", e);
+                }
+            }
+        }
     }
 
     @Override
     public void rollback() {
         logger.debug("Rolling back transaction");
 
+        indexUpdates.clear();
+        messageIdBlockRequests.clear();
+
         try {
             connection.rollback();
-            transactionStats.clear();
+            transactionStats.reset();
         } catch (SQLException e) {
             throw new DonkeyDaoException(e);
         }
@@ -3214,4 +3408,41 @@ public class JdbcDao implements DonkeyDao {
         return ports;
 
     }
+
+    private enum IndexUpdateType {
+        MESSAGE_CREATED, CONTENT_STORED, CHANNEL_REMOVED, ALL_MESSAGES_REMOVED
+    }
+
+    private static class IndexUpdate {
+        private IndexUpdateType type;
+        private String channelId;
+        private long messageId;
+        private ContentType contentType;
+        private String content;
+
+        private IndexUpdate(IndexUpdateType type, String channelId, long messageId, ContentType contentType, String content) {
+            this.type = type;
+            this.channelId = channelId;
+            this.messageId = messageId;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        private void apply(MessageContentIndex contentIndex) {
+            switch (type) {
+                case MESSAGE_CREATED:
+                    contentIndex.messageCreated(channelId, messageId);
+                    break;
+                case CONTENT_STORED:
+                    contentIndex.contentStored(channelId, messageId, contentType, content);
+                    break;
+                case CHANNEL_REMOVED:
+                    contentIndex.removeChannel(channelId);
+                    break;
+                case ALL_MESSAGES_REMOVED:
+                    contentIndex.removeAllMessages(channelId);
+                    break;
+            }
+        }
+    }
 }
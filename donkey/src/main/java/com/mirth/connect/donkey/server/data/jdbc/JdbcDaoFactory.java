@@ -57,6 +57,8 @@ public class JdbcDaoFactory implements DonkeyDaoFactory {
     private boolean encryptAttachments = false;
     private boolean encryptCustomMetaData = false;
     private boolean decryptData = true;
+    private MessageIdBlockAllocator messageIdAllocator;
+    private boolean compactMaps = false;
     private Map<Connection, PreparedStatementSource> statementSources = new ConcurrentHashMap<Connection, PreparedStatementSource>();
     private Logger logger = LogManager.getLogger(getClass());
 
@@ -94,6 +96,34 @@ public class JdbcDaoFactory implements DonkeyDaoFactory {
         this.serializerProvider = serializerProvider;
     }
 
+    public MessageIdBlockAllocator getMessageIdAllocator() {
+        return messageIdAllocator;
+    }
+
+    /**
+     * Sets the number of message IDs to reserve from a channel's message sequence at a time. A
+     * block size of 1 (the default) retrieves the next ID from the database for every message.
+     */
+    public void setMessageIdBlockSize(int blockSize) {
+        if (blockSize > 1) {
+            if (querySource.queryExists("incrementMessageIdSequenceBlock")) {
+                messageIdAllocator = new MessageIdBlockAllocator(this, blockSize);
+            } else {
+                messageIdAllocator = null;
+                logger.warn("Message ID block allocation is not supported for this database, message IDs will be retrieved individually.");
+            }
+        } else {
+            messageIdAllocator = null;
+        }
+    }
+
+    /**
+     * Sets whether message maps are stored in the compact map format instead of XML.
+     */
+    public void setCompactMaps(boolean compactMaps) {
+        this.compactMaps = compactMaps;
+    }
+
     public Map<Connection, PreparedStatementSource> getStatementSources() {
         return statementSources;
     }
@@ -156,7 +186,10 @@ public class JdbcDaoFactory implements DonkeyDaoFactory {
             }
         }
 
-        return getDao(donkey, connection, querySource, statementSource, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater, channelController.getStatistics(), channelController.getTotalStatistics(), statsServerId);
+        JdbcDao dao = getDao(donkey, connection, querySource, statementSource, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater, channelController.getStatistics(), channelController.getTotalStatistics(), statsServerId);
+        dao.setMessageIdAllocator(messageIdAllocator);
+        dao.setCompactMaps(compactMaps);
+        return dao;
     }
 
     protected JdbcDao getDao(Donkey donkey, Connection connection, QuerySource querySource, PreparedStatementSource statementSource, SerializerProvider serializerProvider, boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData, boolean decryptData, StatisticsUpdater statisticsUpdater, Statistics currentStats, Statistics totalStats, String statsServerId) {
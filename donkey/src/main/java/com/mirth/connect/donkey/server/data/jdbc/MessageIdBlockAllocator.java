@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.jdbc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hands out message IDs from blocks that are reserved in the message sequence table ahead of time.
+ * Each block is reserved and committed in its own transaction, so IDs are never handed out twice,
+ * even if the transaction of the message using the ID is rolled back. IDs that are reserved but
+ * never used (e.g. on shutdown) are simply skipped, and servers sharing the same database each
+ * reserve their own disjoint blocks.
+ * 
+ * A block is never reserved on a second pooled connection while the caller holds one, since
+ * callers holding every connection of the pool would then wait on each other forever. Callers that
+ * hold a connection take IDs with getReservedMessageId, and reserve the next block on their own
+ * connection once their transaction is committed.
+ */
+public class MessageIdBlockAllocator {
+    private JdbcDaoFactory daoFactory;
+    private int blockSize;
+    private Map<String, MessageIdBlock> blocks = new ConcurrentHashMap<String, MessageIdBlock>();
+    private ConcurrentHashMap<String, Object> reserveLocks = new ConcurrentHashMap<String, Object>();
+    private Logger logger = LogManager.getLogger(getClass());
+
+    public MessageIdBlockAllocator(JdbcDaoFactory daoFactory, int blockSize) {
+        this.daoFactory = daoFactory;
+        this.blockSize = blockSize;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the next ID for the given channel, borrowing a connection to reserve a new block if
+     * needed. This must only be called by threads that don't hold a connection of the pool.
+     */
+    public long getNextMessageId(String channelId) {
+        while (true) {
+            Long id = getReservedMessageId(channelId);
+
+            if (id != null) {
+                return id;
+            }
+
+            reserveBlock(channelId, null);
+        }
+    }
+
+    /**
+     * Returns the next ID of the channel's current block, or null if there are no reserved IDs
+     * left. No block is reserved by this method.
+     */
+    public Long getReservedMessageId(String channelId) {
+        MessageIdBlock block = blocks.get(channelId);
+
+        if (block != null) {
+            long id = block.next.getAndIncrement();
+
+            if (id < block.end) {
+                return id;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reserves a new block for the given channel on the connection of the given DAO and commits
+     * it, unless another thread already reserved a block that still has IDs left. The DAO must not
+     * have any uncommitted changes, since they would be committed along with the block.
+     */
+    public void reserveBlock(String channelId, JdbcDao dao) {
+        Object reserveLock = reserveLocks.get(channelId);
+        if (reserveLock == null) {
+            reserveLock = new Object();
+            Object existingLock = reserveLocks.putIfAbsent(channelId, reserveLock);
+            if (existingLock != null) {
+                reserveLock = existingLock;
+            }
+        }
+
+        synchronized (reserveLock) {
+            // Only reserve a new block if another thread hasn't already done so
+            MessageIdBlock block = blocks.get(channelId);
+            if (block == null || block.next.get() >= block.end) {
+                blocks.put(channelId, dao != null ? reserveBlock(channelId, dao, false) : reserveBlock(channelId, daoFactory.getDao(), true));
+            }
+        }
+    }
+
+    /**
+     * Discards any IDs remaining in memory for the given channel. This must be called when the
+     * channel's message sequence is dropped.
+     */
+    public void invalidate(String channelId) {
+        blocks.remove(channelId);
+        reserveLocks.remove(channelId);
+    }
+
+    private MessageIdBlock reserveBlock(String channelId, JdbcDao dao, boolean close) {
+        try {
+            long start = dao.reserveMessageIds(channelId, blockSize);
+            dao.commit();
+
+            logger.debug(channelId + ": reserved message IDs " + start + " to " + (start + blockSize - 1));
+            return new MessageIdBlock(start, start + blockSize);
+        } catch (RuntimeException e) {
+            try {
+                dao.rollback();
+            } catch (Exception e2) {
+            }
+
+            throw e;
+        } finally {
+            if (close) {
+                dao.close();
+            }
+        }
+    }
+
+    private static class MessageIdBlock {
+        private final AtomicLong next;
+        private final long end;
+
+        private MessageIdBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -9,6 +9,7 @@
 
 package com.mirth.connect.donkey.server.data.passthru;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -106,12 +107,12 @@ public class PassthruDao implements DonkeyDao {
             statisticsUpdater.update(transactionStats);
         }
 
-        transactionStats.clear();
+        transactionStats.reset();
     }
 
     @Override
     public void rollback() {
-        transactionStats.clear();
+        transactionStats.reset();
     }
 
     @Override
@@ -275,6 +276,11 @@ public class PassthruDao implements DonkeyDao {
         return new Attachment();
     }
 
+    @Override
+    public boolean writeMessageAttachment(String channelId, String attachmentId, Long messageId, OutputStream outputStream) {
+        return false;
+    }
+
     @Override
     public List<Message> getMessages(String channelId, List<Long> messageIds) {
         return new ArrayList<Message>();
@@ -9,6 +9,7 @@
 
 package com.mirth.connect.donkey.server.data.timed;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,7 +30,7 @@ public class TimedDao implements DonkeyDao {
     private DonkeyDao dao;
     private ActionTimer timer;
 
-    protected TimedDao(DonkeyDao dao, ActionTimer timer) {
+    public TimedDao(DonkeyDao dao, ActionTimer timer) {
         this.dao = dao;
         this.timer = timer;
     }
@@ -92,595 +93,606 @@ public class TimedDao implements DonkeyDao {
 
     @Override
     public void insertMessage(Message message) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.insertMessage(message);
         } finally {
-            timer.log("insertMessage", System.currentTimeMillis() - startTime);
+            timer.logSince("insertMessage", startTime);
         }
     }
 
     @Override
     public void insertConnectorMessage(ConnectorMessage connectorMessage, boolean storeMaps, boolean updateStats) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.insertConnectorMessage(connectorMessage, storeMaps, updateStats);
         } finally {
-            timer.log("insertConnectorMessage", System.currentTimeMillis() - startTime);
+            timer.logSince("insertConnectorMessage", startTime);
         }
     }
 
     @Override
     public void insertMessageContent(MessageContent messageContent) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.insertMessageContent(messageContent);
         } finally {
-            timer.log("insertMessageContent", System.currentTimeMillis() - startTime);
+            timer.logSince("insertMessageContent", startTime);
         }
     }
 
     @Override
     public void batchInsertMessageContent(MessageContent messageContent) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.batchInsertMessageContent(messageContent);
         } finally {
-            timer.log("batchInsertMessageContent", System.currentTimeMillis() - startTime);
+            timer.logSince("batchInsertMessageContent", startTime);
         }
     }
 
     @Override
     public void executeBatchInsertMessageContent(String channelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.executeBatchInsertMessageContent(channelId);
         } finally {
-            timer.log("executeBatchInsertMessageContent", System.currentTimeMillis() - startTime);
+            timer.logSince("executeBatchInsertMessageContent", startTime);
         }
     }
 
     @Override
     public void insertMessageAttachment(String channelId, long messageId, Attachment attachment) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.insertMessageAttachment(channelId, messageId, attachment);
         } finally {
-            timer.log("insertMessageAttachment", System.currentTimeMillis() - startTime);
+            timer.logSince("insertMessageAttachment", startTime);
         }
     }
 
     @Override
     public void updateMessageAttachment(String channelId, long messageId, Attachment attachment) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.updateMessageAttachment(channelId, messageId, attachment);
         } finally {
-            timer.log("updateMessageAttachment", System.currentTimeMillis() - startTime);
+            timer.logSince("updateMessageAttachment", startTime);
         }
     }
 
     @Override
     public void insertMetaData(ConnectorMessage connectorMessage, List<MetaDataColumn> metaDataColumns) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.insertMetaData(connectorMessage, metaDataColumns);
         } finally {
-            timer.log("insertMetaData", System.currentTimeMillis() - startTime);
+            timer.logSince("insertMetaData", startTime);
         }
     }
 
     @Override
     public void storeMetaData(ConnectorMessage connectorMessage, List<MetaDataColumn> metaDataColumns) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.storeMetaData(connectorMessage, metaDataColumns);
         } finally {
-            timer.log("storeMetaData", System.currentTimeMillis() - startTime);
+            timer.logSince("storeMetaData", startTime);
         }
     }
 
     @Override
     public void storeMessageContent(MessageContent messageContent) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.storeMessageContent(messageContent);
         } finally {
-            timer.log("storeMessageContent", System.currentTimeMillis() - startTime);
+            timer.logSince("storeMessageContent", startTime);
         }
     }
 
     @Override
     public void addChannelStatistics(Statistics statistics) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.addChannelStatistics(statistics);
         } finally {
-            timer.log("addChannelStatistics", System.currentTimeMillis() - startTime);
+            timer.logSince("addChannelStatistics", startTime);
         }
     }
 
     @Override
     public void updateSendAttempts(ConnectorMessage connectorMessage) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.updateSendAttempts(connectorMessage);
         } finally {
-            timer.log("updateResponseError", System.currentTimeMillis() - startTime);
+            timer.logSince("updateResponseError", startTime);
         }
     }
 
     @Override
     public void updateStatus(ConnectorMessage connectorMessage, Status previousStatus) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.updateStatus(connectorMessage, previousStatus);
         } finally {
-            timer.log("updateStatus", System.currentTimeMillis() - startTime);
+            timer.logSince("updateStatus", startTime);
         }
     }
 
     @Override
     public void updateErrors(ConnectorMessage connectorMessage) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.updateErrors(connectorMessage);
         } finally {
-            timer.log("updateErrors", System.currentTimeMillis() - startTime);
+            timer.logSince("updateErrors", startTime);
         }
     }
 
     @Override
     public void updateMaps(ConnectorMessage connectorMessage) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.updateMaps(connectorMessage);
         } finally {
-            timer.log("updateMaps", System.currentTimeMillis() - startTime);
+            timer.logSince("updateMaps", startTime);
         }
     }
 
     @Override
     public void updateSourceMap(ConnectorMessage connectorMessage) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.updateSourceMap(connectorMessage);
         } finally {
-            timer.log("updateSourceMap", System.currentTimeMillis() - startTime);
+            timer.logSince("updateSourceMap", startTime);
         }
     }
 
     @Override
     public void updateResponseMap(ConnectorMessage connectorMessage) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.updateResponseMap(connectorMessage);
         } finally {
-            timer.log("updateResponseMap", System.currentTimeMillis() - startTime);
+            timer.logSince("updateResponseMap", startTime);
         }
     }
 
     @Override
     public void markAsProcessed(String channelId, long messageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.markAsProcessed(channelId, messageId);
         } finally {
-            timer.log("markAsProcessed", System.currentTimeMillis() - startTime);
+            timer.logSince("markAsProcessed", startTime);
         }
     }
 
     @Override
     public void resetMessage(String channelId, long messageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.resetMessage(channelId, messageId);
         } finally {
-            timer.log("resetMessage", System.currentTimeMillis() - startTime);
+            timer.logSince("resetMessage", startTime);
         }
     }
 
     @Override
     public void deleteMessage(String channelId, long messageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.deleteMessage(channelId, messageId);
         } finally {
-            timer.log("deleteMessage", System.currentTimeMillis() - startTime);
+            timer.logSince("deleteMessage", startTime);
         }
     }
 
     @Override
     public void deleteConnectorMessages(String channelId, long messageId, Set<Integer> metaDataIds) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.deleteConnectorMessages(channelId, messageId, metaDataIds);
         } finally {
-            timer.log("deleteConnectorMessages", System.currentTimeMillis() - startTime);
+            timer.logSince("deleteConnectorMessages", startTime);
         }
     }
 
     @Override
     public void deleteMessageStatistics(String channelId, long messageId, Set<Integer> metaDataIds) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.deleteMessageStatistics(channelId, messageId, metaDataIds);
         } finally {
-            timer.log("deleteMessageStatistics", System.currentTimeMillis() - startTime);
+            timer.logSince("deleteMessageStatistics", startTime);
         }
     }
 
     @Override
     public void deleteAllMessages(String channelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.deleteAllMessages(channelId);
         } finally {
-            timer.log("deleteAllMessages", System.currentTimeMillis() - startTime);
+            timer.logSince("deleteAllMessages", startTime);
         }
     }
 
     @Override
     public void deleteMessageContent(String channelId, long messageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.deleteMessageContent(channelId, messageId);
         } finally {
-            timer.log("deleteMessageContent", System.currentTimeMillis() - startTime);
+            timer.logSince("deleteMessageContent", startTime);
         }
     }
 
     @Override
     public void deleteMessageContentByMetaDataIds(String channelId, long messageId, Set<Integer> metaDataIds) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.deleteMessageContentByMetaDataIds(channelId, messageId, metaDataIds);
         } finally {
-            timer.log("deleteMessageContentByMetaDataIds", System.currentTimeMillis() - startTime);
+            timer.logSince("deleteMessageContentByMetaDataIds", startTime);
         }
     }
 
     @Override
     public void deleteMessageAttachments(String channelId, long messageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.deleteMessageAttachments(channelId, messageId);
         } finally {
-            timer.log("deleteMessageAttachments", System.currentTimeMillis() - startTime);
+            timer.logSince("deleteMessageAttachments", startTime);
         }
     }
 
     @Override
     public void createChannel(String channelId, long localChannelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.createChannel(channelId, localChannelId);
         } finally {
-            timer.log("createChannel", System.currentTimeMillis() - startTime);
+            timer.logSince("createChannel", startTime);
         }
     }
 
     @Override
     public boolean initTableStructure() {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.initTableStructure();
         } finally {
-            timer.log("initTableStructure", System.currentTimeMillis() - startTime);
+            timer.logSince("initTableStructure", startTime);
         }
     }
 
     @Override
     public void checkAndCreateChannelTables() {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.checkAndCreateChannelTables();
         } finally {
-            timer.log("checkOrCreateChannelTables", System.currentTimeMillis() - startTime);
+            timer.logSince("checkOrCreateChannelTables", startTime);
         }
     }
 
     @Override
     public void removeChannel(String channelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.removeChannel(channelId);
         } finally {
-            timer.log("removeChannel", System.currentTimeMillis() - startTime);
+            timer.logSince("removeChannel", startTime);
         }
     }
 
     @Override
     public void addMetaDataColumn(String channelId, MetaDataColumn metaDataColumn) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.addMetaDataColumn(channelId, metaDataColumn);
         } finally {
-            timer.log("addMetaDataColumn", System.currentTimeMillis() - startTime);
+            timer.logSince("addMetaDataColumn", startTime);
         }
     }
 
     @Override
     public void removeMetaDataColumn(String channelId, String columnName) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.removeMetaDataColumn(channelId, columnName);
         } finally {
-            timer.log("removeMetaDataColumn", System.currentTimeMillis() - startTime);
+            timer.logSince("removeMetaDataColumn", startTime);
         }
     }
 
     @Override
     public void resetStatistics(String channelId, Integer metaDataId, Set<Status> statuses) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.resetStatistics(channelId, metaDataId, statuses);
         } finally {
-            timer.log("resetStatistics", System.currentTimeMillis() - startTime);
+            timer.logSince("resetStatistics", startTime);
         }
     }
 
     @Override
     public void resetAllStatistics(String channelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             dao.resetAllStatistics(channelId);
         } finally {
-            timer.log("resetStatistics", System.currentTimeMillis() - startTime);
+            timer.logSince("resetStatistics", startTime);
         }
     }
 
     @Override
     public Long selectMaxLocalChannelId() {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.selectMaxLocalChannelId();
         } finally {
-            timer.log("selectMaxLocalChannelId", System.currentTimeMillis() - startTime);
+            timer.logSince("selectMaxLocalChannelId", startTime);
         }
     }
 
     @Override
     public Map<String, Long> getLocalChannelIds() {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getLocalChannelIds();
         } finally {
-            timer.log("getLocalChannelIds", System.currentTimeMillis() - startTime);
+            timer.logSince("getLocalChannelIds", startTime);
         }
     }
 
     @Override
     public long getMaxMessageId(String channelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getMaxMessageId(channelId);
         } finally {
-            timer.log("getMaxMessageId", System.currentTimeMillis() - startTime);
+            timer.logSince("getMaxMessageId", startTime);
         }
     }
 
     @Override
     public long getMinMessageId(String channelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getMinMessageId(channelId);
         } finally {
-            timer.log("getMinMessageId", System.currentTimeMillis() - startTime);
+            timer.logSince("getMinMessageId", startTime);
         }
     }
 
     @Override
     public long getNextMessageId(String channelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getNextMessageId(channelId);
         } finally {
-            timer.log("getNextMessageId", System.currentTimeMillis() - startTime);
+            timer.logSince("getNextMessageId", startTime);
         }
     }
 
     @Override
     public List<Attachment> getMessageAttachment(String channelId, long messageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getMessageAttachment(channelId, messageId);
         } finally {
-            timer.log("getMessageAttachment", System.currentTimeMillis() - startTime);
+            timer.logSince("getMessageAttachment", startTime);
         }
     }
 
     @Override
     public Attachment getMessageAttachment(String channelId, String attachmentId, Long messageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getMessageAttachment(channelId, attachmentId, messageId);
         } finally {
-            timer.log("getMessageAttachment", System.currentTimeMillis() - startTime);
+            timer.logSince("getMessageAttachment", startTime);
+        }
+    }
+
+    @Override
+    public boolean writeMessageAttachment(String channelId, String attachmentId, Long messageId, OutputStream outputStream) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.writeMessageAttachment(channelId, attachmentId, messageId, outputStream);
+        } finally {
+            timer.logSince("writeMessageAttachment", startTime);
         }
     }
 
     @Override
     public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getPendingConnectorMessages(channelId, serverId, limit, minMessageId);
         } finally {
-            timer.log("getPendingConnectorMessages", System.currentTimeMillis() - startTime);
+            timer.logSince("getPendingConnectorMessages", startTime);
         }
     }
 
     @Override
     public List<Message> getMessages(String channelId, List<Long> messageIds) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getMessages(channelId, messageIds);
         } finally {
-            timer.log("getMessages", System.currentTimeMillis() - startTime);
+            timer.logSince("getMessages", startTime);
         }
     }
 
     @Override
     public List<ConnectorMessage> getConnectorMessages(String channelId, String serverId, int metaDataId, Status status, int offset, int limit, Long minMessageId, Long maxMessageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getConnectorMessages(channelId, serverId, metaDataId, status, offset, limit, minMessageId, maxMessageId);
         } finally {
-            timer.log("getConnectorMessages", System.currentTimeMillis() - startTime);
+            timer.logSince("getConnectorMessages", startTime);
         }
     }
 
     @Override
     public List<ConnectorMessage> getConnectorMessages(String channelId, long messageId, Set<Integer> metaDataIds, boolean includeContent) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getConnectorMessages(channelId, messageId, metaDataIds, includeContent);
         } finally {
-            timer.log("getConnectorMessages", System.currentTimeMillis() - startTime);
+            timer.logSince("getConnectorMessages", startTime);
         }
     }
 
     @Override
     public Map<Integer, ConnectorMessage> getConnectorMessages(String channelId, long messageId, List<Integer> metaDataIds) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getConnectorMessages(channelId, messageId, metaDataIds);
         } finally {
-            timer.log("getConnectorMessages", System.currentTimeMillis() - startTime);
+            timer.logSince("getConnectorMessages", startTime);
         }
     }
 
     @Override
     public int getConnectorMessageCount(String channelId, String serverId, int metaDataId, Status status) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getConnectorMessageCount(channelId, serverId, metaDataId, status);
         } finally {
-            timer.log("getConnectorMessageCount", System.currentTimeMillis() - startTime);
+            timer.logSince("getConnectorMessageCount", startTime);
         }
     }
 
     @Override
     public long getConnectorMessageMaxMessageId(String channelId, String serverId, int metaDataId, Status status) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getConnectorMessageMaxMessageId(channelId, serverId, metaDataId, status);
         } finally {
-            timer.log("getConnectorMessageMaxMessageId", System.currentTimeMillis() - startTime);
+            timer.logSince("getConnectorMessageMaxMessageId", startTime);
         }
     }
 
     @Override
     public Map<Integer, Status> getConnectorMessageStatuses(String channelId, long messageId, boolean checkProcessed) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getConnectorMessageStatuses(channelId, messageId, checkProcessed);
         } finally {
-            timer.log("getConnectorMessageStatuses", System.currentTimeMillis() - startTime);
+            timer.logSince("getConnectorMessageStatuses", startTime);
         }
     }
 
     @Override
     public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getUnfinishedMessages(channelId, serverId, limit, minMessageId);
         } finally {
-            timer.log("getUnfinishedMessages", System.currentTimeMillis() - startTime);
+            timer.logSince("getUnfinishedMessages", startTime);
         }
     }
 
     @Override
     public List<MetaDataColumn> getMetaDataColumns(String channelId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getMetaDataColumns(channelId);
         } finally {
-            timer.log("getMetaDataColumns", System.currentTimeMillis() - startTime);
+            timer.logSince("getMetaDataColumns", startTime);
         }
     }
 
     @Override
     public Statistics getChannelStatistics(String serverId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getChannelStatistics(serverId);
         } finally {
-            timer.log("getChannelStatistics", System.currentTimeMillis() - startTime);
+            timer.logSince("getChannelStatistics", startTime);
         }
     }
 
     @Override
     public Statistics getChannelTotalStatistics(String serverId) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getChannelTotalStatistics(serverId);
         } finally {
-            timer.log("getChannelTotalStatistics", System.currentTimeMillis() - startTime);
+            timer.logSince("getChannelTotalStatistics", startTime);
         }
     }
     
     @Override
     public List<Ports> getPortsInUse() {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             return dao.getPortsInUse();
         } finally {
-            timer.log("getPortsInUse", System.currentTimeMillis() - startTime);
+            timer.logSince("getPortsInUse", startTime);
         }
     }
 }
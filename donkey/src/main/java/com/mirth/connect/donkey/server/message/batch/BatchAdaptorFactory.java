@@ -9,6 +9,7 @@
 
 package com.mirth.connect.donkey.server.message.batch;
 
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -23,6 +24,8 @@ public abstract class BatchAdaptorFactory {
     private AtomicInteger batches = new AtomicInteger();
     private AtomicBoolean finished = new AtomicBoolean();
     private boolean useFirstReponse = false;
+    private int dispatchWindow = 1;
+    private Semaphore dispatchPermits = new Semaphore(1);
 
     public BatchAdaptorFactory(SourceConnector sourceConnector) {
         this.sourceConnector = sourceConnector;
@@ -69,6 +72,29 @@ public abstract class BatchAdaptorFactory {
         this.useFirstReponse = useFirstReponse;
     }
 
+    /**
+     * Returns the maximum number of messages of a batch that may be dispatched at the same time.
+     * With a window of 1, each message is dispatched after the previous one has been processed.
+     */
+    public int getDispatchWindow() {
+        return dispatchWindow;
+    }
+
+    public void setDispatchWindow(int dispatchWindow) {
+        this.dispatchWindow = Math.max(1, dispatchWindow);
+        this.dispatchPermits = new Semaphore(this.dispatchWindow);
+    }
+
+    /**
+     * Returns the permits shared by all batches of the source connector, one for each message that
+     * is dispatched by another thread and not yet finished. The window is therefore also the limit
+     * across concurrent batches, so that those messages can never hold every channel process lock
+     * permit while the message each batch waits for still needs one.
+     */
+    public Semaphore getDispatchPermits() {
+        return dispatchPermits;
+    }
+
     public abstract BatchAdaptor createBatchAdaptor(BatchRawMessage batchRawMessage);
 
     public abstract void onDeploy() throws DeployException;
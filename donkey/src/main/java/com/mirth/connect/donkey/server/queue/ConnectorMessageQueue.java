@@ -9,9 +9,11 @@
 
 package com.mirth.connect.donkey.server.queue;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.mirth.connect.donkey.model.event.MessageEventType;
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
@@ -21,10 +23,9 @@ import com.mirth.connect.donkey.server.event.MessageEvent;
 
 public abstract class ConnectorMessageQueue {
 
-    protected Map<Long, ConnectorMessage> buffer = new LinkedHashMap<Long, ConnectorMessage>();
+    protected ConnectorMessageQueueBuffer buffer = new ConnectorMessageQueueBuffer();
     protected Integer size;
     protected ConnectorMessageQueueDataSource dataSource;
-    protected final AtomicBoolean timeoutLock = new AtomicBoolean(false);
     protected EventDispatcher eventDispatcher = Donkey.getInstance().getEventDispatcher();
     protected String channelId;
     protected Integer metaDataId;
@@ -33,10 +34,27 @@ public abstract class ConnectorMessageQueue {
     private boolean reachedCapacity = false;
     private boolean invalidated = false;
 
+    /*
+     * Threads waiting for messages block on this condition instead of sleeping. The sequence is
+     * incremented every time messages may have become available, so a waiter that read the sequence
+     * before finding the queue empty will not miss a signal sent in between.
+     */
+    private final Lock availableLock = new ReentrantLock();
+    private final Condition availableCondition = availableLock.newCondition();
+    private volatile long availableSequence = 0;
+
     protected abstract ConnectorMessage pollFirstValue();
 
     protected void reset() {}
 
+    /**
+     * Returns the buffer bucket that the given message should be added to. Queues with a single
+     * bucket always use bucket 0.
+     */
+    protected int getBucket(ConnectorMessage connectorMessage) {
+        return 0;
+    }
+
     public int getBufferSize() {
         return buffer.size();
     }
@@ -90,9 +108,56 @@ public abstract class ConnectorMessageQueue {
         if (updateSize) {
             eventDispatcher.dispatchEvent(new MessageEvent(channelId, metaDataId, MessageEventType.QUEUED, (long) size(), true));
         }
+
+        // The queue will be resynchronized with the database, which may have more messages
+        signalAvailable();
+    }
+
+    /**
+     * Returns the current availability sequence. Read this before trying to take a message, and
+     * pass it to {@link #awaitAvailable(long, long, TimeUnit)} if the queue turned out to be empty.
+     */
+    public long getAvailableSequence() {
+        return availableSequence;
+    }
+
+    /**
+     * Blocks until messages may have become available since the given sequence was read, or until
+     * the timeout elapses. Returns false if the timeout elapsed first.
+     */
+    public boolean awaitAvailable(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+
+        availableLock.lock();
+        try {
+            while (availableSequence == sequence) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = availableCondition.awaitNanos(nanos);
+            }
+
+            return true;
+        } finally {
+            availableLock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up all threads waiting in {@link #awaitAvailable(long, long, TimeUnit)}. This is called
+     * when messages are added or put back into the queue, and when queue threads are being stopped.
+     */
+    public void signalAvailable() {
+        availableLock.lock();
+        try {
+            availableSequence++;
+            availableCondition.signalAll();
+        } finally {
+            availableLock.unlock();
+        }
     }
 
-    public synchronized boolean contains(ConnectorMessage connectorMessage) {
+    public boolean contains(ConnectorMessage connectorMessage) {
         return buffer.containsKey(connectorMessage.getMessageId());
     }
 
@@ -149,15 +214,7 @@ public abstract class ConnectorMessageQueue {
             if (!reachedCapacity) {
                 if (size < bufferCapacity && !dataSource.isQueueRotated()) {
                     if (canAddNewMessageToBuffer(connectorMessage)) {
-                        buffer.put(connectorMessage.getMessageId(), connectorMessage);
-
-                        // If there is a poll with timeout waiting, notify that an item was added to the buffer.
-                        if (timeoutLock.get()) {
-                            synchronized (timeoutLock) {
-                                timeoutLock.notifyAll();
-                                timeoutLock.set(false);
-                            }
-                        }
+                        buffer.put(connectorMessage, getBucket(connectorMessage));
                     }
                 } else {
                     reachedCapacity = true;
@@ -167,6 +224,9 @@ public abstract class ConnectorMessageQueue {
         }
 
         eventDispatcher.dispatchEvent(new MessageEvent(channelId, metaDataId, MessageEventType.QUEUED, (long) size(), false));
+
+        // Wake up any queue threads waiting for a message
+        signalAvailable();
     }
 
     protected boolean canAddNewMessageToBuffer(ConnectorMessage connectorMessage) {
@@ -179,18 +239,19 @@ public abstract class ConnectorMessageQueue {
         }
 
         invalidated = false;
-        buffer = dataSource.getItems(0, Math.min(bufferCapacity, size));
+        Map<Long, ConnectorMessage> items = dataSource.getItems(0, Math.min(bufferCapacity, size));
+
+        buffer.clear();
+        for (ConnectorMessage connectorMessage : items.values()) {
+            buffer.put(connectorMessage, getBucket(connectorMessage));
+        }
 
         if (buffer.size() == size) {
             reachedCapacity = false;
         }
 
-        // If there is a poll with timeout waiting, notify that an item was added to the buffer.
-        if (buffer.size() > 0 && timeoutLock.get()) {
-            synchronized (timeoutLock) {
-                timeoutLock.notifyAll();
-                timeoutLock.set(false);
-            }
+        if (buffer.size() > 0) {
+            signalAvailable();
         }
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+
+/**
+ * In-memory buffer of queued connector messages, split into one FIFO lane per queue bucket. Each
+ * lane keeps its messages in the order they were added, and messages are polled from a single lane
+ * without looking at the messages of any other bucket.
+ *
+ * The buffer does not need any external locking. Messages removed by ID are only marked as removed
+ * and dropped from their lane the next time it is polled.
+ */
+public class ConnectorMessageQueueBuffer {
+
+    private Map<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+    private List<Queue<Entry>> lanes;
+
+    public ConnectorMessageQueueBuffer() {
+        this(1);
+    }
+
+    public ConnectorMessageQueueBuffer(int buckets) {
+        buckets = Math.max(buckets, 1);
+        lanes = new ArrayList<Queue<Entry>>(buckets);
+
+        for (int i = 0; i < buckets; i++) {
+            lanes.add(new ConcurrentLinkedQueue<Entry>());
+        }
+    }
+
+    public int getBucketCount() {
+        return lanes.size();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public boolean containsKey(Long messageId) {
+        return entries.containsKey(messageId);
+    }
+
+    /**
+     * Adds a message to the end of the given bucket's lane. If the message is already in the
+     * buffer, it is replaced in place and keeps its position.
+     */
+    public void put(ConnectorMessage connectorMessage, int bucket) {
+        Long messageId = connectorMessage.getMessageId();
+        Entry entry = new Entry(messageId, connectorMessage);
+
+        while (true) {
+            Entry existing = entries.get(messageId);
+
+            if (existing == null) {
+                if (entries.putIfAbsent(messageId, entry) == null) {
+                    lanes.get(bucket).add(entry);
+                    return;
+                }
+            } else if (!existing.removed.get()) {
+                existing.connectorMessage = connectorMessage;
+                return;
+            } else {
+                // The existing entry was just polled, so add the message again as a new entry
+                entries.remove(messageId, existing);
+            }
+        }
+    }
+
+    /**
+     * Replaces the message in the buffer, but only if a message with the same ID is already in it.
+     */
+    public boolean replace(ConnectorMessage connectorMessage) {
+        Entry existing = entries.get(connectorMessage.getMessageId());
+
+        if (existing != null && !existing.removed.get()) {
+            existing.connectorMessage = connectorMessage;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes and returns the first message in the given bucket's lane, or null if the lane is
+     * empty.
+     */
+    public ConnectorMessage poll(int bucket) {
+        Queue<Entry> lane = lanes.get(bucket);
+        Entry entry;
+
+        while ((entry = lane.poll()) != null) {
+            if (entry.removed.compareAndSet(false, true)) {
+                entries.remove(entry.messageId, entry);
+                return entry.connectorMessage;
+            }
+        }
+
+        return null;
+    }
+
+    public ConnectorMessage remove(Long messageId) {
+        Entry entry = entries.remove(messageId);
+
+        if (entry != null && entry.removed.compareAndSet(false, true)) {
+            return entry.connectorMessage;
+        }
+
+        return null;
+    }
+
+    public void clear() {
+        for (Entry entry : entries.values()) {
+            entry.removed.set(true);
+        }
+
+        entries.clear();
+
+        for (Queue<Entry> lane : lanes) {
+            lane.clear();
+        }
+    }
+
+    private static class Entry {
+        private final Long messageId;
+        private volatile ConnectorMessage connectorMessage;
+        private final AtomicBoolean removed = new AtomicBoolean(false);
+
+        private Entry(Long messageId, ConnectorMessage connectorMessage) {
+            this.messageId = messageId;
+            this.connectorMessage = connectorMessage;
+        }
+    }
+}
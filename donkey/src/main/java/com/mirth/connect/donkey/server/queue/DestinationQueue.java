@@ -10,11 +10,9 @@
 package com.mirth.connect.donkey.server.queue;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
@@ -39,8 +37,8 @@ public class DestinationQueue extends ConnectorMessageQueue {
     private boolean regenerateTemplate;
     private Serializer serializer;
     private MessageMaps messageMaps;
-    private Set<Long> checkedOut = new HashSet<Long>();
-    private Set<Long> deleted = new HashSet<Long>();
+    private Set<Long> checkedOut = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private Set<Long> deleted = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
     private boolean rotate = false;
     private int queueBuckets = 1;
     private List<Long> queueThreadIds;
@@ -78,36 +76,25 @@ public class DestinationQueue extends ConnectorMessageQueue {
                 queueThreadIds = new ArrayList<Long>(queueBuckets);
                 hashFunction = Hashing.murmur3_32((int) System.currentTimeMillis());
                 initialThreadAssignmentMap = new ConcurrentHashMap<String, Integer>(queueBuckets);
+
+                // Give each queue thread its own lane so it never has to skip over other threads' messages
+                buffer = new ConnectorMessageQueueBuffer(queueBuckets);
             }
         }
     }
 
     @Override
     protected ConnectorMessage pollFirstValue() {
-        Iterator<Entry<Long, ConnectorMessage>> iterator = buffer.entrySet().iterator();
-
-        while (iterator.hasNext()) {
-            ConnectorMessage connectorMessage = iterator.next().getValue();
-
-            /*
-             * If there are multiple buckets, then the first value in the buffer may not be the
-             * first value for this queue thread. In this case, iterate through the buffer and find
-             * the first one that matches (if any).
-             */
-            if (queueBuckets > 1) {
-                Integer bucket = getBucket(connectorMessage);
-
-                if (bucket < queueThreadIds.size() && queueThreadIds.get(bucket).equals(Thread.currentThread().getId())) {
-                    iterator.remove();
-                    return connectorMessage;
-                }
-            } else {
-                iterator.remove();
-                return connectorMessage;
-            }
+        /*
+         * If there are multiple buckets, messages are only taken from the bucket assigned to the
+         * current queue thread. Threads that have not registered yet don't have a bucket.
+         */
+        if (queueBuckets > 1) {
+            int bucket = queueThreadIds.indexOf(Thread.currentThread().getId());
+            return bucket >= 0 ? buffer.poll(bucket) : null;
         }
 
-        return null;
+        return buffer.poll(0);
     }
 
     public Lock getStatusUpdateLock() {
@@ -219,45 +206,51 @@ public class DestinationQueue extends ConnectorMessageQueue {
 
                 if (finished) {
                     decrementActualSize();
-
-                    if (buffer.containsKey(messageId)) {
-                        buffer.remove(messageId);
-                    }
+                    buffer.remove(messageId);
                 } else {
-                    if (buffer.containsKey(messageId)) {
-                        buffer.put(messageId, connectorMessage);
-                    }
-
+                    buffer.replace(connectorMessage);
                     dataSource.rotateQueue();
                 }
             }
 
             checkedOut.remove(connectorMessage.getMessageId());
 
+            // A message put back into the queue can be picked up by another queue thread
+            if (!finished) {
+                signalAvailable();
+            }
+
             if (finished) {
                 eventDispatcher.dispatchEvent(new MessageEvent(channelId, metaDataId, MessageEventType.QUEUED, (long) size(), true));
             }
         }
     }
 
-    public synchronized boolean isCheckedOut(Long messageId) {
-        boolean isCheckedOut = checkedOut.contains(messageId);
-
-        /*
-         * If the message is no longer checked out and it was previously marked as deleted, we want
-         * to remove it from the deleted list as well as the buffer so that it does not get acquired
-         * again.
-         */
-        if (!isCheckedOut && deleted.contains(messageId)) {
-            deleted.remove(messageId);
-            buffer.remove(messageId);
-            updateSize();
+    public boolean isCheckedOut(Long messageId) {
+        // Callers poll this while waiting for a queue thread, so avoid the queue lock if possible
+        if (checkedOut.contains(messageId)) {
+            return true;
         }
 
-        return isCheckedOut;
+        synchronized (this) {
+            boolean isCheckedOut = checkedOut.contains(messageId);
+
+            /*
+             * If the message is no longer checked out and it was previously marked as deleted, we
+             * want to remove it from the deleted list as well as the buffer so that it does not get
+             * acquired again.
+             */
+            if (!isCheckedOut && deleted.contains(messageId)) {
+                deleted.remove(messageId);
+                buffer.remove(messageId);
+                updateSize();
+            }
+
+            return isCheckedOut;
+        }
     }
 
-    public synchronized void markAsDeleted(Long messageId) {
+    public void markAsDeleted(Long messageId) {
         deleted.add(messageId);
     }
 
@@ -270,7 +263,12 @@ public class DestinationQueue extends ConnectorMessageQueue {
         return false;
     }
 
-    private Integer getBucket(ConnectorMessage connectorMessage) {
+    @Override
+    protected int getBucket(ConnectorMessage connectorMessage) {
+        if (queueBuckets <= 1) {
+            return 0;
+        }
+
         Integer bucket = connectorMessage.getQueueBucket();
 
         // Get the bucket if we haven't already, or if value replacement needs to be done
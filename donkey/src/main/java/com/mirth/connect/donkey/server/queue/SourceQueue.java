@@ -10,8 +10,6 @@
 package com.mirth.connect.donkey.server.queue;
 
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -26,17 +24,7 @@ public class SourceQueue extends ConnectorMessageQueue {
 
     @Override
     protected ConnectorMessage pollFirstValue() {
-        Iterator<Entry<Long, ConnectorMessage>> iterator = buffer.entrySet().iterator();
-
-        if (iterator.hasNext()) {
-            ConnectorMessage connectorMessage = iterator.next().getValue();
-
-            iterator.remove();
-
-            return connectorMessage;
-        }
-
-        return null;
+        return buffer.poll(0);
     }
 
     public synchronized ConnectorMessage poll() {
@@ -80,11 +68,11 @@ public class SourceQueue extends ConnectorMessageQueue {
         if (connectorMessage != null) {
             Long messageId = connectorMessage.getMessageId();
 
-            if (buffer.containsKey(messageId)) {
-                buffer.remove(messageId);
-            }
-
+            buffer.remove(messageId);
             checkedOut.remove(messageId);
+
+            // A full buffer of checked out messages may have been blocking other queue threads
+            signalAvailable();
         }
     }
 
@@ -102,22 +90,17 @@ public class SourceQueue extends ConnectorMessageQueue {
     }
 
     public ConnectorMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
-        waitTimeout(timeout, unit);
-
-        return poll();
-    }
+        long sequence = getAvailableSequence();
+        ConnectorMessage connectorMessage = poll();
 
-    private void waitTimeout(long timeout, TimeUnit unit) throws InterruptedException {
         /*
-         * If there are no queued messages, then we want to wait. Otherwise, it's possible that
-         * multiple queue threads all have messages checked out and the buffer is full. In this case
-         * we also want to wait until at least one of the messages has finished.
+         * If there are no queued messages, or multiple queue threads all have messages checked out
+         * and the buffer is full, wait until a message is added or one of them has finished.
          */
-        if ((size == null || size == 0 || checkedOut.size() == getBufferCapacity()) && timeout > 0) {
-            synchronized (timeoutLock) {
-                timeoutLock.set(true);
-                timeoutLock.wait(TimeUnit.MILLISECONDS.convert(timeout, unit));
-            }
+        if (connectorMessage == null && timeout > 0 && awaitAvailable(sequence, timeout, unit)) {
+            connectorMessage = poll();
         }
+
+        return connectorMessage;
     }
 }
\ No newline at end of file
@@ -9,110 +9,160 @@
 
 package com.mirth.connect.donkey.util;
 
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 
+/**
+ * Keeps a latency histogram for each named event. Events may be logged concurrently from any
+ * number of threads.
+ */
 public class ActionTimer {
-    private boolean enabled = true;
-    private Map<String, Long> times = new ConcurrentHashMap<String, Long>();
-    private Map<String, Integer> counts = new ConcurrentHashMap<String, Integer>();
+    private volatile boolean enabled = true;
+    private ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
 
     public void log(String eventName, long millis) {
+        logNanos(eventName, TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public void logNanos(String eventName, long nanos) {
         if (!enabled) {
             return;
         }
 
-        Long oldTime = times.get(eventName);
+        getHistogram(eventName).recordNanos(nanos);
+    }
 
-        if (oldTime == null) {
-            times.put(eventName, millis);
-        } else {
-            times.put(eventName, oldTime + millis);
-        }
+    /**
+     * Logs the time elapsed since the given System.nanoTime() value.
+     */
+    public void logSince(String eventName, long startNanos) {
+        logNanos(eventName, System.nanoTime() - startNanos);
+    }
 
-        Integer count = counts.get(eventName);
+    public LatencyHistogram getHistogram(String eventName) {
+        LatencyHistogram histogram = histograms.get(eventName);
 
-        if (count == null) {
-            counts.put(eventName, 1);
-        } else {
-            counts.put(eventName, count + 1);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = histograms.putIfAbsent(eventName, histogram);
+
+            if (existing != null) {
+                histogram = existing;
+            }
         }
+
+        return histogram;
+    }
+
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
     }
 
     public long getTotalTime() {
         long total = 0;
 
-        for (Long time : times.values()) {
-            total += time;
+        for (LatencyHistogram histogram : histograms.values()) {
+            total += histogram.getTotal();
         }
 
-        return total;
+        return TimeUnit.MICROSECONDS.toMillis(total);
     }
 
     public int getTotalCount() {
         int total = 0;
 
-        for (Integer count : counts.values()) {
-            total += count;
+        for (LatencyHistogram histogram : histograms.values()) {
+            total += histogram.getCount();
         }
 
         return total;
     }
 
+    /**
+     * Returns the total time in milliseconds of each event.
+     */
     public Map<String, Long> getTimes() {
+        Map<String, Long> times = new HashMap<String, Long>();
+
+        for (Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            times.put(entry.getKey(), TimeUnit.MICROSECONDS.toMillis(entry.getValue().getTotal()));
+        }
+
         return times;
     }
 
     public Map<String, Integer> getCounts() {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+
+        for (Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            counts.put(entry.getKey(), (int) entry.getValue().getCount());
+        }
+
         return counts;
     }
 
     public String getLog() {
-        long totalTime = getTotalTime();
+        Map<String, LatencyHistogram.Snapshot> snapshots = new HashMap<String, LatencyHistogram.Snapshot>();
+        long totalTime = 0;
+
+        for (Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().getSnapshot();
+            snapshots.put(entry.getKey(), snapshot);
+            totalTime += snapshot.getTotal();
+        }
 
         StringBuilder log = new StringBuilder();
-        LongComparator longComparator = new LongComparator(times);
-        TreeMap<String, Long> sortedTimes = new TreeMap<String, Long>(longComparator);
-        sortedTimes.putAll(times);
+        TreeMap<String, LatencyHistogram.Snapshot> sortedSnapshots = new TreeMap<String, LatencyHistogram.Snapshot>(new TotalComparator(snapshots));
+        sortedSnapshots.putAll(snapshots);
+        long totalCount = 0;
 
-        for (Entry<String, Long> logEntry : sortedTimes.entrySet()) {
+        for (Entry<String, LatencyHistogram.Snapshot> logEntry : sortedSnapshots.entrySet()) {
             String eventName = logEntry.getKey();
-            Integer count = counts.get(eventName);
-            Long time = logEntry.getValue();
+            LatencyHistogram.Snapshot snapshot = logEntry.getValue();
+            long count = snapshot.getCount();
+            long time = snapshot.getTotal();
+            totalCount += count;
 
             long pct = (totalTime > 0) ? ((time * 100) / totalTime) : 0;
-            log.append(StringUtils.rightPad(eventName + ":", 40) + StringUtils.rightPad(count + " occurrence" + ((count != 1) ? "s" : ""), 20) + StringUtils.rightPad(time + "ms", 12) + pct + "%\n");
+            log.append(StringUtils.rightPad(eventName + ":", 40) + StringUtils.rightPad(count + " occurrence" + ((count != 1) ? "s" : ""), 20) + StringUtils.rightPad(TimeUnit.MICROSECONDS.toMillis(time) + "ms", 12) + StringUtils.rightPad(pct + "%", 6) + "p50=" + snapshot.getPercentile(50) + "us p99=" + snapshot.getPercentile(99) + "us max=" + snapshot.getMax() + "us\n");
         }
 
-        int totalCount = getTotalCount();
-        log.append(StringUtils.rightPad("Totals:", 40) + StringUtils.rightPad(totalCount + " occurrence" + ((totalCount != 1) ? "s" : ""), 20) + totalTime + "ms\n");
+        log.append(StringUtils.rightPad("Totals:", 40) + StringUtils.rightPad(totalCount + " occurrence" + ((totalCount != 1) ? "s" : ""), 20) + TimeUnit.MICROSECONDS.toMillis(totalTime) + "ms\n");
         return log.toString();
     }
 
     public void reset() {
-        counts.clear();
-        times.clear();
+        histograms.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
     }
 
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
 
-    private class LongComparator implements Comparator<String> {
-        private Map<String, Long> base;
+    private class TotalComparator implements Comparator<String> {
+        private Map<String, LatencyHistogram.Snapshot> base;
 
-        public LongComparator(Map<String, Long> base) {
+        public TotalComparator(Map<String, LatencyHistogram.Snapshot> base) {
             this.base = base;
         }
 
         @Override
         public int compare(String a, String b) {
-            return base.get(b).compareTo(base.get(a));
+            int result = Long.compare(base.get(b).getTotal(), base.get(a).getTotal());
+            return result != 0 ? result : a.compareTo(b);
         }
     }
 }
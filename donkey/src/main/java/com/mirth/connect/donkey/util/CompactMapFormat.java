@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mirth.connect.donkey.model.message.InvalidMapValue;
+import com.mirth.connect.donkey.util.xstream.SerializerException;
+
+/**
+ * Compact text format for message maps, used instead of serializing the whole map to XML.
+ *
+ * The content starts with a version header, followed by one record per entry. Each record is a
+ * type tag, the length-prefixed key and (except for null values) the length-prefixed value, for
+ * example:
+ *
+ * <pre>
+ * MAP1:S3:key5:valueI5:count2:12N4:none
+ * </pre>
+ *
+ * Strings, numbers and booleans are stored as plain text, so they are still found by message
+ * content searches. Any other value is stored as its serialized XML.
+ */
+public class CompactMapFormat {
+
+    public static final String HEADER = "MAP1:";
+
+    private static final char TYPE_STRING = 'S';
+    private static final char TYPE_INTEGER = 'I';
+    private static final char TYPE_LONG = 'L';
+    private static final char TYPE_DOUBLE = 'D';
+    private static final char TYPE_BOOLEAN = 'B';
+    private static final char TYPE_NULL = 'N';
+    private static final char TYPE_XML = 'X';
+
+    private static Logger logger = LogManager.getLogger(CompactMapFormat.class);
+
+    public static boolean isCompact(String serializedMap) {
+        return serializedMap != null && serializedMap.startsWith(HEADER);
+    }
+
+    public static String serialize(Serializer serializer, Map<String, Object> map) {
+        StringBuilder builder = new StringBuilder(HEADER);
+
+        for (Entry<String, Object> entry : map.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+
+            if (value == null) {
+                builder.append(TYPE_NULL);
+                append(builder, key);
+            } else if (value instanceof String) {
+                append(builder, TYPE_STRING, key, (String) value);
+            } else if (value instanceof Integer) {
+                append(builder, TYPE_INTEGER, key, value.toString());
+            } else if (value instanceof Long) {
+                append(builder, TYPE_LONG, key, value.toString());
+            } else if (value instanceof Double) {
+                append(builder, TYPE_DOUBLE, key, value.toString());
+            } else if (value instanceof Boolean) {
+                append(builder, TYPE_BOOLEAN, key, value.toString());
+            } else if (value instanceof InvalidMapValue) {
+                append(builder, TYPE_XML, key, ((InvalidMapValue) value).getValueXML());
+            } else {
+                String valueXML;
+
+                try {
+                    valueXML = serializer.serialize(value);
+                } catch (Exception e) {
+                    logger.warn("Non-serializable value found in map, converting value to string with key: " + key);
+                    append(builder, TYPE_STRING, key, value.toString());
+                    continue;
+                }
+
+                append(builder, TYPE_XML, key, valueXML);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    public static Map<String, Object> deserialize(Serializer serializer, String serializedMap) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        int[] position = new int[] { HEADER.length() };
+
+        try {
+            while (position[0] < serializedMap.length()) {
+                char type = serializedMap.charAt(position[0]++);
+                String key = read(serializedMap, position);
+
+                if (type == TYPE_NULL) {
+                    map.put(key, null);
+                    continue;
+                }
+
+                String value = read(serializedMap, position);
+
+                switch (type) {
+                    case TYPE_STRING:
+                        map.put(key, value);
+                        break;
+                    case TYPE_INTEGER:
+                        map.put(key, Integer.valueOf(value));
+                        break;
+                    case TYPE_LONG:
+                        map.put(key, Long.valueOf(value));
+                        break;
+                    case TYPE_DOUBLE:
+                        map.put(key, Double.valueOf(value));
+                        break;
+                    case TYPE_BOOLEAN:
+                        map.put(key, Boolean.valueOf(value));
+                        break;
+                    case TYPE_XML:
+                        try {
+                            map.put(key, serializer.deserialize(value, Object.class));
+                        } catch (Exception e) {
+                            map.put(key, new InvalidMapValue(value));
+                        }
+                        break;
+                    default:
+                        throw new SerializerException("Unknown map value type '" + type + "' for key: " + key);
+                }
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new SerializerException("Invalid compact map content", e);
+        }
+
+        return map;
+    }
+
+    private static void append(StringBuilder builder, char type, String key, String value) {
+        builder.append(type);
+        append(builder, key);
+        append(builder, value);
+    }
+
+    private static void append(StringBuilder builder, String value) {
+        builder.append(value.length()).append(':').append(value);
+    }
+
+    private static String read(String serializedMap, int[] position) {
+        int separator = serializedMap.indexOf(':', position[0]);
+        int length = Integer.parseInt(serializedMap.substring(position[0], separator));
+        int start = separator + 1;
+
+        position[0] = start + length;
+        return serializedMap.substring(start, position[0]);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in microseconds. Values are counted in log-linear buckets:
+ * each power of two is split into 16 sub-buckets, so a percentile is reported within 1/16 of the
+ * recorded value while a histogram takes about 5KB no matter how many values it records. Recording
+ * only increments counters, so it is cheap enough to be done for every message.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_BIT = 40;
+    private static final long MAX_VALUE = (1L << (MAX_BIT + 1)) - 1;
+    private static final int BUCKET_COUNT = getBucketIndex(MAX_VALUE) + 1;
+
+    private AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private LongAdder count = new LongAdder();
+    private LongAdder total = new LongAdder();
+    private AtomicLong max = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        } else if (micros > MAX_VALUE) {
+            micros = MAX_VALUE;
+        }
+
+        buckets.incrementAndGet(getBucketIndex(micros));
+        count.increment();
+        total.add(micros);
+
+        long currentMax;
+        while (micros > (currentMax = max.get()) && !max.compareAndSet(currentMax, micros)) {}
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public Snapshot getSnapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long snapshotCount = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            snapshotCount += counts[i];
+        }
+
+        return new Snapshot(counts, snapshotCount, total.sum(), max.get());
+    }
+
+    /**
+     * Clears the histogram. Values recorded while it is being cleared may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+        return shift * (SUB_BUCKET_COUNT / 2) + (int) (value >>> shift);
+    }
+
+    static long getBucketLowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index - SUB_BUCKET_COUNT / 2) / (SUB_BUCKET_COUNT / 2);
+        long subBucket = index - shift * (SUB_BUCKET_COUNT / 2);
+        return subBucket << shift;
+    }
+
+    static long getBucketHighestValue(int index) {
+        return index + 1 < BUCKET_COUNT ? getBucketLowestValue(index + 1) - 1 : MAX_VALUE;
+    }
+
+    /**
+     * A copy of the histogram, in microseconds. Values recorded while the copy is taken may only be
+     * counted in some of its totals.
+     */
+    public static class Snapshot {
+        private long[] counts;
+        private long count;
+        private long total;
+        private long max;
+
+        private Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getMean() {
+            return count > 0 ? total / count : 0;
+        }
+
+        /**
+         * Returns the value that the given percentage of the recorded values are less than or equal
+         * to, as the highest value of its bucket but no more than the maximum recorded value.
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+
+                if (seen >= rank) {
+                    return Math.min(getBucketHighestValue(i), max);
+                }
+            }
+
+            return max;
+        }
+    }
+}
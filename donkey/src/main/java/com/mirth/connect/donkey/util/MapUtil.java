@@ -80,6 +80,18 @@ public class MapUtil {
         }
     }
 
+    /**
+     * Serializes the map using the compact map format. Maps with a null key cannot be represented
+     * in that format and are serialized to XML instead.
+     */
+    public static String serializeMapCompact(Serializer serializer, Map<String, Object> map) {
+        if (map.containsKey(null)) {
+            return serializeMap(serializer, map);
+        }
+
+        return CompactMapFormat.serialize(serializer, map);
+    }
+
     public static boolean hasInvalidValues(Map<String, Object> map) {
         for (Object mapValue : map.values()) {
             if (mapValue instanceof InvalidMapValue) {
@@ -92,6 +104,10 @@ public class MapUtil {
 
     @SuppressWarnings("unchecked")
     public static Map<String, Object> deserializeMap(Serializer serializer, String serializedMap) {
+        if (CompactMapFormat.isCompact(serializedMap)) {
+            return CompactMapFormat.deserialize(serializer, serializedMap);
+        }
+
         try {
             return (Map<String, Object>) serializer.deserialize(serializedMap, Map.class);
         } catch (Exception e) {
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.channel.ConnectorProperties;
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.Response;
+import com.mirth.connect.donkey.model.message.Status;
+import com.mirth.connect.donkey.test.util.TestDispatcher;
+import com.mirth.connect.donkey.test.util.TestDispatcherProperties;
+
+public class DestinationConnectorBatchTest {
+
+    @Test
+    public void testSendBatchAllSent() throws Exception {
+        TestDispatcher dispatcher = new TestDispatcher();
+        dispatcher.setReturnStatus(Status.SENT);
+
+        List<Response> responses = dispatcher.send(createProperties(3), createMessages(3));
+
+        assertEquals(3, responses.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Status.SENT, responses.get(i).getStatus());
+            assertEquals(TestDispatcher.TEST_RESPONSE_PREFIX + (i + 1), responses.get(i).getMessage());
+        }
+        assertEquals(3, dispatcher.getMessageIds().size());
+    }
+
+    @Test
+    public void testSendBatchStopsAtFirstFailure() throws Exception {
+        TestDispatcher dispatcher = new TestDispatcher() {
+            @Override
+            public Response send(ConnectorProperties connectorProperties, ConnectorMessage message) {
+                getMessageIds().add(message.getMessageId());
+                return new Response(message.getMessageId() == 2 ? Status.QUEUED : Status.SENT, null);
+            }
+        };
+
+        List<Response> responses = dispatcher.send(createProperties(4), createMessages(4));
+
+        assertEquals(4, responses.size());
+        assertEquals(Status.SENT, responses.get(0).getStatus());
+        assertEquals(Status.QUEUED, responses.get(1).getStatus());
+        assertNull(responses.get(2));
+        assertNull(responses.get(3));
+
+        // Messages after the failed one must not be attempted, so they stay queued in order
+        assertEquals(2, dispatcher.getMessageIds().size());
+    }
+
+    @Test
+    public void testQueueBatchSize() throws Exception {
+        TestDispatcher dispatcher = new TestDispatcher();
+        TestDispatcherProperties properties = new TestDispatcherProperties();
+        dispatcher.setConnectorProperties(properties);
+        assertEquals(1, dispatcher.getQueueBatchSize());
+
+        properties.getDestinationConnectorProperties().setQueueBatchSize(0);
+        assertEquals(1, dispatcher.getQueueBatchSize());
+
+        properties.getDestinationConnectorProperties().setQueueBatchSize(50);
+        assertEquals(50, dispatcher.getQueueBatchSize());
+    }
+
+    private List<ConnectorProperties> createProperties(int count) {
+        List<ConnectorProperties> properties = new ArrayList<ConnectorProperties>();
+        for (int i = 0; i < count; i++) {
+            properties.add(new TestDispatcherProperties());
+        }
+        return properties;
+    }
+
+    private List<ConnectorMessage> createMessages(int count) {
+        List<ConnectorMessage> messages = new ArrayList<ConnectorMessage>();
+        for (int i = 1; i <= count; i++) {
+            messages.add(new ConnectorMessage("channelId", "channelName", i, 1, "serverId", null, Status.QUEUED));
+        }
+        return messages;
+    }
+}
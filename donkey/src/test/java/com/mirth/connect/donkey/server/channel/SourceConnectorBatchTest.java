@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mirth.connect.donkey.model.channel.DeployedState;
+import com.mirth.connect.donkey.model.message.BatchRawMessage;
+import com.mirth.connect.donkey.model.message.RawMessage;
+import com.mirth.connect.donkey.server.Constants;
+import com.mirth.connect.donkey.server.DeployException;
+import com.mirth.connect.donkey.server.UndeployException;
+import com.mirth.connect.donkey.server.message.batch.BatchAdaptor;
+import com.mirth.connect.donkey.server.message.batch.BatchAdaptorFactory;
+import com.mirth.connect.donkey.server.message.batch.BatchMessageException;
+import com.mirth.connect.donkey.server.message.batch.BatchMessageReader;
+import com.mirth.connect.donkey.server.message.batch.ResponseHandler;
+import com.mirth.connect.donkey.test.util.TestSourceConnector;
+
+public class SourceConnectorBatchTest {
+
+    private static final int MESSAGE_COUNT = 200;
+
+    private TestSourceConnector sourceConnector;
+    private Channel channel;
+    private AtomicLong nextMessageId = new AtomicLong(1);
+    private AtomicInteger running = new AtomicInteger();
+    private AtomicInteger maxRunning = new AtomicInteger();
+    private List<RawMessage> dispatched = Collections.synchronizedList(new ArrayList<RawMessage>());
+
+    @Before
+    public void setup() throws Exception {
+        channel = mock(Channel.class);
+        when(channel.getStorageSettings()).thenReturn(new StorageSettings());
+        when(channel.dispatchRawMessage(any(RawMessage.class), eq(true))).thenAnswer(new Answer<DispatchResult>() {
+            @Override
+            public DispatchResult answer(InvocationOnMock invocation) throws Throwable {
+                int current = running.incrementAndGet();
+                int max;
+                while (current > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, current)) {}
+
+                try {
+                    RawMessage rawMessage = invocation.getArgument(0);
+                    dispatched.add(rawMessage);
+                    Thread.sleep(1);
+
+                    if (rawMessage.getRawData().equals("fail")) {
+                        throw new ChannelException(false);
+                    }
+
+                    return new DispatchResult(nextMessageId.getAndIncrement(), null, null, false, false);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        });
+
+        sourceConnector = new TestSourceConnector();
+        sourceConnector.setChannel(channel);
+        sourceConnector.setCurrentState(DeployedState.STARTED);
+        sourceConnector.setBatchAdaptorFactory(new LineBatchAdaptorFactory(sourceConnector));
+    }
+
+    @Test
+    public void testSequentialBatch() throws Exception {
+        RecordingResponseHandler responseHandler = dispatchBatch(createBatch(MESSAGE_COUNT));
+
+        assertEquals(1, maxRunning.get());
+        assertResponsesInOrder(responseHandler, MESSAGE_COUNT);
+        assertBatchIds(MESSAGE_COUNT);
+    }
+
+    @Test
+    public void testConcurrentBatch() throws Exception {
+        sourceConnector.getBatchAdaptorFactory().setDispatchWindow(4);
+        RecordingResponseHandler responseHandler = dispatchBatch(createBatch(MESSAGE_COUNT));
+
+        assertTrue(maxRunning.get() > 1);
+        assertTrue(maxRunning.get() <= 4);
+        assertResponsesInOrder(responseHandler, MESSAGE_COUNT);
+        assertBatchIds(MESSAGE_COUNT);
+    }
+
+    @Test
+    public void testConcurrentBatchFailure() throws Exception {
+        sourceConnector.getBatchAdaptorFactory().setDispatchWindow(4);
+        String batch = createBatch(10) + "fail\n" + createBatch(10);
+        RecordingResponseHandler responseHandler = new RecordingResponseHandler();
+
+        try {
+            sourceConnector.dispatchBatchMessage(new BatchRawMessage(new BatchMessageReader(batch), new HashMap<String, Object>()), responseHandler);
+        } catch (BatchMessageException e) {
+            assertTrue(e.getMessage().contains("message 11"));
+        }
+
+        // Responses stop at the failed message, and every dispatched message is still finished
+        assertEquals(10, responseHandler.batchSequenceIds.size());
+        assertEquals(1, responseHandler.errors);
+        assertEquals(0, running.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentBatchesShareProcessLock() throws Exception {
+        final int processingThreads = 2;
+        final Semaphore processLock = new Semaphore(processingThreads);
+
+        // As with respondAfterProcessing, a message keeps its process lock permit until it is finished
+        doAnswer(new Answer<DispatchResult>() {
+            @Override
+            public DispatchResult answer(InvocationOnMock invocation) throws Throwable {
+                RawMessage rawMessage = invocation.getArgument(0);
+
+                // Let the third message of each batch get a permit before the second one
+                if ((Integer) rawMessage.getSourceMap().get(Constants.BATCH_SEQUENCE_ID_KEY) == 2) {
+                    Thread.sleep(50);
+                }
+
+                processLock.acquire();
+                return new DispatchResult(nextMessageId.getAndIncrement(), null, null, false, false);
+            }
+        }).when(channel).dispatchRawMessage(any(RawMessage.class), eq(true));
+
+        sourceConnector = new TestSourceConnector() {
+            @Override
+            public void finishDispatch(DispatchResult dispatchResult) {
+                super.finishDispatch(dispatchResult);
+
+                if (dispatchResult != null) {
+                    processLock.release();
+                }
+            }
+        };
+        sourceConnector.setChannel(channel);
+        sourceConnector.setCurrentState(DeployedState.STARTED);
+        sourceConnector.setBatchAdaptorFactory(new LineBatchAdaptorFactory(sourceConnector));
+        sourceConnector.getBatchAdaptorFactory().setDispatchWindow(processingThreads);
+
+        final RecordingResponseHandler[] responseHandlers = new RecordingResponseHandler[2];
+        final Exception[] errors = new Exception[2];
+        Thread[] threads = new Thread[2];
+
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        responseHandlers[index] = dispatchBatch(createBatch(50));
+                    } catch (Exception e) {
+                        errors[index] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertEquals(null, errors[i]);
+            assertEquals(50, responseHandlers[i].batchSequenceIds.size());
+
+            for (int j = 0; j < 50; j++) {
+                assertEquals(j + 1, (int) responseHandlers[i].batchSequenceIds.get(j));
+            }
+        }
+
+        assertEquals(processingThreads, processLock.availablePermits());
+        assertEquals(processingThreads, sourceConnector.getBatchAdaptorFactory().getDispatchPermits().availablePermits());
+    }
+
+    private RecordingResponseHandler dispatchBatch(String batch) throws Exception {
+        RecordingResponseHandler responseHandler = new RecordingResponseHandler();
+        assertTrue(sourceConnector.dispatchBatchMessage(new BatchRawMessage(new BatchMessageReader(batch), new HashMap<String, Object>()), responseHandler));
+        return responseHandler;
+    }
+
+    private String createBatch(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            builder.append("message ").append(i).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private void assertResponsesInOrder(RecordingResponseHandler responseHandler, int count) {
+        assertEquals(count, responseHandler.batchSequenceIds.size());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, (int) responseHandler.batchSequenceIds.get(i));
+            assertEquals(i == count - 1, responseHandler.batchComplete.get(i));
+        }
+    }
+
+    private void assertBatchIds(int count) {
+        assertEquals(count, dispatched.size());
+
+        for (RawMessage rawMessage : dispatched) {
+            Map<String, Object> sourceMap = rawMessage.getSourceMap();
+            int batchSequenceId = (Integer) sourceMap.get(Constants.BATCH_SEQUENCE_ID_KEY);
+
+            assertEquals("message " + batchSequenceId, rawMessage.getRawData());
+            assertEquals(batchSequenceId == count, sourceMap.get(Constants.BATCH_COMPLETE_KEY));
+
+            if (batchSequenceId > 1) {
+                assertEquals(1L, sourceMap.get(Constants.BATCH_ID_KEY));
+            }
+        }
+    }
+
+    private static class RecordingResponseHandler extends ResponseHandler {
+        private List<Integer> batchSequenceIds = new ArrayList<Integer>();
+        private List<Boolean> batchComplete = new ArrayList<Boolean>();
+        private int errors = 0;
+
+        @Override
+        public void responseProcess(int batchSequenceId, boolean batchComplete) throws Exception {
+            batchSequenceIds.add(batchSequenceId);
+            this.batchComplete.add(batchComplete);
+        }
+
+        @Override
+        public void responseError(ChannelException e) {
+            errors++;
+        }
+    }
+
+    private static class LineBatchAdaptorFactory extends BatchAdaptorFactory {
+
+        public LineBatchAdaptorFactory(SourceConnector sourceConnector) {
+            super(sourceConnector);
+        }
+
+        @Override
+        public BatchAdaptor createBatchAdaptor(BatchRawMessage batchRawMessage) {
+            final BufferedReader reader = new BufferedReader(((BatchMessageReader) batchRawMessage.getBatchMessageSource()).getReader());
+
+            return new BatchAdaptor(this, sourceConnector, batchRawMessage) {
+                @Override
+                protected String getNextMessage(int batchSequenceId) throws Exception {
+                    return reader.readLine();
+                }
+
+                @Override
+                public void cleanup() throws BatchMessageException {}
+            };
+        }
+
+        @Override
+        public void onDeploy() throws DeployException {}
+
+        @Override
+        public void onUndeploy() throws UndeployException {}
+    }
+}
@@ -10,7 +10,9 @@
 package com.mirth.connect.donkey.server.channel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -155,6 +157,54 @@ public class StatisticsTest {
         assertExistsAndEq(statisticAllowNegatives.getConnectorStats(CHANNEL_ID, null), KEY, -1L);
     }
 
+    @Test
+    public void drainTo_ShouldMoveValuesAndLeaveZero() {
+        statisticAllowNegatives.update(CHANNEL_ID, 0, Status.RECEIVED, null);
+        statisticAllowNegatives.update(CHANNEL_ID, CONNECTOR1_ID, KEY, null);
+        statisticAllowNegatives.update(CHANNEL_ID, CONNECTOR2_ID, null, KEY);
+
+        Statistics drained = new Statistics(false, true);
+        statisticAllowNegatives.drainTo(drained);
+
+        // the values, including the aggregate channel values, are moved as they are
+        assertExistsAndEq(drained.getConnectorStats(CHANNEL_ID, 0), Status.RECEIVED, 1L);
+        assertExistsAndEq(drained.getConnectorStats(CHANNEL_ID, CONNECTOR1_ID), KEY, 1L);
+        assertExistsAndEq(drained.getConnectorStats(CHANNEL_ID, CONNECTOR2_ID), KEY, -1L);
+        assertExistsAndEq(drained.getConnectorStats(CHANNEL_ID, null), Status.RECEIVED, 1L);
+        assertExistsAndEq(drained.getConnectorStats(CHANNEL_ID, null), KEY, 0L);
+        assertTrue(statisticAllowNegatives.isEmpty());
+        assertFalse(drained.isEmpty());
+
+        // draining back restores the original values
+        drained.drainTo(statisticAllowNegatives);
+        assertTrue(drained.isEmpty());
+        assertExistsAndEq(statisticAllowNegatives.getConnectorStats(CHANNEL_ID, CONNECTOR1_ID), KEY, 1L);
+        assertExistsAndEq(statisticAllowNegatives.getConnectorStats(CHANNEL_ID, null), Status.RECEIVED, 1L);
+    }
+
+    @Test
+    public void reset_ShouldKeepConnectors() {
+        statisticAllowNegatives.update(CHANNEL_ID, CONNECTOR1_ID, KEY, null);
+        statisticAllowNegatives.reset();
+
+        assertTrue(statisticAllowNegatives.isEmpty());
+        assertTrue(statisticAllowNegatives.getStats().get(CHANNEL_ID).containsKey(CONNECTOR1_ID));
+        assertExistsAndEq(statisticAllowNegatives.getConnectorStats(CHANNEL_ID, CONNECTOR1_ID), KEY, 0L);
+    }
+
+    @Test
+    public void updateFromStatistics_ShouldApplyConnectorDiffs() {
+        statisticNoNegativeValues.update(CHANNEL_ID, CONNECTOR1_ID, KEY, null);
+        statisticAllowNegatives.update(CHANNEL_ID, CONNECTOR1_ID, Status.SENT, KEY);
+
+        statisticNoNegativeValues.update(statisticAllowNegatives);
+
+        assertExistsAndEq(statisticNoNegativeValues.getConnectorStats(CHANNEL_ID, CONNECTOR1_ID), KEY, 0L);
+        assertExistsAndEq(statisticNoNegativeValues.getConnectorStats(CHANNEL_ID, CONNECTOR1_ID), Status.SENT, 1L);
+        assertExistsAndEq(statisticNoNegativeValues.getConnectorStats(CHANNEL_ID, null), KEY, 0L);
+        assertExistsAndEq(statisticNoNegativeValues.getConnectorStats(CHANNEL_ID, null), Status.SENT, 1L);
+    }
+
     private void assertExistsAndEq(final Map<Status, Long> STATS, final Status KEY, final long EXPECTED) {
         assertNotNull(STATS.get(KEY));
         assertEquals(EXPECTED, STATS.get(KEY).longValue());
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.buffered;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mirth.connect.donkey.model.message.ContentType;
+import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.attachment.Attachment;
+import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.data.DonkeyDaoException;
+import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
+import com.mirth.connect.donkey.util.SerializerProvider;
+
+public class GroupCommitWriterTest {
+    private static final String CHANNEL_ID = "testchannel";
+
+    private DonkeyDaoFactory daoFactory;
+    private SerializerProvider serializerProvider;
+    private List<DonkeyDao> daos;
+    private GroupCommitWriter writer;
+
+    @Before
+    public void before() {
+        daoFactory = mock(DonkeyDaoFactory.class);
+        serializerProvider = mock(SerializerProvider.class);
+        daos = new ArrayList<DonkeyDao>();
+
+        when(daoFactory.getDao(any(SerializerProvider.class))).thenAnswer(new Answer<DonkeyDao>() {
+            @Override
+            public DonkeyDao answer(InvocationOnMock invocation) throws Throwable {
+                DonkeyDao dao = mock(DonkeyDao.class);
+                synchronized (daos) {
+                    daos.add(dao);
+                }
+                return dao;
+            }
+        });
+    }
+
+    @After
+    public void after() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentCommitsAreGrouped() throws Exception {
+        writer = new GroupCommitWriter(1, 100);
+        writer.start();
+
+        // Hold up the first transaction so the other submissions queue up behind it
+        final CountDownLatch firstCommitStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+        final DonkeyDao blockingDao = mock(DonkeyDao.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                firstCommitStarted.countDown();
+                releaseFirstCommit.await();
+                return null;
+            }
+        }).when(blockingDao).commit();
+
+        final AtomicInteger daoCount = new AtomicInteger();
+        when(daoFactory.getDao(any(SerializerProvider.class))).thenAnswer(new Answer<DonkeyDao>() {
+            @Override
+            public DonkeyDao answer(InvocationOnMock invocation) throws Throwable {
+                DonkeyDao dao = daoCount.getAndIncrement() == 0 ? blockingDao : mock(DonkeyDao.class);
+                synchronized (daos) {
+                    daos.add(dao);
+                }
+                return dao;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            futures.add(submit(executor, 1));
+            assertTrue(firstCommitStarted.await(10, TimeUnit.SECONDS));
+
+            for (long messageId = 2; messageId <= 10; messageId++) {
+                futures.add(submit(executor, messageId));
+            }
+
+            // Give the other submissions time to queue up
+            Thread.sleep(200);
+            releaseFirstCommit.countDown();
+
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The first submission is written alone, the other nine together
+        assertEquals(2, daos.size());
+        verify(daos.get(1), times(9)).markAsProcessed(eq(CHANNEL_ID), anyLong());
+        verify(daos.get(1), times(1)).commit();
+        verify(daos.get(1), times(1)).close();
+    }
+
+    @Test
+    public void testFailedGroupIsRetriedIndividually() throws Exception {
+        writer = new GroupCommitWriter(1, 100);
+        writer.start();
+
+        // Hold up the writer with a transaction from another factory until everything is queued
+        final CountDownLatch releaseWriter = new CountDownLatch(1);
+        final DonkeyDaoFactory blockingDaoFactory = mock(DonkeyDaoFactory.class);
+        DonkeyDao blockingDao = mock(DonkeyDao.class);
+        when(blockingDaoFactory.getDao(any(SerializerProvider.class))).thenReturn(blockingDao);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                releaseWriter.await();
+                return null;
+            }
+        }).when(blockingDao).commit();
+
+        when(daoFactory.getDao(any(SerializerProvider.class))).thenAnswer(new Answer<DonkeyDao>() {
+            @Override
+            public DonkeyDao answer(InvocationOnMock invocation) throws Throwable {
+                DonkeyDao dao = mock(DonkeyDao.class);
+                doThrow(new DonkeyDaoException("test")).when(dao).markAsProcessed(CHANNEL_ID, 2L);
+                synchronized (daos) {
+                    daos.add(dao);
+                }
+                return dao;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> blocker = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    writer.execute(blockingDaoFactory, serializerProvider, false, false, false, true, null, null, markAsProcessed(0), null);
+                }
+            });
+            Thread.sleep(100);
+
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (long messageId = 1; messageId <= 3; messageId++) {
+                futures.add(submit(executor, messageId));
+                // Keep the submissions in order
+                Thread.sleep(50);
+            }
+
+            releaseWriter.countDown();
+            blocker.get(10, TimeUnit.SECONDS);
+
+            futures.get(0).get(10, TimeUnit.SECONDS);
+            futures.get(2).get(10, TimeUnit.SECONDS);
+
+            try {
+                futures.get(1).get(10, TimeUnit.SECONDS);
+                fail("Exception should have been thrown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof DonkeyDaoException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // One failed group transaction, then one transaction per submission
+        assertEquals(4, daos.size());
+        verify(daos.get(0), never()).commit();
+        verify(daos.get(0), times(1)).rollback();
+        verify(daos.get(1), times(1)).commit();
+        verify(daos.get(2), never()).commit();
+        verify(daos.get(2), times(1)).rollback();
+        verify(daos.get(3), times(1)).commit();
+    }
+
+    @Test
+    public void testStreamedAttachmentIsNotRetried() throws Exception {
+        writer = new GroupCommitWriter(1, 100);
+        writer.start();
+
+        // Hold up the writer until a failing group has queued up
+        final CountDownLatch releaseWriter = new CountDownLatch(1);
+        final DonkeyDaoFactory blockingDaoFactory = mock(DonkeyDaoFactory.class);
+        DonkeyDao blockingDao = mock(DonkeyDao.class);
+        when(blockingDaoFactory.getDao(any(SerializerProvider.class))).thenReturn(blockingDao);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                releaseWriter.await();
+                return null;
+            }
+        }).when(blockingDao).commit();
+
+        final List<byte[]> insertedAttachments = new ArrayList<byte[]>();
+        when(daoFactory.getDao(any(SerializerProvider.class))).thenAnswer(new Answer<DonkeyDao>() {
+            @Override
+            public DonkeyDao answer(InvocationOnMock invocation) throws Throwable {
+                DonkeyDao dao = mock(DonkeyDao.class);
+                doThrow(new DonkeyDaoException("test")).when(dao).markAsProcessed(CHANNEL_ID, 3L);
+                doAnswer(new Answer<Void>() {
+                    @Override
+                    public Void answer(InvocationOnMock invocation) throws Throwable {
+                        Attachment attachment = invocation.getArgument(2);
+                        synchronized (insertedAttachments) {
+                            insertedAttachments.add(IOUtils.toByteArray(attachment.getBinaryStream()));
+                        }
+                        return null;
+                    }
+                }).when(dao).insertMessageAttachment(eq(CHANNEL_ID), anyLong(), any(Attachment.class));
+                synchronized (daos) {
+                    daos.add(dao);
+                }
+                return dao;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> blocker = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    writer.execute(blockingDaoFactory, serializerProvider, false, false, false, true, null, null, markAsProcessed(0), null);
+                }
+            });
+            Thread.sleep(100);
+
+            final Attachment attachment = new Attachment();
+            attachment.setId("attachment");
+            attachment.setType("text/plain");
+            attachment.setBinaryStream(new ByteArrayInputStream("streamed".getBytes()));
+
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Queue<DaoTask> tasks = markAsProcessed(2);
+                    tasks.add(new DaoTask(DaoTaskType.INSERT_MESSAGE_ATTACHMENT, new Object[] {
+                            CHANNEL_ID, 2L, attachment }));
+                    writer.execute(daoFactory, serializerProvider, false, false, false, true, null, null, tasks, null);
+                }
+            }));
+            Thread.sleep(50);
+            futures.add(submit(executor, 3));
+            Thread.sleep(50);
+            futures.add(submit(executor, 4));
+            Thread.sleep(50);
+
+            releaseWriter.countDown();
+            blocker.get(10, TimeUnit.SECONDS);
+
+            futures.get(0).get(10, TimeUnit.SECONDS);
+            futures.get(2).get(10, TimeUnit.SECONDS);
+
+            try {
+                futures.get(1).get(10, TimeUnit.SECONDS);
+                fail("Exception should have been thrown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof DonkeyDaoException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The attachment was written once, in its own transaction, with all of its content
+        assertEquals(1, insertedAttachments.size());
+        assertArrayEquals("streamed".getBytes(), insertedAttachments.get(0));
+        verify(daos.get(0), times(1)).markAsProcessed(CHANNEL_ID, 2L);
+        verify(daos.get(0), times(1)).commit();
+
+        // The failed group did not contain it
+        for (int i = 1; i < daos.size(); i++) {
+            verify(daos.get(i), never()).insertMessageAttachment(anyString(), anyLong(), any(Attachment.class));
+        }
+    }
+
+    @Test
+    public void testConsecutiveContentInsertsAreBatched() throws Exception {
+        writer = new GroupCommitWriter(1, 100);
+
+        Queue<DaoTask> tasks = new LinkedList<DaoTask>();
+        tasks.add(new DaoTask(DaoTaskType.INSERT_MESSAGE_CONTENT, new Object[] { new MessageContent(CHANNEL_ID, 1, 0, ContentType.RAW, "raw", "HL7V2", false) }));
+        tasks.add(new DaoTask(DaoTaskType.INSERT_MESSAGE_CONTENT, new Object[] { new MessageContent(CHANNEL_ID, 1, 0, ContentType.ENCODED, "encoded", "HL7V2", false) }));
+        tasks.add(new DaoTask(DaoTaskType.MARK_AS_PROCESSED, new Object[] { CHANNEL_ID, 1L }));
+        writer.execute(daoFactory, serializerProvider, false, false, false, true, null, null, tasks, null);
+
+        assertTrue(tasks.isEmpty());
+        assertEquals(1, daos.size());
+        verify(daos.get(0), times(2)).batchInsertMessageContent(any(MessageContent.class));
+        verify(daos.get(0), times(1)).executeBatchInsertMessageContent(CHANNEL_ID);
+        verify(daos.get(0), never()).insertMessageContent(any(MessageContent.class));
+        verify(daos.get(0), times(1)).commit();
+    }
+
+    @Test
+    public void testChannelChangesAreNotGrouped() throws Exception {
+        writer = new GroupCommitWriter(1, 100);
+        writer.start();
+
+        Queue<DaoTask> tasks = new LinkedList<DaoTask>();
+        tasks.add(new DaoTask(DaoTaskType.CREATE_CHANNEL, new Object[] { CHANNEL_ID, 1L }));
+        writer.execute(daoFactory, serializerProvider, false, false, false, true, null, null, tasks, null);
+
+        assertEquals(1, daos.size());
+        verify(daos.get(0), times(1)).createChannel(CHANNEL_ID, 1L);
+        verify(daos.get(0), times(1)).commit();
+    }
+
+    private Future<?> submit(ExecutorService executor, final long messageId) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                writer.execute(daoFactory, serializerProvider, false, false, false, true, null, null, markAsProcessed(messageId), null);
+            }
+        });
+    }
+
+    private Queue<DaoTask> markAsProcessed(long messageId) {
+        Queue<DaoTask> tasks = new LinkedList<DaoTask>();
+        tasks.add(new DaoTask(DaoTaskType.MARK_AS_PROCESSED, new Object[] { CHANNEL_ID, messageId }));
+        return tasks;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.message.ContentType;
+import com.mirth.connect.donkey.server.data.index.MessageContentIndex.SearchResult;
+
+public class MessageContentIndexTest {
+    private static final String CHANNEL_ID = "testchannel";
+
+    private File directory;
+    private MessageContentIndex index;
+
+    @Before
+    public void before() throws Exception {
+        directory = Files.createTempDirectory("contentindex").toFile();
+        index = new MessageContentIndex(directory, 1000);
+        index.start();
+    }
+
+    @After
+    public void after() {
+        index.stop();
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        store(1, ContentType.RAW, "MSH|^~\\&|ADT1|GOOD HEALTH HOSPITAL\rPID|1||PATID1234");
+        store(2, ContentType.RAW, "MSH|^~\\&|LAB|GOOD HEALTH HOSPITAL\rPID|1||PATID5678");
+        store(3, ContentType.SENT, "PATID1234 was sent");
+
+        assertResult(search(ContentType.RAW, "PATID1234"), 1);
+        assertResult(search(ContentType.RAW, "good health"), 1, 2);
+        assertResult(search(ContentType.RAW, "Good Health", "5678"), 2);
+        assertResult(search(ContentType.RAW, "not there"));
+        assertResult(search(null, "patid1234"), 1, 3);
+
+        // Only the parts between wildcards are looked up
+        assertResult(search(ContentType.RAW, "ADT%HOSPITAL"), 1);
+        assertResult(search(ContentType.RAW, "PATID_234"), 1);
+
+        // Nothing long enough to narrow the search down
+        assertNull(search(ContentType.RAW, "AD"));
+        assertNull(search(ContentType.RAW, "AD%T1"));
+        assertNull(index.search("otherchannel", null, Collections.singletonList("PATID"), 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testCoverage() throws Exception {
+        // Content of messages that were not created while the index was running is ignored
+        index.contentStored(CHANNEL_ID, 4, ContentType.RAW, "before coverage");
+        assertNull(search(ContentType.RAW, "before"));
+
+        store(5, ContentType.RAW, "first message");
+        index.contentStored(CHANNEL_ID, 4, ContentType.RAW, "before coverage");
+
+        SearchResult result = search(ContentType.RAW, "message");
+        assertEquals(5, result.getFirstMessageId());
+        assertResult(result, 5);
+        assertResult(search(ContentType.RAW, "coverage"));
+
+        // Messages outside of the searched range are not returned
+        store(6, ContentType.RAW, "second message");
+        assertResult(index.search(CHANNEL_ID, ContentType.RAW.getContentTypeCode(), Collections.singletonList("message"), 6, 10), 6);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        ChannelContentIndex channel = new ChannelContentIndex(CHANNEL_ID, new File(directory, "invalidate"));
+        channel.messageCreated(10);
+        channel.messageCreated(12);
+        channel.messageCreated(11);
+        assertEquals(10, channel.getFirstMessageId());
+
+        channel.invalidate();
+        assertEquals(13, channel.getFirstMessageId());
+        assertFalse(channel.isCovered(12));
+        assertTrue(channel.isCovered(13));
+
+        // Clearing the channel starts the coverage after the messages created so far
+        channel.clear();
+        assertFalse(channel.isCovered(13));
+        channel.messageCreated(5);
+        assertEquals(13, channel.getFirstMessageId());
+    }
+
+    @Test
+    public void testRemoveAllMessages() throws Exception {
+        store(1, ContentType.RAW, "some content");
+        index.removeAllMessages(CHANNEL_ID);
+        assertNull(search(ContentType.RAW, "content"));
+
+        store(2, ContentType.RAW, "other content");
+        SearchResult result = search(ContentType.RAW, "content");
+        assertEquals(2, result.getFirstMessageId());
+        assertResult(result, 2);
+
+        index.removeChannel(CHANNEL_ID);
+        assertNull(search(ContentType.RAW, "content"));
+        assertFalse(new File(directory, CHANNEL_ID).exists());
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        store(1, ContentType.RAW, "persisted content");
+        index.stop();
+
+        index = new MessageContentIndex(directory, 1000);
+        index.start();
+        store(2, ContentType.RAW, "new content");
+
+        SearchResult result = search(ContentType.RAW, "content");
+        assertEquals(1, result.getFirstMessageId());
+        assertResult(result, 1, 2);
+    }
+
+    @Test
+    public void testNotClosedProperly() throws Exception {
+        store(1, ContentType.RAW, "some content");
+        search(ContentType.RAW, "content");
+
+        // Start a second index on the same directory without stopping the first one
+        MessageContentIndex restarted = new MessageContentIndex(directory, 1000);
+        restarted.start();
+
+        try {
+            assertNull(restarted.search(CHANNEL_ID, null, Collections.singletonList("content"), 0, Long.MAX_VALUE));
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        File channelDirectory = new File(directory, "merge");
+        ChannelContentIndex channel = new ChannelContentIndex(CHANNEL_ID, channelDirectory);
+        channel.messageCreated(1);
+
+        for (int segment = 0; segment < 5; segment++) {
+            for (int i = 1; i <= 10; i++) {
+                long messageId = segment * 10 + i;
+                channel.add(messageId, ContentType.RAW.getContentTypeCode(), "message " + messageId + " segment " + segment);
+            }
+            channel.flush();
+        }
+
+        assertTrue(channel.isMergeNeeded(4, 0));
+        channel.removeMessages(3, 5);
+        channel.removeMessages(40, 40);
+        channel.removeMessages(41, 45);
+
+        ChannelContentIndex.Merge merge = channel.prepareMerge();
+        channel.completeMerge(merge, channel.merge(merge));
+        assertFalse(channel.isMergeNeeded(4, 0));
+
+        int[] raw = new int[] { ContentType.RAW.getContentTypeCode() };
+        LongList messages = channel.search(raw, Collections.singletonList("message"), 0, Long.MAX_VALUE);
+        assertEquals(50 - 3 - 6, messages.size());
+        assertEquals(0, channel.search(raw, Collections.singletonList("message 4 "), 0, Long.MAX_VALUE).size());
+        assertEquals(Arrays.asList(46L, 47L, 48L, 49L, 50L), toList(channel.search(raw, Arrays.asList("segment 4"), 0, Long.MAX_VALUE)));
+
+        assertEquals(1, channelDirectory.listFiles().length);
+        channel.close();
+    }
+
+    @Test
+    public void testMatchesAllContaining() throws Exception {
+        Random random = new Random(1234);
+        String alphabet = "abcABC|^~&\r \u00e9\u00c9";
+        List<String> contents = new ArrayList<String>();
+
+        for (int messageId = 1; messageId <= 300; messageId++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(40);
+
+            for (int i = 0; i < length; i++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            contents.add(builder.toString());
+            store(messageId, ContentType.RAW, builder.toString());
+        }
+
+        for (int i = 0; i < 500; i++) {
+            String content = contents.get(random.nextInt(contents.size()));
+            if (content.length() < 3) {
+                continue;
+            }
+
+            int start = random.nextInt(content.length() - 2);
+            String search = content.substring(start, start + 3 + random.nextInt(content.length() - start - 2));
+            SearchResult result = search(ContentType.RAW, random.nextBoolean() ? search.toUpperCase() : search);
+            assertNotNull(search, result);
+
+            for (int messageId = 1; messageId <= contents.size(); messageId++) {
+                if (contents.get(messageId - 1).toLowerCase().contains(search.toLowerCase())) {
+                    assertTrue(search, result.contains(messageId));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexableStrings() throws Exception {
+        assertEquals(Arrays.asList("abc"), MessageContentIndex.getIndexableStrings("abc"));
+        assertEquals(Arrays.asList("abcd", "efg"), MessageContentIndex.getIndexableStrings("%abcd%ef%efg_"));
+        assertEquals(Arrays.asList("abc", "def"), MessageContentIndex.getIndexableStrings("abc\\%def[x]"));
+        assertEquals(Collections.emptyList(), MessageContentIndex.getIndexableStrings("ab_cd"));
+    }
+
+    private void store(long messageId, ContentType contentType, String content) {
+        index.messageCreated(CHANNEL_ID, messageId);
+        index.contentStored(CHANNEL_ID, messageId, contentType, content);
+    }
+
+    private SearchResult search(ContentType contentType, String... searches) {
+        return index.search(CHANNEL_ID, contentType != null ? contentType.getContentTypeCode() : null, Arrays.asList(searches), 0, Long.MAX_VALUE);
+    }
+
+    private void assertResult(SearchResult result, long... messageIds) {
+        assertNotNull(result);
+        assertEquals(messageIds.length, result.size());
+
+        for (long messageId : messageIds) {
+            assertTrue(result.contains(messageId));
+        }
+    }
+
+    private List<Long> toList(LongList list) {
+        List<Long> values = new ArrayList<Long>();
+        for (int i = 0; i < list.size(); i++) {
+            values.add(list.get(i));
+        }
+        return values;
+    }
+}
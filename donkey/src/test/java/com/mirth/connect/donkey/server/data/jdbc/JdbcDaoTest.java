@@ -9,17 +9,23 @@
 
 package com.mirth.connect.donkey.server.data.jdbc;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
@@ -27,6 +33,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,13 +41,16 @@ import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import com.mirth.connect.donkey.model.channel.MetaDataColumn;
+import com.mirth.connect.donkey.model.message.Message;
 import com.mirth.connect.donkey.model.message.attachment.Attachment;
 import com.mirth.connect.donkey.server.Donkey;
 import com.mirth.connect.donkey.server.channel.Channel;
 import com.mirth.connect.donkey.server.channel.Statistics;
 import com.mirth.connect.donkey.server.data.StatisticsUpdater;
+import com.mirth.connect.donkey.server.data.index.MessageContentIndex;
 import com.mirth.connect.donkey.util.SerializerProvider;
 
 public class JdbcDaoTest {
@@ -387,6 +397,124 @@ public class JdbcDaoTest {
         verify(deleteStatement, times(0)).executeUpdate();
     }
 
+    // Test with streamed attachment data spanning several segments
+    @Test
+    public void testInsertStreamedMessageAttachment() throws Exception {
+        String channelId = "testchannel";
+        long messageId = 1;
+        int chunkSize = 10000000;
+
+        byte[] content = new byte[chunkSize * 2 + 5];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Attachment attachment = new Attachment("testattachment", null, "text/plain");
+        attachment.setBinaryStream(new ByteArrayInputStream(content));
+
+        PreparedStatement insertStatement = mock(PreparedStatement.class);
+        JdbcDao dao = getDao(channelId, mock(ResultSet.class), mock(PreparedStatement.class), mock(PreparedStatement.class), insertStatement, mock(PreparedStatement.class));
+
+        dao.insertMessageAttachment(channelId, messageId, attachment);
+
+        verify(insertStatement, times(1)).setString(1, attachment.getId());
+        verify(insertStatement, times(1)).setLong(2, messageId);
+        verify(insertStatement, times(1)).setString(3, attachment.getType());
+        verify(insertStatement, times(1)).setString(7, null);
+
+        verify(insertStatement, times(1)).setInt(4, 1);
+        verify(insertStatement, times(1)).setInt(4, 2);
+        verify(insertStatement, times(1)).setInt(4, 3);
+        verify(insertStatement, times(2)).setInt(5, chunkSize);
+        verify(insertStatement, times(1)).setInt(5, 5);
+        verify(insertStatement, times(3)).executeUpdate();
+
+        ArgumentCaptor<byte[]> segments = ArgumentCaptor.forClass(byte[].class);
+        verify(insertStatement, times(3)).setBytes(eq(6), segments.capture());
+        assertArrayEquals(Arrays.copyOfRange(content, 0, chunkSize), segments.getAllValues().get(0));
+        assertArrayEquals(Arrays.copyOfRange(content, chunkSize, chunkSize * 2), segments.getAllValues().get(1));
+        assertArrayEquals(Arrays.copyOfRange(content, chunkSize * 2, content.length), segments.getAllValues().get(2));
+
+        assertFalse(attachment.hasBinaryStream());
+    }
+
+    // Test with streamed attachment data that fills exactly one segment
+    @Test
+    public void testInsertStreamedMessageAttachmentOneSegment() throws Exception {
+        String channelId = "testchannel";
+        long messageId = 1;
+        int chunkSize = 10000000;
+
+        byte[] content = new byte[chunkSize];
+        Arrays.fill(content, (byte) 'a');
+        Attachment attachment = new Attachment("testattachment", null, "text/plain");
+        attachment.setBinaryStream(new ByteArrayInputStream(content));
+
+        PreparedStatement insertStatement = mock(PreparedStatement.class);
+        JdbcDao dao = getDao(channelId, mock(ResultSet.class), mock(PreparedStatement.class), mock(PreparedStatement.class), insertStatement, mock(PreparedStatement.class));
+
+        dao.insertMessageAttachment(channelId, messageId, attachment);
+
+        // No empty trailing segment is inserted
+        verify(insertStatement, times(1)).setInt(4, 1);
+        verify(insertStatement, never()).setInt(4, 2);
+        verify(insertStatement, times(1)).setInt(5, chunkSize);
+        verify(insertStatement, times(1)).setBytes(6, content);
+        verify(insertStatement, times(1)).executeUpdate();
+    }
+
+    @Test
+    public void testMessageIdBlockReservedAfterCommit() throws Exception {
+        String channelId = "testchannel";
+        JdbcDaoFactory daoFactory = mock(JdbcDaoFactory.class);
+
+        JdbcDao dao = spy(this.dao);
+        dao.setMessageIdAllocator(new MessageIdBlockAllocator(daoFactory, 10));
+        doReturn(5L).when(dao).reserveMessageIds(channelId, 1);
+        doReturn(6L).when(dao).reserveMessageIds(channelId, 10);
+
+        // Without a reserved block, the ID is taken in the current transaction
+        assertEquals(5L, dao.getNextMessageId(channelId));
+        verify(dao, never()).reserveMessageIds(channelId, 10);
+
+        // The block is reserved on the same connection once the transaction is committed
+        dao.commit();
+        verify(dao, times(1)).reserveMessageIds(channelId, 10);
+        verify(connection, times(2)).commit();
+        assertEquals(6L, dao.getNextMessageId(channelId));
+        assertEquals(7L, dao.getNextMessageId(channelId));
+
+        // No second connection is ever borrowed
+        verify(daoFactory, never()).getDao();
+    }
+
+    @Test
+    public void testContentIndexIsUpdatedOnCommit() throws Exception {
+        String channelId = "testchannel";
+        MessageContentIndex contentIndex = mock(MessageContentIndex.class);
+        when(donkey.getContentIndex()).thenReturn(contentIndex);
+
+        JdbcDao dao = spy(this.dao);
+        doReturn(mock(PreparedStatement.class)).when(dao).prepareStatement(eq("insertMessage"), eq(channelId));
+
+        Message message = new Message();
+        message.setChannelId(channelId);
+        message.setMessageId(1L);
+        message.setServerId("testserver");
+        message.setReceivedDate(Calendar.getInstance());
+
+        // Nothing is indexed for a transaction that is rolled back
+        dao.insertMessage(message);
+        dao.rollback();
+        dao.commit();
+        verify(contentIndex, never()).messageCreated(anyString(), anyLong());
+
+        // The same tasks executed again are only indexed once they are committed
+        dao.insertMessage(message);
+        verify(contentIndex, never()).messageCreated(anyString(), anyLong());
+        dao.commit();
+        verify(contentIndex, times(1)).messageCreated(channelId, 1L);
+    }
+
     private JdbcDao getDao(String channelId, ResultSet segmentCountResult, PreparedStatement segmentCountStatement, PreparedStatement updateStatement, PreparedStatement insertStatement, PreparedStatement deleteStatement) throws Exception {
         Donkey donkey = mock(Donkey.class);
         Connection connection = mock(Connection.class);
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mirth.connect.donkey.server.data.DonkeyDaoException;
+
+public class MessageIdBlockAllocatorTest {
+    private static final String CHANNEL_ID = "testchannel";
+
+    private JdbcDaoFactory daoFactory;
+    private JdbcDao dao;
+    private AtomicLong sequence;
+
+    @Before
+    public void before() {
+        daoFactory = mock(JdbcDaoFactory.class);
+        dao = mock(JdbcDao.class);
+        sequence = new AtomicLong(1);
+
+        when(daoFactory.getDao()).thenReturn(dao);
+        when(dao.reserveMessageIds(anyString(), anyInt())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+                return sequence.getAndAdd((Integer) invocation.getArgument(1));
+            }
+        });
+    }
+
+    @Test
+    public void testIdsHandedOutFromBlock() {
+        MessageIdBlockAllocator allocator = new MessageIdBlockAllocator(daoFactory, 5);
+
+        for (long expected = 1; expected <= 12; expected++) {
+            assertEquals(expected, allocator.getNextMessageId(CHANNEL_ID));
+        }
+
+        // 12 IDs with a block size of 5 should need 3 reservations, each committed on its own
+        verify(dao, times(3)).reserveMessageIds(CHANNEL_ID, 5);
+        verify(dao, times(3)).commit();
+        verify(dao, times(3)).close();
+    }
+
+    @Test
+    public void testInvalidateSkipsRemainingIds() {
+        MessageIdBlockAllocator allocator = new MessageIdBlockAllocator(daoFactory, 10);
+
+        assertEquals(1, allocator.getNextMessageId(CHANNEL_ID));
+        allocator.invalidate(CHANNEL_ID);
+        assertEquals(11, allocator.getNextMessageId(CHANNEL_ID));
+    }
+
+    @Test
+    public void testBlockReservedOnGivenDao() {
+        MessageIdBlockAllocator allocator = new MessageIdBlockAllocator(daoFactory, 5);
+        assertNull(allocator.getReservedMessageId(CHANNEL_ID));
+
+        JdbcDao connectionDao = mock(JdbcDao.class);
+        when(connectionDao.reserveMessageIds(CHANNEL_ID, 5)).thenReturn(20L);
+        allocator.reserveBlock(CHANNEL_ID, connectionDao);
+
+        // The block is committed on the given connection, which stays open for its owner
+        verify(connectionDao, times(1)).commit();
+        verify(connectionDao, never()).close();
+        verify(daoFactory, never()).getDao();
+
+        for (long expected = 20; expected < 25; expected++) {
+            assertEquals(Long.valueOf(expected), allocator.getReservedMessageId(CHANNEL_ID));
+        }
+        assertNull(allocator.getReservedMessageId(CHANNEL_ID));
+    }
+
+    @Test
+    public void testBlockNotReservedTwice() {
+        MessageIdBlockAllocator allocator = new MessageIdBlockAllocator(daoFactory, 5);
+        assertEquals(1, allocator.getNextMessageId(CHANNEL_ID));
+
+        // Another thread already reserved a block that still has IDs left
+        JdbcDao connectionDao = mock(JdbcDao.class);
+        allocator.reserveBlock(CHANNEL_ID, connectionDao);
+
+        verify(connectionDao, never()).reserveMessageIds(anyString(), anyInt());
+        assertEquals(Long.valueOf(2), allocator.getReservedMessageId(CHANNEL_ID));
+    }
+
+    @Test
+    public void testFailedReservationIsRolledBack() {
+        MessageIdBlockAllocator allocator = new MessageIdBlockAllocator(daoFactory, 10);
+        when(dao.reserveMessageIds(anyString(), anyInt())).thenThrow(new DonkeyDaoException("test"));
+
+        try {
+            allocator.getNextMessageId(CHANNEL_ID);
+            fail("Exception should have been thrown");
+        } catch (DonkeyDaoException e) {
+        }
+
+        verify(dao, times(1)).rollback();
+        verify(dao, times(1)).close();
+    }
+
+    @Test
+    public void testConcurrentIdsAreUnique() throws Exception {
+        final MessageIdBlockAllocator allocator = new MessageIdBlockAllocator(daoFactory, 7);
+        final int threads = 8;
+        final int idsPerThread = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Long>>> futures = new ArrayList<Future<List<Long>>>();
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() throws Exception {
+                        List<Long> ids = new ArrayList<Long>();
+                        for (int j = 0; j < idsPerThread; j++) {
+                            ids.add(allocator.getNextMessageId(CHANNEL_ID));
+                        }
+                        return ids;
+                    }
+                }));
+            }
+
+            Set<Long> ids = new HashSet<Long>();
+            for (Future<List<Long>> future : futures) {
+                List<Long> threadIds = future.get();
+
+                // IDs handed out to a single thread are always increasing
+                List<Long> sortedIds = new ArrayList<Long>(threadIds);
+                Collections.sort(sortedIds);
+                assertEquals(sortedIds, threadIds);
+
+                ids.addAll(threadIds);
+            }
+
+            assertEquals(threads * idsPerThread, ids.size());
+            assertTrue(Collections.max(ids) < sequence.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
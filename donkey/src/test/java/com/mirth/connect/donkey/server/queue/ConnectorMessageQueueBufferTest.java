@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.Status;
+
+public class ConnectorMessageQueueBufferTest {
+
+    @Test
+    public void testMessagesPolledInInsertionOrder() {
+        ConnectorMessageQueueBuffer buffer = new ConnectorMessageQueueBuffer();
+
+        // Insertion order wins over message ID order
+        buffer.put(createMessage(3), 0);
+        buffer.put(createMessage(1), 0);
+        buffer.put(createMessage(2), 0);
+        assertEquals(3, buffer.size());
+
+        assertEquals(3L, buffer.poll(0).getMessageId());
+        assertEquals(1L, buffer.poll(0).getMessageId());
+        assertEquals(2L, buffer.poll(0).getMessageId());
+        assertNull(buffer.poll(0));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testBucketsArePolledIndependently() {
+        ConnectorMessageQueueBuffer buffer = new ConnectorMessageQueueBuffer(2);
+
+        buffer.put(createMessage(1), 1);
+        buffer.put(createMessage(2), 0);
+        buffer.put(createMessage(3), 1);
+
+        assertEquals(2L, buffer.poll(0).getMessageId());
+        assertNull(buffer.poll(0));
+        assertEquals(1L, buffer.poll(1).getMessageId());
+        assertEquals(3L, buffer.poll(1).getMessageId());
+        assertNull(buffer.poll(1));
+    }
+
+    @Test
+    public void testPutExistingMessageKeepsPosition() {
+        ConnectorMessageQueueBuffer buffer = new ConnectorMessageQueueBuffer();
+        ConnectorMessage replacement = createMessage(1);
+
+        buffer.put(createMessage(1), 0);
+        buffer.put(createMessage(2), 0);
+        buffer.put(replacement, 0);
+        assertEquals(2, buffer.size());
+
+        assertSame(replacement, buffer.poll(0));
+        assertEquals(2L, buffer.poll(0).getMessageId());
+    }
+
+    @Test
+    public void testReplaceOnlyExistingMessages() {
+        ConnectorMessageQueueBuffer buffer = new ConnectorMessageQueueBuffer();
+        ConnectorMessage replacement = createMessage(1);
+
+        assertFalse(buffer.replace(replacement));
+        assertTrue(buffer.isEmpty());
+
+        buffer.put(createMessage(1), 0);
+        assertTrue(buffer.replace(replacement));
+        assertSame(replacement, buffer.poll(0));
+        assertFalse(buffer.replace(replacement));
+    }
+
+    @Test
+    public void testRemovedMessagesAreSkipped() {
+        ConnectorMessageQueueBuffer buffer = new ConnectorMessageQueueBuffer();
+
+        buffer.put(createMessage(1), 0);
+        buffer.put(createMessage(2), 0);
+        buffer.put(createMessage(3), 0);
+
+        assertEquals(2L, buffer.remove(2L).getMessageId());
+        assertNull(buffer.remove(2L));
+        assertFalse(buffer.containsKey(2L));
+        assertEquals(2, buffer.size());
+
+        assertEquals(1L, buffer.poll(0).getMessageId());
+        assertEquals(3L, buffer.poll(0).getMessageId());
+        assertNull(buffer.poll(0));
+
+        // A removed message can be added again
+        buffer.put(createMessage(2), 0);
+        assertEquals(2L, buffer.poll(0).getMessageId());
+    }
+
+    @Test
+    public void testClear() {
+        ConnectorMessageQueueBuffer buffer = new ConnectorMessageQueueBuffer(2);
+
+        buffer.put(createMessage(1), 0);
+        buffer.put(createMessage(2), 1);
+        buffer.clear();
+
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll(0));
+        assertNull(buffer.poll(1));
+    }
+
+    @Test
+    public void testConcurrentPollsReturnEachMessageOnce() throws Exception {
+        final ConnectorMessageQueueBuffer buffer = new ConnectorMessageQueueBuffer();
+        final int messages = 10000;
+        final int threads = 8;
+
+        for (long messageId = 1; messageId <= messages; messageId++) {
+            buffer.put(createMessage(messageId), 0);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Long>>> futures = new ArrayList<Future<List<Long>>>();
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() throws Exception {
+                        List<Long> messageIds = new ArrayList<Long>();
+                        ConnectorMessage connectorMessage;
+
+                        while ((connectorMessage = buffer.poll(0)) != null) {
+                            messageIds.add(connectorMessage.getMessageId());
+                        }
+
+                        return messageIds;
+                    }
+                }));
+            }
+
+            Set<Long> messageIds = new HashSet<Long>();
+            int total = 0;
+
+            for (Future<List<Long>> future : futures) {
+                List<Long> threadMessageIds = future.get();
+                messageIds.addAll(threadMessageIds);
+                total += threadMessageIds.size();
+            }
+
+            assertEquals(messages, total);
+            assertEquals(messages, messageIds.size());
+            assertTrue(buffer.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ConnectorMessage createMessage(long messageId) {
+        return new ConnectorMessage("testchannel", "Test Channel", messageId, 1, "testserver", Calendar.getInstance(), Status.QUEUED);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.queue;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ConnectorMessageQueueSignalTest {
+
+    @Test
+    public void testAwaitTimesOutWithoutSignal() throws Exception {
+        SourceQueue queue = new SourceQueue();
+        long sequence = queue.getAvailableSequence();
+
+        long start = System.nanoTime();
+        assertFalse(queue.awaitAvailable(sequence, 50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testSignalBeforeAwaitIsNotMissed() throws Exception {
+        SourceQueue queue = new SourceQueue();
+        long sequence = queue.getAvailableSequence();
+
+        // A message added between reading the sequence and waiting must still wake the waiter
+        queue.signalAvailable();
+
+        long start = System.nanoTime();
+        assertTrue(queue.awaitAvailable(sequence, 10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testSignalWakesWaiters() throws Exception {
+        final SourceQueue queue = new SourceQueue();
+        final long sequence = queue.getAvailableSequence();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Callable<Boolean> waiter = new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return queue.awaitAvailable(sequence, 10, TimeUnit.SECONDS);
+                }
+            };
+
+            Future<Boolean> first = executor.submit(waiter);
+            Future<Boolean> second = executor.submit(waiter);
+
+            Thread.sleep(100);
+            long start = System.nanoTime();
+            queue.signalAvailable();
+
+            assertTrue(first.get(1, TimeUnit.SECONDS));
+            assertTrue(second.get(1, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.message.InvalidMapValue;
+import com.mirth.connect.donkey.util.xstream.SerializerException;
+import com.mirth.connect.donkey.util.xstream.XStreamSerializer;
+
+public class CompactMapFormatTest {
+
+    private Serializer serializer = new XStreamSerializer();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<String> list = new ArrayList<String>();
+        list.add("a");
+        list.add("b");
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("string", "value with : colons\nand 12: digits");
+        map.put("empty", "");
+        map.put("", "empty key");
+        map.put("integer", 12);
+        map.put("long", 1234567890123L);
+        map.put("double", 1.5);
+        map.put("boolean", true);
+        map.put("null", null);
+        map.put("list", list);
+        map.put("unicode", "é中😀");
+
+        String serialized = MapUtil.serializeMapCompact(serializer, map);
+        assertTrue(CompactMapFormat.isCompact(serialized));
+
+        // Plain values are stored as text so content searches can still find them
+        assertTrue(serialized.contains("value with : colons"));
+
+        Map<String, Object> deserialized = MapUtil.deserializeMap(serializer, serialized);
+        assertEquals(map, deserialized);
+        assertEquals(Integer.class, deserialized.get("integer").getClass());
+        assertEquals(Long.class, deserialized.get("long").getClass());
+        assertTrue(deserialized.containsKey("null"));
+    }
+
+    @Test
+    public void testSmallerThanXml() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i < 12; i++) {
+            map.put("key" + i, "value" + i);
+        }
+
+        String compact = MapUtil.serializeMapCompact(serializer, map);
+        String xml = MapUtil.serializeMap(serializer, map);
+
+        assertTrue(compact.length() * 2 < xml.length());
+        assertEquals(MapUtil.deserializeMap(serializer, xml), MapUtil.deserializeMap(serializer, compact));
+    }
+
+    @Test
+    public void testReadsXmlMaps() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("key", "value");
+        map.put("count", 3);
+
+        String xml = MapUtil.serializeMap(serializer, map);
+        assertFalse(CompactMapFormat.isCompact(xml));
+        assertEquals(map, MapUtil.deserializeMap(serializer, xml));
+    }
+
+    @Test
+    public void testInvalidValues() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("invalid", new InvalidMapValue("<com.example.Missing><a>1</a></com.example.Missing>"));
+
+        Map<String, Object> deserialized = MapUtil.deserializeMap(serializer, MapUtil.serializeMapCompact(serializer, map));
+        assertEquals(InvalidMapValue.class, deserialized.get("invalid").getClass());
+        assertEquals("<com.example.Missing><a>1</a></com.example.Missing>", ((InvalidMapValue) deserialized.get("invalid")).getValueXML());
+    }
+
+    @Test
+    public void testNullKeyUsesXml() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(null, "value");
+
+        assertFalse(CompactMapFormat.isCompact(MapUtil.serializeMapCompact(serializer, map)));
+    }
+
+    @Test(expected = SerializerException.class)
+    public void testTruncatedContent() throws Exception {
+        MapUtil.deserializeMap(serializer, CompactMapFormat.HEADER + "S3:key10:short");
+    }
+}
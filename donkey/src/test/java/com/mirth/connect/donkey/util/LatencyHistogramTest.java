@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() throws Exception {
+        long previousIndex = -1;
+
+        for (long value = 0; value < 1000000; value++) {
+            int index = LatencyHistogram.getBucketIndex(value);
+            assertTrue(index == previousIndex || index == previousIndex + 1);
+            assertTrue(LatencyHistogram.getBucketLowestValue(index) <= value);
+            assertTrue(LatencyHistogram.getBucketHighestValue(index) >= value);
+
+            // Each bucket is at most 1/16 of its lowest value wide
+            long width = LatencyHistogram.getBucketHighestValue(index) - LatencyHistogram.getBucketLowestValue(index) + 1;
+            assertTrue(width == 1 || width * 16 <= LatencyHistogram.getBucketLowestValue(index));
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Long> values = new ArrayList<Long>();
+        Random random = new Random(1234);
+
+        for (int i = 0; i < 10000; i++) {
+            long value = (long) (Math.exp(random.nextDouble() * 14));
+            values.add(value);
+            histogram.record(value);
+        }
+
+        Collections.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(values.get(values.size() - 1).longValue(), snapshot.getMax());
+
+        for (double percentile : new double[] { 50, 90, 99, 99.9, 100 }) {
+            long expected = values.get((int) Math.ceil(values.size() * percentile / 100) - 1);
+            long actual = snapshot.getPercentile(percentile);
+            assertTrue(percentile + ": " + actual + " < " + expected, actual >= expected);
+            assertTrue(percentile + ": " + actual + " > " + expected, actual <= expected + expected / 16 + 1);
+        }
+
+        histogram.reset();
+        assertEquals(0, histogram.getSnapshot().getPercentile(50));
+    }
+
+    @Test
+    public void testConcurrentActionTimer() throws Exception {
+        final ActionTimer timer = new ActionTimer();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int j = 0; j < 10000; j++) {
+                        timer.log("event" + (j % 3), 1);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80000, timer.getTotalCount());
+        assertEquals(80000, timer.getTotalTime());
+        assertEquals(26672, timer.getCounts().get("event0").intValue());
+        assertEquals(1000, timer.getHistogram("event1").getSnapshot().getPercentile(99));
+    }
+}
@@ -97,6 +97,7 @@ import com.mirth.connect.model.ChannelTag;
 import com.mirth.connect.model.ConnectorMetaData;
 import com.mirth.connect.model.DashboardChannelInfo;
 import com.mirth.connect.model.DashboardStatus;
+import com.mirth.connect.model.DashboardStatusChanges;
 import com.mirth.connect.model.DatabaseTask;
 import com.mirth.connect.model.DriverInfo;
 import com.mirth.connect.model.EncryptionSettings;
@@ -113,6 +114,7 @@ import com.mirth.connect.model.ServerEvent;
 import com.mirth.connect.model.ServerEvent.Level;
 import com.mirth.connect.model.ServerEvent.Outcome;
 import com.mirth.connect.model.ServerSettings;
+import com.mirth.connect.model.StageLatency;
 import com.mirth.connect.model.UpdateSettings;
 import com.mirth.connect.model.User;
 import com.mirth.connect.model.alert.AlertInfo;
@@ -1281,6 +1283,18 @@ public class Client implements UserServletInterface, ConfigurationServletInterfa
         return getServlet(ChannelStatusServletInterface.class).getChannelStatusListPost(channelIds, filter, includeUndeployed);
     }
 
+    /**
+     * Returns the dashboard statuses of the channels that changed after the given status version,
+     * waiting up to the given timeout for a change. The returned version is passed in the next
+     * request.
+     * 
+     * @see ChannelStatusServletInterface#getChannelStatusChanges
+     */
+    @Override
+    public DashboardStatusChanges getChannelStatusChanges(long since, long timeout, String filter) throws ClientException {
+        return getServlet(ChannelStatusServletInterface.class).getChannelStatusChanges(since, timeout, filter);
+    }
+
     /**
      * Starts the channel with the specified ID.
      * 
@@ -1619,6 +1633,16 @@ public class Client implements UserServletInterface, ConfigurationServletInterfa
         return getServlet(ChannelStatisticsServletInterface.class).getStatistics(channelId);
     }
 
+    /**
+     * Returns the latency percentiles of each processing stage of a deployed channel.
+     * 
+     * @see ChannelStatisticsServletInterface#getLatencies
+     */
+    @Override
+    public List<StageLatency> getLatencies(String channelId) throws ClientException {
+        return getServlet(ChannelStatisticsServletInterface.class).getLatencies(channelId);
+    }
+
     /**
      * Clears the statistics for the given channels and/or connectors.
      * 
@@ -38,6 +38,7 @@ import com.mirth.connect.client.core.api.BaseServletInterface;
 import com.mirth.connect.client.core.api.MirthOperation;
 import com.mirth.connect.client.core.api.Param;
 import com.mirth.connect.model.ChannelStatistics;
+import com.mirth.connect.model.StageLatency;
 
 @Path("/channels")
 @Tag(name = "Channel Statistics")
@@ -88,6 +89,12 @@ public interface ChannelStatisticsServletInterface extends BaseServletInterface
     @MirthOperation(name = "getStatistics", display = "Get statistics", permission = Permissions.DASHBOARD_VIEW, auditable = false)
     public ChannelStatistics getStatistics(@Param("channelId") @Parameter(description = "The ID of the channel to retrieve statistics for.", required = true) @PathParam("channelId") String channelId) throws ClientException;
 
+    @GET
+    @Path("/{channelId}/latencies")
+    @Operation(summary = "Returns the latency percentiles, in microseconds, of each processing stage and database operation of a deployed channel since it was deployed.")
+    @MirthOperation(name = "getLatencies", display = "Get latencies", permission = Permissions.DASHBOARD_VIEW, auditable = false)
+    public List<StageLatency> getLatencies(@Param("channelId") @Parameter(description = "The ID of the deployed channel to retrieve latencies for.", required = true) @PathParam("channelId") String channelId) throws ClientException;
+
     @POST
     @Path("/_clearStatistics")
     @Operation(summary = "Clears the statistics for the given channels and/or connectors.")
@@ -40,6 +40,7 @@ import com.mirth.connect.client.core.api.MirthOperation;
 import com.mirth.connect.client.core.api.Param;
 import com.mirth.connect.model.DashboardChannelInfo;
 import com.mirth.connect.model.DashboardStatus;
+import com.mirth.connect.model.DashboardStatusChanges;
 
 @Path("/channels")
 @Tag(name = "Channel Status Operations")
@@ -105,6 +106,16 @@ public interface ChannelStatusServletInterface extends BaseServletInterface {
             @Param("filter") @Parameter(description = "The filter string to limit dashboard statuses with.") @QueryParam("filter") String filter) throws ClientException;
     // @formatter:on
 
+    @GET
+    @Path("/statuses/changes")
+    @Operation(summary = "Returns the dashboard statuses of the channels that changed after the given status version, waiting up to the given timeout for a change. The returned version is passed in the next request. If the version is not known, fullRefresh is set and the statuses must be retrieved again.")
+    @MirthOperation(name = "getChannelStatusChanges", display = "Get channel status changes", permission = Permissions.DASHBOARD_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    public DashboardStatusChanges getChannelStatusChanges(// @formatter:off
+            @Param("since") @Parameter(description = "The status version returned by the previous request, or 0 to retrieve the current version.") @QueryParam("since") long since,
+            @Param("timeout") @Parameter(description = "The maximum number of milliseconds to wait for a change.", schema = @Schema(defaultValue = "0")) @QueryParam("timeout") long timeout,
+            @Param("filter") @Parameter(description = "The filter string to limit dashboard statuses with.") @QueryParam("filter") String filter) throws ClientException;
+    // @formatter:on
+
     @POST
     @Path("/{channelId}/_start")
     @Operation(summary = "Starts the channel with the specified ID.")
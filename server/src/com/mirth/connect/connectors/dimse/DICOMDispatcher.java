@@ -10,6 +10,7 @@
 package com.mirth.connect.connectors.dimse;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.util.Iterator;
 
 import org.apache.commons.io.FileUtils;
@@ -130,7 +131,9 @@ public class DICOMDispatcher extends DestinationConnector {
         try {
             tempFile = File.createTempFile("temp", "tmp");
 
-            FileUtils.writeByteArrayToFile(tempFile, getAttachmentHandlerProvider().reAttachMessage(dicomDispatcherProperties.getTemplate(), connectorMessage, null, true, dicomDispatcherProperties.getDestinationConnectorProperties().isReattachAttachments()));
+            try (OutputStream outputStream = FileUtils.openOutputStream(tempFile)) {
+                getAttachmentHandlerProvider().reAttachMessage(dicomDispatcherProperties.getTemplate(), connectorMessage, null, true, dicomDispatcherProperties.getDestinationConnectorProperties().isReattachAttachments(), outputStream);
+            }
 
             dcmSnd.setCalledAET("DCMRCV");
             dcmSnd.setRemoteHost(dicomDispatcherProperties.getHost());
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.file;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of file paths that are currently in use by one of the File Reader's threads. A path stays
+ * claimed until the thread that claimed it releases it, so other threads can either skip the file
+ * or wait for it.
+ */
+class FileClaims {
+
+    private Set<String> paths = new HashSet<String>();
+
+    /**
+     * Claims the path if no other thread has claimed it. Returns false if it is already claimed.
+     */
+    synchronized boolean tryClaim(String path) {
+        return paths.add(path);
+    }
+
+    /**
+     * Waits until no other thread has the path claimed, then claims it.
+     */
+    synchronized void claim(String path) throws InterruptedException {
+        while (!paths.add(path)) {
+            wait();
+        }
+    }
+
+    synchronized void release(String path) {
+        if (paths.remove(path)) {
+            notifyAll();
+        }
+    }
+}
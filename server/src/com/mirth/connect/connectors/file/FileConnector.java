@@ -60,6 +60,12 @@ public class FileConnector {
             this.passive = fileReceiverProperties.isPassive();
             this.secure = fileReceiverProperties.isSecure();
             this.validateConnection = fileReceiverProperties.isValidateConnection();
+
+            if (fileReceiverProperties.isProcessFilesConcurrently()) {
+                // Each file thread holds one connection, and the polling thread one more while listing
+                int processingThreads = fileReceiverProperties.getSourceConnectorProperties().getProcessingThreads();
+                maxTotalConnections = Math.max(GenericObjectPoolConfig.DEFAULT_MAX_TOTAL, processingThreads + 1);
+            }
         } else if (connectorProperties instanceof FileDispatcherProperties) {
             FileDispatcherProperties fileDispatcherProperties = (FileDispatcherProperties) connectorProperties;
             this.scheme = fileDispatcherProperties.getScheme();
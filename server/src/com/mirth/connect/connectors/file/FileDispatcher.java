@@ -10,10 +10,14 @@
 package com.mirth.connect.connectors.file;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -30,6 +34,7 @@ import com.mirth.connect.donkey.server.channel.DestinationConnector;
 import com.mirth.connect.donkey.server.event.ConnectionStatusEvent;
 import com.mirth.connect.donkey.server.event.ErrorEvent;
 import com.mirth.connect.donkey.util.ThreadUtils;
+import com.mirth.connect.server.attachments.MirthAttachmentHandlerProvider;
 import com.mirth.connect.server.controllers.ConfigurationController;
 import com.mirth.connect.server.controllers.ControllerFactory;
 import com.mirth.connect.server.controllers.EventController;
@@ -145,6 +150,7 @@ public class FileDispatcher extends DestinationConnector {
         FileSystemConnectionOptions fileSystemOptions = null;
 
         InputStream is = null;
+        File reattachedFile = null;
 
         try {
             uri = fileConnector.getEndpointURI(fileDispatcherProperties.getHost(), fileDispatcherProperties.getScheme(), fileDispatcherProperties.getSchemeProperties(), fileDispatcherProperties.isSecure());
@@ -158,10 +164,24 @@ public class FileDispatcher extends DestinationConnector {
             String path = fileConnector.getPathPart(uri);
             String template = fileDispatcherProperties.getTemplate();
 
-            byte[] bytes = getAttachmentHandlerProvider().reAttachMessage(template, connectorMessage, charsetEncoding, fileDispatcherProperties.isBinary(), fileDispatcherProperties.getDestinationConnectorProperties().isReattachAttachments());
-            long contentLength = bytes.length;
+            long contentLength;
 
-            is = new ByteArrayInputStream(bytes);
+            if (fileDispatcherProperties.getDestinationConnectorProperties().isReattachAttachments() && MirthAttachmentHandlerProvider.hasAttachmentKeys(template)) {
+                // Reattach to a temporary file so that large attachments are not held in memory
+                reattachedFile = File.createTempFile("reattached", ".tmp");
+
+                try (OutputStream outputStream = FileUtils.openOutputStream(reattachedFile)) {
+                    getAttachmentHandlerProvider().reAttachMessage(template, connectorMessage, charsetEncoding, fileDispatcherProperties.isBinary(), true, outputStream);
+                }
+
+                contentLength = reattachedFile.length();
+                is = new FileInputStream(reattachedFile);
+            } else {
+                byte[] bytes = getAttachmentHandlerProvider().reAttachMessage(template, connectorMessage, charsetEncoding, fileDispatcherProperties.isBinary(), fileDispatcherProperties.getDestinationConnectorProperties().isReattachAttachments());
+                contentLength = bytes.length;
+
+                is = new ByteArrayInputStream(bytes);
+            }
 
             ThreadUtils.checkInterruptedStatus();
             fileSystemConnection = fileConnector.getConnection(fileSystemOptions);
@@ -188,6 +208,7 @@ public class FileDispatcher extends DestinationConnector {
 //            fileConnector.handleException(e);
         } finally {
             IOUtils.closeQuietly(is);
+            FileUtils.deleteQuietly(reattachedFile);
 
             if (fileSystemConnection != null) {
                 try {
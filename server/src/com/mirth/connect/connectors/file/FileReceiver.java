@@ -25,6 +25,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -71,14 +76,18 @@ public class FileReceiver extends PollConnector {
     private FileConfiguration configuration = null;
     private FileConnector fileConnector = null;
 
-    private String originalFilename = null;
-
     private FileReceiverProperties connectorProperties;
     private String charsetEncoding;
 
     private long fileSizeMinimum;
     private long fileSizeMaximum;
 
+    private int fileThreads;
+    private ExecutorService fileExecutor;
+    private Semaphore fileThreadPermits;
+    private FileClaims claimedFiles = new FileClaims();
+    private FileClaims claimedDestinations = new FileClaims();
+
     @Override
     public void onDeploy() throws ConnectorTaskException {
         this.connectorProperties = (FileReceiverProperties) SerializationUtils.clone(getConnectorProperties());
@@ -113,6 +122,12 @@ public class FileReceiver extends PollConnector {
         fileSizeMinimum = NumberUtils.toLong(connectorProperties.getFileSizeMinimum(), 0);
         fileSizeMaximum = NumberUtils.toLong(connectorProperties.getFileSizeMaximum(), 0);
 
+        if (connectorProperties.isProcessFilesConcurrently()) {
+            fileThreads = Math.max(connectorProperties.getSourceConnectorProperties().getProcessingThreads(), 1);
+        } else {
+            fileThreads = 1;
+        }
+
         eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.IDLE));
     }
 
@@ -152,6 +167,11 @@ public class FileReceiver extends PollConnector {
             fileSystemOptions = new FileSystemConnectionOptions(uri, connectorProperties.isAnonymous(), username, password, schemeProperties);
             FileSystemConnection con = fileConnector.getConnection(fileSystemOptions);
             fileConnector.releaseConnection(con, fileSystemOptions);
+
+            if (fileThreads > 1) {
+                fileThreadPermits = new Semaphore(fileThreads);
+                fileExecutor = Executors.newFixedThreadPool(fileThreads, new FileThreadFactory());
+            }
         } catch (URISyntaxException e1) {
             throw new ConnectorTaskException("Error creating URI.", e1);
         } catch (Exception e) {
@@ -161,6 +181,15 @@ public class FileReceiver extends PollConnector {
 
     @Override
     public void onStop() throws ConnectorTaskException {
+        /*
+         * The poll waits for its files to be processed before returning, so the file threads are
+         * idle by now.
+         */
+        if (fileExecutor != null) {
+            fileExecutor.shutdown();
+            fileExecutor = null;
+        }
+
         try {
             fileConnector.doStop();
         } catch (FileConnectorException e) {
@@ -172,6 +201,10 @@ public class FileReceiver extends PollConnector {
 
     @Override
     public void onHalt() throws ConnectorTaskException {
+        if (fileExecutor != null) {
+            fileExecutor.shutdownNow();
+        }
+
         fileConnector.disconnect();
         onStop();
     }
@@ -238,10 +271,21 @@ public class FileReceiver extends PollConnector {
             } else {
                 processFiles(listFiles(readDir), pollId, pollSequenceId, true);
             }
+        } catch (InterruptedException e) {
+            // The connector is being halted
+            Thread.currentThread().interrupt();
         } catch (Throwable t) {
             eventController.dispatchEvent(new ErrorEvent(getChannelId(), getMetaDataId(), null, ErrorEventType.SOURCE_CONNECTOR, getSourceName(), connectorProperties.getName(), null, t));
             logger.error("Error polling in channel: " + getChannelId(), t);
         } finally {
+            if (fileThreadPermits != null) {
+                try {
+                    awaitFiles();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
             eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.IDLE));
         }
     }
@@ -269,7 +313,7 @@ public class FileReceiver extends PollConnector {
         return null;
     }
 
-    private void processFiles(List<FileInfo> files, String pollId, AtomicInteger pollSequenceId, boolean recursionComplete) {
+    private void processFiles(List<FileInfo> files, String pollId, AtomicInteger pollSequenceId, boolean recursionComplete) throws InterruptedException {
         // sort files by specified attribute before processing
         sortFiles(files);
 
@@ -324,9 +368,18 @@ public class FileReceiver extends PollConnector {
                     logger.warn("The file " + file.getName() + " may have been modified since being listed by the File Reader. This message will still be processed by the channel, but the file age/size may not be correct with respect to the current File Reader settings.");
                 }
 
-                eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.READING));
-                processFile(file, pollId, pollSequenceId, pollComplete);
-                eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.IDLE));
+                if (fileExecutor != null && !pollComplete) {
+                    submitFile(file, pollId, pollSequenceId);
+                } else {
+                    if (fileExecutor != null) {
+                        // The file that completes the poll is processed after all other files
+                        awaitFiles();
+                    }
+
+                    eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.READING));
+                    processFile(file, pollId, pollSequenceId, pollComplete);
+                    eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.IDLE));
+                }
 
                 if (pollComplete) {
                     break;
@@ -335,6 +388,58 @@ public class FileReceiver extends PollConnector {
         }
     }
 
+    /**
+     * Hands the file to one of the file threads, waiting while all of them are busy. The poll
+     * sequence ID is assigned here, so files are numbered in the order they were sorted. A file
+     * that is still claimed by another thread is skipped.
+     */
+    private void submitFile(final FileInfo file, final String pollId, AtomicInteger pollSequenceId) throws InterruptedException {
+        final String path = file.getAbsolutePath();
+
+        if (!claimedFiles.tryClaim(path)) {
+            logger.debug("Skipping file " + path + " in channel " + getChannelId() + ", it is still being processed.");
+            return;
+        }
+
+        try {
+            fileThreadPermits.acquire();
+        } catch (InterruptedException e) {
+            claimedFiles.release(path);
+            throw e;
+        }
+
+        final AtomicInteger fileSequenceId = new AtomicInteger(pollSequenceId.getAndIncrement());
+
+        try {
+            fileExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.READING));
+                        processFile(file, pollId, fileSequenceId, false);
+                    } catch (Throwable t) {
+                        logger.error("Error processing file in channel: " + getChannelId(), t);
+                    } finally {
+                        claimedFiles.release(path);
+                        fileThreadPermits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            claimedFiles.release(path);
+            fileThreadPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until all files handed to the file threads have been processed.
+     */
+    private void awaitFiles() throws InterruptedException {
+        fileThreadPermits.acquire(fileThreads);
+        fileThreadPermits.release(fileThreads);
+    }
+
     public void sortFiles(List<FileInfo> files) {
         String sortAttribute = connectorProperties.getSortBy();
 
@@ -347,10 +452,10 @@ public class FileReceiver extends PollConnector {
         }
     }
 
-    public synchronized void processFile(FileInfo file, String pollId, AtomicInteger pollSequenceId, boolean pollComplete) {
+    public void processFile(FileInfo file, String pollId, AtomicInteger pollSequenceId, boolean pollComplete) {
         try {
             // Add the original filename to the channel map
-            originalFilename = file.getName();
+            String originalFilename = file.getName();
             Map<String, Object> sourceMap = new HashMap<String, Object>();
             sourceMap.put("originalFilename", originalFilename);
             sourceMap.put("fileDirectory", file.getParent());
@@ -474,12 +579,20 @@ public class FileReceiver extends PollConnector {
                             logger.error("Moving file to error directory: " + destinationDir);
                         }
 
-                        // Delete the destination file if it exists, and then rename the original file
-                        deleteFile(destinationName, destinationDir, true);
-                        boolean resultOfFileMoveOperation = renameFile(file.getName(), file.getParent(), destinationName, destinationDir);
+                        // Don't let another file thread replace the destination file while this one is moved there
+                        String destinationPath = pathname(destinationName, destinationDir);
+                        claimedDestinations.claim(destinationPath);
 
-                        if (!resultOfFileMoveOperation) {
-                            throw new FileConnectorException("Error moving file from [" + pathname(file.getName(), file.getParent()) + "] to [" + pathname(destinationName, destinationDir) + "]");
+                        try {
+                            // Delete the destination file if it exists, and then rename the original file
+                            deleteFile(destinationName, destinationDir, true);
+                            boolean resultOfFileMoveOperation = renameFile(file.getName(), file.getParent(), destinationName, destinationDir);
+
+                            if (!resultOfFileMoveOperation) {
+                                throw new FileConnectorException("Error moving file from [" + pathname(file.getName(), file.getParent()) + "] to [" + destinationPath + "]");
+                            }
+                        } finally {
+                            claimedDestinations.release(destinationPath);
                         }
                     }
                 } else if (action == FileAction.DELETE) {
@@ -685,4 +798,13 @@ public class FileReceiver extends PollConnector {
     public void setFileConnector(FileConnector fileConnector) {
         this.fileConnector = fileConnector;
     }
+
+    private class FileThreadFactory implements ThreadFactory {
+        private AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "File Reader Thread " + threadNumber.getAndIncrement() + " on " + getChannel().getName() + " (" + getChannelId() + ")");
+        }
+    }
 }
@@ -56,6 +56,7 @@ public class FileReceiverProperties extends ConnectorProperties implements PollC
     private String fileSizeMaximum;
     private boolean ignoreFileSizeMaximum;
     private String sortBy;
+    private boolean processFilesConcurrently;
     private boolean binary;
     private String charsetEncoding;
 
@@ -94,6 +95,7 @@ public class FileReceiverProperties extends ConnectorProperties implements PollC
         fileSizeMaximum = "";
         ignoreFileSizeMaximum = true;
         sortBy = SORT_BY_DATE;
+        processFilesConcurrently = false;
         binary = false;
         charsetEncoding = CharsetUtils.DEFAULT_ENCODING;
     }
@@ -314,6 +316,18 @@ public class FileReceiverProperties extends ConnectorProperties implements PollC
         this.sortBy = sortBy;
     }
 
+    /**
+     * If true, the files of a poll are processed by up to one thread per source processing thread
+     * instead of one after another. The file that completes the poll is still processed last.
+     */
+    public boolean isProcessFilesConcurrently() {
+        return processFilesConcurrently;
+    }
+
+    public void setProcessFilesConcurrently(boolean processFilesConcurrently) {
+        this.processFilesConcurrently = processFilesConcurrently;
+    }
+
     public boolean isBinary() {
         return binary;
     }
@@ -447,6 +461,7 @@ public class FileReceiverProperties extends ConnectorProperties implements PollC
         purgedProperties.put("fileSizeMaximum", PurgeUtil.getNumericValue(fileSizeMaximum));
         purgedProperties.put("ignoreFileSizeMaximum", ignoreFileSizeMaximum);
         purgedProperties.put("sortBy", sortBy);
+        purgedProperties.put("processFilesConcurrently", processFilesConcurrently);
         return purgedProperties;
     }
 }
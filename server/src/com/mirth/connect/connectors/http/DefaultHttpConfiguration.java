@@ -48,7 +48,8 @@ public class DefaultHttpConfiguration implements HttpConfiguration {
         httpConfig.setSendServerVersion(false);
         httpConfig.setSendXPoweredBy(false);
         
-        ServerConnector listener = new ServerConnector(connector.getServer(), new HttpConnectionFactory(httpConfig));
+        // Connections are accepted by the selector thread so that an idle port only holds one thread of the shared pool
+        ServerConnector listener = new ServerConnector(connector.getServer(), 0, 1, new HttpConnectionFactory(httpConfig));
         listener.setHost(connector.getHost());
         listener.setPort(connector.getPort());
         listener.setIdleTimeout(connector.getTimeout());
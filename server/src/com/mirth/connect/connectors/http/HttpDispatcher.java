@@ -19,6 +19,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -48,6 +49,7 @@ import org.apache.http.auth.AuthenticationException;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.AuthCache;
+import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.config.RequestConfig;
@@ -80,11 +82,12 @@ import org.apache.http.impl.auth.BasicSchemeFactory;
 import org.apache.http.impl.auth.DigestScheme;
 import org.apache.http.impl.auth.DigestSchemeFactory;
 import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
@@ -92,6 +95,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.mirth.connect.donkey.model.channel.ConnectorProperties;
+import com.mirth.connect.donkey.model.channel.DestinationConnectorProperties;
+import com.mirth.connect.donkey.model.channel.SourceConnectorPropertiesInterface;
 import com.mirth.connect.donkey.model.event.ConnectionStatusEventType;
 import com.mirth.connect.donkey.model.event.ErrorEventType;
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
@@ -116,6 +121,7 @@ public class HttpDispatcher extends DestinationConnector {
     private static final String PROXY_CONTEXT_KEY = "dispatcherProxy";
     private static final Pattern AUTH_HEADER_PATTERN = Pattern.compile("([^\\s=,]+)\\s*=\\s*([^=,;\"\\s]+|\"([^\"]|\\\\[\\s\\S])*(?<!\\\\)\")");
     private static final int MAX_MAP_SIZE = 100;
+    private static final long IDLE_CONNECTION_TIMEOUT = 60000;
 
     protected Logger logger = LogManager.getLogger(this.getClass());
 
@@ -123,8 +129,11 @@ public class HttpDispatcher extends DestinationConnector {
     protected EventController eventController = ControllerFactory.getFactory().createEventController();
     protected TemplateValueReplacer replacer = new TemplateValueReplacer();
 
-    private Map<Long, CloseableHttpClient> clients = new ConcurrentHashMap<Long, CloseableHttpClient>();
+    private volatile CloseableHttpClient client;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private int maxConnections = 1;
     private Map<Long, Object> userTokens = new ConcurrentHashMap<Long, Object>();
+    private Map<Long, CookieStore> cookieStores = new ConcurrentHashMap<Long, CookieStore>();
     private HttpConfiguration configuration;
     private RegistryBuilder<ConnectionSocketFactory> socketFactoryRegistry;
     private Map<String, String[]> binaryMimeTypesArrayMap;
@@ -162,26 +171,93 @@ public class HttpDispatcher extends DestinationConnector {
     }
 
     @Override
-    public void onStart() throws ConnectorTaskException {}
+    public void onStart() throws ConnectorTaskException {
+        /*
+         * Messages are sent by the queue threads, and also by the channel processing threads unless
+         * every message is queued first. The pool never needs more connections than that, and only
+         * opens as many as are actually used at the same time.
+         */
+        DestinationConnectorProperties destinationProperties = getConnectorProperties().getDestinationConnectorProperties();
+        int threadCount = destinationProperties.isQueueEnabled() ? destinationProperties.getThreadCount() : 0;
+
+        if (!destinationProperties.isQueueEnabled() || destinationProperties.isSendFirst()) {
+            ConnectorProperties sourceProperties = getChannel().getSourceConnector() != null ? getChannel().getSourceConnector().getConnectorProperties() : null;
+
+            if (sourceProperties instanceof SourceConnectorPropertiesInterface) {
+                threadCount += ((SourceConnectorPropertiesInterface) sourceProperties).getSourceConnectorProperties().getProcessingThreads();
+            } else {
+                threadCount++;
+            }
+        }
+
+        maxConnections = Math.max(1, threadCount);
+    }
 
     @Override
     public void onStop() throws ConnectorTaskException {
-        for (CloseableHttpClient client : clients.values().toArray(new CloseableHttpClient[clients.size()])) {
-            HttpClientUtils.closeQuietly(client);
+        closeClient();
+    }
+
+    @Override
+    public void onHalt() throws ConnectorTaskException {
+        closeClient();
+    }
+
+    /**
+     * Returns the client shared by all dispatcher threads, creating it if needed. Every request sets
+     * its own connect and socket timeouts in its request config. The pool's socket config only
+     * applies while a new connection is opened (e.g. during the TLS handshake), so it follows the
+     * socket timeout of the latest message. Whether a proxy is used can't be changed with
+     * variables, and the proxy address and port of each message are read from its request context
+     * by the route planner, so neither is fixed by the first message either.
+     */
+    synchronized CloseableHttpClient getClient(HttpDispatcherProperties httpDispatcherProperties, int socketTimeout) {
+        if (client == null) {
+            // One pool shared by all dispatcher threads, so keep-alive connections and TLS sessions are reused between them
+            connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry.build());
+            connectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(socketTimeout).build());
+            connectionManager.setMaxTotal(maxConnections);
+            connectionManager.setDefaultMaxPerRoute(maxConnections);
+            HttpClientBuilder clientBuilder = HttpClients.custom().setConnectionManager(connectionManager).evictExpiredConnections().evictIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+            HttpUtil.configureClientBuilder(clientBuilder);
+
+            if (httpDispatcherProperties.isUseProxyServer()) {
+                clientBuilder.setRoutePlanner(new DynamicProxyRoutePlanner());
+            }
+
+            client = clientBuilder.build();
+        } else if (connectionManager.getDefaultSocketConfig().getSoTimeout() != socketTimeout) {
+            connectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(socketTimeout).build());
         }
 
-        clients.clear();
+        return client;
+    }
+
+    PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    private synchronized void closeClient() {
+        HttpClientUtils.closeQuietly(client);
+        client = null;
+        connectionManager = null;
         userTokens.clear();
+        cookieStores.clear();
     }
 
-    @Override
-    public void onHalt() throws ConnectorTaskException {
-        for (CloseableHttpClient client : clients.values().toArray(new CloseableHttpClient[clients.size()])) {
+    private synchronized void closeClient(CloseableHttpClient client, long dispatcherId) {
+        if (this.client == client) {
             HttpClientUtils.closeQuietly(client);
+            this.client = null;
+            connectionManager = null;
         }
 
-        clients.clear();
-        userTokens.clear();
+        userTokens.remove(dispatcherId);
+        cookieStores.remove(dispatcherId);
     }
 
     @Override
@@ -226,20 +302,7 @@ public class HttpDispatcher extends DestinationConnector {
         try {
             configuration.configureDispatcher(this, httpDispatcherProperties);
 
-            client = clients.get(dispatcherId);
-            if (client == null) {
-                BasicHttpClientConnectionManager httpClientConnectionManager = new BasicHttpClientConnectionManager(socketFactoryRegistry.build());
-                httpClientConnectionManager.setSocketConfig(SocketConfig.custom().setSoTimeout(socketTimeout).build());
-                HttpClientBuilder clientBuilder = HttpClients.custom().setConnectionManager(httpClientConnectionManager);
-                HttpUtil.configureClientBuilder(clientBuilder);
-
-                if (httpDispatcherProperties.isUseProxyServer()) {
-                    clientBuilder.setRoutePlanner(new DynamicProxyRoutePlanner());
-                }
-
-                client = clientBuilder.build();
-                clients.put(dispatcherId, client);
-            }
+            client = getClient(httpDispatcherProperties, socketTimeout);
 
             URI hostURI = new URI(httpDispatcherProperties.getHost());
             String host = hostURI.getHost();
@@ -320,6 +383,14 @@ public class HttpDispatcher extends DestinationConnector {
                 context.setAttribute(PROXY_CONTEXT_KEY, new HttpHost(httpDispatcherProperties.getProxyAddress(), Integer.parseInt(httpDispatcherProperties.getProxyPort())));
             }
 
+            // Cookies are still kept per dispatcher thread now that the client is shared
+            CookieStore cookieStore = cookieStores.get(dispatcherId);
+            if (cookieStore == null) {
+                cookieStore = new BasicCookieStore();
+                cookieStores.put(dispatcherId, cookieStore);
+            }
+            context.setCookieStore(cookieStore);
+
             Object userToken = userTokens.get(dispatcherId);
             logger.debug("cached user token: " + userToken);
             if (userToken != null) {
@@ -424,9 +495,7 @@ public class HttpDispatcher extends DestinationConnector {
             if (t instanceof Error || t instanceof IllegalStateException) {
                 // If an error occurred we can't guarantee the state of the client, so close it
                 HttpUtil.closeVeryQuietly(httpResponse);
-                HttpClientUtils.closeQuietly(client);
-                clients.remove(dispatcherId);
-                userTokens.remove(dispatcherId);
+                closeClient(client, dispatcherId);
             }
         } finally {
             try {
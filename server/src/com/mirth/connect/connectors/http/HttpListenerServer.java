@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.http;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.net.ssl.SSLContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import com.mirth.connect.util.PropertyLoader;
+
+/**
+ * The Jetty server shared by all HTTP Listeners. Listeners on the same host and port share its
+ * connectors and are told apart by their context paths, and all requests are handled by one thread
+ * pool, so the number of threads depends on the load rather than on the number of deployed
+ * listeners. The server is started when the first listener is added and stopped when the last one
+ * is removed.
+ */
+public class HttpListenerServer {
+    public static final int DEFAULT_MAX_THREADS = 200;
+    public static final int DEFAULT_MIN_THREADS = 8;
+
+    private static final String MAX_THREADS = "http.listener.maxthreads";
+    private static final int THREAD_IDLE_TIMEOUT = 60000;
+
+    private static HttpListenerServer instance = null;
+
+    private Logger logger = LogManager.getLogger(getClass());
+    private int maxThreads;
+    private QueuedThreadPool threadPool;
+    private Server server;
+    private Map<String, Endpoint> endpoints = new HashMap<String, Endpoint>();
+    private volatile Map<Connector, Endpoint> endpointsByConnector = new HashMap<Connector, Endpoint>();
+    private int reservedThreads = 0;
+
+    HttpListenerServer(int maxThreads) {
+        this.maxThreads = maxThreads;
+        threadPool = new QueuedThreadPool(maxThreads, Math.min(DEFAULT_MIN_THREADS, maxThreads), THREAD_IDLE_TIMEOUT);
+        threadPool.setName("HTTP Listener");
+        server = new Server(threadPool);
+        server.setHandler(new ListenerHandler());
+    }
+
+    public static HttpListenerServer getInstance() {
+        synchronized (HttpListenerServer.class) {
+            if (instance == null) {
+                instance = new HttpListenerServer(getMaxThreads());
+            }
+
+            return instance;
+        }
+    }
+
+    public static int getMaxThreads() {
+        Properties properties = PropertyLoader.loadProperties("mirth");
+        int maxThreads = MapUtils.isNotEmpty(properties) ? NumberUtils.toInt(StringUtils.trim(properties.getProperty(MAX_THREADS)), DEFAULT_MAX_THREADS) : DEFAULT_MAX_THREADS;
+        return maxThreads > 0 ? maxThreads : DEFAULT_MAX_THREADS;
+    }
+
+    /**
+     * Returns the shared server, which HTTP configurations add the connectors of a listener to.
+     */
+    public Server getServer() {
+        return server;
+    }
+
+    public QueuedThreadPool getThreadPool() {
+        return threadPool;
+    }
+
+    /**
+     * Adds a listener to the server. The given configurer adds the connectors the listener wants to
+     * listen on to the server. If another listener already listens on the same host and port, the
+     * new connectors are discarded and the existing ones are shared, which requires them to use the
+     * same connection settings (see getConnectionSettings). Requests on those connectors are passed to the listener with the longest
+     * context path that matches the request path.
+     */
+    public synchronized Registration register(String host, int port, String contextPath, Handler handler, ConnectorConfigurer configurer) throws Exception {
+        if (!server.isStarted()) {
+            server.start();
+        }
+
+        List<Connector> existingConnectors = Arrays.asList(server.getConnectors());
+        configurer.configure();
+
+        List<Connector> newConnectors = new ArrayList<Connector>();
+        for (Connector connector : server.getConnectors()) {
+            if (!existingConnectors.contains(connector)) {
+                newConnectors.add(connector);
+            }
+        }
+
+        String key = StringUtils.defaultIfBlank(host, "0.0.0.0") + ":" + port;
+        Endpoint endpoint = endpoints.get(key);
+
+        try {
+            if (endpoint != null) {
+                for (Connector connector : newConnectors) {
+                    server.removeConnector(connector);
+                }
+
+                String difference = getDifference(getConnectionSettings(endpoint.connectors), getConnectionSettings(newConnectors));
+                if (difference != null) {
+                    throw new Exception("Port " + port + " is already used by another HTTP Listener with a different " + difference + ". HTTP Listeners sharing a port must use the same connection settings.");
+                }
+            } else {
+                endpoint = new Endpoint(key, newConnectors);
+                startEndpoint(endpoint);
+            }
+
+            endpoint.add(contextPath, handler);
+        } catch (Exception e) {
+            if (endpoint != null && endpoint.isEmpty()) {
+                stopEndpoint(endpoint);
+            }
+            stopIfUnused();
+            throw e;
+        }
+
+        return new Registration(endpoint, contextPath, handler);
+    }
+
+    private void startEndpoint(Endpoint endpoint) throws Exception {
+        reservedThreads += endpoint.reservedThreads;
+        threadPool.setMaxThreads(maxThreads + reservedThreads);
+        endpoints.put(endpoint.key, endpoint);
+
+        Map<Connector, Endpoint> newEndpointsByConnector = new HashMap<Connector, Endpoint>(endpointsByConnector);
+        for (Connector connector : endpoint.connectors) {
+            newEndpointsByConnector.put(connector, endpoint);
+        }
+        endpointsByConnector = newEndpointsByConnector;
+
+        for (Connector connector : endpoint.connectors) {
+            if (!connector.isStarted()) {
+                connector.start();
+            }
+        }
+    }
+
+    private void stopEndpoint(Endpoint endpoint) {
+        for (Connector connector : endpoint.connectors) {
+            try {
+                connector.stop();
+            } catch (Exception e) {
+                logger.warn("Error stopping HTTP Listener connector " + endpoint.key + ".", e);
+            }
+            server.removeConnector(connector);
+        }
+
+        if (endpoints.remove(endpoint.key) == endpoint) {
+            Map<Connector, Endpoint> newEndpointsByConnector = new HashMap<Connector, Endpoint>(endpointsByConnector);
+            for (Connector connector : endpoint.connectors) {
+                newEndpointsByConnector.remove(connector);
+            }
+            endpointsByConnector = newEndpointsByConnector;
+
+            reservedThreads -= endpoint.reservedThreads;
+            threadPool.setMaxThreads(maxThreads + reservedThreads);
+        }
+    }
+
+    private void stopIfUnused() {
+        if (endpoints.isEmpty() && server.isStarted()) {
+            try {
+                server.stop();
+            } catch (Exception e) {
+                logger.warn("Error stopping the HTTP Listener server.", e);
+            }
+        }
+    }
+
+    private synchronized void unregister(Registration registration) throws Exception {
+        try {
+            registration.endpoint.remove(registration.contextPath, registration.handler);
+        } finally {
+            if (registration.endpoint.isEmpty()) {
+                stopEndpoint(registration.endpoint);
+                stopIfUnused();
+            }
+        }
+    }
+
+    /**
+     * Returns the settings of the given connectors that listeners sharing them must agree on: the
+     * protocols, and for TLS the key and trust stores, cipher suites, TLS versions and client
+     * authentication. Each connector's settings are mapped from their names to their values.
+     */
+    static List<Map<String, String>> getConnectionSettings(List<Connector> connectors) {
+        List<Map<String, String>> settings = new ArrayList<Map<String, String>>();
+
+        for (Connector connector : connectors) {
+            Map<String, String> connectorSettings = new LinkedHashMap<String, String>();
+            connectorSettings.put("protocol", StringUtils.join(connector.getProtocols(), ','));
+
+            SslConnectionFactory sslConnectionFactory = connector.getConnectionFactory(SslConnectionFactory.class);
+            if (sslConnectionFactory != null) {
+                SslContextFactory sslContextFactory = sslConnectionFactory.getSslContextFactory();
+                connectorSettings.put("key store", getKeyStoreSetting(sslContextFactory.getKeyStorePath(), sslContextFactory.getKeyStoreType(), sslContextFactory.getKeyStore(), sslContextFactory.getSslContext()));
+                connectorSettings.put("certificate alias", sslContextFactory.getCertAlias());
+                connectorSettings.put("trust store", getKeyStoreSetting(sslContextFactory.getTrustStorePath(), sslContextFactory.getTrustStoreType(), sslContextFactory.getTrustStore(), null));
+                connectorSettings.put("cipher suites", Arrays.toString(sslContextFactory.getIncludeCipherSuites()) + " excluding " + Arrays.toString(sslContextFactory.getExcludeCipherSuites()));
+                connectorSettings.put("TLS protocols", Arrays.toString(sslContextFactory.getIncludeProtocols()) + " excluding " + Arrays.toString(sslContextFactory.getExcludeProtocols()));
+                connectorSettings.put("client authentication", getClientAuthSetting(sslContextFactory));
+            }
+
+            settings.add(connectorSettings);
+        }
+
+        Collections.sort(settings, new Comparator<Map<String, String>>() {
+            @Override
+            public int compare(Map<String, String> settings1, Map<String, String> settings2) {
+                return settings1.toString().compareTo(settings2.toString());
+            }
+        });
+
+        return settings;
+    }
+
+    private static String getClientAuthSetting(SslContextFactory sslContextFactory) {
+        if (sslContextFactory instanceof SslContextFactory.Server) {
+            SslContextFactory.Server serverSslContextFactory = (SslContextFactory.Server) sslContextFactory;
+
+            if (serverSslContextFactory.getNeedClientAuth()) {
+                return "required";
+            } else if (serverSslContextFactory.getWantClientAuth()) {
+                return "requested";
+            }
+        }
+
+        return "none";
+    }
+
+    /**
+     * Returns the name of the first setting that differs between the given connection settings, or
+     * null if they are the same.
+     */
+    public static String getDifference(List<Map<String, String>> settings1, List<Map<String, String>> settings2) {
+        if (settings1.size() != settings2.size()) {
+            return "number of connectors";
+        }
+
+        for (int i = 0; i < settings1.size(); i++) {
+            Map<String, String> connectorSettings1 = settings1.get(i);
+            Map<String, String> connectorSettings2 = settings2.get(i);
+
+            for (String name : connectorSettings1.keySet()) {
+                if (!connectorSettings2.containsKey(name) || !StringUtils.equals(connectorSettings1.get(name), connectorSettings2.get(name))) {
+                    return name;
+                }
+            }
+
+            for (String name : connectorSettings2.keySet()) {
+                if (!connectorSettings1.containsKey(name)) {
+                    return name;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Describes a key or trust store by its path, or by the certificates it holds if it was loaded
+     * by the connection settings themselves. If only an SSL context was given, its key material
+     * cannot be inspected, so it only matches a listener that uses the same SSL context.
+     */
+    public static String getKeyStoreSetting(String path, String type, KeyStore keyStore, SSLContext sslContext) {
+        if (StringUtils.isNotBlank(path)) {
+            return type + ":" + path;
+        }
+
+        if (keyStore != null) {
+            try {
+                List<String> certificates = new ArrayList<String>();
+                for (String alias : Collections.list(keyStore.aliases())) {
+                    Certificate certificate = keyStore.getCertificate(alias);
+                    certificates.add(alias + "=" + (certificate != null ? DigestUtils.sha256Hex(certificate.getEncoded()) : ""));
+                }
+                Collections.sort(certificates);
+                return keyStore.getType() + ":" + certificates;
+            } catch (GeneralSecurityException e) {
+                return "key store " + System.identityHashCode(keyStore);
+            }
+        }
+
+        if (sslContext != null) {
+            return "SSL context " + System.identityHashCode(sslContext);
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds the connectors of a listener to the shared server.
+     */
+    public interface ConnectorConfigurer {
+        public void configure() throws Exception;
+    }
+
+    /**
+     * A listener added to the server. Unregistering it stops its handler, and the connectors of its
+     * port if no other listener uses them.
+     */
+    public class Registration {
+        private Endpoint endpoint;
+        private String contextPath;
+        private Handler handler;
+
+        private Registration(Endpoint endpoint, String contextPath, Handler handler) {
+            this.endpoint = endpoint;
+            this.contextPath = contextPath;
+            this.handler = handler;
+        }
+
+        public void unregister() throws Exception {
+            HttpListenerServer.this.unregister(this);
+        }
+    }
+
+    private class ListenerHandler extends AbstractHandler {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+            Endpoint endpoint = endpointsByConnector.get(baseRequest.getHttpChannel().getConnector());
+
+            if (endpoint != null) {
+                endpoint.handle(target, baseRequest, request, response);
+            }
+        }
+    }
+
+    private class Endpoint {
+        private String key;
+        private List<Connector> connectors;
+        private int reservedThreads = 0;
+        private volatile ContextPathHandler[] handlers = new ContextPathHandler[0];
+
+        private Endpoint(String key, List<Connector> connectors) {
+            this.key = key;
+            this.connectors = connectors;
+
+            // Acceptor and selector threads are taken from the shared pool for as long as the port is open
+            for (Connector connector : connectors) {
+                if (connector instanceof ServerConnector) {
+                    reservedThreads += ((ServerConnector) connector).getAcceptors() + ((ServerConnector) connector).getSelectorManager().getSelectorCount();
+                } else {
+                    reservedThreads++;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return handlers.length == 0;
+        }
+
+        private void add(String contextPath, Handler handler) throws Exception {
+            for (ContextPathHandler contextPathHandler : handlers) {
+                if (contextPathHandler.contextPath.equals(contextPath)) {
+                    throw new Exception("Context path \"" + contextPath + "\" on port " + key + " is already used by another HTTP Listener.");
+                }
+            }
+
+            handler.setServer(server);
+            handler.start();
+
+            ContextPathHandler[] newHandlers = Arrays.copyOf(handlers, handlers.length + 1);
+            newHandlers[handlers.length] = new ContextPathHandler(contextPath, handler);
+
+            // More specific context paths take precedence
+            Arrays.sort(newHandlers, new Comparator<ContextPathHandler>() {
+                @Override
+                public int compare(ContextPathHandler handler1, ContextPathHandler handler2) {
+                    return handler2.contextPath.length() - handler1.contextPath.length();
+                }
+            });
+
+            handlers = newHandlers;
+        }
+
+        private void remove(String contextPath, Handler handler) throws Exception {
+            List<ContextPathHandler> newHandlers = new ArrayList<ContextPathHandler>();
+            for (ContextPathHandler contextPathHandler : handlers) {
+                if (contextPathHandler.handler != handler) {
+                    newHandlers.add(contextPathHandler);
+                }
+            }
+            handlers = newHandlers.toArray(new ContextPathHandler[newHandlers.size()]);
+
+            handler.stop();
+        }
+
+        private void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+            for (ContextPathHandler contextPathHandler : handlers) {
+                String contextPath = contextPathHandler.contextPath;
+
+                if (contextPath.isEmpty() || target.equals(contextPath) || (target.startsWith(contextPath) && target.charAt(contextPath.length()) == '/')) {
+                    contextPathHandler.handler.handle(target, baseRequest, request, response);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class ContextPathHandler {
+        private String contextPath;
+        private Handler handler;
+
+        private ContextPathHandler(String contextPath, Handler handler) {
+            this.contextPath = contextPath;
+            this.handler = handler;
+        }
+    }
+}
@@ -127,6 +127,7 @@ public class HttpReceiver extends SourceConnector implements BinaryContentTypeRe
     private final TemplateValueReplacer replacer = new TemplateValueReplacer();
     private HttpConfiguration configuration = null;
     private Server server;
+    private HttpListenerServer.Registration registration;
     private String host;
     private int port;
     private int timeout;
@@ -218,8 +219,8 @@ public class HttpReceiver extends SourceConnector implements BinaryContentTypeRe
         }
 
         try {
-            server = new Server();
-            configuration.configureReceiver(this);
+            HttpListenerServer listenerServer = HttpListenerServer.getInstance();
+            server = listenerServer.getServer();
 
             HandlerCollection handlers = new HandlerCollection();
             Handler serverHandler = handlers;
@@ -292,10 +293,14 @@ public class HttpReceiver extends SourceConnector implements BinaryContentTypeRe
             if (authenticatorProvider != null) {
                 serverHandler = createSecurityHandler(handlers);
             }
-            server.setHandler(serverHandler);
 
-            logger.debug("starting HTTP server with address: " + host + ":" + port);
-            server.start();
+            logger.debug("adding HTTP listener with address: " + host + ":" + port + contextPath);
+            registration = listenerServer.register(host, port, contextPath, serverHandler, new HttpListenerServer.ConnectorConfigurer() {
+                @Override
+                public void configure() throws Exception {
+                    configuration.configureReceiver(HttpReceiver.this);
+                }
+            });
             eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.IDLE));
         } catch (Exception e) {
             eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.FAILURE));
@@ -307,12 +312,14 @@ public class HttpReceiver extends SourceConnector implements BinaryContentTypeRe
     public void onStop() throws ConnectorTaskException {
         ConnectorTaskException firstCause = null;
 
-        if (server != null) {
+        if (registration != null) {
             try {
-                logger.debug("stopping HTTP server");
-                server.stop();
+                logger.debug("removing HTTP listener");
+                registration.unregister();
             } catch (Exception e) {
                 firstCause = new ConnectorTaskException("Failed to stop HTTP Listener", e.getCause());
+            } finally {
+                registration = null;
             }
         }
 
@@ -12,6 +12,7 @@ package com.mirth.connect.connectors.jdbc;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -120,4 +121,55 @@ public class DatabaseDispatcher extends DestinationConnector {
             eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getDestinationName(), ConnectionStatusEventType.IDLE));
         }
     }
+
+    @Override
+    public List<Response> send(List<ConnectorProperties> connectorProperties, List<ConnectorMessage> messages) throws InterruptedException {
+        /*
+         * Only plain DML queries can be batched, and only when every message in the batch resolved
+         * to the same connection settings and query text. Otherwise, or if the batch fails, fall
+         * back to sending the messages one at a time so each one still gets its own status and
+         * error.
+         */
+        if (delegate instanceof DatabaseDispatcherQuery && messages.size() > 1 && isBatchable(connectorProperties)) {
+            List<DatabaseDispatcherProperties> databaseDispatcherProperties = new ArrayList<DatabaseDispatcherProperties>(connectorProperties.size());
+            for (ConnectorProperties properties : connectorProperties) {
+                databaseDispatcherProperties.add((DatabaseDispatcherProperties) properties);
+            }
+
+            String info = "URL: " + databaseDispatcherProperties.get(0).getUrl();
+            eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getDestinationName(), ConnectionStatusEventType.READING, info));
+
+            try {
+                List<Response> responses = ((DatabaseDispatcherQuery) delegate).send(databaseDispatcherProperties, messages);
+                for (Response response : responses) {
+                    response.setValidate(databaseDispatcherProperties.get(0).getDestinationConnectorProperties().isValidateResponse());
+                }
+                return responses;
+            } catch (DatabaseDispatcherException e) {
+                logger.debug("Batch write of " + messages.size() + " messages failed, writing them individually.", e);
+            } finally {
+                eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getDestinationName(), ConnectionStatusEventType.IDLE));
+            }
+        }
+
+        return super.send(connectorProperties, messages);
+    }
+
+    private boolean isBatchable(List<ConnectorProperties> connectorProperties) {
+        DatabaseDispatcherProperties first = (DatabaseDispatcherProperties) connectorProperties.get(0);
+
+        if (!((DatabaseDispatcherQuery) delegate).isBatchable(first.getQuery())) {
+            return false;
+        }
+
+        for (ConnectorProperties properties : connectorProperties) {
+            DatabaseDispatcherProperties databaseDispatcherProperties = (DatabaseDispatcherProperties) properties;
+
+            if (databaseDispatcherProperties.isUseScript() || !StringUtils.equals(first.getUrl(), databaseDispatcherProperties.getUrl()) || !StringUtils.equals(first.getUsername(), databaseDispatcherProperties.getUsername()) || !StringUtils.equals(first.getPassword(), databaseDispatcherProperties.getPassword()) || !StringUtils.equals(first.getQuery(), databaseDispatcherProperties.getQuery())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
 }
@@ -13,7 +13,11 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.dbutils.DbUtils;
@@ -31,12 +35,20 @@ import com.mirth.connect.server.util.javascript.MirthContextFactory;
 public class DatabaseDispatcherQuery implements DatabaseDispatcherDelegate {
     private final static long MAX_CONNECTION_IDLE_TIME_NS = 300_000_000_000L;
 
+    /*
+     * Matches a single INSERT, UPDATE, DELETE or MERGE statement, optionally preceded by comments.
+     * Anything else (stored procedure calls, SELECTs, CTEs, RETURNING/OUTPUT clauses, multiple
+     * statements) may return results, which Statement.executeBatch() does not allow.
+     */
+    private final static Pattern PLAIN_DML_PATTERN = Pattern.compile("^(?!.*\\b(RETURNING|OUTPUT)\\b)(\\s|--[^\\n]*(\\n|$)|/\\*.*?\\*/)*(INSERT|UPDATE|DELETE|MERGE)\\b[^;]*;?\\s*$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
     private DatabaseDispatcher connector;
     private Map<Long, SimpleDataSource> dataSources = new ConcurrentHashMap<>();
     private ContextFactoryController contextFactoryController = ControllerFactory.getFactory().createContextFactoryController();
     private CustomDriver customDriver;
     private Logger logger = LogManager.getLogger(getClass());
     private volatile String contextFactoryId;
+    private volatile boolean batchUnsupported;
 
     public DatabaseDispatcherQuery(DatabaseDispatcher connector) {
         this.connector = connector;
@@ -137,6 +149,102 @@ public class DatabaseDispatcherQuery implements DatabaseDispatcherDelegate {
         }
     }
 
+    /**
+     * Returns true if the given query can be written with {@link #send(List, List)}. Only plain DML
+     * statements are batched, and never again once the driver has reported that it does not support
+     * batch updates.
+     */
+    public boolean isBatchable(String query) {
+        return !batchUnsupported && isPlainDml(query);
+    }
+
+    static boolean isPlainDml(String query) {
+        return query != null && PLAIN_DML_PATTERN.matcher(query).matches();
+    }
+
+    /**
+     * Writes a batch of messages that share the same connection settings and query in a single
+     * JDBC batch and transaction. Either every message is written or, if any statement fails, the
+     * transaction is rolled back and none of them are.
+     */
+    public List<Response> send(List<DatabaseDispatcherProperties> connectorProperties, List<ConnectorMessage> connectorMessages) throws DatabaseDispatcherException {
+        long dispatcherId = connectorMessages.get(0).getDispatcherId();
+        SimpleDataSource dataSource = dataSources.get(dispatcherId);
+
+        if (dataSource == null) {
+            dataSource = new SimpleDataSource();
+            dataSources.put(dispatcherId, dataSource);
+        }
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+
+        try {
+            connection = dataSource.getConnection(connectorProperties.get(0));
+
+            if (!connection.getMetaData().supportsBatchUpdates()) {
+                batchUnsupported = true;
+                throw new SQLFeatureNotSupportedException("The database driver does not support batch updates.");
+            }
+
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(connectorProperties.get(0).getQuery());
+
+            for (DatabaseDispatcherProperties properties : connectorProperties) {
+                int i = 1;
+
+                for (Object param : properties.getParameters()) {
+                    statement.setObject(i++, param);
+                }
+
+                statement.addBatch();
+            }
+
+            int[] updateCounts = statement.executeBatch();
+            connection.commit();
+
+            List<Response> responses = new ArrayList<Response>(connectorMessages.size());
+
+            for (int i = 0; i < connectorMessages.size(); i++) {
+                String responseMessageStatus = null;
+
+                if (i >= updateCounts.length || updateCounts[i] < 0) {
+                    responseMessageStatus = "Database write success";
+                } else {
+                    responseMessageStatus = "Database write success, " + updateCounts[i] + " rows updated";
+                }
+
+                responses.add(new Response(Status.SENT, null, responseMessageStatus));
+            }
+
+            return responses;
+        } catch (Exception e) {
+            if (e instanceof SQLFeatureNotSupportedException) {
+                batchUnsupported = true;
+            }
+
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e2) {
+                    logger.debug("Failed to roll back database batch", e2);
+                }
+            }
+
+            throw new DatabaseDispatcherException("Failed to write batch to database", e);
+        } finally {
+            DbUtils.closeQuietly(statement);
+
+            if (connection != null) {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    logger.debug("Failed to restore auto-commit on database connection", e);
+                }
+            }
+        }
+    }
+
     private void initDriver(MirthContextFactory contextFactory) throws Exception {
         customDriver = null;
         DatabaseDispatcherProperties props = (DatabaseDispatcherProperties) connector.getConnectorProperties();
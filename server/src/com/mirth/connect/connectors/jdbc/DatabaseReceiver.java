@@ -81,6 +81,8 @@ public class DatabaseReceiver extends PollConnector {
     private static Pattern INVALID_XML_ELEMENT_NAMESTARTCHAR = Pattern.compile("[^:A-Z_a-z\\u00C0-\\u00D6\\u00D8-\\u00F6\\u00F8-\\u02FF\\u0370-\\u037D\\u037F-\\u1FFF\\u200C-\\u200D\\u2070-\\u218F\\u2C00-\\u2FEF\\u3001-\\uD7FF\\uF900-\\uFDCF\\uFDF0-\\uFFFD\\x{10000}-\\x{EFFFF}]");
     private static Pattern INVALID_XML_ELEMENT_NAMECHAR = Pattern.compile("[^:A-Z_a-z-\\.0-9\\xB7\\u00C0-\\u00D6\\u00D8-\\u00F6\\u00F8-\\u02FF\\u0300-\\u036F\\u0370-\\u037D\\u037F-\\u1FFF\\u200C-\\u200D\\u203F-\\u2040\\u2070-\\u218F\\u2C00-\\u2FEF\\u3001-\\uD7FF\\uF900-\\uFDCF\\uFDF0-\\uFFFD\\x{10000}-\\x{EFFFF}]+");
 
+    private static final int DEFAULT_READ_AHEAD = 1000;
+
     protected DatabaseReceiverProperties connectorProperties;
     private DatabaseReceiverDelegate delegate;
     private EventController eventController = ControllerFactory.getFactory().createEventController();
@@ -187,6 +189,11 @@ public class DatabaseReceiver extends PollConnector {
         try {
             checkForDuplicateColumns(resultSet);
 
+            if (connectorProperties.isStreamResults()) {
+                processStreamedResultSet(resultSet);
+                return;
+            }
+
             List<Map<String, Object>> resultsList = null;
             if (connectorProperties.isAggregateResults()) {
                 resultsList = new ArrayList<Map<String, Object>>();
@@ -211,7 +218,7 @@ public class DatabaseReceiver extends PollConnector {
                 if (isTerminated()) {
                     return;
                 }
-                processAggregateRecord(resultsList);
+                processAggregateRecord(resultsListToXml(resultsList), resultsList);
             }
         } catch (Exception e) {
             if (e instanceof DatabaseReceiverException) {
@@ -221,6 +228,103 @@ public class DatabaseReceiver extends PollConnector {
         }
     }
 
+    /**
+     * Reads the rows of the ResultSet on a separate thread, which converts each one to XML while
+     * the rows read before it are dispatched. When aggregating results, the rows are written into
+     * the message as they are received, and the row maps are only kept if the post-process needs
+     * them.
+     */
+    private void processStreamedResultSet(ResultSet resultSet) throws Exception {
+        final BasicRowProcessor basicRowProcessor = new BasicRowProcessor();
+        final boolean aggregateResults = connectorProperties.isAggregateResults();
+        boolean keepResults = connectorProperties.isUseScript() || connectorProperties.getUpdateMode() == DatabaseReceiverProperties.UPDATE_EACH;
+
+        // Buffer up to one fetch of rows ahead of the dispatching thread
+        int readAhead = resultSet.getFetchSize() > 0 ? resultSet.getFetchSize() : DEFAULT_READ_AHEAD;
+
+        ResultSetReadAhead<StreamedRow> rows = new ResultSetReadAhead<StreamedRow>(resultSet, (ResultSet currentRow) -> {
+            Map<String, Object> resultMap = readStreamedRow(currentRow, basicRowProcessor);
+            String xml = null;
+
+            try {
+                ResultXmlWriter writer = new ResultXmlWriter();
+                if (!aggregateResults) {
+                    writer.writeDeclaration();
+                }
+                writeResult(writer, resultMap);
+                xml = writer.toString();
+            } catch (Exception e) {
+                if (aggregateResults) {
+                    throw e;
+                }
+                // The row is converted again when it is processed, so the error is reported for the row
+            }
+
+            return new StreamedRow(resultMap, xml);
+        }, readAhead, "Database Reader Read-Ahead Thread on " + getChannel().getName() + " (" + getChannelId() + ")");
+
+        rows.start();
+
+        try {
+            ResultXmlWriter aggregateWriter = null;
+            List<Map<String, Object>> resultsList = new ArrayList<Map<String, Object>>();
+            boolean resultsFound = false;
+
+            if (aggregateResults) {
+                aggregateWriter = new ResultXmlWriter();
+                aggregateWriter.startResults();
+            }
+
+            StreamedRow row;
+            while ((row = rows.take()) != null) {
+                if (isTerminated()) {
+                    return;
+                }
+
+                if (aggregateResults) {
+                    aggregateWriter.append(row.xml);
+                    resultsFound = true;
+
+                    if (keepResults) {
+                        resultsList.add(row.resultMap);
+                    }
+                } else {
+                    processRecord(row.resultMap, row.xml);
+                }
+            }
+
+            if (resultsFound) {
+                if (isTerminated()) {
+                    return;
+                }
+
+                aggregateWriter.endResults();
+                processAggregateRecord(aggregateWriter.toString(), resultsList);
+            }
+        } finally {
+            rows.close();
+        }
+    }
+
+    /**
+     * Converts the current row of the ResultSet into a map. Large object values are read into
+     * strings and byte arrays, since they may no longer be readable once the cursor has moved on.
+     */
+    private Map<String, Object> readStreamedRow(ResultSet resultSet, BasicRowProcessor basicRowProcessor) throws Exception {
+        Map<String, Object> resultMap = basicRowProcessor.toMap(resultSet);
+
+        for (Entry<String, Object> entry : resultMap.entrySet()) {
+            if (entry.getValue() instanceof Clob) {
+                entry.setValue(clobToString((Clob) entry.getValue()));
+            } else if (entry.getValue() instanceof Blob) {
+                Blob blob = (Blob) entry.getValue();
+                entry.setValue(blob.getBytes(1, (int) blob.length()));
+            }
+        }
+
+        return resultMap;
+    }
+
     void checkForDuplicateColumns(ResultSet resultSet) throws SQLException {
         ResultSetMetaData metaData = resultSet.getMetaData();
         int colCount = metaData.getColumnCount();
@@ -304,16 +408,28 @@ public class DatabaseReceiver extends PollConnector {
      * run the post-process if applicable.
      */
     void processRecord(Map<String, Object> resultMap) throws InterruptedException, DatabaseReceiverException {
+        processRecord(resultMap, null);
+    }
+
+    /**
+     * Dispatches the given resultMap, using the XML it was already converted into, or converting it
+     * if the XML is null.
+     */
+    private void processRecord(Map<String, Object> resultMap, String xml) throws InterruptedException, DatabaseReceiverException {
         try {
+            if (xml == null) {
+                xml = resultMapToXml(resultMap);
+            }
+
             if (isProcessBatch()) {
-                BatchRawMessage batchRawMessage = new BatchRawMessage(new BatchMessageReader(resultMapToXml(resultMap)));
+                BatchRawMessage batchRawMessage = new BatchRawMessage(new BatchMessageReader(xml));
 
                 dispatchBatchMessage(batchRawMessage, new DatabaseResponseHandler(resultMap));
             } else {
                 DispatchResult dispatchResult = null;
 
                 try {
-                    dispatchResult = dispatchRawMessage(new RawMessage(resultMapToXml(resultMap)));
+                    dispatchResult = dispatchRawMessage(new RawMessage(xml));
                 } finally {
                     finishDispatch(dispatchResult);
                 }
@@ -334,16 +450,16 @@ public class DatabaseReceiver extends PollConnector {
         }
     }
 
-    private void processAggregateRecord(List<Map<String, Object>> resultsList) throws Exception {
+    private void processAggregateRecord(String xml, List<Map<String, Object>> resultsList) throws Exception {
         if (isProcessBatch()) {
-            BatchRawMessage batchRawMessage = new BatchRawMessage(new BatchMessageReader(resultsListToXml(resultsList)));
+            BatchRawMessage batchRawMessage = new BatchRawMessage(new BatchMessageReader(xml));
 
             dispatchBatchMessage(batchRawMessage, new AggregateResponseHandler(resultsList));
         } else {
             DispatchResult dispatchResult = null;
 
             try {
-                dispatchResult = dispatchRawMessage(new RawMessage(resultsListToXml(resultsList)));
+                dispatchResult = dispatchRawMessage(new RawMessage(xml));
             } finally {
                 finishDispatch(dispatchResult);
             }
@@ -423,6 +539,42 @@ public class DatabaseReceiver extends PollConnector {
         return new DocumentSerializer().toXML(document);
     }
 
+    /**
+     * Writes the resultMap as a result element, without building a document. The columns are named
+     * the same way as in resultMapToXml.
+     */
+    void writeResult(ResultXmlWriter writer, Map<String, Object> resultMap) throws Exception {
+        boolean fixColumnNames = false;
+
+        for (Entry<String, Object> entry : resultMap.entrySet()) {
+            if (entry.getValue() != null && !isValidColumnName(entry.getKey().toLowerCase(Locale.ENGLISH))) {
+                fixColumnNames = true;
+                break;
+            }
+        }
+
+        writer.startResult();
+
+        for (Entry<String, Object> entry : resultMap.entrySet()) {
+            String value = objectToString(entry.getValue());
+
+            if (value != null) {
+                String key = entry.getKey().toLowerCase(Locale.ENGLISH);
+                if (fixColumnNames) {
+                    key = fixColumnName(key);
+                }
+
+                writer.writeColumn(key, value);
+            }
+        }
+
+        writer.endResult();
+    }
+
+    private boolean isValidColumnName(String columnName) {
+        return StringUtils.isNotBlank(columnName) && fixColumnName(columnName).equals(columnName);
+    }
+
     String fixColumnName(String columnName) {
         if (StringUtils.isNotBlank(columnName)) {
             Matcher matcher = INVALID_XML_ELEMENT_NAMESTARTCHAR.matcher(Character.toString(columnName.charAt(0)));
@@ -487,6 +639,16 @@ public class DatabaseReceiver extends PollConnector {
         }
     }
 
+    private static class StreamedRow {
+        private Map<String, Object> resultMap;
+        private String xml;
+
+        private StreamedRow(Map<String, Object> resultMap, String xml) {
+            this.resultMap = resultMap;
+            this.xml = xml;
+        }
+    }
+
     public class DatabaseResponseHandler extends ResponseHandler {
 
         private Map<String, Object> resultMap;
@@ -41,6 +41,7 @@ public class DatabaseReceiverProperties extends ConnectorProperties implements P
     private boolean useScript;
     private boolean aggregateResults;
     private boolean cacheResults;
+    private boolean streamResults;
     private boolean keepConnectionOpen;
     private int updateMode;
     private String retryCount;
@@ -60,6 +61,7 @@ public class DatabaseReceiverProperties extends ConnectorProperties implements P
         useScript = false;
         aggregateResults = false;
         cacheResults = true;
+        streamResults = false;
         keepConnectionOpen = true;
         updateMode = UPDATE_NEVER;
         retryCount = "3";
@@ -160,6 +162,19 @@ public class DatabaseReceiverProperties extends ConnectorProperties implements P
         this.cacheResults = cacheResults;
     }
 
+    /**
+     * If true, the results of the select query are read through a forward-only cursor using the
+     * fetch size, on a separate thread, while the rows read before are dispatched. Results are not
+     * cached in this mode.
+     */
+    public boolean isStreamResults() {
+        return streamResults;
+    }
+
+    public void setStreamResults(boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
     public boolean isKeepConnectionOpen() {
         return keepConnectionOpen;
     }
@@ -261,6 +276,7 @@ public class DatabaseReceiverProperties extends ConnectorProperties implements P
         purgedProperties.put("useScript", useScript);
         purgedProperties.put("aggregateResults", aggregateResults);
         purgedProperties.put("cacheResults", cacheResults);
+        purgedProperties.put("streamResults", streamResults);
         purgedProperties.put("keepConnectionOpen", keepConnectionOpen);
         purgedProperties.put("updateMode", updateMode);
         purgedProperties.put("retryCount", PurgeUtil.getNumericValue(retryCount));
@@ -190,7 +190,7 @@ public class DatabaseReceiverQuery implements DatabaseReceiverDelegate {
                 resultSet = selectStatement.executeQuery();
 
                 // if we are not caching the ResultSet, return it immediately
-                if (connectorProperties.isCacheResults()) {
+                if (connectorProperties.isCacheResults() && !connectorProperties.isStreamResults()) {
                     // if we are caching the ResultSet, convert it into a CachedRowSet and return it
                     cachedRowSet = new MirthCachedRowSet();
                     cachedRowSet.populate(resultSet);
@@ -203,6 +203,11 @@ public class DatabaseReceiverQuery implements DatabaseReceiverDelegate {
                 DbUtils.closeQuietly(resultSet);
                 DbUtils.closeQuietly(cachedRowSet);
 
+                if (connectorProperties.isStreamResults()) {
+                    // The failed statement may have aborted the transaction
+                    rollbackSelectTransaction();
+                }
+
                 if (attempts++ < maxRetryCount && !connector.isTerminated()) {
                     logger.error("An error occurred while polling for messages on channel " + connector.getChannelId() + ", retrying after " + retryInterval + " ms...", e);
 
@@ -242,6 +247,10 @@ public class DatabaseReceiverQuery implements DatabaseReceiverDelegate {
 
     @Override
     public void afterPoll() throws DatabaseReceiverException {
+        if (connectorProperties.isStreamResults()) {
+            commitSelectTransaction();
+        }
+
         if (connectorProperties.getUpdateMode() == DatabaseReceiverProperties.UPDATE_ONCE) {
             try {
                 initUpdateConnection();
@@ -339,7 +348,12 @@ public class DatabaseReceiverQuery implements DatabaseReceiverDelegate {
         } else {
             selectConnection = DriverManager.getConnection(url, username, password);
         }
-        selectConnection.setAutoCommit(true);
+        /*
+         * Drivers such as PostgreSQL only read the results through a cursor, one fetch at a time,
+         * if the statement is forward-only and auto-commit is disabled. When streaming, the
+         * transaction is ended after each poll.
+         */
+        selectConnection.setAutoCommit(!connectorProperties.isStreamResults());
 
         /*
          * Before preparing the select statement, we extract the Apache velocity variables from the
@@ -348,13 +362,40 @@ public class DatabaseReceiverQuery implements DatabaseReceiverDelegate {
          * what values to set on the prepared statement (see JdbcUtils.getParameters()).
          */
         selectParams.clear();
-        selectStatement = selectConnection.prepareStatement(JdbcUtils.extractParameters(connectorProperties.getSelect(), selectParams));
+        String selectQuery = JdbcUtils.extractParameters(connectorProperties.getSelect(), selectParams);
 
-        if (!connectorProperties.isCacheResults()) {
+        if (connectorProperties.isStreamResults()) {
+            selectStatement = selectConnection.prepareStatement(selectQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        } else {
+            selectStatement = selectConnection.prepareStatement(selectQuery);
+        }
+
+        if (!connectorProperties.isCacheResults() || connectorProperties.isStreamResults()) {
             selectStatement.setFetchSize(NumberUtils.toInt(replacer.replaceValues(connectorProperties.getFetchSize(), channelId, channelName)));
         }
     }
 
+    private void commitSelectTransaction() {
+        try {
+            if (selectConnection != null && !selectConnection.isClosed()) {
+                selectConnection.commit();
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to commit the select transaction on channel " + connector.getChannelId(), e);
+            rollbackSelectTransaction();
+        }
+    }
+
+    private void rollbackSelectTransaction() {
+        try {
+            if (selectConnection != null && !selectConnection.isClosed()) {
+                selectConnection.rollback();
+            }
+        } catch (SQLException e) {
+            logger.debug("Failed to roll back the select transaction on channel " + connector.getChannelId(), e);
+        }
+    }
+
     private void closeSelectConnection() {
         DbUtils.closeQuietly(selectStatement);
 
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.jdbc;
+
+import java.sql.ResultSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the rows of a result set on a separate thread, so that the next rows are fetched while the
+ * ones read before them are processed. Each row is converted while the result set is still
+ * positioned on it. At most readAhead converted rows are held at once; the reading thread waits
+ * while the buffer is full.
+ */
+class ResultSetReadAhead<T> {
+
+    interface RowConverter<T> {
+        T convert(ResultSet resultSet) throws Exception;
+    }
+
+    private static final Object END = new Object();
+
+    private ResultSet resultSet;
+    private RowConverter<T> converter;
+    private BlockingQueue<Object> rows;
+    private Thread thread;
+    private volatile boolean closed = false;
+    private boolean done = false;
+
+    public ResultSetReadAhead(ResultSet resultSet, RowConverter<T> converter, int readAhead, String threadName) {
+        this.resultSet = resultSet;
+        this.converter = converter;
+        this.rows = new ArrayBlockingQueue<Object>(Math.max(readAhead, 1));
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readRows();
+            }
+        }, threadName);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Waits for the next row and returns it, or returns null once all rows have been read. If
+     * reading or converting a row failed, the exception is thrown here.
+     */
+    @SuppressWarnings("unchecked")
+    public T take() throws InterruptedException, DatabaseReceiverException {
+        if (done) {
+            return null;
+        }
+
+        Object row = rows.take();
+
+        if (row == END) {
+            done = true;
+            return null;
+        } else if (row instanceof Failure) {
+            done = true;
+            throw new DatabaseReceiverException(((Failure) row).cause);
+        }
+
+        return (T) row;
+    }
+
+    /**
+     * Stops reading and waits for the reading thread to finish, so that the result set can be
+     * closed.
+     */
+    public void close() throws InterruptedException {
+        closed = true;
+        rows.clear();
+        thread.join();
+    }
+
+    private void readRows() {
+        Object last = END;
+
+        try {
+            while (!closed && resultSet.next()) {
+                if (!put(converter.convert(resultSet))) {
+                    return;
+                }
+            }
+        } catch (Throwable t) {
+            last = new Failure(t);
+        }
+
+        put(last);
+    }
+
+    private boolean put(Object row) {
+        try {
+            while (!closed) {
+                if (rows.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return false;
+    }
+
+    private static class Failure {
+        private Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
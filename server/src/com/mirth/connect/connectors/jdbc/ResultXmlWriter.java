@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.jdbc;
+
+/**
+ * Writes Database Reader results as XML text, without building a document first. The output is the
+ * same as the one produced by serializing the equivalent document with DocumentSerializer (for a
+ * single result) or DonkeyElement (for aggregated results).
+ */
+class ResultXmlWriter {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n";
+    private static final String INDENT = "    ";
+
+    private StringBuilder builder = new StringBuilder();
+    private int resultStart;
+    private int columnCount;
+
+    public void writeDeclaration() {
+        builder.append(XML_DECLARATION);
+    }
+
+    public void startResults() {
+        builder.append("<results>\n");
+    }
+
+    public void endResults() {
+        builder.append("</results>\n");
+    }
+
+    public void startResult() {
+        resultStart = builder.length();
+        columnCount = 0;
+        builder.append("<result>\n");
+    }
+
+    /**
+     * Writes a column of the current result. The name must be a valid XML element name.
+     */
+    public void writeColumn(String name, String value) {
+        builder.append(INDENT).append('<').append(name);
+
+        if (value.isEmpty()) {
+            builder.append("/>\n");
+        } else {
+            builder.append('>');
+            appendEscaped(value);
+            builder.append("</").append(name).append(">\n");
+        }
+
+        columnCount++;
+    }
+
+    public void endResult() {
+        if (columnCount == 0) {
+            builder.setLength(resultStart);
+            builder.append("<result/>\n");
+        } else {
+            builder.append("</result>\n");
+        }
+    }
+
+    /**
+     * Appends XML that was already written by another ResultXmlWriter.
+     */
+    public void append(String xml) {
+        builder.append(xml);
+    }
+
+    @Override
+    public String toString() {
+        return builder.toString();
+    }
+
+    private void appendEscaped(String text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+
+            switch (c) {
+                case '&':
+                    builder.append("&amp;");
+                    break;
+                case '<':
+                    builder.append("&lt;");
+                    break;
+                case '>':
+                    builder.append("&gt;");
+                    break;
+                case '\t':
+                case '\n':
+                    builder.append(c);
+                    break;
+                default:
+                    // Control characters and supplementary characters are written as character references
+                    if (c < 0x20 || (c >= 0x7F && c <= 0x9F)) {
+                        builder.append("&#").append((int) c).append(';');
+                    } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                        builder.append("&#").append(Character.toCodePoint(c, text.charAt(++i))).append(';');
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+    }
+}
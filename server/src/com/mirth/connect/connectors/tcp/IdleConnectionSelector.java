@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.tcp;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Watches idle client connections on a single thread, so that a connection only needs a thread of
+ * its own while a message is being read and processed. A parked connection is handed back as soon
+ * as data (or an end of stream) is available, with its channel switched back to blocking mode, so
+ * that it can be read with the regular stream handlers.
+ */
+public class IdleConnectionSelector {
+
+    /**
+     * A client connection that can be parked on the selector.
+     */
+    public interface IdleConnection {
+
+        public SocketChannel getSocketChannel();
+
+        /**
+         * Called once data or an end of stream is available. The connection is no longer parked and
+         * its channel is in blocking mode again.
+         */
+        public void readable();
+
+        /**
+         * Called every time the connection has been parked for the idle timeout without receiving
+         * anything. The connection stays parked.
+         */
+        public void idleTimeout();
+
+        /**
+         * Called if the connection could not be parked, or if the selector is closed while the
+         * connection is parked. The connection should be closed.
+         */
+        public void closed();
+    }
+
+    private static final long MAX_SELECT_MILLIS = 1000;
+
+    private Logger logger = LogManager.getLogger(this.getClass());
+    private String name;
+    private long idleTimeout;
+    private Selector selector;
+    private Thread thread;
+    private Queue<IdleConnection> pending = new ConcurrentLinkedQueue<IdleConnection>();
+    private volatile boolean running;
+    private volatile boolean closed;
+
+    /**
+     * @param name
+     *            The name of the selector thread.
+     * @param idleTimeout
+     *            The time in milliseconds after which idleTimeout() is called on a parked
+     *            connection, or zero to never time out.
+     */
+    public IdleConnectionSelector(String name, long idleTimeout) {
+        this.name = name;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public synchronized void start() throws IOException {
+        selector = Selector.open();
+        running = true;
+
+        thread = new Thread(name) {
+            @Override
+            public void run() {
+                try {
+                    select();
+                } catch (Throwable t) {
+                    logger.error("Error selecting idle connections, closing all idle connections.", t);
+                } finally {
+                    running = false;
+                    closeAll();
+                }
+            }
+        };
+        thread.start();
+    }
+
+    /**
+     * Parks a connection until data is available. The connection must not be used by the calling
+     * thread anymore.
+     */
+    public void park(IdleConnection connection) {
+        pending.add(connection);
+        selector.wakeup();
+
+        if (closed) {
+            // The selector thread has already finished, so make sure the connection is closed
+            closePending();
+        }
+    }
+
+    /**
+     * Stops the selector thread and closes all parked connections.
+     */
+    public void close() throws InterruptedException {
+        Thread thread;
+
+        synchronized (this) {
+            running = false;
+            thread = this.thread;
+        }
+
+        if (thread != null) {
+            selector.wakeup();
+            thread.join();
+        }
+    }
+
+    private void select() throws IOException {
+        List<IdleConnection> ready = new ArrayList<IdleConnection>();
+
+        while (running) {
+            selector.select(idleTimeout > 0 ? Math.min(idleTimeout, MAX_SELECT_MILLIS) : 0);
+            long now = System.currentTimeMillis();
+
+            // Register the connections parked since the last selection
+            IdleConnection connection;
+            while ((connection = pending.poll()) != null) {
+                try {
+                    connection.getSocketChannel().configureBlocking(false);
+                    connection.getSocketChannel().register(selector, SelectionKey.OP_READ, new Parked(connection, now));
+                } catch (Exception e) {
+                    logger.debug("Unable to park idle connection.", e);
+                    connection.closed();
+                }
+            }
+
+            for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+                SelectionKey key = it.next();
+                it.remove();
+                key.cancel();
+                ready.add(((Parked) key.attachment()).connection);
+            }
+
+            if (!ready.isEmpty()) {
+                // The cancelled keys have to be deregistered before the channels can block again
+                selector.selectNow();
+
+                for (IdleConnection readyConnection : ready) {
+                    try {
+                        readyConnection.getSocketChannel().configureBlocking(true);
+                    } catch (Exception e) {
+                        logger.debug("Unable to resume idle connection.", e);
+                        readyConnection.closed();
+                        continue;
+                    }
+
+                    readyConnection.readable();
+                }
+
+                ready.clear();
+            }
+
+            if (idleTimeout > 0) {
+                for (SelectionKey key : selector.keys()) {
+                    Parked parked = (Parked) key.attachment();
+
+                    if (key.isValid() && now - parked.since >= idleTimeout) {
+                        parked.since = now;
+                        parked.connection.idleTimeout();
+                    }
+                }
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            Parked parked = (Parked) key.attach(null);
+
+            if (parked != null) {
+                parked.connection.closed();
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error closing selector.", e);
+        }
+
+        closed = true;
+        closePending();
+    }
+
+    private void closePending() {
+        IdleConnection connection;
+        while ((connection = pending.poll()) != null) {
+            connection.closed();
+        }
+    }
+
+    private static class Parked {
+        private IdleConnection connection;
+        private long since;
+
+        private Parked(IdleConnection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+}
@@ -9,8 +9,10 @@
 
 package com.mirth.connect.connectors.tcp;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.BindException;
@@ -20,16 +22,20 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -91,9 +97,10 @@ public class TcpReceiver extends SourceConnector {
     private Socket recoveryResponseSocket;
     private Thread thread;
     private ExecutorService executor;
-    private Set<Future<Throwable>> results = new HashSet<Future<Throwable>>();
+    private Set<Future<Throwable>> results = ConcurrentHashMap.newKeySet();
     private Set<TcpReader> clientReaders = new HashSet<TcpReader>();
     private AtomicBoolean disposing;
+    private IdleConnectionSelector idleConnectionSelector;
 
     private int maxConnections;
     private int timeout;
@@ -164,18 +171,35 @@ public class TcpReceiver extends SourceConnector {
         results.clear();
         clientReaders.clear();
 
-        if (connectorProperties.isServerMode()) {
+        if (connectorProperties.isServerMode() && connectorProperties.isEventDrivenConnections()) {
+            /*
+             * Idle connections are parked on the selector and resubmitted when data arrives, so
+             * tasks must never be rejected. The max connections property is checked when a socket
+             * is accepted instead.
+             */
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxConnections, maxConnections, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            executor = threadPoolExecutor;
+            idleConnectionSelector = new IdleConnectionSelector("TCP Receiver Idle Connection Selector on " + getChannel().getName() + " (" + getChannelId() + ")", timeout);
+        } else if (connectorProperties.isServerMode()) {
             // If we're in server mode, use the max connections property to initialize the thread pool
             executor = new ThreadPoolExecutor(0, maxConnections, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+            idleConnectionSelector = null;
         } else {
             // If we're in client mode, only a single thread is needed
             executor = Executors.newSingleThreadExecutor();
+            idleConnectionSelector = null;
         }
 
         if (connectorProperties.isServerMode()) {
             try {
+                if (idleConnectionSelector != null) {
+                    idleConnectionSelector.start();
+                }
+
                 createServerSocket();
             } catch (IOException e) {
+                closeIdleConnectionSelectorQuietly();
                 throw new ConnectorTaskException("Failed to create server socket (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").", e);
             }
         }
@@ -229,9 +253,12 @@ public class TcpReceiver extends SourceConnector {
                                     if (disposing.get()) {
                                         return;
                                     }
+                                    if (idleConnectionSelector != null && clientReaders.size() >= maxConnections) {
+                                        throw new RejectedExecutionException("Maximum number of connections reached.");
+                                    }
                                     reader = new TcpReader(socket);
                                     clientReaders.add(reader);
-                                    results.add(executor.submit(reader));
+                                    reader.submit();
                                 } catch (RejectedExecutionException | SocketException e) {
                                     if (e instanceof RejectedExecutionException) {
                                         logger.debug("Executor rejected new task (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").", e);
@@ -309,6 +336,16 @@ public class TcpReceiver extends SourceConnector {
             throw new ConnectorTaskException("Thread join operation interrupted (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").", e);
         }
 
+        // Close any idle connections waiting for data
+        if (idleConnectionSelector != null) {
+            try {
+                idleConnectionSelector.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConnectorTaskException("Idle connection selector disposal interrupted (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").", e);
+            }
+        }
+
         synchronized (clientReaders) {
             for (TcpReader reader : clientReaders) {
                 try {
@@ -423,6 +460,18 @@ public class TcpReceiver extends SourceConnector {
             }
         }
 
+        // Close any idle connections waiting for data
+        if (idleConnectionSelector != null) {
+            try {
+                idleConnectionSelector.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (firstCause == null) {
+                    firstCause = new ConnectorTaskException("Idle connection selector disposal interrupted (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").", e);
+                }
+            }
+        }
+
         // Close all client sockets before interrupting tasks
         synchronized (clientReaders) {
             for (TcpReader reader : clientReaders) {
@@ -508,12 +557,15 @@ public class TcpReceiver extends SourceConnector {
         return configurationController.getProperty(connectorProperties.getProtocol(), "tcpConfigurationClass");
     }
 
-    protected class TcpReader implements Callable<Throwable>, BatchMessageReceiver {
+    protected class TcpReader implements Callable<Throwable>, BatchMessageReceiver, IdleConnectionSelector.IdleConnection {
         private Socket socket = null;
         private Socket responseSocket = null;
+        private InputStream inputStream = null;
         private AtomicBoolean reading = null;
         private AtomicBoolean canRead = null;
         private StreamHandler streamHandler = null;
+        private Future<Throwable> future = null;
+        private boolean resumed = false;
 
         public TcpReader(Socket socket) throws SocketException {
             this.socket = socket;
@@ -538,12 +590,26 @@ public class TcpReceiver extends SourceConnector {
             this.canRead.set(canRead);
         }
 
+        private void submit() {
+            Future<Throwable> previous = future;
+            future = executor.submit(this);
+            results.add(future);
+
+            // The previous task parked this connection, so it's already done
+            if (previous != null) {
+                results.remove(previous);
+            }
+        }
+
         @Override
         public Throwable call() {
             Throwable t = null;
             boolean done = false;
+            boolean parked = false;
 
-            eventController.dispatchEvent(new ConnectorCountEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.CONNECTED, SocketUtil.getLocalAddress(socket) + " -> " + SocketUtil.getInetAddress(socket), true));
+            if (!resumed) {
+                eventController.dispatchEvent(new ConnectorCountEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.CONNECTED, SocketUtil.getLocalAddress(socket) + " -> " + SocketUtil.getInetAddress(socket), true));
+            }
             String originalThreadName = Thread.currentThread().getName();
 
             try {
@@ -554,6 +620,16 @@ public class TcpReceiver extends SourceConnector {
                     streamHandler = null;
 
                     try {
+                        if (resumed) {
+                            resumed = false;
+
+                            // Parked connections are also resumed when the remote side closes them
+                            if (isEndOfStream()) {
+                                done = true;
+                                continue;
+                            }
+                        }
+
                         // Add the socket information to the channelMap
                         Map<String, Object> sourceMap = new HashMap<String, Object>();
                         sourceMap.put("localAddress", socket.getLocalAddress().getHostAddress());
@@ -578,16 +654,16 @@ public class TcpReceiver extends SourceConnector {
                         BatchStreamReader batchStreamReader = null;
                         // If batch is enabled, attempt to get the batch stream reader from the data type
                         if (isProcessBatch()) {
-                            batchStreamReader = dataTypeServerPlugin.getBatchStreamReader(socket.getInputStream(), connectorProperties.getTransmissionModeProperties());
+                            batchStreamReader = dataTypeServerPlugin.getBatchStreamReader(getInputStream(), connectorProperties.getTransmissionModeProperties());
                         }
 
                         // If the data type does not support batch streaming then use the default reader
                         if (batchStreamReader == null) {
                             canStreamBatch = false;
-                            batchStreamReader = new DefaultBatchStreamReader(socket.getInputStream());
+                            batchStreamReader = new DefaultBatchStreamReader(getInputStream());
                         }
 
-                        streamHandler = transmissionModeProvider.getStreamHandler(socket.getInputStream(), outputStream, batchStreamReader, connectorProperties.getTransmissionModeProperties());
+                        streamHandler = transmissionModeProvider.getStreamHandler(getInputStream(), outputStream, batchStreamReader, connectorProperties.getTransmissionModeProperties());
 
                         if (canStreamBatch) {
                             BatchRawMessage rawMessage = new BatchRawMessage(this, sourceMap);
@@ -718,6 +794,10 @@ public class TcpReceiver extends SourceConnector {
                         // If we're not keeping the connection open or if the remote side has already closed the connection, then we're done with the socket
                         if (checkSocket(socket)) {
                             done = true;
+                        } else if (canPark()) {
+                            // Release this thread until more data is received
+                            parked = true;
+                            break;
                         }
                     } catch (IOException e) {
                         boolean timeout = e instanceof SocketTimeoutException || !(e instanceof StreamHandlerException) && e.getCause() != null && e.getCause() instanceof SocketTimeoutException;
@@ -762,24 +842,99 @@ public class TcpReceiver extends SourceConnector {
                 eventController.dispatchEvent(new ErrorEvent(getChannelId(), getMetaDataId(), null, ErrorEventType.SOURCE_CONNECTOR, getSourceName(), connectorProperties.getName(), "Error receiving message", e));
                 eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.FAILURE, "Error receiving message from " + SocketUtil.getLocalAddress(socket) + ": " + e.getMessage()));
             } finally {
-                logger.debug("Done with socket, closing (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ")...");
+                if (parked) {
+                    logger.debug("Waiting for data on idle socket (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ")...");
+                } else {
+                    logger.debug("Done with socket, closing (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ")...");
+                    close();
+                }
+
+                Thread.currentThread().setName(originalThreadName);
+            }
+
+            if (parked) {
+                idleConnectionSelector.park(this);
+            }
+
+            return t;
+        }
+
+        private void close() {
+            // We're done reading, so close everything up
+            closeSocketQuietly(socket);
+            if (connectorProperties.getRespondOnNewConnection() == TcpReceiverProperties.NEW_CONNECTION) {
+                closeSocketQuietly(responseSocket);
+            }
+
+            eventController.dispatchEvent(new ConnectorCountEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.DISCONNECTED, SocketUtil.getLocalAddress(socket) + " -> " + SocketUtil.getInetAddress(socket), false));
+
+            synchronized (clientReaders) {
+                clientReaders.remove(this);
+            }
+        }
 
-                // We're done reading, so close everything up
-                closeSocketQuietly(socket);
-                if (connectorProperties.getRespondOnNewConnection() == TcpReceiverProperties.NEW_CONNECTION) {
-                    closeSocketQuietly(responseSocket);
+        private InputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                if (socket.getChannel() != null) {
+                    // Channel sockets are not buffered, and the same buffer must be used for the whole connection
+                    inputStream = new BufferedInputStream(socket.getInputStream());
+                } else {
+                    inputStream = socket.getInputStream();
                 }
+            }
+
+            return inputStream;
+        }
+
+        /*
+         * Connections can only be parked if they were accepted from a channel, and if no data has
+         * been received yet for the next message.
+         */
+        private boolean canPark() throws IOException {
+            return idleConnectionSelector != null && socket.getChannel() != null && getInputStream().available() == 0;
+        }
+
+        private boolean isEndOfStream() throws IOException {
+            getInputStream().mark(1);
+
+            try {
+                return inputStream.read() == -1;
+            } finally {
+                inputStream.reset();
+            }
+        }
 
-                eventController.dispatchEvent(new ConnectorCountEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.DISCONNECTED, SocketUtil.getLocalAddress(socket) + " -> " + SocketUtil.getInetAddress(socket), false));
+        @Override
+        public SocketChannel getSocketChannel() {
+            return socket.getChannel();
+        }
 
-                synchronized (clientReaders) {
-                    clientReaders.remove(this);
+        @Override
+        public void readable() {
+            resumed = true;
+
+            try {
+                if (disposing.get()) {
+                    throw new RejectedExecutionException("Connector is stopping.");
                 }
 
-                Thread.currentThread().setName(originalThreadName);
+                submit();
+            } catch (RejectedExecutionException e) {
+                logger.debug("Executor rejected idle connection task (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").", e);
+                close();
             }
+        }
 
-            return t;
+        @Override
+        public void idleTimeout() {
+            logger.debug("Timeout waiting for data on idle socket (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").");
+            eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.INFO, "Timeout waiting for message from " + SocketUtil.getLocalAddress(socket) + ". "));
+        }
+
+        @Override
+        public void closed() {
+            logger.debug("Closing idle socket (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").");
+            close();
         }
 
         @Override
@@ -884,11 +1039,17 @@ public class TcpReceiver extends SourceConnector {
         int bindAttempts = 0;
         boolean success = false;
 
+        // Idle connections can only be parked on the selector if the sockets are accepted from a channel
+        boolean useChannel = idleConnectionSelector != null && configuration.getClass() == DefaultTcpConfiguration.class;
+        if (idleConnectionSelector != null && !useChannel) {
+            logger.warn("Event-driven connections are not supported by TCP configuration " + configuration.getClass().getName() + ", using one thread per connection (" + connectorProperties.getName() + " \"Source\" on channel " + getChannelId() + ").");
+        }
+
         // If an error occurred during binding, try again. If the JVM fails to bind ten times, throw the exception.
         while (!success) {
             try {
                 bindAttempts++;
-                serverSocket = configuration.createServerSocket(port, backlog, hostAddress);
+                serverSocket = useChannel ? createServerSocketChannel(port, backlog, hostAddress) : configuration.createServerSocket(port, backlog, hostAddress);
                 success = true;
             } catch (BindException e) {
                 if (bindAttempts >= 10) {
@@ -904,6 +1065,29 @@ public class TcpReceiver extends SourceConnector {
         }
     }
     
+    private ServerSocket createServerSocketChannel(int port, int backlog, InetAddress hostAddress) throws IOException {
+        ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+
+        try {
+            serverSocketChannel.socket().bind(new InetSocketAddress(hostAddress, port), backlog);
+        } catch (IOException e) {
+            serverSocketChannel.close();
+            throw e;
+        }
+
+        return serverSocketChannel.socket();
+    }
+
+    private void closeIdleConnectionSelectorQuietly() {
+        if (idleConnectionSelector != null) {
+            try {
+                idleConnectionSelector.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     protected ServerSocket getServerSocket() {
     	return serverSocket;
     }
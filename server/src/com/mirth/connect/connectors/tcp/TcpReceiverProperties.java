@@ -49,6 +49,7 @@ public class TcpReceiverProperties extends ConnectorProperties implements Listen
     private String bufferSize;
     private String maxConnections;
     private boolean keepConnectionOpen;
+    private boolean eventDrivenConnections;
     private boolean dataTypeBinary;
     private String charsetEncoding;
     private int respondOnNewConnection;
@@ -75,6 +76,7 @@ public class TcpReceiverProperties extends ConnectorProperties implements Listen
         this.bufferSize = "65536";
         this.maxConnections = "10";
         this.keepConnectionOpen = true;
+        this.eventDrivenConnections = false;
         this.dataTypeBinary = false;
         this.charsetEncoding = CharsetUtils.DEFAULT_ENCODING;
         this.respondOnNewConnection = SAME_CONNECTION;
@@ -180,6 +182,14 @@ public class TcpReceiverProperties extends ConnectorProperties implements Listen
         this.keepConnectionOpen = keepConnectionOpen;
     }
 
+    public boolean isEventDrivenConnections() {
+        return eventDrivenConnections;
+    }
+
+    public void setEventDrivenConnections(boolean eventDrivenConnections) {
+        this.eventDrivenConnections = eventDrivenConnections;
+    }
+
     public boolean isDataTypeBinary() {
         return dataTypeBinary;
     }
@@ -316,6 +326,7 @@ public class TcpReceiverProperties extends ConnectorProperties implements Listen
         purgedProperties.put("bufferSize", PurgeUtil.getNumericValue(bufferSize));
         purgedProperties.put("maxConnections", PurgeUtil.getNumericValue(maxConnections));
         purgedProperties.put("keepConnectionOpen", keepConnectionOpen);
+        purgedProperties.put("eventDrivenConnections", eventDrivenConnections);
         purgedProperties.put("dataTypeBinary", dataTypeBinary);
         purgedProperties.put("charsetEncoding", charsetEncoding);
         purgedProperties.put("respondOnNewConnection", respondOnNewConnection);
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.ws;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLParameters;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.mirth.connect.connectors.http.HttpListenerServer;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * The HTTP servers shared by all Web Service Listeners. Listeners on the same host and port publish
+ * their services as contexts of one server, and all servers run their exchanges on one executor,
+ * so the number of threads depends on the load rather than on the number of deployed listeners.
+ */
+public class WebServiceListenerServer {
+    // This determines how many client requests can queue up while waiting for the server socket to accept
+    private static final int DEFAULT_BACKLOG = 256;
+
+    private static WebServiceListenerServer instance = null;
+
+    private Map<String, SharedServer> servers = new HashMap<String, SharedServer>();
+    private ThreadPoolExecutor executor;
+
+    public static WebServiceListenerServer getInstance() {
+        synchronized (WebServiceListenerServer.class) {
+            if (instance == null) {
+                instance = new WebServiceListenerServer();
+            }
+
+            return instance;
+        }
+    }
+
+    /**
+     * Returns the server listening on the given host and port. If there is none yet, the given
+     * unbound server is bound and started. Otherwise it is discarded, and must use the same
+     * connection settings as the existing server (see getConnectionSettings).
+     */
+    public synchronized HttpServer acquire(String host, int port, HttpServer newServer) throws IOException {
+        String key = getKey(host, port);
+        SharedServer sharedServer = servers.get(key);
+
+        if (sharedServer != null) {
+            String difference = HttpListenerServer.getDifference(Collections.singletonList(getConnectionSettings(sharedServer.server)), Collections.singletonList(getConnectionSettings(newServer)));
+            if (difference != null) {
+                throw new IOException("Port " + port + " is already used by another Web Service Listener with a different " + difference + ". Web Service Listeners sharing a port must use the same connection settings.");
+            }
+        } else {
+            newServer.bind(new InetSocketAddress(host, port), DEFAULT_BACKLOG);
+            newServer.setExecutor(getExecutor());
+            newServer.start();
+
+            sharedServer = new SharedServer(newServer);
+            servers.put(key, sharedServer);
+        }
+
+        sharedServer.references++;
+        return sharedServer.server;
+    }
+
+    /**
+     * Removes the given context, if any, and stops the server once no listener uses it anymore.
+     */
+    public synchronized void release(String host, int port, HttpContext context) {
+        String key = getKey(host, port);
+        SharedServer sharedServer = servers.get(key);
+
+        if (sharedServer == null) {
+            return;
+        }
+
+        if (context != null) {
+            try {
+                sharedServer.server.removeContext(context);
+            } catch (IllegalArgumentException e) {
+                // Already removed when the endpoint was stopped
+            }
+        }
+
+        if (--sharedServer.references == 0) {
+            servers.remove(key);
+            sharedServer.server.stop(1);
+
+            if (servers.isEmpty()) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the settings of the given server that listeners sharing it must agree on: the
+     * protocol, and for HTTPS the SSL context and the cipher suites, TLS versions and client
+     * authentication its configurator sets up.
+     */
+    static Map<String, String> getConnectionSettings(HttpServer server) {
+        Map<String, String> settings = new LinkedHashMap<String, String>();
+
+        if (server instanceof HttpsServer) {
+            settings.put("protocol", "https");
+
+            HttpsConfigurator configurator = ((HttpsServer) server).getHttpsConfigurator();
+            if (configurator != null) {
+                settings.put("key store", HttpListenerServer.getKeyStoreSetting(null, null, null, configurator.getSSLContext()));
+
+                RecordingHttpsParameters parameters = new RecordingHttpsParameters(configurator);
+                try {
+                    configurator.configure(parameters);
+                } catch (RuntimeException e) {
+                    // The settings can only be told apart by the configurator itself
+                    settings.put("HTTPS configuration", "configurator " + System.identityHashCode(configurator));
+                }
+
+                SSLParameters sslParameters = parameters.sslParameters;
+                if (sslParameters != null) {
+                    settings.put("cipher suites", Arrays.toString(sslParameters.getCipherSuites()));
+                    settings.put("TLS protocols", Arrays.toString(sslParameters.getProtocols()));
+                    settings.put("client authentication", getClientAuth(sslParameters.getNeedClientAuth(), sslParameters.getWantClientAuth()));
+                } else {
+                    settings.put("cipher suites", Arrays.toString(parameters.getCipherSuites()));
+                    settings.put("TLS protocols", Arrays.toString(parameters.getProtocols()));
+                    settings.put("client authentication", getClientAuth(parameters.getNeedClientAuth(), parameters.getWantClientAuth()));
+                }
+            }
+        } else {
+            settings.put("protocol", "http");
+        }
+
+        return settings;
+    }
+
+    private static String getClientAuth(boolean need, boolean want) {
+        return need ? "required" : want ? "requested" : "none";
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            int maxThreads = HttpListenerServer.getMaxThreads();
+            executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private AtomicInteger threadNumber = new AtomicInteger(1);
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, "Web Service Listener Thread " + threadNumber.getAndIncrement());
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        return executor;
+    }
+
+    private String getKey(String host, int port) {
+        return StringUtils.defaultIfBlank(host, "0.0.0.0") + ":" + port;
+    }
+
+    /**
+     * Records the parameters a configurator would apply to a new connection.
+     */
+    private static class RecordingHttpsParameters extends HttpsParameters {
+        private HttpsConfigurator configurator;
+        private SSLParameters sslParameters;
+
+        private RecordingHttpsParameters(HttpsConfigurator configurator) {
+            this.configurator = configurator;
+        }
+
+        @Override
+        public HttpsConfigurator getHttpsConfigurator() {
+            return configurator;
+        }
+
+        @Override
+        public InetSocketAddress getClientAddress() {
+            return new InetSocketAddress(0);
+        }
+
+        @Override
+        public void setSSLParameters(SSLParameters sslParameters) {
+            this.sslParameters = sslParameters;
+        }
+    }
+
+    private static class SharedServer {
+        private HttpServer server;
+        private int references = 0;
+
+        private SharedServer(HttpServer server) {
+            this.server = server;
+        }
+    }
+}
@@ -12,15 +12,12 @@ package com.mirth.connect.connectors.ws;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
-import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.ws.Binding;
@@ -69,18 +66,17 @@ import com.sun.net.httpserver.HttpPrincipal;
 import com.sun.net.httpserver.HttpServer;
 
 public class WebServiceReceiver extends SourceConnector {
-    // This determines how many client requests can queue up while waiting for the server socket to accept
-    private static final int DEFAULT_BACKLOG = 256;
-
     private Logger logger = LogManager.getLogger(this.getClass());
     private EventController eventController = ControllerFactory.getFactory().createEventController();
     private ConfigurationController configurationController = ControllerFactory.getFactory().createConfigurationController();
     private ContextFactoryController contextFactoryController = ControllerFactory.getFactory().createContextFactoryController();
-    private ExecutorService executor;
     private Endpoint webServiceEndpoint;
     private TemplateValueReplacer replacer = new TemplateValueReplacer();
     private WebServiceConfiguration configuration;
     private HttpServer server;
+    private String host;
+    private int port;
+    private HttpContext context;
     private WebServiceReceiverProperties connectorProperties;
     private HttpAuthConnectorPluginProperties authProps;
     private AuthenticatorProvider authenticatorProvider;
@@ -131,8 +127,8 @@ public class WebServiceReceiver extends SourceConnector {
     public void onStart() throws ConnectorTaskException {
         String channelId = getChannelId();
         String channelName = getChannel().getName();
-        String host = replacer.replaceValues(connectorProperties.getListenerConnectorProperties().getHost(), channelId, channelName);
-        int port = NumberUtils.toInt(replacer.replaceValues(connectorProperties.getListenerConnectorProperties().getPort(), channelId, channelName));
+        host = replacer.replaceValues(connectorProperties.getListenerConnectorProperties().getHost(), channelId, channelName);
+        port = NumberUtils.toInt(replacer.replaceValues(connectorProperties.getListenerConnectorProperties().getPort(), channelId, channelName));
 
         logger.debug("starting Web Service HTTP server on port: " + port);
 
@@ -151,22 +147,13 @@ public class WebServiceReceiver extends SourceConnector {
                 logger.error("Failed to set properties sun.net.httpserver.maxReqTime and sun.net.httpserver.maxRspTime", e);
             }
             configuration.configureReceiver(this);
-            server.bind(new InetSocketAddress(host, port), DEFAULT_BACKLOG);
+            // Listeners on the same port share one server and the executor of all Web Service Listeners
+            server = WebServiceListenerServer.getInstance().acquire(host, port, server);
         } catch (Exception e) {
+            server = null;
             throw new ConnectorTaskException("Error creating HTTP Server.", e);
         }
 
-        // TODO: Make a max connections property for this
-        int processingThreads = connectorProperties.getSourceConnectorProperties().getProcessingThreads();
-        if (processingThreads < 1) {
-            processingThreads = 1;
-        }
-
-        // Allow more than the channel processing threads so WDSL requests can be accepted even if all processing threads are busy
-        executor = Executors.newFixedThreadPool(processingThreads + 4);
-        server.setExecutor(executor);
-        server.start();
-
         AcceptMessage acceptMessageWebService = null;
 
         // Store the current context classloader so we can restore it later
@@ -213,7 +200,13 @@ public class WebServiceReceiver extends SourceConnector {
             binding.setHandlerChain(handlerChain);
 
             String serviceName = replacer.replaceValues(connectorProperties.getServiceName(), channelId, channelName);
-            HttpContext context = server.createContext("/services/" + serviceName);
+            try {
+                context = server.createContext("/services/" + serviceName);
+            } catch (IllegalArgumentException e) {
+                WebServiceListenerServer.getInstance().release(host, port, null);
+                server = null;
+                throw new ConnectorTaskException("Service \"" + serviceName + "\" on port " + port + " is already used by another Web Service Listener.", e);
+            }
 
             // Set a security authenticator if needed
             if (authenticatorProvider != null) {
@@ -241,11 +234,9 @@ public class WebServiceReceiver extends SourceConnector {
             }
 
             if (server != null) {
-                server.stop(1);
-            }
-
-            if (executor != null) {
-                executor.shutdown();
+                WebServiceListenerServer.getInstance().release(host, port, context);
+                server = null;
+                context = null;
             }
         } catch (Exception e) {
             firstCause = new ConnectorTaskException("Failed to stop Web Service Listener", e);
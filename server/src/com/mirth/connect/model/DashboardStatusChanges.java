@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * The dashboard statuses that changed after a given status version. If fullRefresh is true, the
+ * given version is no longer known to the server and the whole status list must be retrieved
+ * again. The version should be passed in the next request for changes.
+ */
+@XStreamAlias("dashboardStatusChanges")
+public class DashboardStatusChanges implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long version;
+    private boolean fullRefresh;
+    private List<DashboardStatus> dashboardStatuses = new ArrayList<DashboardStatus>();
+    private Set<String> removedChannelIds = new HashSet<String>();
+    private int deployedChannelCount;
+
+    public DashboardStatusChanges(long version, boolean fullRefresh) {
+        this.version = version;
+        this.fullRefresh = fullRefresh;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+
+    public void setFullRefresh(boolean fullRefresh) {
+        this.fullRefresh = fullRefresh;
+    }
+
+    public List<DashboardStatus> getDashboardStatuses() {
+        return dashboardStatuses;
+    }
+
+    public void setDashboardStatuses(List<DashboardStatus> dashboardStatuses) {
+        this.dashboardStatuses = dashboardStatuses;
+    }
+
+    public Set<String> getRemovedChannelIds() {
+        return removedChannelIds;
+    }
+
+    public void setRemovedChannelIds(Set<String> removedChannelIds) {
+        this.removedChannelIds = removedChannelIds;
+    }
+
+    public int getDeployedChannelCount() {
+        return deployedChannelCount;
+    }
+
+    public void setDeployedChannelCount(int deployedChannelCount) {
+        this.deployedChannelCount = deployedChannelCount;
+    }
+}
@@ -35,6 +35,10 @@ public class DatabaseSettings extends AbstractSettings implements Serializable,
     public static final int DEFAULT_MAX_CONNECTIONS = 20;
     public static final int DEFAULT_MAX_RETRY = 2;
     public static final int DEFAULT_MAX_RETRY_WAIT_TIME = 10000;
+    public static final int DEFAULT_MESSAGE_ID_BLOCK_SIZE = 1;
+    public static final int DEFAULT_GROUP_COMMIT_WRITERS = 1;
+    public static final int DEFAULT_GROUP_COMMIT_MAX_SIZE = 100;
+    public static final int DEFAULT_CONTENT_INDEX_QUEUE_SIZE = 100000;
 
     private static Map<String, String> databaseDriverMap = null;
     private static Map<String, Boolean> databaseJdbc4Map = null;
@@ -84,6 +88,13 @@ public class DatabaseSettings extends AbstractSettings implements Serializable,
     private Integer databaseConnectionMaxRetry;
     private Integer databaseConnectionMaxRetryWaitTimeInMs;
     private String databaseReadOnlyPool;
+    private Integer messageIdBlockSize;
+    private boolean groupCommit;
+    private Integer groupCommitWriters;
+    private Integer groupCommitMaxSize;
+    private boolean contentIndex;
+    private Integer contentIndexQueueSize;
+    private boolean compactMaps;
 
     private String dirBase;
 
@@ -247,6 +258,62 @@ public class DatabaseSettings extends AbstractSettings implements Serializable,
         this.databaseConnectionMaxRetryWaitTimeInMs = databaseConnectionMaxRetryWaitTimeInMs;
     }
 
+    public Integer getMessageIdBlockSize() {
+        return messageIdBlockSize;
+    }
+
+    public void setMessageIdBlockSize(Integer messageIdBlockSize) {
+        this.messageIdBlockSize = messageIdBlockSize;
+    }
+
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    public void setGroupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    public Integer getGroupCommitWriters() {
+        return groupCommitWriters;
+    }
+
+    public void setGroupCommitWriters(Integer groupCommitWriters) {
+        this.groupCommitWriters = groupCommitWriters;
+    }
+
+    public Integer getGroupCommitMaxSize() {
+        return groupCommitMaxSize;
+    }
+
+    public void setGroupCommitMaxSize(Integer groupCommitMaxSize) {
+        this.groupCommitMaxSize = groupCommitMaxSize;
+    }
+
+    public boolean isContentIndex() {
+        return contentIndex;
+    }
+
+    public void setContentIndex(boolean contentIndex) {
+        this.contentIndex = contentIndex;
+    }
+
+    public Integer getContentIndexQueueSize() {
+        return contentIndexQueueSize;
+    }
+
+    public void setContentIndexQueueSize(Integer contentIndexQueueSize) {
+        this.contentIndexQueueSize = contentIndexQueueSize;
+    }
+
+    public boolean isCompactMaps() {
+        return compactMaps;
+    }
+
+    public void setCompactMaps(boolean compactMaps) {
+        this.compactMaps = compactMaps;
+    }
+
     String getMappedDatabaseDriver() {
         if (StringUtils.isBlank(databaseDriver)) {
             return MapUtils.getString(databaseDriverMap, getDatabase());
@@ -297,6 +364,13 @@ public class DatabaseSettings extends AbstractSettings implements Serializable,
         setDatabasePool(properties.getProperty(DatabaseConstants.DATABASE_POOL));
         setDatabaseConnectionMaxRetry(NumberUtils.toInt(properties.getProperty(DatabaseConstants.DATABASE_CONN_MAX_RETRY), DEFAULT_MAX_RETRY));
         setDatabaseConnectionMaxRetryWaitTimeInMs(NumberUtils.toInt(properties.getProperty(DatabaseConstants.DATABASE_CONN_RETRY_TIMEOUT), DEFAULT_MAX_RETRY_WAIT_TIME));
+        setMessageIdBlockSize(NumberUtils.toInt(properties.getProperty(DatabaseConstants.DATABASE_MESSAGE_ID_BLOCK_SIZE), DEFAULT_MESSAGE_ID_BLOCK_SIZE));
+        setGroupCommit(Boolean.parseBoolean(properties.getProperty(DatabaseConstants.DATABASE_GROUP_COMMIT)));
+        setGroupCommitWriters(NumberUtils.toInt(properties.getProperty(DatabaseConstants.DATABASE_GROUP_COMMIT_WRITERS), DEFAULT_GROUP_COMMIT_WRITERS));
+        setGroupCommitMaxSize(NumberUtils.toInt(properties.getProperty(DatabaseConstants.DATABASE_GROUP_COMMIT_MAX_SIZE), DEFAULT_GROUP_COMMIT_MAX_SIZE));
+        setContentIndex(Boolean.parseBoolean(properties.getProperty(DatabaseConstants.DATABASE_CONTENT_INDEX)));
+        setContentIndexQueueSize(NumberUtils.toInt(properties.getProperty(DatabaseConstants.DATABASE_CONTENT_INDEX_QUEUE_SIZE), DEFAULT_CONTENT_INDEX_QUEUE_SIZE));
+        setCompactMaps(Boolean.parseBoolean(properties.getProperty(DatabaseConstants.DATABASE_COMPACT_MAPS)));
 
         setDatabaseReadOnly(properties.getProperty(DatabaseConstants.DATABASE_READONLY));
         setDatabaseReadOnlyUrl(properties.getProperty(DatabaseConstants.DATABASE_READONLY_URL));
@@ -381,6 +455,28 @@ public class DatabaseSettings extends AbstractSettings implements Serializable,
             configuration.setProperty(DatabaseConstants.DATABASE_CONN_RETRY_TIMEOUT, StringUtils.EMPTY);
         }
 
+        if (getMessageIdBlockSize() != null) {
+            configuration.setProperty(DatabaseConstants.DATABASE_MESSAGE_ID_BLOCK_SIZE, getMessageIdBlockSize().toString());
+        }
+
+        configuration.setProperty(DatabaseConstants.DATABASE_GROUP_COMMIT, Boolean.toString(groupCommit));
+
+        if (getGroupCommitWriters() != null) {
+            configuration.setProperty(DatabaseConstants.DATABASE_GROUP_COMMIT_WRITERS, getGroupCommitWriters().toString());
+        }
+
+        if (getGroupCommitMaxSize() != null) {
+            configuration.setProperty(DatabaseConstants.DATABASE_GROUP_COMMIT_MAX_SIZE, getGroupCommitMaxSize().toString());
+        }
+
+        configuration.setProperty(DatabaseConstants.DATABASE_CONTENT_INDEX, Boolean.toString(contentIndex));
+
+        if (getContentIndexQueueSize() != null) {
+            configuration.setProperty(DatabaseConstants.DATABASE_CONTENT_INDEX_QUEUE_SIZE, getContentIndexQueueSize().toString());
+        }
+
+        configuration.setProperty(DatabaseConstants.DATABASE_COMPACT_MAPS, Boolean.toString(compactMaps));
+
         /**** READ ONLY PROPERTIES ****/
 
         if (getDatabaseReadOnly() != null) {
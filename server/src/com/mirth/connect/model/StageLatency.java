@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.model;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * The latency distribution of one processing stage of a deployed channel, since it was deployed.
+ * All times are in microseconds. The metaDataId is null for channel wide stages and database
+ * operations.
+ */
+@XStreamAlias("stageLatency")
+public class StageLatency implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String channelId;
+    private Integer metaDataId;
+    private String stage;
+    private long count = 0L;
+    private long mean = 0L;
+    private long p50 = 0L;
+    private long p90 = 0L;
+    private long p99 = 0L;
+    private long p999 = 0L;
+    private long max = 0L;
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(String channelId) {
+        this.channelId = channelId;
+    }
+
+    public Integer getMetaDataId() {
+        return metaDataId;
+    }
+
+    public void setMetaDataId(Integer metaDataId) {
+        this.metaDataId = metaDataId;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public void setMean(long mean) {
+        this.mean = mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public void setP50(long p50) {
+        this.p50 = p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public void setP90(long p90) {
+        this.p90 = p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public void setP99(long p99) {
+        this.p99 = p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public void setP999(long p999) {
+        this.p999 = p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public void setMax(long max) {
+        this.max = max;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return EqualsBuilder.reflectionEquals(this, obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, CalendarToStringStyle.instance());
+    }
+}
@@ -41,6 +41,7 @@ import com.mirth.connect.model.Connector;
 import com.mirth.connect.model.ConnectorMetaData;
 import com.mirth.connect.model.DashboardChannelInfo;
 import com.mirth.connect.model.DashboardStatus;
+import com.mirth.connect.model.DashboardStatusChanges;
 import com.mirth.connect.model.DeployedChannelInfo;
 import com.mirth.connect.model.DriverInfo;
 import com.mirth.connect.model.ExtensionLibrary;
@@ -56,6 +57,7 @@ import com.mirth.connect.model.Rule;
 import com.mirth.connect.model.ServerConfiguration;
 import com.mirth.connect.model.ServerEvent;
 import com.mirth.connect.model.ServerSettings;
+import com.mirth.connect.model.StageLatency;
 import com.mirth.connect.model.Step;
 import com.mirth.connect.model.Transformer;
 import com.mirth.connect.model.UpdateSettings;
@@ -109,6 +111,7 @@ public class ObjectXMLSerializer extends XStreamSerializer {
         ResourcePropertiesList.class,
         DashboardStatus.class,
         DashboardChannelInfo.class,
+        DashboardStatusChanges.class,
         DefaultTrigger.class,
         DeployedChannelInfo.class,
         DriverInfo.class,
@@ -124,6 +127,7 @@ public class ObjectXMLSerializer extends XStreamSerializer {
         ServerConfiguration.class,
         ServerEvent.class,
         ServerSettings.class,
+        StageLatency.class,
         Step.class,
         Transformer.class,
         UpdateSettings.class,
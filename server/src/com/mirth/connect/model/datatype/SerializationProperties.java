@@ -22,6 +22,15 @@ public abstract class SerializationProperties extends DataTypePropertiesGroup {
     }
 
     public void setSerializationType(SerializationType serializationType) {}
+
+    /**
+     * If the serialization type is RAW, this may return a script expression that creates the
+     * object given to filter and transformer scripts (as msg or tmp) from the raw content, which is
+     * given as a script expression. If this returns null, scripts get the raw content as a string.
+     */
+    public String getRawMessageScript(String content) {
+        return null;
+    }
     
     // @formatter:off
     @Override public void migrate3_2_0(DonkeyElement element) {}
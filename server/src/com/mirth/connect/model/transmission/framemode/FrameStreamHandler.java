@@ -9,15 +9,19 @@
 
 package com.mirth.connect.model.transmission.framemode;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,10 +29,14 @@ import org.apache.logging.log4j.Logger;
 import com.mirth.connect.donkey.server.message.StreamHandler;
 import com.mirth.connect.donkey.server.message.batch.BatchStreamReader;
 import com.mirth.connect.model.transmission.TransmissionModeProperties;
+import com.mirth.connect.model.transmission.batch.DefaultBatchStreamReader;
 import com.mirth.connect.util.TcpUtil;
 
 public class FrameStreamHandler extends StreamHandler {
 
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_RETAINED_FRAME_SIZE = 1024 * 1024;
+
     private Logger logger = LogManager.getLogger(this.getClass());
 
     protected byte[] startOfMessageBytes;
@@ -43,6 +51,12 @@ public class FrameStreamHandler extends StreamHandler {
     private boolean checkStartOfMessageBytes;
     private int currentByte;
 
+    private ByteBuffer readBuffer; // Bytes read ahead by readBuffered, the position is the next byte to scan.
+    private byte[] frameBytes; // The bytes captured so far by readBuffered, including any end bytes.
+    private int frameLength;
+    private byte[] startBytesRead; // The first bytes read by readBuffered while looking for the start of message bytes.
+    private int startBytesReadLength;
+
     public FrameStreamHandler(InputStream inputStream, OutputStream outputStream, BatchStreamReader batchStreamReader, TransmissionModeProperties transmissionModeProperties) {
         super(inputStream, outputStream, batchStreamReader);
         FrameModeProperties frameModeProperties = (FrameModeProperties) transmissionModeProperties;
@@ -107,6 +121,10 @@ public class FrameStreamHandler extends StreamHandler {
             return null;
         }
 
+        if (isBufferedReadSupported()) {
+            return readBuffered();
+        }
+
         capturedBytes = new ByteArrayOutputStream();
         List<Byte> firstBytes = new ArrayList<Byte>();
         // A List is used here to allow the buffer to simulate a "shifting window" of potential bytes.
@@ -237,6 +255,246 @@ public class FrameStreamHandler extends StreamHandler {
         return capturedBytes.size() > 0 ? capturedBytes.toByteArray() : null;
     }
 
+    /*
+     * Bytes can only be read in bulk if nothing needs to look at them one at a time, and if the
+     * stream lets us give back the bytes read past the end of the message. This is always the case
+     * for TCP sockets, which are wrapped in a BufferedInputStream. Subclasses are excluded since they
+     * may override the single byte read method.
+     */
+    private boolean isBufferedReadSupported() {
+        if (batchStreamReader == null || batchStreamReader.getClass() != DefaultBatchStreamReader.class || batchStreamReader.getInputStream() != inputStream) {
+            return false;
+        }
+
+        Class<?> streamClass = inputStream.getClass();
+        return streamClass == BufferedInputStream.class || streamClass == ByteArrayInputStream.class;
+    }
+
+    /**
+     * Reads the next message the same way as read(), but scans blocks of bytes for the start and end
+     * of message bytes instead of reading and comparing one byte at a time. The read and capture
+     * buffers are kept between messages, so the only allocation per message is the returned array.
+     * 
+     * A block read only returns the bytes that are already available, so this never waits for more
+     * data than the byte-by-byte reader would. The input stream is marked before each block read,
+     * and any bytes after the end of the message are given back to the stream. They can still be
+     * seen by anyone else using the stream, e.g. to check whether the remote side has closed.
+     */
+    private byte[] readBuffered() throws IOException {
+        if (readBuffer == null) {
+            readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            readBuffer.limit(0);
+            frameBytes = new byte[READ_BUFFER_SIZE];
+        } else if (frameBytes.length > MAX_RETAINED_FRAME_SIZE) {
+            // Don't hold on to the memory of an unusually large message
+            frameBytes = new byte[READ_BUFFER_SIZE];
+        }
+
+        if (startBytesRead == null || startBytesRead.length != startOfMessageBytes.length) {
+            startBytesRead = new byte[startOfMessageBytes.length];
+        }
+
+        frameLength = 0;
+        startBytesReadLength = 0;
+
+        try {
+            // Skip to the beginning of the message
+            if (checkStartOfMessageBytes) {
+                if (!scanToStartOfMessage()) {
+                    streamDone = true;
+                    if (startBytesReadLength > 0) {
+                        throw new FrameStreamHandlerException(true, startOfMessageBytes, Arrays.copyOf(startBytesRead, startBytesReadLength));
+                    } else {
+                        // The input stream ended before the begin bytes were detected, so return null
+                        return null;
+                    }
+                }
+
+                // Begin bytes were found
+                checkStartOfMessageBytes = false;
+            }
+
+            int messageLength = scanToEndOfMessage();
+
+            if (messageLength >= 0) {
+                // Ending bytes sequence has been detected, give back any bytes read past it
+                streamDone = true;
+                unreadBuffer();
+                return Arrays.copyOf(frameBytes, messageLength);
+            }
+
+            if (endOfMessageBytes.length > 0 && frameLength > 0) {
+                streamDone = true;
+            }
+        } catch (Throwable e) {
+            if (!returnDataOnException) {
+                if (e instanceof IOException) {
+                    // If an IOException occurred and we're not allowing data to return, throw the exception
+
+                    if (checkStartOfMessageBytes && startBytesReadLength > 0) {
+                        // At least some bytes have been read, but the start of message bytes were not detected
+                        throw new FrameStreamHandlerException(true, startOfMessageBytes, Arrays.copyOf(startBytesRead, startBytesReadLength), e);
+                    }
+                    if (frameLength > 0 && endOfMessageBytes.length > 0) {
+                        // At least some bytes have been captured, but the end of message bytes were not detected
+                        throw new FrameStreamHandlerException(false, endOfMessageBytes, getLastFrameBytes(), e);
+                    }
+                    throw (IOException) e;
+                } else {
+                    // If any other Throwable was caught, return null to indicate that we're done
+                    return null;
+                }
+            }
+        }
+
+        if (endOfMessageBytes.length > 0) {
+            // If we got here, then the end of message bytes were not captured
+            throw new FrameStreamHandlerException(false, endOfMessageBytes, getLastFrameBytes());
+        } else {
+            // Attempt to capture the starting bytes again on the next read
+            checkStartOfMessageBytes = true;
+        }
+
+        return frameLength > 0 ? Arrays.copyOf(frameBytes, frameLength) : null;
+    }
+
+    /*
+     * Returns false if the stream ended before the start of message bytes were found.
+     */
+    private boolean scanToStartOfMessage() throws IOException {
+        int i = 0;
+
+        while (i < startOfMessageBytes.length) {
+            if (!readBuffer.hasRemaining() && fillBuffer() == -1) {
+                return false;
+            }
+
+            byte b = readBuffer.get();
+
+            if (startBytesReadLength < startBytesRead.length) {
+                startBytesRead[startBytesReadLength++] = b;
+            }
+
+            if (b == startOfMessageBytes[i]) {
+                i++;
+            } else {
+                i = 0;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Captures bytes until the end of message bytes are found, and returns the length of the message
+     * without them. Returns -1 if the stream ended first, in which case everything read so far has
+     * been captured.
+     */
+    private int scanToEndOfMessage() throws IOException {
+        int endLength = endOfMessageBytes.length;
+
+        while (true) {
+            if (!readBuffer.hasRemaining() && fillBuffer() == -1) {
+                return -1;
+            }
+
+            byte[] array = readBuffer.array();
+            int offset = readBuffer.position();
+            int limit = readBuffer.limit();
+
+            if (endLength == 0) {
+                capture(array, offset, limit - offset);
+                readBuffer.position(limit);
+                continue;
+            }
+
+            // Like the byte-by-byte reader, a message starting with the first end byte is empty
+            if (frameLength == 0 && array[offset] == endOfMessageBytes[0]) {
+                capture(array, offset, 1);
+                readBuffer.position(offset + 1);
+                return 0;
+            }
+
+            // Only look for the full end sequence when its last byte is seen
+            byte lastEndByte = endOfMessageBytes[endLength - 1];
+
+            for (int index = offset; index < limit; index++) {
+                if (array[index] == lastEndByte) {
+                    capture(array, offset, index + 1 - offset);
+                    offset = index + 1;
+                    readBuffer.position(offset);
+
+                    if (frameEndsWithEndOfMessageBytes()) {
+                        return frameLength - endLength;
+                    }
+                }
+            }
+
+            capture(array, offset, limit - offset);
+            readBuffer.position(limit);
+        }
+    }
+
+    private boolean frameEndsWithEndOfMessageBytes() {
+        int endLength = endOfMessageBytes.length;
+
+        if (frameLength < endLength) {
+            return false;
+        }
+
+        for (int i = 0, j = frameLength - endLength; i < endLength; i++, j++) {
+            if (frameBytes[j] != endOfMessageBytes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void capture(byte[] bytes, int offset, int length) {
+        if (frameLength + length > frameBytes.length) {
+            frameBytes = Arrays.copyOf(frameBytes, Math.max(frameBytes.length * 2, frameLength + length));
+        }
+
+        System.arraycopy(bytes, offset, frameBytes, frameLength, length);
+        frameLength += length;
+    }
+
+    /*
+     * Reads the next block of available bytes into the read buffer, marking the stream first so the
+     * block can be given back. Blocks only until at least one byte is available, and returns -1 at
+     * the end of the stream.
+     */
+    private int fillBuffer() throws IOException {
+        int count;
+
+        do {
+            inputStream.mark(readBuffer.capacity());
+            count = inputStream.read(readBuffer.array(), 0, readBuffer.capacity());
+        } while (count == 0);
+
+        readBuffer.clear();
+        readBuffer.limit(Math.max(count, 0));
+        return count;
+    }
+
+    /*
+     * Gives the bytes after the current read buffer position back to the input stream.
+     */
+    private void unreadBuffer() throws IOException {
+        if (readBuffer.hasRemaining()) {
+            inputStream.reset();
+            IOUtils.skipFully(inputStream, readBuffer.position());
+        }
+
+        readBuffer.limit(0);
+    }
+
+    private byte[] getLastFrameBytes() {
+        int length = Math.min(frameLength, endOfMessageBytes.length);
+        return Arrays.copyOfRange(frameBytes, frameLength - length, frameLength);
+    }
+
     @Override
     public void write(byte[] data) throws IOException {
         writeFrame(data);
@@ -251,18 +509,14 @@ public class FrameStreamHandler extends StreamHandler {
             return;
         }
 
-        DataOutputStream dos = new DataOutputStream(outputStream);
-
         for (byte[] data : dataArrays) {
             if (data != null) {
-                for (byte b : data) {
-                    dos.writeByte(b);
-                }
+                outputStream.write(data);
             }
         }
 
         try {
-            dos.flush();
+            outputStream.flush();
         } catch (SocketException e) {
             logger.debug("Socket closed while trying to flush.");
         }
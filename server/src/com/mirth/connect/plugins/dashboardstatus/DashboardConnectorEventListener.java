@@ -24,7 +24,11 @@ public class DashboardConnectorEventListener extends EventListener {
     private ConnectionStatusLogController logController;
 
     public DashboardConnectorEventListener() {
-        logController = ConnectionStatusLogController.getInstance();
+        this(ConnectionStatusLogController.getInstance());
+    }
+
+    DashboardConnectorEventListener(ConnectionStatusLogController logController) {
+        this.logController = logController;
     }
 
     @Override
@@ -40,6 +44,14 @@ public class DashboardConnectorEventListener extends EventListener {
         logController.processEvent(event);
     }
 
+    /**
+     * Every connection status event is added to the connection log, so none of them are coalesced.
+     */
+    @Override
+    protected Object getCoalesceKey(Event event) {
+        return null;
+    }
+
     public Map<String, Object[]> getConnectorStateMap(String serverId) {
         return logController.getConnectorStateMap(serverId);
     }
@@ -17,11 +17,19 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.FileUtils;
@@ -42,6 +50,7 @@ import com.mirth.connect.donkey.server.Donkey;
 import com.mirth.connect.donkey.server.controllers.ChannelController;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
+import com.mirth.connect.donkey.server.data.index.MessageContentIndex;
 import com.mirth.connect.donkey.util.ThreadUtils;
 import com.mirth.connect.model.Channel;
 import com.mirth.connect.model.ChannelMetadata;
@@ -66,15 +75,18 @@ import com.mirth.connect.util.messagewriter.MessageWriterOptions;
 public class DataPruner implements Runnable {
     public static final int DEFAULT_PRUNING_BLOCK_SIZE = 1000;
     public static final int DEFAULT_ARCHIVING_BLOCK_SIZE = 50;
+    public static final int DEFAULT_WORKER_COUNT = 1;
     private static final int ID_RETRIEVE_LIMIT = 100000;
 
-    private int numExported;
+    private volatile int numExported;
     private int retryCount;
     private boolean skipIncomplete;
     private Status[] skipStatuses;
     private int prunerBlockSize = DEFAULT_PRUNING_BLOCK_SIZE;
     private boolean archiveEnabled;
     private int archiverBlockSize = DEFAULT_ARCHIVING_BLOCK_SIZE;
+    private int workerCount = DEFAULT_WORKER_COUNT;
+    private int blockDelay = 0;
     private MessageWriterOptions archiverOptions;
     private boolean pruneEvents;
     private Integer maxEventAge;
@@ -86,6 +98,8 @@ public class DataPruner implements Runnable {
     private Thread pruneThread;
     private DataPrunerStatus status = new DataPrunerStatus();
     private DataPrunerStatus lastStatus;
+    private AtomicInteger pruningCount = new AtomicInteger();
+    private AtomicInteger archivingCount = new AtomicInteger();
     private Logger logger = LogManager.getLogger(getClass());
 
     private PollConnectorProperties pollingProperties;
@@ -138,6 +152,29 @@ public class DataPruner implements Runnable {
         this.prunerBlockSize = prunerBlockSize;
     }
 
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Sets the number of channels that are pruned at the same time.
+     */
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    public int getBlockDelay() {
+        return blockDelay;
+    }
+
+    /**
+     * Sets the number of milliseconds to pause after each block of deletes, to leave the database
+     * time for message processing.
+     */
+    public void setBlockDelay(int blockDelay) {
+        this.blockDelay = blockDelay;
+    }
+
     public boolean isArchiveEnabled() {
         return archiveEnabled;
     }
@@ -248,7 +285,7 @@ public class DataPruner implements Runnable {
         List<Channel> channels = com.mirth.connect.server.controllers.ChannelController.getInstance().getChannels(null);
         Map<String, ChannelMetadata> metadataMap = configurationController.getChannelMetadata();
 
-        Queue<PrunerTask> queue = new LinkedList<PrunerTask>();
+        Queue<PrunerTask> queue = new ConcurrentLinkedQueue<PrunerTask>();
 
         for (Channel channel : channels) {
             if (!(channel instanceof InvalidChannel)) {
@@ -313,8 +350,8 @@ public class DataPruner implements Runnable {
             }
 
             String date = new SimpleDateFormat(MessageWriterFactory.ARCHIVE_DATE_PATTERN).format(Calendar.getInstance().getTime());
-            String archiveFolder = (archiveEnabled) ? archiverOptions.getRootFolder() + IOUtils.DIR_SEPARATOR + date : null;
-            Queue<PrunerTask> taskQueue;
+            final String archiveFolder = (archiveEnabled) ? archiverOptions.getRootFolder() + IOUtils.DIR_SEPARATOR + date : null;
+            final Queue<PrunerTask> taskQueue;
 
             try {
                 taskQueue = buildTaskQueue();
@@ -331,58 +368,12 @@ public class DataPruner implements Runnable {
                 eventController.dispatchEvent(new ServerEvent(serverId, DataPrunerService.PLUGINPOINT, Level.INFORMATION, Outcome.SUCCESS, attributes));
             }
 
-            while (!taskQueue.isEmpty()) {
-            	Map<String, String> attributes = new HashMap<String, String>();
-                ThreadUtils.checkInterruptedStatus();
-                PrunerTask task = taskQueue.poll();
-
-                try {
-                    status.setCurrentChannelId(task.getChannelId());
-                    status.setCurrentChannelName(task.getChannelName());
-                    status.setTaskStartTime(Calendar.getInstance());
-
-                    PruneResult result = pruneChannel(task.getChannelId(), task.getChannelName(), task.getMessageDateThreshold(), task.getContentDateThreshold(), archiveFolder, task.isArchiveEnabled(), task.isPruneErroredMessages());
+            int workers = Math.min(workerCount, taskQueue.size());
 
-                    status.getProcessedChannelIds().add(task.getChannelId());
-
-                    attributes.put("Channel ID", task.getChannelId());
-                    attributes.put("Channel Name", task.getChannelName());
-
-                    if (archiveEnabled && task.isArchiveEnabled()) {
-                        attributes.put("Messages Archived", Long.toString(result.numMessagesArchived));
-                    }
-
-                    attributes.put("Messages Pruned", Long.toString(result.numMessagesPruned));
-                    attributes.put("Content Rows Pruned", Long.toString(result.numContentPruned));
-                    attributes.put("Time Elapsed", getTimeElapsed());
-                    
-                    if (task.getMessageDateThreshold() != null) {
-                    	attributes.put("Message Date Threshold", String.valueOf(task.getMessageDateThreshold().getTime()));
-                    }
-                    if (task.getContentDateThreshold() != null) {
-                    	attributes.put("Content Date Threshold", String.valueOf(task.getContentDateThreshold().getTime()));
-                    }
-                    
-                    eventController.dispatchEvent(new ServerEvent(serverId, DataPrunerService.PLUGINPOINT, Level.INFORMATION, Outcome.SUCCESS, attributes));
-                } catch (InterruptedException e) {
-                    throw e;
-                } catch (Exception e) {
-                    status.getFailedChannelIds().add(task.getChannelId());
-
-                    attributes.put("channel", task.getChannelName());
-                    attributes.put("error", e.getMessage());
-                    attributes.put("trace", ExceptionUtils.getStackTrace(e));
-                    eventController.dispatchEvent(new ServerEvent(serverId, DataPrunerService.PLUGINPOINT, Level.ERROR, Outcome.FAILURE, attributes));
-                    Throwable t = e;
-                    if (e instanceof DataPrunerException) {
-                        t = e.getCause();
-                    }
-                    logger.error("Failed to prune messages for channel " + task.getChannelName() + " (" + task.getChannelId() + ").", t);
-                } finally {
-                    status.getPendingChannelIds().remove(task.getChannelId());
-                    status.setCurrentChannelId(null);
-                    status.setCurrentChannelName(null);
-                }
+            if (workers <= 1) {
+                runTasks(taskQueue, archiveFolder);
+            } else {
+                runTasksConcurrently(taskQueue, archiveFolder, workers);
             }
 
             logger.debug("Pruner job finished executing");
@@ -403,6 +394,143 @@ public class DataPruner implements Runnable {
         }
     }
 
+    private void runTasks(Queue<PrunerTask> taskQueue, String archiveFolder) throws InterruptedException {
+        PrunerTask task;
+
+        while ((task = taskQueue.poll()) != null) {
+            ThreadUtils.checkInterruptedStatus();
+            runTask(task, archiveFolder);
+        }
+    }
+
+    /**
+     * Prunes channels on several worker threads, which take the next channel from the queue until
+     * it is empty. Halting the pruner interrupts the workers and waits for them to finish.
+     */
+    private void runTasksConcurrently(final Queue<PrunerTask> taskQueue, final String archiveFolder, int workers) throws InterruptedException {
+        logger.debug("Pruning channels with " + workers + " workers");
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "Data Pruner Worker Thread " + threadNumber.getAndIncrement());
+            }
+        });
+
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        runTasks(taskQueue, archiveFolder);
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof InterruptedException) {
+                        throw (InterruptedException) e.getCause();
+                    }
+
+                    logger.error("A data pruner worker failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.debug("Waiting for data pruner workers to terminate");
+            }
+        }
+    }
+
+    private void runTask(PrunerTask task, String archiveFolder) throws InterruptedException {
+        Map<String, String> attributes = new HashMap<String, String>();
+        Calendar taskStartTime = Calendar.getInstance();
+
+        try {
+            startTask(task, taskStartTime);
+
+            PruneResult result = pruneChannel(task.getChannelId(), task.getChannelName(), task.getMessageDateThreshold(), task.getContentDateThreshold(), archiveFolder, task.isArchiveEnabled(), task.isPruneErroredMessages());
+
+            synchronized (status) {
+                status.getProcessedChannelIds().add(task.getChannelId());
+            }
+
+            attributes.put("Channel ID", task.getChannelId());
+            attributes.put("Channel Name", task.getChannelName());
+
+            if (archiveEnabled && task.isArchiveEnabled()) {
+                attributes.put("Messages Archived", Long.toString(result.numMessagesArchived));
+            }
+
+            attributes.put("Messages Pruned", Long.toString(result.numMessagesPruned));
+            attributes.put("Content Rows Pruned", Long.toString(result.numContentPruned));
+            attributes.put("Time Elapsed", getTimeElapsed(taskStartTime));
+
+            if (task.getMessageDateThreshold() != null) {
+                attributes.put("Message Date Threshold", String.valueOf(task.getMessageDateThreshold().getTime()));
+            }
+            if (task.getContentDateThreshold() != null) {
+                attributes.put("Content Date Threshold", String.valueOf(task.getContentDateThreshold().getTime()));
+            }
+
+            eventController.dispatchEvent(new ServerEvent(serverId, DataPrunerService.PLUGINPOINT, Level.INFORMATION, Outcome.SUCCESS, attributes));
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            synchronized (status) {
+                status.getFailedChannelIds().add(task.getChannelId());
+            }
+
+            attributes.put("channel", task.getChannelName());
+            attributes.put("error", e.getMessage());
+            attributes.put("trace", ExceptionUtils.getStackTrace(e));
+            eventController.dispatchEvent(new ServerEvent(serverId, DataPrunerService.PLUGINPOINT, Level.ERROR, Outcome.FAILURE, attributes));
+            Throwable t = e;
+            if (e instanceof DataPrunerException) {
+                t = e.getCause();
+            }
+            logger.error("Failed to prune messages for channel " + task.getChannelName() + " (" + task.getChannelId() + ").", t);
+        } finally {
+            synchronized (status) {
+                status.getPendingChannelIds().remove(task.getChannelId());
+            }
+            finishTask(task);
+        }
+    }
+
+    /*
+     * With several workers, the status shows the channel that was started last. The status is
+     * locked instead of the pruner, since stop() holds the pruner's lock while waiting for the
+     * workers to exit.
+     */
+    private void startTask(PrunerTask task, Calendar taskStartTime) {
+        synchronized (status) {
+            status.setCurrentChannelId(task.getChannelId());
+            status.setCurrentChannelName(task.getChannelName());
+            status.setTaskStartTime(taskStartTime);
+            numExported = 0;
+        }
+    }
+
+    private void finishTask(PrunerTask task) {
+        synchronized (status) {
+            if (StringUtils.equals(status.getCurrentChannelId(), task.getChannelId())) {
+                status.setCurrentChannelId(null);
+                status.setCurrentChannelName(null);
+            }
+        }
+    }
+
     private void pruneEvents() {
         logger.debug("Pruning events");
         status.setPruningEvents(true);
@@ -497,16 +625,15 @@ public class DataPruner implements Runnable {
                 if (!archiveEnabled || !channelArchiveEnabled) {
                     getIdsToPrune(params, messageDateThreshold, messageIds, contentMessageIds);
                 } else {
-                    archiveAndGetIdsToPrune(params, channelId, messageDateThreshold, archiveFolder, messageIds, contentMessageIds);
-                    result.numMessagesArchived = numExported;
+                    archiveAndGetIdsToPrune(params, channelId, messageDateThreshold, archiveFolder, messageIds, contentMessageIds, result);
                 }
 
                 while (messageIds.hasNext()) {
-                    pruneChannelByIds(localChannelId, messageIds, false, result);
+                    pruneChannelByIds(channelId, localChannelId, messageIds, false, result);
                 }
 
                 while (contentMessageIds.hasNext()) {
-                    pruneChannelByIds(localChannelId, contentMessageIds, true, result);
+                    pruneChannelByIds(channelId, localChannelId, contentMessageIds, true, result);
                 }
 
                 return result;
@@ -553,7 +680,7 @@ public class DataPruner implements Runnable {
         } while (maps != null && maps.size() == ID_RETRIEVE_LIMIT);
     }
 
-    private void archiveAndGetIdsToPrune(Map<String, Object> params, String channelId, Calendar messageDateThreshold, String archiveFolder, PruneIds messageIds, PruneIds contentMessageIds) throws Throwable {
+    private void archiveAndGetIdsToPrune(Map<String, Object> params, String channelId, Calendar messageDateThreshold, String archiveFolder, PruneIds messageIds, PruneIds contentMessageIds, PruneResult result) throws Throwable {
         String tempChannelFolder = archiveFolder + "/." + channelId;
         String finalChannelFolder = archiveFolder + "/" + channelId;
 
@@ -569,8 +696,10 @@ public class DataPruner implements Runnable {
             }
 
             logger.debug("Running archiver, channel: " + channelId + ", root folder: " + messageWriterOptions.getRootFolder() + ", archive format: " + messageWriterOptions.getArchiveFormat() + ", archive filename: " + messageWriterOptions.getArchiveFileName() + ", file pattern: " + messageWriterOptions.getFilePattern());
-            numExported = 0;
-            status.setArchiving(true);
+            result.numMessagesArchived = 0;
+            synchronized (status) {
+                status.setArchiving(archivingCount.incrementAndGet() > 0);
+            }
             MessageWriter archiver = MessageWriterFactory.getInstance().getMessageWriter(messageWriterOptions, ConfigurationController.getInstance().getEncryptor());
 
             AttachmentSource attachmentSource = null;
@@ -629,7 +758,11 @@ public class DataPruner implements Runnable {
                                     }
 
                                     if (archiver.write(message)) {
-                                        numExported++;
+                                        result.numMessagesArchived++;
+
+                                        if (channelId.equals(status.getCurrentChannelId())) {
+                                            numExported = (int) result.numMessagesArchived;
+                                        }
                                     }
                                 }
 
@@ -658,11 +791,13 @@ public class DataPruner implements Runnable {
             FileUtils.deleteQuietly(new File(finalChannelFolder));
             throw t;
         } finally {
-            status.setArchiving(false);
+            synchronized (status) {
+                status.setArchiving(archivingCount.decrementAndGet() > 0);
+            }
         }
     }
 
-    private void pruneChannelByIds(long localChannelId, PruneIds ids, boolean contentOnly, PruneResult result) throws DataPrunerException, InterruptedException {
+    private void pruneChannelByIds(String channelId, long localChannelId, PruneIds ids, boolean contentOnly, PruneResult result) throws DataPrunerException, InterruptedException {
         if (!ids.hasNext()) {
             logger.debug("Skipping pruner since no messages were found to prune");
             return;
@@ -671,6 +806,7 @@ public class DataPruner implements Runnable {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("localChannelId", localChannelId);
 
+        MessageContentIndex contentIndex = Donkey.getInstance().getContentIndex();
         ListRangeIterator listRangeIterator = new ListRangeIterator(ids, ListRangeIterator.DEFAULT_LIST_LIMIT, true, prunerBlockSize);
 
         while (listRangeIterator.hasNext()) {
@@ -694,6 +830,19 @@ public class DataPruner implements Runnable {
                 }
 
                 runDeleteQueries(params, contentOnly, result);
+
+                if (blockDelay > 0) {
+                    Thread.sleep(blockDelay);
+                }
+
+                // Pruned messages no longer need to be found by content searches
+                if (contentIndex != null) {
+                    if (list != null) {
+                        contentIndex.removeMessages(channelId, list);
+                    } else {
+                        contentIndex.removeMessages(channelId, startRange, endRange);
+                    }
+                }
             }
         }
     }
@@ -732,18 +881,26 @@ public class DataPruner implements Runnable {
                 session.update("initDataPruner");
             }
 
-            status.setPruning(true);
+            synchronized (status) {
+                status.setPruning(pruningCount.incrementAndGet() > 0);
+            }
 
             int count = session.delete(query, params);
             return count;
         } finally {
             session.close();
-            status.setPruning(false);
+            synchronized (status) {
+                status.setPruning(pruningCount.decrementAndGet() > 0);
+            }
         }
     }
 
     private String getTimeElapsed() {
-        long ms = System.currentTimeMillis() - status.getTaskStartTime().getTimeInMillis();
+        return getTimeElapsed(status.getTaskStartTime());
+    }
+
+    private String getTimeElapsed(Calendar startTime) {
+        long ms = System.currentTimeMillis() - startTime.getTimeInMillis();
         long mins = ms / 60000;
         long secs = (ms % 60000) / 1000;
 
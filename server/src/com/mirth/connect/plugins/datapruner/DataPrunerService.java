@@ -90,6 +90,8 @@ public class DataPrunerService implements ServicePlugin {
         properties.put("pollingProperties", serializer.serialize(defaultProperties));
 
         properties.put("pruningBlockSize", String.valueOf(DataPruner.DEFAULT_PRUNING_BLOCK_SIZE));
+        properties.put("workerCount", String.valueOf(DataPruner.DEFAULT_WORKER_COUNT));
+        properties.put("blockDelay", "0");
         properties.put("archiveEnabled", serializer.serialize(false));
         properties.put("archiverBlockSize", String.valueOf(DataPruner.DEFAULT_ARCHIVING_BLOCK_SIZE));
         properties.put("includeAttachments", serializer.serialize(false));
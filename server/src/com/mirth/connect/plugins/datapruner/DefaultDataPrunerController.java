@@ -31,6 +31,7 @@ public class DefaultDataPrunerController extends DataPrunerController {
     private static final int MIN_PRUNING_BLOCK_SIZE = 50;
     private static final int MAX_PRUNING_BLOCK_SIZE = 10000;
     private static final int MAX_ARCHIVING_BLOCK_SIZE = 1000;
+    private static final int MAX_WORKER_COUNT = 16;
     private static final String DATE_FORMAT = "MM/dd/yyyy hh:mm aa";
 
     public static DataPruner pruner = new DataPruner();
@@ -269,6 +270,10 @@ public class DefaultDataPrunerController extends DataPrunerController {
             pruner.setMaxEventAge(null);
         }
 
+        int workerCount = NumberUtils.toInt(properties.getProperty("workerCount"), DataPruner.DEFAULT_WORKER_COUNT);
+        pruner.setWorkerCount(Math.max(1, Math.min(workerCount, MAX_WORKER_COUNT)));
+        pruner.setBlockDelay(Math.max(0, NumberUtils.toInt(properties.getProperty("blockDelay"), 0)));
+
         if (StringUtils.isNotEmpty(properties.getProperty("archiverBlockSize"))) {
             int blockSize = NumberUtils.toInt(properties.getProperty("archiverBlockSize"));
             if (blockSize <= 0 || blockSize > MAX_ARCHIVING_BLOCK_SIZE) {
@@ -11,7 +11,6 @@ package com.mirth.connect.plugins.datatypes.hl7v2;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -22,13 +21,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.mirth.connect.donkey.model.message.MessageSerializer;
 import com.mirth.connect.donkey.model.message.MessageSerializerException;
 import com.mirth.connect.model.converters.IMessageSerializer;
-import com.mirth.connect.model.converters.XMLPrettyPrinter;
 import com.mirth.connect.model.datatype.SerializerProperties;
 import com.mirth.connect.model.util.DefaultMetaData;
 import com.mirth.connect.util.ErrorMessageBuilder;
@@ -51,6 +51,7 @@ public class ER7Serializer implements IMessageSerializer {
     private XMLParser serializationXmlParser = null;
     private PipeParser deserializationPipeParser = null;
     private XMLParser deserializationXmlParser = null;
+    private ER7XMLEncoder serializationXmlEncoder = null;
 
     private boolean skipIntermediateDelimiter = false;
     private String serializationSegmentDelimiter = null;
@@ -59,8 +60,13 @@ public class ER7Serializer implements IMessageSerializer {
     private HL7v2DeserializationProperties deserializationProperties;
 
     private static Pattern ampersandPattern = Pattern.compile("&amp;");
-    private static Pattern prettyPattern1 = Pattern.compile("\\s*<([^/][^>]*)>");
-    private static Pattern prettyPattern2 = Pattern.compile("<([^>]*/|/[^>]*)>\\s*");
+    private static final DefaultHandler emptyHandler = new DefaultHandler();
+
+    /*
+     * Creating a new reader looks up the parser implementation every time, so each thread keeps its
+     * own reader and reuses it for every message.
+     */
+    private static final ThreadLocal<XMLReader> xmlReaders = new ThreadLocal<XMLReader>();
 
 
     public ER7Serializer(SerializerProperties properties) {
@@ -89,6 +95,8 @@ public class ER7Serializer implements IMessageSerializer {
                 ParserConfiguration parserConfiguration = context.getParserConfiguration();
                 parserConfiguration.setXmlDisableWhitespaceTrimmingOnNodeNames(new HashSet<>(Arrays.asList("NTE.3", "OBX.5")));
 
+            } else {
+                serializationXmlEncoder = new ER7XMLEncoder(serializationProperties.isHandleRepetitions(), serializationProperties.isHandleSubcomponents(), serializationSegmentDelimiter);
             }
         }
 
@@ -220,13 +228,7 @@ public class ER7Serializer implements IMessageSerializer {
 
                 return source;
             } else {
-                ER7Reader er7Reader = new ER7Reader(serializationProperties.isHandleRepetitions(), serializationProperties.isHandleSubcomponents(), serializationSegmentDelimiter);
-                StringWriter stringWriter = new StringWriter();
-                XMLPrettyPrinter serializer = new XMLPrettyPrinter(stringWriter);
-                serializer.setEncodeEntities(true);
-                er7Reader.setContentHandler(serializer);
-                er7Reader.parse(new InputSource(new StringReader(source)));
-                return stringWriter.toString();
+                return serializationXmlEncoder.encode(source);
             }
         } catch (Exception e) {
             throw new MessageSerializerException("Error converting ER7 to XML", e, ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), "Error converting ER7 to XML", e));
@@ -292,16 +294,21 @@ public class ER7Serializer implements IMessageSerializer {
                 }
 
                 XMLEncodedHL7Handler handler = new XMLEncodedHL7Handler(deserializationSegmentDelimiter, fieldSeparator, componentSeparator, repetitionSeparator, escapeCharacter, subcomponentSeparator, true);
-                XMLReader reader = XMLReaderFactory.createXMLReader();
-                reader.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+                XMLReader reader = getXMLReader();
                 reader.setContentHandler(handler);
                 reader.setErrorHandler(handler);
 
-                /*
-                 * Parse, but first replace all spaces between brackets. This fixes pretty-printed
-                 * XML we might receive.
-                 */
-                reader.parse(new InputSource(new StringReader(prettyPattern2.matcher(prettyPattern1.matcher(source).replaceAll("<$1>")).replaceAll("<$1>"))));
+                try {
+                    /*
+                     * Parse, but first replace all spaces between brackets. This fixes
+                     * pretty-printed XML we might receive.
+                     */
+                    reader.parse(new InputSource(new StringReader(stripWhitespaceAfterEndTags(stripWhitespaceBeforeStartTags(source)))));
+                } finally {
+                    reader.setContentHandler(emptyHandler);
+                    reader.setErrorHandler(emptyHandler);
+                }
+
                 return handler.getOutput().toString();
             }
         } catch (Exception e) {
@@ -309,6 +316,125 @@ public class ER7Serializer implements IMessageSerializer {
         }
     }
 
+    private static XMLReader getXMLReader() throws SAXException {
+        XMLReader reader = xmlReaders.get();
+
+        if (reader == null) {
+            reader = XMLReaderFactory.createXMLReader();
+            reader.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            xmlReaders.set(reader);
+        }
+
+        return reader;
+    }
+
+    /**
+     * Removes the whitespace in front of every tag that does not start with a slash, the same way as
+     * the regular expression that was previously used to fix pretty-printed XML, but in a single
+     * pass.
+     */
+    static String stripWhitespaceBeforeStartTags(String source) {
+        int length = source.length();
+        StringBuilder builder = null;
+        int copied = 0;
+        int nextTagEnd = -1;
+        int index = 0;
+
+        while (index < length) {
+            int tagStart = index;
+            while (tagStart < length && isWhitespace(source.charAt(tagStart))) {
+                tagStart++;
+            }
+
+            if (tagStart + 1 < length && source.charAt(tagStart) == '<' && source.charAt(tagStart + 1) != '/') {
+                if (nextTagEnd < tagStart + 2) {
+                    nextTagEnd = source.indexOf('>', tagStart + 2);
+                }
+
+                if (nextTagEnd == -1) {
+                    // There are no more complete tags
+                    break;
+                }
+
+                if (tagStart > index) {
+                    if (builder == null) {
+                        builder = new StringBuilder(length);
+                    }
+
+                    builder.append(source, copied, index);
+                    copied = tagStart;
+                }
+
+                index = nextTagEnd + 1;
+            } else {
+                index = tagStart + 1;
+            }
+        }
+
+        if (builder == null) {
+            return source;
+        }
+
+        return builder.append(source, copied, length).toString();
+    }
+
+    /**
+     * Removes the whitespace after every tag that starts or ends with a slash, the same way as the
+     * regular expression that was previously used to fix pretty-printed XML, but in a single pass.
+     */
+    static String stripWhitespaceAfterEndTags(String source) {
+        int length = source.length();
+        StringBuilder builder = null;
+        int copied = 0;
+        int nextTagEnd = -1;
+        int index = 0;
+
+        while (index < length) {
+            if (source.charAt(index) == '<') {
+                if (nextTagEnd < index + 1) {
+                    nextTagEnd = source.indexOf('>', index + 1);
+                }
+
+                if (nextTagEnd == -1) {
+                    // There are no more complete tags
+                    break;
+                }
+
+                if ((index + 1 < nextTagEnd && source.charAt(index + 1) == '/') || (index + 1 < nextTagEnd && source.charAt(nextTagEnd - 1) == '/')) {
+                    int whitespaceEnd = nextTagEnd + 1;
+                    while (whitespaceEnd < length && isWhitespace(source.charAt(whitespaceEnd))) {
+                        whitespaceEnd++;
+                    }
+
+                    if (whitespaceEnd > nextTagEnd + 1) {
+                        if (builder == null) {
+                            builder = new StringBuilder(length);
+                        }
+
+                        builder.append(source, copied, nextTagEnd + 1);
+                        copied = whitespaceEnd;
+                    }
+
+                    index = whitespaceEnd;
+                    continue;
+                }
+            }
+
+            index++;
+        }
+
+        if (builder == null) {
+            return source;
+        }
+
+        return builder.append(source, copied, length).toString();
+    }
+
+    // Same characters as \s in a regular expression
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
     private String getNodeValue(String source, String startTag, String endTag) {
         int startIndex = -1;
 
@@ -0,0 +1,525 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.datatypes.hl7v2;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Converts an ER7-encoded HL7 message to the non-strict XML representation in a single pass over a
+ * char array, writing the elements straight into a StringBuilder. The output is identical to
+ * running ER7Reader with an XMLPrettyPrinter (with entity encoding enabled), without the SAX
+ * events, the intermediate segment and token strings, or the per-message parser.
+ *
+ * Instances are immutable and can be shared between threads. The char array and builder used while
+ * encoding are kept per thread and reused for subsequent messages.
+ */
+public class ER7XMLEncoder {
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    private boolean handleRepetitions;
+    private boolean handleSubcomponents;
+    private String segmentDelimiter;
+
+    public ER7XMLEncoder(boolean handleRepetitions, boolean handleSubcomponents, String segmentDelimiter) {
+        this.handleRepetitions = handleRepetitions;
+        this.handleSubcomponents = handleSubcomponents;
+        this.segmentDelimiter = segmentDelimiter;
+    }
+
+    public String encode(String source) throws SAXException {
+        Buffers buffers = ER7XMLEncoder.buffers.get();
+
+        try {
+            return new Encoder(buffers, source).encode();
+        } finally {
+            buffers.release();
+        }
+    }
+
+    private static class Buffers {
+        private char[] input = new char[1024];
+        private StringBuilder output = new StringBuilder(4096);
+
+        private char[] getInput(int length) {
+            if (input.length < length) {
+                input = new char[Math.max(length, input.length * 2)];
+            }
+
+            return input;
+        }
+
+        private StringBuilder getOutput(int length) {
+            output.setLength(0);
+            output.ensureCapacity(length);
+            return output;
+        }
+
+        /*
+         * Don't hold on to the buffers of unusually large messages.
+         */
+        private void release() {
+            if (input.length > MAX_RETAINED_BUFFER_SIZE) {
+                input = new char[1024];
+            }
+
+            if (output.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                output = new StringBuilder(4096);
+            } else {
+                output.setLength(0);
+            }
+        }
+    }
+
+    private class Encoder {
+        private char[] message;
+        private int start;
+        private int end;
+        private StringBuilder output;
+
+        private char fieldSeparator = '|';
+        private char componentSeparator = '^';
+        private char repetitionSeparator = '~';
+        private char escapeCharacter;
+        private char subcomponentSeparator;
+        private boolean hasEscapeCharacter = false;
+        private boolean hasSubcomponentSeparator = false;
+
+        private Encoder(Buffers buffers, String source) {
+            message = buffers.getInput(source.length());
+            source.getChars(0, source.length(), message, 0);
+
+            // Same as String.trim()
+            start = 0;
+            end = source.length();
+            while (start < end && message[start] <= ' ') {
+                start++;
+            }
+            while (end > start && message[end - 1] <= ' ') {
+                end--;
+            }
+
+            // Each ER7 character usually becomes a few XML characters
+            output = buffers.getOutput((end - start) * 4 + 256);
+        }
+
+        private String encode() throws SAXException {
+            output.append(XML_DECLARATION);
+
+            if (end - start < 6) {
+                throw new SAXException("Unable to parse message. It is NULL or too short. " + new String(message, start, end - start));
+            }
+
+            readEncodingCharacters();
+
+            String documentHead = "";
+            boolean firstSegment = true;
+            int index = start;
+
+            while (index < end) {
+                // Empty segments are skipped, the same as StringUtils.split
+                while (index < end && isSegmentDelimiter(message[index])) {
+                    index++;
+                }
+
+                if (index == end) {
+                    break;
+                }
+
+                int segmentEnd = index;
+                while (segmentEnd < end && !isSegmentDelimiter(message[segmentEnd])) {
+                    segmentEnd++;
+                }
+
+                if (firstSegment) {
+                    documentHead = ER7Reader.MESSAGE_ROOT_ID;
+                    startElement(documentHead);
+                    firstSegment = false;
+                }
+
+                encodeSegment(index, segmentEnd);
+                index = segmentEnd;
+            }
+
+            endElement(documentHead);
+            return output.toString();
+        }
+
+        private void readEncodingCharacters() {
+            // if we have a header, grab the actual separators from the message
+            if (isHeaderSegment(start)) {
+                fieldSeparator = message[start + 3];
+
+                int nextDelimiter = indexOf(fieldSeparator, start + 4, end);
+                if (nextDelimiter == -1) {
+                    // If the message is just MSH|^~\&, we still want to extract the encoding characters
+                    nextDelimiter = end;
+                }
+                nextDelimiter -= start;
+
+                if (nextDelimiter > 4) {
+                    componentSeparator = message[start + 4];
+                }
+
+                if (nextDelimiter > 5) {
+                    repetitionSeparator = message[start + 5];
+                }
+
+                if (nextDelimiter > 6) {
+                    escapeCharacter = message[start + 6];
+                    hasEscapeCharacter = true;
+                }
+
+                if (nextDelimiter > 7) {
+                    subcomponentSeparator = message[start + 7];
+                    hasSubcomponentSeparator = true;
+                }
+            }
+
+            // replace the special case of ^~& with ^~\& (MIRTH-1544)
+            if (end - start >= 8 && message[start + 4] == '^' && message[start + 5] == '~' && message[start + 6] == '&' && message[start + 7] == '|') {
+                escapeCharacter = '\\';
+                subcomponentSeparator = '&';
+                repetitionSeparator = '~';
+                componentSeparator = '^';
+                hasEscapeCharacter = true;
+                hasSubcomponentSeparator = true;
+            }
+        }
+
+        /*
+         * Fields are tokenized the same way as a StringTokenizer returning delimiters: each token is
+         * either a single field separator or a run of other characters.
+         */
+        private void encodeSegment(int segmentStart, int segmentEnd) {
+            int index = segmentStart;
+            int tokenEnd = nextToken(fieldSeparator, index, segmentEnd);
+
+            // the XML element is named after the first field
+            int idStart = index;
+            int idEnd = tokenEnd;
+            while (idStart < idEnd && message[idStart] <= ' ') {
+                idStart++;
+            }
+            while (idEnd > idStart && message[idEnd - 1] <= ' ') {
+                idEnd--;
+            }
+            String segmentId = new String(message, idStart, idEnd - idStart);
+            boolean header = segmentId.equals("MSH") || segmentId.equals("FHS") || segmentId.equals("BHS");
+
+            startElement(segmentId);
+            index = tokenEnd;
+
+            int fieldId = 0;
+            boolean atLastField = false;
+
+            while (index < segmentEnd) {
+                tokenEnd = nextToken(fieldSeparator, index, segmentEnd);
+
+                if (message[index] == fieldSeparator) {
+                    if (atLastField) {
+                        emptyElement(segmentId, fieldId, 0, 0);
+                    }
+
+                    fieldId++;
+                    atLastField = true;
+                } else {
+                    atLastField = false;
+
+                    if (header && fieldId == 1) {
+                        startName(segmentId, fieldId, 0, 0);
+                        appendEncoded(fieldSeparator);
+                        endName(segmentId, fieldId, 0, 0);
+                        fieldId++;
+
+                        startName(segmentId, fieldId, 0, 0);
+                        appendEncoded(componentSeparator);
+                        appendEncoded(repetitionSeparator);
+                        if (hasEscapeCharacter) {
+                            appendEncoded(escapeCharacter);
+                        }
+                        if (hasSubcomponentSeparator) {
+                            appendEncoded(subcomponentSeparator);
+                        }
+                        endName(segmentId, fieldId, 0, 0);
+                    } else if (header && fieldId == 2) {
+                        // do nothing
+                    } else if (handleRepetitions) {
+                        encodeFieldRepetitions(segmentId, fieldId, index, tokenEnd);
+                    } else {
+                        encodeField(segmentId, fieldId, index, tokenEnd);
+                    }
+                }
+
+                index = tokenEnd;
+            }
+
+            if (atLastField) {
+                emptyElement(segmentId, fieldId, 0, 0);
+            }
+
+            endElement(segmentId);
+        }
+
+        private void encodeFieldRepetitions(String segmentId, int fieldId, int fieldStart, int fieldEnd) {
+            boolean atLastRepetition = true;
+            int index = fieldStart;
+
+            while (index < fieldEnd) {
+                int tokenEnd = nextToken(repetitionSeparator, index, fieldEnd);
+
+                if (message[index] == repetitionSeparator) {
+                    // check for ~~
+                    if (atLastRepetition) {
+                        emptyElement(segmentId, fieldId, 0, 0);
+                    }
+
+                    atLastRepetition = true;
+                } else {
+                    atLastRepetition = false;
+                    encodeField(segmentId, fieldId, index, tokenEnd);
+                }
+
+                index = tokenEnd;
+            }
+
+            if (atLastRepetition) {
+                emptyElement(segmentId, fieldId, 0, 0);
+            }
+        }
+
+        private void encodeField(String segmentId, int fieldId, int fieldStart, int fieldEnd) {
+            boolean hasComponents = indexOf(componentSeparator, fieldStart, fieldEnd) > -1;
+
+            if (!hasComponents && handleSubcomponents) {
+                // An empty subcomponent separator is found in every field
+                hasComponents = !hasSubcomponentSeparator || indexOf(subcomponentSeparator, fieldStart, fieldEnd) > -1;
+            }
+
+            startName(segmentId, fieldId, 0, 0);
+
+            if (hasComponents) {
+                encodeComponents(segmentId, fieldId, fieldStart, fieldEnd);
+            } else {
+                startName(segmentId, fieldId, 1, 0);
+                appendEncoded(fieldStart, fieldEnd);
+                endName(segmentId, fieldId, 1, 0);
+            }
+
+            endName(segmentId, fieldId, 0, 0);
+        }
+
+        private void encodeComponents(String segmentId, int fieldId, int fieldStart, int fieldEnd) {
+            boolean atLastComponent = true;
+            int componentId = 1;
+            int index = fieldStart;
+
+            while (index < fieldEnd) {
+                int tokenEnd = nextToken(componentSeparator, index, fieldEnd);
+
+                if (message[index] == componentSeparator) {
+                    if (atLastComponent) {
+                        emptyElement(segmentId, fieldId, componentId, 0);
+                    }
+
+                    componentId++;
+                    atLastComponent = true;
+                } else {
+                    atLastComponent = false;
+                    encodeComponent(segmentId, fieldId, componentId, index, tokenEnd);
+                }
+
+                index = tokenEnd;
+            }
+
+            if (atLastComponent) {
+                emptyElement(segmentId, fieldId, componentId, 0);
+            }
+        }
+
+        private void encodeComponent(String segmentId, int fieldId, int componentId, int componentStart, int componentEnd) {
+            startName(segmentId, fieldId, componentId, 0);
+
+            if (handleSubcomponents && hasSubcomponentSeparator && indexOf(subcomponentSeparator, componentStart, componentEnd) > -1) {
+                encodeSubcomponents(segmentId, fieldId, componentId, componentStart, componentEnd);
+            } else {
+                appendEncoded(componentStart, componentEnd);
+            }
+
+            endName(segmentId, fieldId, componentId, 0);
+        }
+
+        private void encodeSubcomponents(String segmentId, int fieldId, int componentId, int componentStart, int componentEnd) {
+            boolean atLastSubcomponent = true;
+            int subcomponentId = 1;
+            int index = componentStart;
+
+            while (index < componentEnd) {
+                int tokenEnd = nextToken(subcomponentSeparator, index, componentEnd);
+
+                if (message[index] == subcomponentSeparator) {
+                    if (atLastSubcomponent) {
+                        emptyElement(segmentId, fieldId, componentId, subcomponentId);
+                    }
+
+                    subcomponentId++;
+                    atLastSubcomponent = true;
+                } else {
+                    atLastSubcomponent = false;
+                    startName(segmentId, fieldId, componentId, subcomponentId);
+                    appendEncoded(index, tokenEnd);
+                    endName(segmentId, fieldId, componentId, subcomponentId);
+                }
+
+                index = tokenEnd;
+            }
+
+            if (atLastSubcomponent) {
+                emptyElement(segmentId, fieldId, componentId, subcomponentId);
+            }
+        }
+
+        /*
+         * Returns the end of the token starting at the given index: the next index if the token is
+         * the delimiter itself, otherwise the index of the next delimiter.
+         */
+        private int nextToken(char delimiter, int index, int limit) {
+            if (message[index] == delimiter) {
+                return index + 1;
+            }
+
+            while (index < limit && message[index] != delimiter) {
+                index++;
+            }
+
+            return index;
+        }
+
+        private int indexOf(char c, int index, int limit) {
+            for (; index < limit; index++) {
+                if (message[index] == c) {
+                    return index;
+                }
+            }
+
+            return -1;
+        }
+
+        private boolean isSegmentDelimiter(char c) {
+            if (segmentDelimiter == null) {
+                return Character.isWhitespace(c);
+            }
+
+            return segmentDelimiter.indexOf(c) > -1;
+        }
+
+        private boolean isHeaderSegment(int index) {
+            char c0 = Character.toUpperCase(message[index]);
+            char c1 = Character.toUpperCase(message[index + 1]);
+            char c2 = Character.toUpperCase(message[index + 2]);
+            return (c0 == 'M' && c1 == 'S' && c2 == 'H') || ((c0 == 'F' || c0 == 'B') && c1 == 'H' && c2 == 'S');
+        }
+
+        private void startElement(String name) {
+            output.append('<').append(name).append('>');
+        }
+
+        private void endElement(String name) {
+            output.append("</").append(name).append('>');
+        }
+
+        private void emptyElement(String segmentId, int fieldId, int componentId, int subcomponentId) {
+            startName(segmentId, fieldId, componentId, subcomponentId);
+            endName(segmentId, fieldId, componentId, subcomponentId);
+        }
+
+        private void startName(String segmentId, int fieldId, int componentId, int subcomponentId) {
+            output.append('<');
+            appendName(segmentId, fieldId, componentId, subcomponentId);
+            output.append('>');
+        }
+
+        private void endName(String segmentId, int fieldId, int componentId, int subcomponentId) {
+            output.append("</");
+            appendName(segmentId, fieldId, componentId, subcomponentId);
+            output.append('>');
+        }
+
+        // the naming is SEG.<field#>.<component#>.<subcomponent#>
+        private void appendName(String segmentId, int fieldId, int componentId, int subcomponentId) {
+            output.append(segmentId).append('.').append(fieldId);
+
+            if (componentId > 0) {
+                output.append('.').append(componentId);
+
+                if (subcomponentId > 0) {
+                    output.append('.').append(subcomponentId);
+                }
+            }
+        }
+
+        private void appendEncoded(int index, int limit) {
+            int plain = index;
+
+            for (; index < limit; index++) {
+                char c = message[index];
+
+                if (c >= 0x80 || c == '<' || c == '>' || c == '&' || c == '\'' || c == '"' || c == '\n' || c == '\r') {
+                    output.append(message, plain, index - plain);
+                    appendEncoded(c);
+                    plain = index + 1;
+                }
+            }
+
+            output.append(message, plain, limit - plain);
+        }
+
+        // Same entities as MirthXmlUtil.encode
+        private void appendEncoded(char c) {
+            switch (c) {
+                case '<':
+                    output.append("&lt;");
+                    break;
+                case '>':
+                    output.append("&gt;");
+                    break;
+                case '&':
+                    output.append("&amp;");
+                    break;
+                case '\'':
+                    output.append("&apos;");
+                    break;
+                case '"':
+                    output.append("&quot;");
+                    break;
+                case '\n':
+                    output.append("&#10;");
+                    break;
+                case '\r':
+                    output.append("&#13;");
+                    break;
+                default:
+                    if (c < 0x80) {
+                        output.append(c);
+                    } else {
+                        output.append("&#").append((int) c).append(';');
+                    }
+                    break;
+            }
+        }
+    }
+}
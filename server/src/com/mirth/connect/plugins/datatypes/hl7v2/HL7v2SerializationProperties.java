@@ -13,6 +13,9 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.apache.commons.text.StringEscapeUtils;
+
+import com.mirth.connect.donkey.model.message.SerializationType;
 import com.mirth.connect.donkey.util.DonkeyElement;
 import com.mirth.connect.model.datatype.DataTypePropertyDescriptor;
 import com.mirth.connect.model.datatype.PropertyEditorType;
@@ -26,6 +29,7 @@ public class HL7v2SerializationProperties extends SerializationProperties {
     private boolean stripNamespaces = false;
     private String segmentDelimiter = "\\r";
     private boolean convertLineBreaks = true;
+    private boolean useLazyModel = false;
 
     @Override
     public Map<String, DataTypePropertyDescriptor> getPropertyDescriptors() {
@@ -38,6 +42,7 @@ public class HL7v2SerializationProperties extends SerializationProperties {
         properties.put("stripNamespaces", new DataTypePropertyDescriptor(stripNamespaces, "Strip Namespaces", "Strips namespace definitions from the transformed XML message (applies to Strict Parser only).", PropertyEditorType.BOOLEAN));
         properties.put("segmentDelimiter", new DataTypePropertyDescriptor(segmentDelimiter, "Segment Delimiter", "This is the input delimiter character(s) expected to occur after each segment.", PropertyEditorType.STRING));
         properties.put("convertLineBreaks", new DataTypePropertyDescriptor(convertLineBreaks, "Convert Line Breaks", "Convert all styles of line breaks (CRLF, CR, LF) in the raw message to the segment delimiter. ", PropertyEditorType.BOOLEAN));
+        properties.put("useLazyModel", new DataTypePropertyDescriptor(useLazyModel, "Use Lazy Message Model", "Give filters and transformers a message object that only parses the segments that are accessed, instead of converting the whole message to XML. Segments that are not modified are kept as they are. The object supports the common E4X accessors (e.g. msg['PID']['PID.3']['PID.3.1']) but is not an XML object, and the transformed message is ER7 (applies to Non-Strict Parser only).", PropertyEditorType.BOOLEAN));
 
         return properties;
     }
@@ -72,6 +77,10 @@ public class HL7v2SerializationProperties extends SerializationProperties {
             if (properties.get("convertLineBreaks") != null) {
                 this.convertLineBreaks = (Boolean) properties.get("convertLineBreaks");
             }
+
+            if (properties.get("useLazyModel") != null) {
+                this.useLazyModel = (Boolean) properties.get("useLazyModel");
+            }
         }
     }
 
@@ -131,6 +140,32 @@ public class HL7v2SerializationProperties extends SerializationProperties {
         this.convertLineBreaks = convertLineBreaks;
     }
 
+    public boolean isUseLazyModel() {
+        return useLazyModel;
+    }
+
+    public void setUseLazyModel(boolean useLazyModel) {
+        this.useLazyModel = useLazyModel;
+    }
+
+    /**
+     * The lazy message model is created from the raw message, so the message isn't converted to
+     * XML before the filter and transformer.
+     */
+    @Override
+    public SerializationType getSerializationType() {
+        return useLazyModel && !useStrictParser ? SerializationType.RAW : null;
+    }
+
+    @Override
+    public String getRawMessageScript(String content) {
+        if (useLazyModel && !useStrictParser) {
+            return "Packages." + LazyHL7v2Message.class.getName() + ".create(" + content + ", '" + StringEscapeUtils.escapeEcmaScript(segmentDelimiter) + "', " + handleRepetitions + ", " + handleSubcomponents + ", " + convertLineBreaks + ")";
+        }
+
+        return null;
+    }
+
     // @formatter:off
     @Override public void migrate3_0_1(DonkeyElement element) {}
     @Override public void migrate3_0_2(DonkeyElement element) {}
@@ -154,6 +189,7 @@ public class HL7v2SerializationProperties extends SerializationProperties {
         purgedProperties.put("useStrictParser", useStrictParser);
         purgedProperties.put("stripNamespaces", stripNamespaces);
         purgedProperties.put("convertLineBreaks", convertLineBreaks);
+        purgedProperties.put("useLazyModel", useLazyModel);
         return purgedProperties;
     }
 }
@@ -0,0 +1,637 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.datatypes.hl7v2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.mirth.connect.util.MirthXmlUtil;
+import com.mirth.connect.util.StringUtil;
+
+/**
+ * An ER7-encoded HL7 message that is only parsed as far as it is accessed. The segment boundaries
+ * are located the first time a segment is looked up, and a segment is only split into fields,
+ * components and subcomponents once one of its children is accessed. A parsed segment has the same
+ * element names and structure as in the non-strict XML representation created by ER7XMLEncoder
+ * (e.g. PID.3.1), so that transformer steps written for E4X work the same way on
+ * LazyHL7v2XMLList.
+ *
+ * When the message is converted back to ER7, segments that were not modified are copied from the
+ * original message as they are, and only modified or new segments are encoded again.
+ */
+public class LazyHL7v2Message {
+    static final int ROOT = -1;
+    static final int SEGMENT = 0;
+    static final int FIELD = 1;
+    static final int COMPONENT = 2;
+    static final int SUBCOMPONENT = 3;
+
+    private String source;
+    private int start;
+    private int end;
+    private String segmentDelimiter;
+    private String outputSegmentDelimiter;
+    private boolean handleRepetitions;
+    private boolean handleSubcomponents;
+    private boolean convertLineBreaks;
+
+    private char fieldSeparator = '|';
+    private char componentSeparator = '^';
+    private char repetitionSeparator = '~';
+    private char subcomponentSeparator = '&';
+    private boolean hasSubcomponentSeparator = false;
+
+    private Element root;
+
+    /**
+     * @param source
+     *            The ER7-encoded message.
+     * @param segmentDelimiter
+     *            The segment delimiter characters, unescaped. If empty, any whitespace character
+     *            ends a segment.
+     * @param convertLineBreaks
+     *            If true, CR and LF also end a segment.
+     */
+    public LazyHL7v2Message(String source, String segmentDelimiter, boolean handleRepetitions, boolean handleSubcomponents, boolean convertLineBreaks) {
+        this.source = source != null ? source : "";
+        this.segmentDelimiter = StringUtils.defaultString(segmentDelimiter);
+        this.outputSegmentDelimiter = StringUtils.defaultIfEmpty(segmentDelimiter, "\r");
+        this.handleRepetitions = handleRepetitions;
+        this.handleSubcomponents = handleSubcomponents;
+        this.convertLineBreaks = convertLineBreaks;
+
+        // Same as String.trim()
+        start = 0;
+        end = this.source.length();
+        while (start < end && this.source.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && this.source.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        readEncodingCharacters();
+        root = new Element(this, null, ROOT, 0);
+        root.name = ER7Reader.MESSAGE_ROOT_ID;
+    }
+
+    /**
+     * Creates the object given to filter and transformer scripts as msg or tmp. The segment
+     * delimiter is escaped the same way as in the data type properties.
+     */
+    public static LazyHL7v2XMLList create(Object source, String segmentDelimiter, boolean handleRepetitions, boolean handleSubcomponents, boolean convertLineBreaks) {
+        return new LazyHL7v2XMLList(new LazyHL7v2Message(source != null ? source.toString() : "", StringUtil.unescape(segmentDelimiter), handleRepetitions, handleSubcomponents, convertLineBreaks).getRoot());
+    }
+
+    Element getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the message as ER7, with every segment followed by the segment delimiter.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(end - start + 16);
+        root.appendER7(builder);
+        return builder.toString();
+    }
+
+    /*
+     * Same as ER7Reader: the separators are taken from the first segment if it is a header.
+     */
+    private void readEncodingCharacters() {
+        if (end - start >= 4 && isHeaderSegment(start)) {
+            fieldSeparator = source.charAt(start + 3);
+
+            int nextDelimiter = source.indexOf(fieldSeparator, start + 4);
+            if (nextDelimiter == -1 || nextDelimiter > end) {
+                nextDelimiter = end;
+            }
+            nextDelimiter -= start;
+
+            if (nextDelimiter > 4) {
+                componentSeparator = source.charAt(start + 4);
+            }
+
+            if (nextDelimiter > 5) {
+                repetitionSeparator = source.charAt(start + 5);
+            }
+
+            if (nextDelimiter > 7) {
+                subcomponentSeparator = source.charAt(start + 7);
+                hasSubcomponentSeparator = true;
+            }
+        }
+
+        // replace the special case of ^~& with ^~\& (MIRTH-1544)
+        if (end - start >= 8 && source.startsWith("^~&|", start + 4)) {
+            subcomponentSeparator = '&';
+            repetitionSeparator = '~';
+            componentSeparator = '^';
+            hasSubcomponentSeparator = true;
+        }
+    }
+
+    private boolean isHeaderSegment(int index) {
+        String id = source.substring(index, index + 3).toUpperCase();
+        return id.equals("MSH") || id.equals("FHS") || id.equals("BHS");
+    }
+
+    private boolean isSegmentDelimiter(char c) {
+        if (convertLineBreaks && (c == '\r' || c == '\n')) {
+            return true;
+        } else if (segmentDelimiter.isEmpty()) {
+            return Character.isWhitespace(c);
+        }
+
+        return segmentDelimiter.indexOf(c) > -1;
+    }
+
+    /*
+     * Locates the segments, without parsing them.
+     */
+    private List<Element> indexSegments() {
+        List<Element> segments = new ArrayList<Element>();
+        int index = start;
+
+        while (index < end) {
+            // Empty segments are skipped
+            while (index < end && isSegmentDelimiter(source.charAt(index))) {
+                index++;
+            }
+
+            if (index == end) {
+                break;
+            }
+
+            int segmentEnd = index;
+            while (segmentEnd < end && !isSegmentDelimiter(source.charAt(segmentEnd))) {
+                segmentEnd++;
+            }
+
+            int nameEnd = source.indexOf(fieldSeparator, index);
+            if (nameEnd == -1 || nameEnd > segmentEnd) {
+                nameEnd = segmentEnd;
+            }
+
+            Element segment = new Element(this, root, SEGMENT, 0);
+            segment.name = source.substring(index, nameEnd).trim();
+            segment.sourceStart = index;
+            segment.sourceEnd = segmentEnd;
+            segments.add(segment);
+
+            index = segmentEnd;
+        }
+
+        return segments;
+    }
+
+    /*
+     * Splits a segment the same way as ER7XMLEncoder. Empty fields, repetitions and components are
+     * kept as empty elements.
+     */
+    private void parseSegment(Element segment, String text) {
+        segment.children = new ArrayList<Element>();
+        List<String> fields = split(text, fieldSeparator);
+        boolean header = segment.name.equals("MSH") || segment.name.equals("FHS") || segment.name.equals("BHS");
+        int fieldId = 1;
+
+        for (int i = 1; i < fields.size(); i++) {
+            String field = fields.get(i);
+
+            if (header && i == 1) {
+                segment.add(new Element(this, segment, FIELD, fieldId++)).text = String.valueOf(fieldSeparator);
+                segment.add(new Element(this, segment, FIELD, fieldId++)).text = field;
+            } else if (handleRepetitions) {
+                for (String repetition : split(field, repetitionSeparator)) {
+                    parseField(segment.add(new Element(this, segment, FIELD, fieldId)), repetition);
+                }
+
+                fieldId++;
+            } else {
+                parseField(segment.add(new Element(this, segment, FIELD, fieldId++)), field);
+            }
+        }
+    }
+
+    /*
+     * A field or a segment assigned from a string, in the same ER7 encoding as the message.
+     */
+    private void parseField(Element field, String text) {
+        if (text.isEmpty()) {
+            field.text = text;
+            return;
+        }
+
+        field.children = new ArrayList<Element>();
+        int componentId = 1;
+
+        for (String component : split(text, componentSeparator)) {
+            Element element = field.add(new Element(this, field, COMPONENT, componentId++));
+
+            if (handleSubcomponents && hasSubcomponentSeparator && component.indexOf(subcomponentSeparator) > -1) {
+                element.children = new ArrayList<Element>();
+                int subcomponentId = 1;
+
+                for (String subcomponent : split(component, subcomponentSeparator)) {
+                    element.add(new Element(this, element, SUBCOMPONENT, subcomponentId++)).text = subcomponent;
+                }
+            } else {
+                element.text = component;
+            }
+        }
+    }
+
+    private static List<String> split(String text, char separator) {
+        List<String> tokens = new ArrayList<String>();
+        int index = 0;
+        int next;
+
+        while ((next = text.indexOf(separator, index)) > -1) {
+            tokens.add(text.substring(index, next));
+            index = next + 1;
+        }
+
+        tokens.add(text.substring(index));
+        return tokens;
+    }
+
+    /**
+     * A segment, field repetition, component or subcomponent. An element either has text or a list
+     * of children. Fields, components and subcomponents are identified by their number, and their
+     * names are derived from their parent (e.g. PID.3.1).
+     */
+    static class Element {
+        private LazyHL7v2Message message;
+        private Element parent;
+        private int level;
+        private int number;
+        private String name;
+        private String text;
+        private List<Element> children;
+
+        // Segments only: the location in the original message, until the segment is modified
+        private int sourceStart = -1;
+        private int sourceEnd = -1;
+        private boolean modified;
+
+        private Element(LazyHL7v2Message message, Element parent, int level, int number) {
+            this.message = message;
+            this.parent = parent;
+            this.level = level;
+            this.number = number;
+        }
+
+        Element getParent() {
+            return parent;
+        }
+
+        int getLevel() {
+            return level;
+        }
+
+        String getName() {
+            if (name == null) {
+                name = parent != null ? parent.getName() + "." + number : String.valueOf(number);
+            }
+
+            return name;
+        }
+
+        boolean isLeaf() {
+            return level > SEGMENT && children == null;
+        }
+
+        List<Element> getChildren() {
+            if (children == null) {
+                if (level == ROOT) {
+                    children = message.indexSegments();
+                } else if (level == SEGMENT) {
+                    message.parseSegment(this, message.source.substring(sourceStart, sourceEnd));
+                } else {
+                    return new ArrayList<Element>();
+                }
+            }
+
+            return children;
+        }
+
+        List<Element> getChildren(String childName) {
+            List<Element> matches = new ArrayList<Element>();
+
+            if (level == ROOT) {
+                for (Element child : getChildren()) {
+                    if (childName.equals("*") || child.name.equals(childName)) {
+                        matches.add(child);
+                    }
+                }
+            } else if (childName.equals("*")) {
+                matches.addAll(getChildren());
+            } else {
+                int childNumber = getChildNumber(childName);
+
+                if (childNumber > 0) {
+                    for (Element child : getChildren()) {
+                        if (child.number == childNumber) {
+                            matches.add(child);
+                        }
+                    }
+                }
+            }
+
+            return matches;
+        }
+
+        int indexInParent() {
+            return parent != null ? parent.getChildren().indexOf(this) : -1;
+        }
+
+        /*
+         * Returns the number of a child with the given name (e.g. 3 for PID.3 in PID), or -1 if the
+         * name can't be the name of a child of this element.
+         */
+        private int getChildNumber(String childName) {
+            String prefix = getName();
+            int length = prefix.length();
+
+            if (childName.length() <= length + 1 || childName.length() > length + 10 || childName.charAt(length) != '.' || !childName.startsWith(prefix)) {
+                return -1;
+            }
+
+            for (int i = length + 1; i < childName.length(); i++) {
+                if (!Character.isDigit(childName.charAt(i))) {
+                    return -1;
+                }
+            }
+
+            return Integer.parseInt(childName.substring(length + 1));
+        }
+
+        private Element add(Element child) {
+            children.add(child);
+            return child;
+        }
+
+        /**
+         * Creates an empty child with the given name, after the existing children with the same or
+         * a lower number.
+         */
+        Element createChild(String childName) {
+            Element child;
+
+            if (level == ROOT) {
+                child = new Element(message, this, SEGMENT, 0);
+                child.name = childName;
+                child.children = new ArrayList<Element>();
+                getChildren().add(child);
+            } else {
+                int childNumber = level < SUBCOMPONENT ? getChildNumber(childName) : -1;
+
+                if (childNumber < 1) {
+                    throw new IllegalArgumentException("Element " + childName + " cannot be created in " + getName() + ".");
+                }
+
+                if (isLeaf()) {
+                    // The text of the element becomes its first child
+                    children = new ArrayList<Element>();
+
+                    if (!text.isEmpty()) {
+                        add(new Element(message, this, level + 1, 1)).text = text;
+                    }
+
+                    text = null;
+                }
+
+                List<Element> siblings = getChildren();
+                int index = siblings.size();
+                while (index > 0 && siblings.get(index - 1).number > childNumber) {
+                    index--;
+                }
+
+                child = new Element(message, this, level + 1, childNumber);
+                child.text = "";
+                siblings.add(index, child);
+            }
+
+            child.setModified();
+            return child;
+        }
+
+        /**
+         * Inserts a copy of the given element (or a new empty element, if the source is null) with
+         * the given name at the given index.
+         */
+        Element insertChild(int index, String childName, Element source) {
+            Element child = createChild(childName);
+            List<Element> siblings = getChildren();
+            siblings.remove(child);
+            siblings.add(Math.max(0, Math.min(index, siblings.size())), child);
+
+            if (source != null) {
+                child.copyFrom(source);
+            }
+
+            return child;
+        }
+
+        void remove() {
+            if (parent != null) {
+                parent.getChildren().remove(this);
+                parent.setModified();
+            }
+        }
+
+        /**
+         * Replaces the text or children of this element. A string assigned to a segment is parsed
+         * as a complete segment, whose fields replace the fields of this segment.
+         */
+        void setText(String value) {
+            if (level == ROOT) {
+                throw new IllegalArgumentException("The message cannot be replaced.");
+            } else if (level == SEGMENT) {
+                String name = this.name;
+                message.parseSegment(this, value);
+                this.name = name;
+            } else {
+                text = value;
+                children = null;
+            }
+
+            setModified();
+        }
+
+        /**
+         * Replaces the text or children of this element with a copy of the given element. Elements
+         * on a different level are assigned as text.
+         */
+        void copyFrom(Element source) {
+            if (source == this) {
+                return;
+            } else if (source.level != level || level == ROOT) {
+                setText(source.toString());
+                return;
+            }
+
+            Element copy = source.copy(parent);
+            text = copy.text;
+            children = copy.children;
+
+            if (children != null) {
+                for (Element child : children) {
+                    child.parent = this;
+                }
+            }
+
+            setModified();
+        }
+
+        /**
+         * Returns a deep copy of this element, with the given parent.
+         */
+        Element copy(Element parent) {
+            Element copy = new Element(message, parent, level, number);
+            copy.name = level <= SEGMENT ? name : null;
+            copy.text = text;
+            copy.modified = true;
+
+            if (level <= SEGMENT || children != null) {
+                copy.children = new ArrayList<Element>();
+
+                for (Element child : getChildren()) {
+                    copy.children.add(child.copy(copy));
+                }
+            }
+
+            return copy;
+        }
+
+        private void setModified() {
+            for (Element element = this; element != null; element = element.parent) {
+                if (element.level == SEGMENT) {
+                    element.modified = true;
+                    element.sourceStart = -1;
+                    element.sourceEnd = -1;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the element as ER7: the text of a leaf, or the encoded children.
+         */
+        @Override
+        public String toString() {
+            if (isLeaf()) {
+                return text;
+            }
+
+            StringBuilder builder = new StringBuilder();
+            appendER7(builder);
+            return builder.toString();
+        }
+
+        private void appendER7(StringBuilder builder) {
+            if (level == ROOT) {
+                for (Element segment : getChildren()) {
+                    segment.appendER7(builder);
+                    builder.append(message.outputSegmentDelimiter);
+                }
+            } else if (level == SEGMENT) {
+                if (!modified && sourceStart > -1) {
+                    builder.append(message.source, sourceStart, sourceEnd);
+                } else {
+                    builder.append(name);
+
+                    boolean header = name.equals("MSH") || name.equals("FHS") || name.equals("BHS");
+                    int fieldCount = getLastNumber();
+
+                    // The first field of a header segment is the field separator itself
+                    for (int fieldId = header ? 2 : 1; fieldId <= fieldCount; fieldId++) {
+                        builder.append(message.fieldSeparator);
+                        appendChildren(builder, fieldId, message.repetitionSeparator);
+                    }
+
+                    // Empty segments are followed by a field separator, the same as when converting from XML
+                    if (fieldCount == 0) {
+                        builder.append(message.fieldSeparator);
+                    }
+                }
+            } else if (children == null) {
+                builder.append(text);
+            } else {
+                char separator = level == FIELD ? message.componentSeparator : message.subcomponentSeparator;
+                int childCount = getLastNumber();
+
+                for (int childId = 1; childId <= childCount; childId++) {
+                    if (childId > 1) {
+                        builder.append(separator);
+                    }
+
+                    appendChildren(builder, childId, separator);
+                }
+            }
+        }
+
+        /*
+         * Appends the children with the given number, which are repetitions if there is more than
+         * one of them.
+         */
+        private void appendChildren(StringBuilder builder, int childNumber, char repetitionSeparator) {
+            boolean first = true;
+
+            for (Element child : children) {
+                if (child.number == childNumber) {
+                    if (!first) {
+                        builder.append(repetitionSeparator);
+                    }
+
+                    child.appendER7(builder);
+                    first = false;
+                }
+            }
+        }
+
+        private int getLastNumber() {
+            int lastNumber = 0;
+
+            for (Element child : getChildren()) {
+                lastNumber = Math.max(lastNumber, child.number);
+            }
+
+            return lastNumber;
+        }
+
+        /**
+         * Returns the element in the non-strict XML representation.
+         */
+        String toXMLString() {
+            StringBuilder builder = new StringBuilder();
+            appendXML(builder);
+            return builder.toString();
+        }
+
+        private void appendXML(StringBuilder builder) {
+            builder.append('<').append(getName()).append('>');
+
+            if (isLeaf()) {
+                builder.append(MirthXmlUtil.encode(text));
+            } else {
+                for (Element child : getChildren()) {
+                    child.appendXML(builder);
+                }
+            }
+
+            builder.append("</").append(getName()).append('>');
+        }
+    }
+}
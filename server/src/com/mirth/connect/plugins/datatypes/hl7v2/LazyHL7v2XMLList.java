@@ -0,0 +1,665 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.datatypes.hl7v2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mozilla.javascript.BaseFunction;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeWith;
+import org.mozilla.javascript.Node;
+import org.mozilla.javascript.Ref;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.Undefined;
+import org.mozilla.javascript.xml.XMLObject;
+
+import com.mirth.connect.plugins.datatypes.hl7v2.LazyHL7v2Message.Element;
+
+/**
+ * The E4X-style view of a LazyHL7v2Message given to filter and transformer scripts. Like an E4X
+ * XMLList, every value is a list of elements: msg['PID'] is the list of PID segments, and
+ * msg['PID']['PID.3'] the list of PID.3 repetitions in those segments. Properties are resolved
+ * against the lazily parsed message, so only the segments that are accessed are parsed. Assigning
+ * to an element that doesn't exist yet creates it, the same as in E4X.
+ *
+ * The most common XML methods are supported (toString, toXMLString, length, children, child,
+ * name, text, parent, childIndex, appendChild, insertChildAfter/Before, copy, ...). Unlike E4X,
+ * toString() of an element with children returns the element encoded as ER7 instead of XML, and
+ * the transformed message is converted back to ER7 directly. Namespaces, attributes, filtering
+ * predicates and with statements are not supported.
+ */
+public class LazyHL7v2XMLList extends XMLObject {
+    private static final long serialVersionUID = 1L;
+
+    private static final Map<String, Method> methods = new HashMap<String, Method>();
+
+    static {
+        for (String name : new String[] { "toString", "toXMLString", "valueOf", "length", "children",
+                "elements", "child", "name", "localName", "text", "hasSimpleContent",
+                "hasComplexContent", "parent", "childIndex", "appendChild", "insertChildAfter",
+                "insertChildBefore", "copy" }) {
+            methods.put(name, new Method(name));
+        }
+    }
+
+    private List<Element> elements;
+
+    // Where the elements are created when assigning to an empty list
+    private LazyHL7v2XMLList target;
+    private String targetName;
+
+    LazyHL7v2XMLList(Element element) {
+        this(Collections.singletonList(element), null, null);
+    }
+
+    private LazyHL7v2XMLList(List<Element> elements, LazyHL7v2XMLList target, String targetName) {
+        this.elements = elements;
+        this.target = target;
+        this.targetName = targetName;
+    }
+
+    @Override
+    public String getClassName() {
+        return "XMLList";
+    }
+
+    /*
+     * Property access
+     */
+
+    @Override
+    public Object get(String name, Scriptable start) {
+        Object method = methods.get(name);
+        return method != null ? method : getChildren(name);
+    }
+
+    @Override
+    public Object get(int index, Scriptable start) {
+        return getIndex(index);
+    }
+
+    @Override
+    public Object get(Context cx, Object id) {
+        int index = toIndex(id);
+        return index > -1 ? getIndex(index) : getChildren(ScriptRuntime.toString(id));
+    }
+
+    @Override
+    public boolean has(String name, Scriptable start) {
+        return methods.containsKey(name) || getChildren(name).elements.size() > 0;
+    }
+
+    @Override
+    public boolean has(int index, Scriptable start) {
+        return index < elements.size();
+    }
+
+    @Override
+    public boolean has(Context cx, Object id) {
+        int index = toIndex(id);
+        return index > -1 ? has(index, this) : has(ScriptRuntime.toString(id), this);
+    }
+
+    @Override
+    public void put(String name, Scriptable start, Object value) {
+        try {
+            Element parent = resolve();
+            List<Element> matches = parent.getChildren(name);
+            Element element = matches.isEmpty() ? parent.createChild(name) : matches.get(0);
+
+            // The first match is replaced and the others are removed, the same as in E4X
+            for (int i = 1; i < matches.size(); i++) {
+                matches.get(i).remove();
+            }
+
+            assign(element, value);
+        } catch (IllegalArgumentException e) {
+            throw Context.reportRuntimeError(e.getMessage());
+        }
+    }
+
+    @Override
+    public void put(int index, Scriptable start, Object value) {
+        try {
+            if (index < elements.size()) {
+                assign(elements.get(index), value);
+            } else if (elements.isEmpty()) {
+                Element element = target.resolve().createChild(targetName);
+                elements = new ArrayList<Element>(Collections.singletonList(element));
+                assign(element, value);
+            } else {
+                // Appends a sibling, at the end of the message for segments (the same as Rhino)
+                Element last = elements.get(elements.size() - 1);
+                Element element = last.getParent().createChild(last.getName());
+                elements = new ArrayList<Element>(elements);
+                elements.add(element);
+                assign(element, value);
+            }
+        } catch (IllegalArgumentException e) {
+            throw Context.reportRuntimeError(e.getMessage());
+        }
+    }
+
+    @Override
+    public void put(Context cx, Object id, Object value) {
+        int index = toIndex(id);
+
+        if (index > -1) {
+            put(index, this, value);
+        } else {
+            put(ScriptRuntime.toString(id), this, value);
+        }
+    }
+
+    @Override
+    public void delete(String name) {
+        for (Element element : elements) {
+            for (Element child : element.getChildren(name)) {
+                child.remove();
+            }
+        }
+    }
+
+    @Override
+    public void delete(int index) {
+        if (index < elements.size()) {
+            elements = new ArrayList<Element>(elements);
+            elements.remove(index).remove();
+        }
+    }
+
+    @Override
+    public boolean delete(Context cx, Object id) {
+        int index = toIndex(id);
+
+        if (index > -1) {
+            delete(index);
+        } else {
+            delete(ScriptRuntime.toString(id));
+        }
+
+        return true;
+    }
+
+    @Override
+    public Object[] getIds() {
+        Object[] ids = new Object[elements.size()];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Integer.valueOf(i);
+        }
+
+        return ids;
+    }
+
+    @Override
+    public Object getDefaultValue(Class<?> hint) {
+        return toString();
+    }
+
+    @Override
+    protected Object equivalentValues(Object value) {
+        if (value == null || value == Undefined.instance) {
+            // An empty list is equal to undefined, the same as in E4X
+            return elements.isEmpty();
+        } else if (value instanceof CharSequence || value instanceof LazyHL7v2XMLList) {
+            return toString().equals(value.toString());
+        }
+
+        return NOT_FOUND;
+    }
+
+    /*
+     * XMLObject
+     */
+
+    @Override
+    public Object getFunctionProperty(Context cx, String name) {
+        Object method = methods.get(name);
+        return method != null ? method : NOT_FOUND;
+    }
+
+    @Override
+    public Object getFunctionProperty(Context cx, int id) {
+        return NOT_FOUND;
+    }
+
+    @Override
+    public Scriptable getExtraMethodSource(Context cx) {
+        return null;
+    }
+
+    @Override
+    public Ref memberRef(Context cx, Object elem, int memberTypeFlags) {
+        if ((memberTypeFlags & Node.ATTRIBUTE_FLAG) != 0) {
+            throw Context.reportRuntimeError("Attributes are not supported by the lazy HL7 v2.x message model.");
+        }
+
+        final String name = ScriptRuntime.toString(elem);
+        final boolean descendants = (memberTypeFlags & Node.DESCENDANTS_FLAG) != 0;
+
+        return new Ref() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Object get(Context cx) {
+                return descendants ? getDescendants(name) : getChildren(name);
+            }
+
+            @Override
+            public Object set(Context cx, Scriptable scope, Object value) {
+                if (descendants) {
+                    throw Context.reportRuntimeError("Descendants cannot be assigned.");
+                }
+
+                put(name, LazyHL7v2XMLList.this, value);
+                return value;
+            }
+
+            @Override
+            @Deprecated
+            public Object set(Context cx, Object value) {
+                return set(cx, null, value);
+            }
+        };
+    }
+
+    @Override
+    public Ref memberRef(Context cx, Object namespace, Object elem, int memberTypeFlags) {
+        throw Context.reportRuntimeError("Namespaces are not supported by the lazy HL7 v2.x message model.");
+    }
+
+    @Override
+    public NativeWith enterWith(Scriptable scope) {
+        throw Context.reportRuntimeError("with statements are not supported by the lazy HL7 v2.x message model.");
+    }
+
+    @Override
+    public NativeWith enterDotQuery(Scriptable scope) {
+        throw Context.reportRuntimeError("Filtering predicates are not supported by the lazy HL7 v2.x message model.");
+    }
+
+    /*
+     * XML methods
+     */
+
+    @Override
+    public String toString() {
+        if (elements.size() == 1) {
+            return elements.get(0).toString();
+        }
+
+        StringBuilder builder = new StringBuilder();
+        boolean simple = hasSimpleContent();
+
+        for (Element element : elements) {
+            if (!simple && builder.length() > 0) {
+                builder.append('\n');
+            }
+
+            builder.append(element.toString());
+        }
+
+        return builder.toString();
+    }
+
+    public String toXMLString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (Element element : elements) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+
+            builder.append(element.toXMLString());
+        }
+
+        return builder.toString();
+    }
+
+    public int length() {
+        return elements.size();
+    }
+
+    public LazyHL7v2XMLList children() {
+        List<Element> children = new ArrayList<Element>();
+
+        for (Element element : elements) {
+            children.addAll(element.getChildren());
+        }
+
+        return new LazyHL7v2XMLList(children, null, null);
+    }
+
+    public LazyHL7v2XMLList child(Object id) {
+        int index = toIndex(id);
+
+        if (index < 0) {
+            return getChildren(ScriptRuntime.toString(id));
+        }
+
+        List<Element> children = new ArrayList<Element>();
+
+        for (Element element : elements) {
+            List<Element> elementChildren = element.getChildren();
+
+            if (index < elementChildren.size()) {
+                children.add(elementChildren.get(index));
+            }
+        }
+
+        return new LazyHL7v2XMLList(children, null, null);
+    }
+
+    public String name() {
+        return getSingle().getName();
+    }
+
+    public LazyHL7v2XMLList text() {
+        List<Element> leaves = new ArrayList<Element>();
+
+        for (Element element : elements) {
+            if (element.isLeaf()) {
+                leaves.add(element);
+            }
+        }
+
+        return new LazyHL7v2XMLList(leaves, null, null);
+    }
+
+    public boolean hasSimpleContent() {
+        if (elements.size() == 1) {
+            return elements.get(0).isLeaf();
+        }
+
+        return elements.isEmpty();
+    }
+
+    public Object parent() {
+        Element parent = null;
+
+        for (Element element : elements) {
+            if (parent != null && element.getParent() != parent) {
+                return Undefined.instance;
+            }
+
+            parent = element.getParent();
+        }
+
+        return parent != null ? new LazyHL7v2XMLList(parent) : Undefined.instance;
+    }
+
+    public int childIndex() {
+        return getSingle().indexInParent();
+    }
+
+    public LazyHL7v2XMLList copy() {
+        List<Element> copies = new ArrayList<Element>();
+
+        for (Element element : elements) {
+            copies.add(element.copy(null));
+        }
+
+        return new LazyHL7v2XMLList(copies, null, null);
+    }
+
+    /**
+     * Inserts the value as a new child of the single element in this list, after the given child,
+     * or at the beginning if the child is null.
+     */
+    public LazyHL7v2XMLList insertChildAfter(Object child, Object value) {
+        Element parent = getSingle();
+        int index = child == null || child == Undefined.instance ? 0 : getChildElement(parent, child).indexInParent() + 1;
+        assign(parent.insertChild(index, getName(value), null), value);
+        return this;
+    }
+
+    /**
+     * Inserts the value as a new child of the single element in this list, before the given child,
+     * or at the end if the child is null.
+     */
+    public LazyHL7v2XMLList insertChildBefore(Object child, Object value) {
+        Element parent = getSingle();
+        int index = child == null || child == Undefined.instance ? parent.getChildren().size() : getChildElement(parent, child).indexInParent();
+        assign(parent.insertChild(index, getName(value), null), value);
+        return this;
+    }
+
+    public LazyHL7v2XMLList appendChild(Object value) {
+        return insertChildBefore(null, value);
+    }
+
+    /*
+     * Helpers
+     */
+
+    private LazyHL7v2XMLList getChildren(String name) {
+        List<Element> children;
+
+        if (elements.size() == 1) {
+            children = elements.get(0).getChildren(name);
+        } else {
+            children = new ArrayList<Element>();
+
+            for (Element element : elements) {
+                children.addAll(element.getChildren(name));
+            }
+        }
+
+        return new LazyHL7v2XMLList(children, this, name);
+    }
+
+    private LazyHL7v2XMLList getDescendants(String name) {
+        List<Element> descendants = new ArrayList<Element>();
+
+        for (Element element : elements) {
+            addDescendants(element, name, descendants);
+        }
+
+        return new LazyHL7v2XMLList(descendants, null, null);
+    }
+
+    private void addDescendants(Element element, String name, List<Element> descendants) {
+        if (!element.isLeaf()) {
+            for (Element child : element.getChildren()) {
+                if (name.equals("*") || child.getName().equals(name)) {
+                    descendants.add(child);
+                }
+
+                addDescendants(child, name, descendants);
+            }
+        }
+    }
+
+    private Object getIndex(int index) {
+        if (index < elements.size()) {
+            return elements.size() == 1 ? this : new LazyHL7v2XMLList(Collections.singletonList(elements.get(index)), null, null);
+        }
+
+        return Undefined.instance;
+    }
+
+    /*
+     * Returns the element that values are assigned to, creating it (and the elements it belongs
+     * to) if this list is empty.
+     */
+    private Element resolve() {
+        if (elements.size() == 1) {
+            return elements.get(0);
+        } else if (elements.size() > 1) {
+            throw new IllegalArgumentException("Assignment to lists with more than one item is not supported.");
+        } else if (target == null) {
+            throw new IllegalArgumentException("Assignment to an empty list is not supported.");
+        }
+
+        Element element = target.resolve().createChild(targetName);
+        elements = new ArrayList<Element>(Collections.singletonList(element));
+        return element;
+    }
+
+    private Element getSingle() {
+        if (elements.size() != 1) {
+            throw Context.reportRuntimeError("The list must contain exactly one element, but contains " + elements.size() + ".");
+        }
+
+        return elements.get(0);
+    }
+
+    private Element getChildElement(Element parent, Object child) {
+        if (child instanceof LazyHL7v2XMLList && ((LazyHL7v2XMLList) child).elements.size() == 1) {
+            Element element = ((LazyHL7v2XMLList) child).elements.get(0);
+
+            if (element.getParent() == parent) {
+                return element;
+            }
+        }
+
+        throw Context.reportRuntimeError("The child is not a child of " + parent.getName() + ".");
+    }
+
+    /*
+     * Values are copied if they are lazy elements, and assigned as text otherwise. E4X XML objects
+     * are only supported with simple content (e.g. new XML('<ZZZ></ZZZ>') or <PID.3.1>text</PID.3.1>).
+     */
+    private static void assign(Element element, Object value) {
+        if (value instanceof LazyHL7v2XMLList && ((LazyHL7v2XMLList) value).elements.size() == 1) {
+            element.copyFrom(((LazyHL7v2XMLList) value).elements.get(0));
+        } else if (value instanceof XMLObject && !(value instanceof LazyHL7v2XMLList)) {
+            if (!ScriptRuntime.toBoolean(callMethod((XMLObject) value, "hasSimpleContent"))) {
+                throw Context.reportRuntimeError("XML with child elements cannot be assigned to " + element.getName() + ", assign a string or an element of the message instead.");
+            }
+
+            element.setText(ScriptRuntime.toString(value));
+        } else {
+            element.setText(ScriptRuntime.toString(value));
+        }
+    }
+
+    private static String getName(Object value) {
+        if (value instanceof LazyHL7v2XMLList) {
+            return ((LazyHL7v2XMLList) value).name();
+        } else if (value instanceof XMLObject) {
+            return ScriptRuntime.toString(callMethod((XMLObject) value, "name"));
+        }
+
+        throw Context.reportRuntimeError("Only XML elements can be inserted as children.");
+    }
+
+    private static Object callMethod(XMLObject xml, String name) {
+        Context cx = Context.getCurrentContext();
+        Object method = xml.getFunctionProperty(cx, name);
+
+        if (!(method instanceof Function)) {
+            throw Context.reportRuntimeError("XML method " + name + " is not available.");
+        }
+
+        return ((Function) method).call(cx, xml.getParentScope(), xml, ScriptRuntime.emptyArgs);
+    }
+
+    /*
+     * Returns the index if the id is an array index, e.g. msg['OBX'][1] or msg['OBX']['1'].
+     */
+    private static int toIndex(Object id) {
+        if (id instanceof Number) {
+            double value = ((Number) id).doubleValue();
+            return value >= 0 && value == (int) value ? (int) value : -1;
+        } else if (id instanceof CharSequence) {
+            String name = id.toString();
+
+            if (name.isEmpty() || name.length() > 9) {
+                return -1;
+            }
+
+            for (int i = 0; i < name.length(); i++) {
+                if (!Character.isDigit(name.charAt(i))) {
+                    return -1;
+                }
+            }
+
+            return Integer.parseInt(name);
+        }
+
+        return -1;
+    }
+
+    private static class Method extends BaseFunction {
+        private static final long serialVersionUID = 1L;
+
+        private String name;
+
+        private Method(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return name;
+        }
+
+        @Override
+        public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+            if (!(thisObj instanceof LazyHL7v2XMLList)) {
+                throw ScriptRuntime.typeError("Method " + name + " called on incompatible object.");
+            }
+
+            LazyHL7v2XMLList list = (LazyHL7v2XMLList) thisObj;
+            Object arg0 = args.length > 0 ? args[0] : Undefined.instance;
+            Object arg1 = args.length > 1 ? args[1] : Undefined.instance;
+
+            try {
+                switch (name) {
+                    case "toString":
+                        return list.toString();
+                    case "toXMLString":
+                        return list.toXMLString();
+                    case "valueOf":
+                        return list;
+                    case "length":
+                        return list.length();
+                    case "children":
+                        return list.children();
+                    case "elements":
+                        return args.length > 0 ? list.getChildren(ScriptRuntime.toString(arg0)) : list.children();
+                    case "child":
+                        return list.child(arg0);
+                    case "name":
+                    case "localName":
+                        return list.name();
+                    case "text":
+                        return list.text();
+                    case "hasSimpleContent":
+                        return list.hasSimpleContent();
+                    case "hasComplexContent":
+                        return !list.hasSimpleContent();
+                    case "parent":
+                        return list.parent();
+                    case "childIndex":
+                        return list.childIndex();
+                    case "appendChild":
+                        return list.appendChild(arg0);
+                    case "insertChildAfter":
+                        return list.insertChildAfter(arg0, arg1);
+                    case "insertChildBefore":
+                        return list.insertChildBefore(arg0, arg1);
+                    default:
+                        return list.copy();
+                }
+            } catch (IllegalArgumentException e) {
+                throw Context.reportRuntimeError(e.getMessage());
+            }
+        }
+    }
+}
@@ -9,7 +9,8 @@
 
 package com.mirth.connect.plugins.datatypes.hl7v2;
 
-import org.apache.commons.lang3.ArrayUtils;
+import java.util.Arrays;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
@@ -37,6 +38,13 @@ public class XMLEncodedHL7Handler extends DefaultHandler {
     private String[] previousComponentNameArray;
     private String[] previousSubcomponentNameArray;
 
+    /*
+     * The split names of the currently open elements, so that each element name is only split once.
+     */
+    private String[] openElementNames = new String[8];
+    private String[][] openElementNameArrays = new String[8][];
+    private int openElementCount = 0;
+
     private StringBuilder output = new StringBuilder();
 
     public XMLEncodedHL7Handler(String segmentSeparator, String fieldSeparator, String componentSeparator, String repetitionSeparator, String escapeCharacter, String subcomponentSeparator, boolean encodeEntities) {
@@ -57,10 +65,12 @@ public class XMLEncodedHL7Handler extends DefaultHandler {
 
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-        logger.trace("starting element: " + localName);
+        if (logger.isTraceEnabled()) {
+            logger.trace("starting element: " + localName);
+        }
         inElement = true;
 
-        String[] localNameArray = StringUtils.split(localName, ID_DELIMETER);
+        String[] localNameArray = pushElementName(localName);
 
         if (rootLevel == -1) {
             rootLevel = localNameArray.length;
@@ -86,7 +96,7 @@ public class XMLEncodedHL7Handler extends DefaultHandler {
          * If the element that we've found is the same as the last, then we have a repetition, so we
          * remove the last separator that was added and append to repetition separator.
          */
-        if (ArrayUtils.isEquals(localNameArray, previousFieldNameArray)) {
+        if (Arrays.equals(localNameArray, previousFieldNameArray)) {
             output.deleteCharAt(output.length() - 1);
             output.append(repetitionSeparator);
             previousComponentNameArray = null;
@@ -180,10 +190,12 @@ public class XMLEncodedHL7Handler extends DefaultHandler {
 
     @Override
     public void endElement(String uri, String localName, String qName) throws SAXException {
-        logger.trace("ending element: " + localName);
+        if (logger.isTraceEnabled()) {
+            logger.trace("ending element: " + localName);
+        }
         inElement = false;
 
-        String[] localNameArray = StringUtils.split(localName, ID_DELIMETER);
+        String[] localNameArray = popElementName(localName);
 
         /*
          * Once we see the closing of MSH.1 or MSH.2 tags, we know that the separator characters
@@ -252,15 +264,15 @@ public class XMLEncodedHL7Handler extends DefaultHandler {
 
     @Override
     public void characters(char ch[], int start, int length) throws SAXException {
-        String str = new String(ch, start, length);
-
         /*
          * Write the substring to the output buffer, unless it is the field separators (to avoid
          * MSH.1. being written out).
          */
-        if (inElement && !str.equals(fieldSeparator)) {
-            logger.trace("writing output: " + str);
-            output.append(str);
+        if (inElement && !isFieldSeparator(ch, start, length)) {
+            if (logger.isTraceEnabled()) {
+                logger.trace("writing output: " + new String(ch, start, length));
+            }
+            output.append(ch, start, length);
         }
     }
 
@@ -270,6 +282,51 @@ public class XMLEncodedHL7Handler extends DefaultHandler {
         logger.trace("found ignorable whitespace: length=" + length);
     }
 
+    private boolean isFieldSeparator(char ch[], int start, int length) {
+        if (length != fieldSeparator.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (ch[start + i] != fieldSeparator.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private String[] pushElementName(String localName) {
+        String[] localNameArray = StringUtils.split(localName, ID_DELIMETER);
+
+        if (openElementCount == openElementNames.length) {
+            openElementNames = Arrays.copyOf(openElementNames, openElementCount * 2);
+            openElementNameArrays = Arrays.copyOf(openElementNameArrays, openElementCount * 2);
+        }
+
+        openElementNames[openElementCount] = localName;
+        openElementNameArrays[openElementCount] = localNameArray;
+        openElementCount++;
+        return localNameArray;
+    }
+
+    private String[] popElementName(String localName) {
+        if (openElementCount > 0) {
+            openElementCount--;
+            String[] localNameArray = openElementNameArrays[openElementCount];
+            openElementNameArrays[openElementCount] = null;
+
+            if (localName.equals(openElementNames[openElementCount])) {
+                openElementNames[openElementCount] = null;
+                return localNameArray;
+            }
+
+            openElementNames[openElementCount] = null;
+        }
+
+        return StringUtils.split(localName, ID_DELIMETER);
+    }
+
     /**
      * This awesome piece of code returns true if the string is MSH|[B|F]HS
      * 
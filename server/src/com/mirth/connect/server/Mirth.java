@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.nio.charset.Charset;
@@ -24,6 +25,9 @@ import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import com.mirth.connect.client.core.BrandingConstants;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.io.IOUtils;
@@ -63,6 +67,7 @@ import com.mirth.connect.server.controllers.UserController;
 import com.mirth.connect.server.logging.JuliToLog4JService;
 import com.mirth.connect.server.logging.LogOutputStream;
 import com.mirth.connect.server.logging.MirthLog4jFilter;
+import com.mirth.connect.server.mbeans.ChannelLatency;
 import com.mirth.connect.server.util.NetworkUtil;
 import com.mirth.connect.server.util.ResourceUtil;
 import com.mirth.connect.server.util.SqlConfig;
@@ -446,6 +451,17 @@ public class Mirth extends Thread {
         } catch (Exception e) {
             logger.error(e);
         }
+
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(ChannelLatency.OBJECT_NAME);
+
+            if (!mbeanServer.isRegistered(objectName)) {
+                mbeanServer.registerMBean(new ChannelLatency(), objectName);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not register the channel latency MBean.", e);
+        }
     }
 
     /**
@@ -455,6 +471,17 @@ public class Mirth extends Thread {
     private void stopEngine() {
         logger.debug("stopping engine");
 
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(ChannelLatency.OBJECT_NAME);
+
+            if (mbeanServer.isRegistered(objectName)) {
+                mbeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            logger.debug("Could not unregister the channel latency MBean.", e);
+        }
+
         try {
             engineController.stopEngine();
         } catch (Exception e) {
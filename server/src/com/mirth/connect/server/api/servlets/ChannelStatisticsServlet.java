@@ -28,6 +28,7 @@ import com.mirth.connect.client.core.api.MirthApiException;
 import com.mirth.connect.client.core.api.servlets.ChannelStatisticsServletInterface;
 import com.mirth.connect.donkey.model.message.Status;
 import com.mirth.connect.model.ChannelStatistics;
+import com.mirth.connect.model.StageLatency;
 import com.mirth.connect.server.api.CheckAuthorizedChannelId;
 import com.mirth.connect.server.api.MirthServlet;
 import com.mirth.connect.server.controllers.ChannelController;
@@ -113,6 +114,16 @@ public class ChannelStatisticsServlet extends MirthServlet implements ChannelSta
         return channelStatistics;
     }
 
+    @Override
+    @CheckAuthorizedChannelId
+    public List<StageLatency> getLatencies(String channelId) {
+        List<StageLatency> latencies = engineController.getChannelLatencies(channelId);
+        if (latencies == null) {
+            throw new MirthApiException(Response.Status.NOT_FOUND);
+        }
+        return latencies;
+    }
+
     @Override
     public void clearStatistics(Map<String, List<Integer>> channelConnectorMap, boolean received, boolean filtered, boolean sent, boolean error) {
         Set<Status> statusesToClear = new HashSet<Status>();
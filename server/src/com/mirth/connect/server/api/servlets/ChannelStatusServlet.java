@@ -30,6 +30,7 @@ import com.mirth.connect.client.core.api.MirthApiException;
 import com.mirth.connect.client.core.api.servlets.ChannelStatusServletInterface;
 import com.mirth.connect.model.DashboardChannelInfo;
 import com.mirth.connect.model.DashboardStatus;
+import com.mirth.connect.model.DashboardStatusChanges;
 import com.mirth.connect.model.filter.SearchFilter;
 import com.mirth.connect.model.filter.SearchFilterParser;
 import com.mirth.connect.server.api.CheckAuthorizedChannelId;
@@ -42,6 +43,8 @@ import com.mirth.connect.server.controllers.EngineController;
 
 public class ChannelStatusServlet extends MirthServlet implements ChannelStatusServletInterface {
 
+    private static final long MAX_CHANGES_TIMEOUT = 30000;
+
     private static EngineController engineController;
     private static ConfigurationController configurationController;
 
@@ -152,6 +155,41 @@ public class ChannelStatusServlet extends MirthServlet implements ChannelStatusS
         return new DashboardChannelInfo(channelStatuses, remainingChannelIds, deployedCount);
     }
 
+    @Override
+    public DashboardStatusChanges getChannelStatusChanges(long since, long timeout, String filter) {
+        DashboardStatusChanges changes = engineController.getChannelStatusChanges(since, Math.min(Math.max(timeout, 0), MAX_CHANGES_TIMEOUT));
+
+        if (!changes.isFullRefresh()) {
+            List<DashboardStatus> statuses = redactChannelStatuses(changes.getDashboardStatuses());
+            Set<String> removedChannelIds = redactChannelIds(changes.getRemovedChannelIds());
+
+            // Channels that no longer match the filter are removed from the client's list
+            if (StringUtils.isNotBlank(filter) && CollectionUtils.isNotEmpty(statuses)) {
+                List<SearchFilter> searchFilterList = SearchFilterParser.parse(filter, configurationController.getChannelTags());
+
+                if (CollectionUtils.isNotEmpty(searchFilterList)) {
+                    for (DashboardStatus status : statuses) {
+                        removedChannelIds.add(status.getChannelId());
+                    }
+
+                    for (SearchFilter searchFilter : searchFilterList) {
+                        searchFilter.filterDashboardStatuses(statuses);
+                    }
+
+                    for (DashboardStatus status : statuses) {
+                        removedChannelIds.remove(status.getChannelId());
+                    }
+                }
+            }
+
+            changes.setDashboardStatuses(statuses);
+            changes.setRemovedChannelIds(removedChannelIds);
+        }
+
+        changes.setDeployedChannelCount(redactChannelIds(engineController.getDeployedIds()).size());
+        return changes;
+    }
+
     @Override
     @CheckAuthorizedChannelId
     public void startChannel(String channelId, boolean returnErrors) {
@@ -10,13 +10,18 @@
 package com.mirth.connect.server.attachments;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.apache.commons.codec.binary.Base64OutputStream;
 import org.apache.commons.codec.binary.StringUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.WriterOutputStream;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -132,14 +137,6 @@ public abstract class MirthAttachmentHandlerProvider implements AttachmentHandle
      */
     public byte[] reAttachMessage(String raw, ImmutableConnectorMessage connectorMessage, String charsetEncoding, boolean binary, boolean reattach, boolean localOnly, Map<String, Attachment> remainingAttachments) {
         try {
-            Map<Integer, Map<Integer, Object>> replacementObjects = new TreeMap<Integer, Map<Integer, Object>>();
-            // Determine the buffersize during the first pass for better memory performance
-            int bufferSize = raw.length();
-            int index = 0;
-            int endIndex;
-            // Initialize the objects here so only one retrieval of the attachment content is ever needed.
-            byte[] dicomObject = null;
-
             Map<String, Attachment> attachmentMap = null;
             // If remainingAttachments is passed in, then always initialize the local attachments
             if (remainingAttachments != null) {
@@ -149,211 +146,22 @@ public abstract class MirthAttachmentHandlerProvider implements AttachmentHandle
             // Handle the special case if only a dicom message is requested. 
             // In this case we can skip any byte appending and thus do not need to base64 encode the dicom object
             // if the type is binary.
-            if (reattach && raw.trim().equals(PREFIX + DICOM_KEY + SUFFIX)) {
-                dicomObject = DICOMMessageUtil.getDICOMRawBytes(connectorMessage);
-
-                if (!binary) {
-                    dicomObject = Base64Util.encodeBase64(dicomObject);
-                }
-
-                return dicomObject;
+            if (reattach && isDICOMMessageOnly(raw)) {
+                return getDICOMMessage(connectorMessage, binary);
             }
 
-            // Check the raw string in one pass for any attachments.
-            // Stores the start and end indices to replace, along with the attachment content.
-            while ((index = raw.indexOf(PREFIX, index)) != -1) {
-                // Check for special DICOM token first
-                if (raw.startsWith(DICOM_KEY + SUFFIX, index + PREFIX.length())) {
-                    endIndex = index + PREFIX.length() + DICOM_KEY.length() + SUFFIX.length();
-
-                    // Don't actually make any replacement but still advance the index if not reattaching
-                    if (reattach) {
-                        if (dicomObject == null) {
-                            // Unfortunately, if the dicom data needs to appended to other base64 data, it must be done so in base64.
-                            dicomObject = Base64Util.encodeBase64(DICOMMessageUtil.getDICOMRawBytes(connectorMessage));
-                        }
-
-                        Map<Integer, Object> replacementMap = new HashMap<Integer, Object>();
-                        replacementMap.put(KEY_END_INDEX, endIndex);
-                        replacementMap.put(KEY_DATA, dicomObject);
-                        replacementObjects.put(index, replacementMap);
-
-                        bufferSize += dicomObject.length;
-                    }
-
-                    index += endIndex - index;
-                } else if (raw.startsWith(ATTACHMENT_KEY, index + PREFIX.length())) {
-                    // Get the index of the actual attachment ID 
-                    int idStartIndex = index + PREFIX.length() + ATTACHMENT_KEY.length();
-                    // Advance the end index
-                    endIndex = idStartIndex;
-
-                    // Make sure there are enough characters left in the message for an attachment ID
-                    if (endIndex + ATTACHMENT_ID_LENGTH <= raw.length()) {
-                        endIndex += ATTACHMENT_ID_LENGTH;
-
-                        // We can safely substring the attachment ID now
-                        String attachmentOrChannelId = raw.substring(idStartIndex, endIndex);
-
-                        // Make sure the next characters are the suffix
-                        if (endIndex + SUFFIX.length() <= raw.length() && raw.substring(endIndex, endIndex + SUFFIX.length()).equals(SUFFIX)) {
-                            // At this point we know it's a regular attachment, ${ATTACH:id}
-                            // Advance the end index
-                            endIndex += SUFFIX.length();
-
-                            // A replacement is going to be made one way or the other, so initialize the replacement map
-                            Map<Integer, Object> replacementMap = new HashMap<Integer, Object>();
-                            replacementMap.put(KEY_END_INDEX, endIndex);
-
-                            if (reattach) {
-                                // Initialize the attachment map if necessary
-                                if (attachmentMap == null) {
-                                    attachmentMap = loadLocalAttachments(connectorMessage, remainingAttachments);
-                                }
-
-                                if (attachmentMap.containsKey(attachmentOrChannelId)) {
-                                    // If the attachment is found, put the contents into the replacement map
-                                    Attachment attachment = attachmentMap.get(attachmentOrChannelId);
-
-                                    attachment.setContent(replaceOutboundAttachment(attachment.getContent()));
-                                    replacementMap.put(KEY_DATA, attachment.getContent());
-                                    bufferSize += attachment.getContent().length;
-
-                                    if (remainingAttachments != null) {
-                                        remainingAttachments.remove(attachment.getId());
-                                    }
-                                } else {
-                                    // Otherwise, replace with nothing
-                                    replacementMap.put(KEY_DATA, new byte[0]);
-                                }
-                            } else {
-                                // Replace with the expanded token
-                                replacementMap.put(KEY_DATA, (PREFIX + ATTACHMENT_KEY + connectorMessage.getChannelId() + DELIMITER + connectorMessage.getMessageId() + DELIMITER + attachmentOrChannelId + SUFFIX).getBytes(Constants.ATTACHMENT_CHARSET));
-                            }
-
-                            replacementObjects.put(index, replacementMap);
-                        } else if (reattach && !localOnly && endIndex + DELIMITER.length() <= raw.length() && raw.substring(endIndex, endIndex + DELIMITER.length()).equals(DELIMITER)) {
-                            // The suffix wasn't found, so assume this is an absolute attachment, ${ATTACH:channelId:messageId:attachmentId}
-                            // Check if the next characters are the delimiter
-                            // Advance the end index
-                            endIndex += DELIMITER.length();
-
-                            // The previously used attachment ID is now assumed to be the channel ID
-                            String channelId = attachmentOrChannelId;
-
-                            // Find the next delimiter without taking substrings
-                            int nextDelimIndex = StringUtil.indexOf(raw, DELIMITER, endIndex, endIndex + MESSAGE_ID_MAX_LENGTH);
-
-                            if (nextDelimIndex != -1) {
-                                // If a delimiter is found, assume we have the message ID
-                                String messageIdStr = raw.substring(endIndex, nextDelimIndex);
-                                // Advance the end index
-                                endIndex = nextDelimIndex + DELIMITER.length();
-
-                                // Attempt to parse the message ID
-                                long messageId = NumberUtils.toLong(messageIdStr);
-
-                                // If the message ID is valid and there are enough characters for the attachment ID and suffix
-                                if (messageId > 0 && endIndex + ATTACHMENT_ID_LENGTH + SUFFIX.length() <= raw.length()) {
-                                    // Assume the next characters are the attachment ID
-                                    attachmentOrChannelId = raw.substring(endIndex, endIndex + ATTACHMENT_ID_LENGTH);
-                                    endIndex += ATTACHMENT_ID_LENGTH;
-
-                                    // Make sure the next characters are the suffix
-                                    if (raw.substring(endIndex, endIndex + SUFFIX.length()).equals(SUFFIX)) {
-                                        endIndex += SUFFIX.length();
-
-                                        // Initialize the replacement map
-                                        Map<Integer, Object> replacementMap = new HashMap<Integer, Object>();
-                                        replacementMap.put(KEY_END_INDEX, endIndex);
-
-                                        // Check if the replacement token references the current message
-                                        if (channelId.equals(connectorMessage.getChannelId()) && messageId == connectorMessage.getMessageId()) {
-                                            // Initialize the attachment map if necessary
-                                            if (attachmentMap == null) {
-                                                attachmentMap = loadLocalAttachments(connectorMessage, remainingAttachments);
-                                            }
-
-                                            if (attachmentMap.containsKey(attachmentOrChannelId)) {
-                                                // If the attachment is found, put the contents into the replacement map
-                                                Attachment attachment = attachmentMap.get(attachmentOrChannelId);
-
-                                                attachment.setContent(replaceOutboundAttachment(attachment.getContent()));
-                                                replacementMap.put(KEY_DATA, attachment.getContent());
-                                                bufferSize += attachment.getContent().length;
-
-                                                if (remainingAttachments != null) {
-                                                    remainingAttachments.remove(attachment.getId());
-                                                }
-                                            } else {
-                                                // Otherwise, replace with nothing
-                                                replacementMap.put(KEY_DATA, new byte[0]);
-                                            }
-                                        } else {
-                                            // Grab the attachment using the absolute channel/message IDs
-                                            Attachment attachment = getMessageAttachment(channelId, messageId, attachmentOrChannelId);
-
-                                            if (attachmentOrChannelId.equals(attachment.getId())) {
-                                                // If the attachment is found, put the contents into the replacement map
-                                                attachment.setContent(replaceOutboundAttachment(attachment.getContent()));
-                                                replacementMap.put(KEY_DATA, attachment.getContent());
-                                                bufferSize += attachment.getContent().length;
-                                            } else {
-                                                // Otherwise, replace with nothing
-                                                replacementMap.put(KEY_DATA, new byte[0]);
-                                            }
-                                        }
-
-                                        replacementObjects.put(index, replacementMap);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    endIndex = index + PREFIX.length();
-                }
-
-                index += endIndex - index;
-            }
+            Replacements replacements = getReplacements(raw, connectorMessage, reattach, localOnly, attachmentMap, remainingAttachments, false);
             // Release the object pointers of the attachment content so they aren't held in memory for the entire method
-            dicomObject = null;
             attachmentMap = null;
 
             // Initialize the stream's buffer size. The buffer size will always be slightly large than needed,
             // because the template keys are never removed from the buffer size.
             // It is not worth doing any extra calculations for the amount of memory saved. 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(bufferSize);
-
-            int segmentStartIndex = 0;
-            for (Map.Entry<Integer, Map<Integer, Object>> entry : replacementObjects.entrySet()) {
-                int startReplacementIndex = entry.getKey();
-                int endReplacementIndex = (Integer) entry.getValue().get(KEY_END_INDEX);
-                byte[] data = (byte[]) entry.getValue().get(KEY_DATA);
-
-                // Allows the memory used by the attachments to be released at the end of the loop
-                entry.getValue().clear();
-
-                byte[] templateSegment;
-                // If the data is binary, the content should be in base64, so using US-ASCII as the charset encoding should be sufficient.
-                if (binary) {
-                    templateSegment = StringUtils.getBytesUsAscii(raw.substring(segmentStartIndex, startReplacementIndex));
-                } else {
-                    templateSegment = StringUtil.getBytesUncheckedChunked(raw.substring(segmentStartIndex, startReplacementIndex), Constants.ATTACHMENT_CHARSET);
-                }
-
-                baos.write(templateSegment);
-                baos.write(data);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(replacements.bufferSize);
 
-                segmentStartIndex = endReplacementIndex;
-            }
+            int segmentStartIndex = writeReplacements(raw, replacements, binary, baos);
 
-            byte[] templateSegment;
-            if (binary) {
-                templateSegment = StringUtils.getBytesUsAscii(raw.substring(segmentStartIndex));
-            } else {
-                templateSegment = StringUtil.getBytesUncheckedChunked(raw.substring(segmentStartIndex), Constants.ATTACHMENT_CHARSET);
-            }
+            byte[] templateSegment = getTemplateSegment(raw.substring(segmentStartIndex), binary);
 
             byte[] combined;
             // If there are no attachments, don't bother writing to the output stream.
@@ -389,6 +197,296 @@ public abstract class MirthAttachmentHandlerProvider implements AttachmentHandle
         }
     }
 
+    @Override
+    public void reAttachMessage(String raw, ConnectorMessage connectorMessage, String charsetEncoding, boolean binary, boolean reattach, OutputStream outputStream) throws Exception {
+        reAttachMessage(raw, new ImmutableConnectorMessage(connectorMessage), charsetEncoding, binary, reattach, outputStream);
+    }
+
+    /**
+     * Replaces any unique attachment tokens (e.g. "${ATTACH:id}") with the corresponding attachment
+     * content, and writes the full post-replacement message to the given stream. The result is the
+     * same as the one returned by the byte array variant, but if the handler leaves outbound
+     * attachments unchanged, the attachments are copied to the stream one stored segment at a time
+     * instead of being loaded into memory.
+     * 
+     * @param raw
+     *            The raw message string to replace tokens from.
+     * @param connectorMessage
+     *            The ConnectorMessage associated with this message, used to identify the
+     *            channel/message ID.
+     * @param charsetEncoding
+     *            If binary mode is not used, the resulting bytes will be encoded using this charset.
+     * @param binary
+     *            If enabled, the raw data is assumed to be Base64 encoded. The resulting bytes will
+     *            be the raw Base64 decoded bytes.
+     * @param reattach
+     *            If true, attachment tokens will be replaced with the actual attachment content.
+     *            Otherwise, local attachment tokens will be replaced only with the corresponding
+     *            expanded tokens.
+     * @param outputStream
+     *            The stream to write the resulting message to. It is not closed.
+     */
+    public void reAttachMessage(String raw, ImmutableConnectorMessage connectorMessage, String charsetEncoding, boolean binary, boolean reattach, OutputStream outputStream) throws Exception {
+        if (reattach && isDICOMMessageOnly(raw)) {
+            outputStream.write(getDICOMMessage(connectorMessage, binary));
+            return;
+        }
+
+        OutputStream messageStream;
+        if (binary) {
+            // The content should be in base64, so decode it while it is written
+            messageStream = new Base64OutputStream(CloseShieldOutputStream.wrap(outputStream), false);
+        } else if (charsetEncoding != null && !charsetEncoding.equalsIgnoreCase(Constants.ATTACHMENT_CHARSET)) {
+            // Convert from the internal encoding to the requested encoding while it is written
+            messageStream = WriterOutputStream.builder().setWriter(new OutputStreamWriter(CloseShieldOutputStream.wrap(outputStream), charsetEncoding)).setCharset(Constants.ATTACHMENT_CHARSET).get();
+        } else {
+            messageStream = outputStream;
+        }
+
+        try {
+            Replacements replacements = getReplacements(raw, connectorMessage, reattach, false, null, null, canStreamOutboundAttachments());
+            int segmentStartIndex = writeReplacements(raw, replacements, binary, messageStream);
+
+            // Write the segment after the last replacement.
+            messageStream.write(getTemplateSegment(raw.substring(segmentStartIndex), binary));
+        } finally {
+            if (messageStream != outputStream) {
+                // Flush any pending decoded or converted bytes
+                messageStream.close();
+            }
+        }
+    }
+
+    /**
+     * Returns true if replaceOutboundAttachment always returns the content unchanged, in which case
+     * attachments can be streamed into reattached messages without being loaded into memory.
+     */
+    protected boolean canStreamOutboundAttachments() {
+        return false;
+    }
+
+    private boolean isDICOMMessageOnly(String raw) {
+        return raw.trim().equals(PREFIX + DICOM_KEY + SUFFIX);
+    }
+
+    private byte[] getDICOMMessage(ImmutableConnectorMessage connectorMessage, boolean binary) throws Exception {
+        byte[] dicomObject = DICOMMessageUtil.getDICOMRawBytes(connectorMessage);
+
+        if (!binary) {
+            dicomObject = Base64Util.encodeBase64(dicomObject);
+        }
+
+        return dicomObject;
+    }
+
+    /**
+     * Checks the raw string in one pass for any attachments. Stores the start and end indices to
+     * replace, along with the attachment content, or a reference to the attachment if
+     * streamAttachments is true.
+     */
+    private Replacements getReplacements(String raw, ImmutableConnectorMessage connectorMessage, boolean reattach, boolean localOnly, Map<String, Attachment> attachmentMap, Map<String, Attachment> remainingAttachments, boolean streamAttachments) throws Exception {
+        Replacements replacements = new Replacements();
+        Map<Integer, Map<Integer, Object>> replacementObjects = replacements.objects;
+        // Determine the buffersize during the first pass for better memory performance
+        replacements.bufferSize = raw.length();
+        int index = 0;
+        int endIndex;
+        // Initialize the objects here so only one retrieval of the attachment content is ever needed.
+        byte[] dicomObject = null;
+
+        while ((index = raw.indexOf(PREFIX, index)) != -1) {
+            // Check for special DICOM token first
+            if (raw.startsWith(DICOM_KEY + SUFFIX, index + PREFIX.length())) {
+                endIndex = index + PREFIX.length() + DICOM_KEY.length() + SUFFIX.length();
+
+                // Don't actually make any replacement but still advance the index if not reattaching
+                if (reattach) {
+                    if (dicomObject == null) {
+                        // Unfortunately, if the dicom data needs to appended to other base64 data, it must be done so in base64.
+                        dicomObject = Base64Util.encodeBase64(DICOMMessageUtil.getDICOMRawBytes(connectorMessage));
+                    }
+
+                    Map<Integer, Object> replacementMap = new HashMap<Integer, Object>();
+                    replacementMap.put(KEY_END_INDEX, endIndex);
+                    replacementMap.put(KEY_DATA, dicomObject);
+                    replacementObjects.put(index, replacementMap);
+
+                    replacements.bufferSize += dicomObject.length;
+                }
+
+                index += endIndex - index;
+            } else if (raw.startsWith(ATTACHMENT_KEY, index + PREFIX.length())) {
+                // Get the index of the actual attachment ID 
+                int idStartIndex = index + PREFIX.length() + ATTACHMENT_KEY.length();
+                // Advance the end index
+                endIndex = idStartIndex;
+
+                // Make sure there are enough characters left in the message for an attachment ID
+                if (endIndex + ATTACHMENT_ID_LENGTH <= raw.length()) {
+                    endIndex += ATTACHMENT_ID_LENGTH;
+
+                    // We can safely substring the attachment ID now
+                    String attachmentOrChannelId = raw.substring(idStartIndex, endIndex);
+
+                    // Make sure the next characters are the suffix
+                    if (endIndex + SUFFIX.length() <= raw.length() && raw.substring(endIndex, endIndex + SUFFIX.length()).equals(SUFFIX)) {
+                        // At this point we know it's a regular attachment, ${ATTACH:id}
+                        // Advance the end index
+                        endIndex += SUFFIX.length();
+
+                        // A replacement is going to be made one way or the other, so initialize the replacement map
+                        Map<Integer, Object> replacementMap = new HashMap<Integer, Object>();
+                        replacementMap.put(KEY_END_INDEX, endIndex);
+
+                        if (reattach) {
+                            if (streamAttachments) {
+                                // The content is copied from the database when the message is written
+                                replacementMap.put(KEY_DATA, new AttachmentReference(connectorMessage.getChannelId(), connectorMessage.getMessageId(), attachmentOrChannelId));
+                            } else {
+                                // Initialize the attachment map if necessary
+                                if (attachmentMap == null) {
+                                    attachmentMap = loadLocalAttachments(connectorMessage, remainingAttachments);
+                                }
+
+                                putLocalAttachment(replacements, replacementMap, attachmentMap.get(attachmentOrChannelId), remainingAttachments);
+                            }
+                        } else {
+                            // Replace with the expanded token
+                            replacementMap.put(KEY_DATA, (PREFIX + ATTACHMENT_KEY + connectorMessage.getChannelId() + DELIMITER + connectorMessage.getMessageId() + DELIMITER + attachmentOrChannelId + SUFFIX).getBytes(Constants.ATTACHMENT_CHARSET));
+                        }
+
+                        replacementObjects.put(index, replacementMap);
+                    } else if (reattach && !localOnly && endIndex + DELIMITER.length() <= raw.length() && raw.substring(endIndex, endIndex + DELIMITER.length()).equals(DELIMITER)) {
+                        // The suffix wasn't found, so assume this is an absolute attachment, ${ATTACH:channelId:messageId:attachmentId}
+                        // Check if the next characters are the delimiter
+                        // Advance the end index
+                        endIndex += DELIMITER.length();
+
+                        // The previously used attachment ID is now assumed to be the channel ID
+                        String channelId = attachmentOrChannelId;
+
+                        // Find the next delimiter without taking substrings
+                        int nextDelimIndex = StringUtil.indexOf(raw, DELIMITER, endIndex, endIndex + MESSAGE_ID_MAX_LENGTH);
+
+                        if (nextDelimIndex != -1) {
+                            // If a delimiter is found, assume we have the message ID
+                            String messageIdStr = raw.substring(endIndex, nextDelimIndex);
+                            // Advance the end index
+                            endIndex = nextDelimIndex + DELIMITER.length();
+
+                            // Attempt to parse the message ID
+                            long messageId = NumberUtils.toLong(messageIdStr);
+
+                            // If the message ID is valid and there are enough characters for the attachment ID and suffix
+                            if (messageId > 0 && endIndex + ATTACHMENT_ID_LENGTH + SUFFIX.length() <= raw.length()) {
+                                // Assume the next characters are the attachment ID
+                                attachmentOrChannelId = raw.substring(endIndex, endIndex + ATTACHMENT_ID_LENGTH);
+                                endIndex += ATTACHMENT_ID_LENGTH;
+
+                                // Make sure the next characters are the suffix
+                                if (raw.substring(endIndex, endIndex + SUFFIX.length()).equals(SUFFIX)) {
+                                    endIndex += SUFFIX.length();
+
+                                    // Initialize the replacement map
+                                    Map<Integer, Object> replacementMap = new HashMap<Integer, Object>();
+                                    replacementMap.put(KEY_END_INDEX, endIndex);
+
+                                    if (streamAttachments) {
+                                        // The content is copied from the database when the message is written
+                                        replacementMap.put(KEY_DATA, new AttachmentReference(channelId, messageId, attachmentOrChannelId));
+                                    } else if (channelId.equals(connectorMessage.getChannelId()) && messageId == connectorMessage.getMessageId()) {
+                                        // The replacement token references the current message
+                                        // Initialize the attachment map if necessary
+                                        if (attachmentMap == null) {
+                                            attachmentMap = loadLocalAttachments(connectorMessage, remainingAttachments);
+                                        }
+
+                                        putLocalAttachment(replacements, replacementMap, attachmentMap.get(attachmentOrChannelId), remainingAttachments);
+                                    } else {
+                                        // Grab the attachment using the absolute channel/message IDs
+                                        Attachment attachment = getMessageAttachment(channelId, messageId, attachmentOrChannelId);
+
+                                        if (attachmentOrChannelId.equals(attachment.getId())) {
+                                            // If the attachment is found, put the contents into the replacement map
+                                            attachment.setContent(replaceOutboundAttachment(attachment.getContent()));
+                                            replacementMap.put(KEY_DATA, attachment.getContent());
+                                            replacements.bufferSize += attachment.getContent().length;
+                                        } else {
+                                            // Otherwise, replace with nothing
+                                            replacementMap.put(KEY_DATA, new byte[0]);
+                                        }
+                                    }
+
+                                    replacementObjects.put(index, replacementMap);
+                                }
+                            }
+                        }
+                    }
+                }
+            } else {
+                endIndex = index + PREFIX.length();
+            }
+
+            index += endIndex - index;
+        }
+
+        return replacements;
+    }
+
+    private void putLocalAttachment(Replacements replacements, Map<Integer, Object> replacementMap, Attachment attachment, Map<String, Attachment> remainingAttachments) throws Exception {
+        if (attachment != null) {
+            // If the attachment is found, put the contents into the replacement map
+            attachment.setContent(replaceOutboundAttachment(attachment.getContent()));
+            replacementMap.put(KEY_DATA, attachment.getContent());
+            replacements.bufferSize += attachment.getContent().length;
+
+            if (remainingAttachments != null) {
+                remainingAttachments.remove(attachment.getId());
+            }
+        } else {
+            // Otherwise, replace with nothing
+            replacementMap.put(KEY_DATA, new byte[0]);
+        }
+    }
+
+    /**
+     * Writes the template segments before each replacement, followed by the replacement data, and
+     * returns the index of the template segment after the last replacement.
+     */
+    private int writeReplacements(String raw, Replacements replacements, boolean binary, OutputStream outputStream) throws Exception {
+        int segmentStartIndex = 0;
+        for (Map.Entry<Integer, Map<Integer, Object>> entry : replacements.objects.entrySet()) {
+            int startReplacementIndex = entry.getKey();
+            int endReplacementIndex = (Integer) entry.getValue().get(KEY_END_INDEX);
+            Object data = entry.getValue().get(KEY_DATA);
+
+            // Allows the memory used by the attachments to be released at the end of the loop
+            entry.getValue().clear();
+
+            outputStream.write(getTemplateSegment(raw.substring(segmentStartIndex, startReplacementIndex), binary));
+
+            if (data instanceof AttachmentReference) {
+                AttachmentReference reference = (AttachmentReference) data;
+                messageController.writeMessageAttachment(reference.channelId, reference.attachmentId, reference.messageId, outputStream, false);
+            } else {
+                outputStream.write((byte[]) data);
+            }
+
+            segmentStartIndex = endReplacementIndex;
+        }
+
+        return segmentStartIndex;
+    }
+
+    private byte[] getTemplateSegment(String segment, boolean binary) {
+        // If the data is binary, the content should be in base64, so using US-ASCII as the charset encoding should be sufficient.
+        if (binary) {
+            return StringUtils.getBytesUsAscii(segment);
+        } else {
+            return StringUtil.getBytesUncheckedChunked(segment, Constants.ATTACHMENT_CHARSET);
+        }
+    }
+
     public static boolean hasAttachmentKeys(String raw) {
         if (raw.contains(PREFIX + DICOM_KEY + SUFFIX) || raw.contains(PREFIX + ATTACHMENT_KEY)) {
             return true;
@@ -474,4 +572,20 @@ public abstract class MirthAttachmentHandlerProvider implements AttachmentHandle
 
         return attachmentMap;
     }
+    private static class Replacements {
+        private Map<Integer, Map<Integer, Object>> objects = new TreeMap<Integer, Map<Integer, Object>>();
+        private int bufferSize;
+    }
+
+    private static class AttachmentReference {
+        private String channelId;
+        private long messageId;
+        private String attachmentId;
+
+        private AttachmentReference(String channelId, long messageId, String attachmentId) {
+            this.channelId = channelId;
+            this.messageId = messageId;
+            this.attachmentId = attachmentId;
+        }
+    }
 }
@@ -34,6 +34,11 @@ public class DICOMAttachmentHandlerProvider extends MirthAttachmentHandlerProvid
         return content;
     }
 
+    @Override
+    protected boolean canStreamOutboundAttachments() {
+        return true;
+    }
+
     @Override
     public AttachmentHandler getHandler() {
         return new DICOMAttachmentHandler();
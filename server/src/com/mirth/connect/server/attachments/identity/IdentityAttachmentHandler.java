@@ -9,6 +9,12 @@
 
 package com.mirth.connect.server.attachments.identity;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.io.input.CharSequenceInputStream;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
@@ -18,8 +24,6 @@ import com.mirth.connect.donkey.model.message.attachment.AttachmentException;
 import com.mirth.connect.donkey.model.message.attachment.AttachmentHandler;
 import com.mirth.connect.donkey.server.Constants;
 import com.mirth.connect.donkey.server.channel.Channel;
-import com.mirth.connect.donkey.util.Base64Util;
-import com.mirth.connect.donkey.util.StringUtil;
 import com.mirth.connect.server.util.ServerUUIDGenerator;
 
 public class IdentityAttachmentHandler implements AttachmentHandler {
@@ -41,16 +45,27 @@ public class IdentityAttachmentHandler implements AttachmentHandler {
                 mimeType = "text/plain";
             }
 
-            byte[] attachmentData;
+            /*
+             * The attachment content is streamed into the database, so the encoded copy of the raw
+             * message is never held in memory as a whole.
+             */
+            InputStream attachmentStream = null;
             if (message.isBinary()) {
-                attachmentData = Base64Util.encodeBase64(message.getRawBytes());
+                byte[] rawBytes = message.getRawBytes();
+                if (ArrayUtils.isNotEmpty(rawBytes)) {
+                    attachmentStream = new Base64InputStream(new ByteArrayInputStream(rawBytes), true);
+                }
             } else {
-                attachmentData = StringUtil.getBytesUncheckedChunked(message.getRawData(), Constants.ATTACHMENT_CHARSET);
+                String rawData = message.getRawData();
+                if (StringUtils.isNotEmpty(rawData)) {
+                    attachmentStream = CharSequenceInputStream.builder().setCharSequence(rawData).setCharset(Charset.forName(Constants.ATTACHMENT_CHARSET)).get();
+                }
             }
             message.clearMessage();
 
-            if (ArrayUtils.isNotEmpty(attachmentData)) {
-                attachment = new Attachment(uuid, attachmentData, mimeType);
+            if (attachmentStream != null) {
+                attachment = new Attachment(uuid, null, mimeType);
+                attachment.setBinaryStream(attachmentStream);
                 finalMessage = attachment.getAttachmentId();
             } else {
                 finalMessage = "";
@@ -53,6 +53,11 @@ public class IdentityAttachmentHandlerProvider extends MirthAttachmentHandlerPro
         return content;
     }
 
+    @Override
+    protected boolean canStreamOutboundAttachments() {
+        return true;
+    }
+
     @Override
     public AttachmentHandler getHandler() {
         return new IdentityAttachmentHandler(this);
@@ -109,6 +109,11 @@ public class JavaScriptAttachmentHandlerProvider extends MirthAttachmentHandlerP
         return content;
     }
 
+    @Override
+    protected boolean canStreamOutboundAttachments() {
+        return true;
+    }
+
     @Override
     public AttachmentHandler getHandler() {
         return new JavaScriptAttachmentHandler(this);
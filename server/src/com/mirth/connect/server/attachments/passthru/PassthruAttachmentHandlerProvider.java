@@ -34,6 +34,11 @@ public class PassthruAttachmentHandlerProvider extends MirthAttachmentHandlerPro
         return content;
     }
 
+    @Override
+    protected boolean canStreamOutboundAttachments() {
+        return true;
+    }
+
     @Override
     public AttachmentHandler getHandler() {
         return new PassthruAttachmentHandler();
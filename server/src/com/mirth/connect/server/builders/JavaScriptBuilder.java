@@ -31,6 +31,7 @@ import com.mirth.connect.model.Transformer;
 import com.mirth.connect.model.codetemplates.CodeTemplate;
 import com.mirth.connect.model.codetemplates.CodeTemplateLibrary;
 import com.mirth.connect.model.codetemplates.ContextType;
+import com.mirth.connect.model.datatype.DataTypeProperties;
 import com.mirth.connect.model.util.JavaScriptConstants;
 import com.mirth.connect.server.controllers.CodeTemplateController;
 import com.mirth.connect.server.controllers.ControllerFactory;
@@ -160,7 +161,13 @@ public class JavaScriptBuilder {
                 break;
 
             case RAW:
-                builder.append("if (connectorMessage.getProcessedRawData() != null) { msg = new String(connectorMessage.getProcessedRawData()); } else { msg = new String(connectorMessage.getRawData()); } \n");
+                String rawMessageScript = getRawMessageScript(transformer.getInboundProperties(), "(connectorMessage.getProcessedRawData() != null ? connectorMessage.getProcessedRawData() : connectorMessage.getRawData())");
+
+                if (rawMessageScript != null) {
+                    builder.append("msg = " + rawMessageScript + ";\n");
+                } else {
+                    builder.append("if (connectorMessage.getProcessedRawData() != null) { msg = new String(connectorMessage.getProcessedRawData()); } else { msg = new String(connectorMessage.getRawData()); } \n");
+                }
                 break;
         }
 
@@ -178,7 +185,7 @@ public class JavaScriptBuilder {
                     break;
 
                 case RAW:
-                    builder.append("tmp = template;\n");
+                    appendRawTemplateScript(builder, transformer);
                     break;
             }
         }
@@ -215,7 +222,13 @@ public class JavaScriptBuilder {
                 break;
 
             case RAW:
-                builder.append("msg = new String(response.getMessage()) \n");
+                String rawMessageScript = getRawMessageScript(transformer.getInboundProperties(), "response.getMessage()");
+
+                if (rawMessageScript != null) {
+                    builder.append("msg = " + rawMessageScript + ";\n");
+                } else {
+                    builder.append("msg = new String(response.getMessage()) \n");
+                }
                 break;
         }
 
@@ -234,7 +247,7 @@ public class JavaScriptBuilder {
                     break;
 
                 case RAW:
-                    builder.append("tmp = template;\n");
+                    appendRawTemplateScript(builder, transformer);
                     break;
             }
         }
@@ -247,6 +260,40 @@ public class JavaScriptBuilder {
         return builder.toString();
     }
 
+    /**
+     * Returns true if the transformed message is taken from an object that a data type created from
+     * the raw message (msg, or tmp if there is a template). That object writes itself back in the
+     * data type's raw format instead of XML, so the transformed message is not deserialized.
+     */
+    public static boolean isTransformedMessageRaw(Transformer transformer, boolean hasTemplate) {
+        if (hasTemplate) {
+            return getRawMessageScript(transformer.getOutboundProperties(), "template") != null;
+        }
+
+        return getRawMessageScript(transformer.getInboundProperties(), "msg") != null;
+    }
+
+    /*
+     * Data types can give scripts an object created from the raw message instead of a string.
+     */
+    private static String getRawMessageScript(DataTypeProperties properties, String content) {
+        if (properties != null && properties.getSerializationProperties() != null) {
+            return properties.getSerializationProperties().getRawMessageScript(content);
+        }
+
+        return null;
+    }
+
+    private static void appendRawTemplateScript(StringBuilder builder, Transformer transformer) {
+        String rawMessageScript = getRawMessageScript(transformer.getOutboundProperties(), "template");
+
+        if (rawMessageScript != null) {
+            builder.append("tmp = " + rawMessageScript + ";\n");
+        } else {
+            builder.append("tmp = template;\n");
+        }
+    }
+
     /*
      * General functions used by the generation methods to build scripts
      */
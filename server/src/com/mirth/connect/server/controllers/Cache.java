@@ -18,10 +18,14 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.ibatis.session.SqlSessionManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -29,35 +33,47 @@ import org.apache.logging.log4j.Logger;
 import com.mirth.connect.client.core.ControllerException;
 import com.mirth.connect.model.Cacheable;
 import com.mirth.connect.server.util.SqlConfig;
+import com.mirth.connect.util.PropertyLoader;
 
 /**
  * This class is used by the server to keep a consistent cache of objects placed in the database
- * with an ID, name, revision, and serialized XML blob. Every public getter method first calls the
- * synchronized refreshCache() method to update any modified or removed objects in the cache.
+ * with an ID, name, revision, and serialized XML blob. The cached objects are held in an immutable
+ * snapshot, so the public getter methods only read memory. The snapshot is refreshed from the
+ * database by the synchronized refreshCache() method when the controller that writes the objects
+ * has called invalidate(), or when the revalidate interval has elapsed, so that changes made by
+ * other servers sharing the database are picked up.
  */
 public class Cache<V extends Cacheable<V>> {
+    public static final long DEFAULT_REVALIDATE_INTERVAL = 1000;
+
+    private static final String REVALIDATE_INTERVAL = "server.cache.revalidateinterval";
+
     private Logger logger = LogManager.getLogger(getClass());
     private String cacheName;
     private String selectRevisionsQueryId;
     private String selectQueryId;
     private boolean nameUnique;
+    private long revalidateInterval;
 
-    protected Map<String, V> cacheById = new ConcurrentHashMap<String, V>();
-    protected Map<String, V> cacheByName;
+    private volatile Snapshot<V> snapshot = new Snapshot<V>(new HashMap<String, V>(), null);
+    private AtomicLong invalidations = new AtomicLong(1);
+    private volatile long validatedInvalidations;
+    private volatile long lastValidated;
 
     public Cache(String cacheName, String selectRevisionsQueryId, String selectQueryId) {
         this(cacheName, selectRevisionsQueryId, selectQueryId, true);
     }
 
     public Cache(String cacheName, String selectRevisionsQueryId, String selectQueryId, boolean nameUnique) {
+        this(cacheName, selectRevisionsQueryId, selectQueryId, nameUnique, getRevalidateInterval());
+    }
+
+    Cache(String cacheName, String selectRevisionsQueryId, String selectQueryId, boolean nameUnique, long revalidateInterval) {
         this.cacheName = cacheName;
         this.selectRevisionsQueryId = selectRevisionsQueryId;
         this.selectQueryId = selectQueryId;
         this.nameUnique = nameUnique;
-
-        if (nameUnique) {
-            cacheByName = new ConcurrentHashMap<String, V>();
-        }
+        this.revalidateInterval = revalidateInterval;
     }
 
     public Map<String, V> getAllItems() {
@@ -65,37 +81,21 @@ public class Cache<V extends Cacheable<V>> {
 
         Map<String, V> map = new LinkedHashMap<String, V>();
 
-        if (nameUnique) {
-            for (V item : new TreeMap<String, V>(cacheByName).values()) {
-                map.put(item.getId(), item.cloneIfNeeded());
-            }
-        } else {
-            List<V> list = new ArrayList<V>(cacheById.values());
-            Collections.sort(list, new Comparator<V>() {
-                @Override
-                public int compare(V o1, V o2) {
-                    return o1.getName().compareToIgnoreCase(o2.getName());
-                }
-            });
-
-            for (V item : list) {
-                map.put(item.getId(), item);
-            }
+        for (V item : snapshot.sortedItems) {
+            map.put(item.getId(), nameUnique ? item.cloneIfNeeded() : item);
         }
 
         return map;
     }
 
     public V getCachedItemById(String id) {
-        refreshCache();
-
-        return cloneIfNeeded(cacheById.get(id));
+        return cloneIfNeeded(getItemById(id));
     }
 
     public V getCachedItemByName(String name) {
         if (nameUnique) {
             refreshCache();
-            return cloneIfNeeded(cacheByName.get(name));
+            return cloneIfNeeded(snapshot.byName.get(name));
         } else {
             throw new UnsupportedOperationException();
         }
@@ -104,83 +104,92 @@ public class Cache<V extends Cacheable<V>> {
     public Set<String> getCachedIds() {
         refreshCache();
 
-        return new LinkedHashSet<String>(cacheById.keySet());
+        return new LinkedHashSet<String>(snapshot.byId.keySet());
     }
 
     public Set<String> getCachedNames() {
         if (nameUnique) {
             refreshCache();
-            return new LinkedHashSet<String>(cacheByName.keySet());
+            return new LinkedHashSet<String>(snapshot.byName.keySet());
         } else {
             throw new UnsupportedOperationException();
         }
     }
 
-    protected synchronized void refreshCache() {
-        try {
-            // Get the current revisions in the database
-            Map<String, Integer> databaseRevisions = getRevisions();
-
-            // Remove any from the cache that no longer exist in the database
-            for (String id : cacheById.keySet()) {
-                if (!databaseRevisions.containsKey(id)) {
-                    // Remove from cache
-                    V item = cacheById.remove(id);
-                    if (nameUnique) {
-                        cacheByName.remove(item.getName());
-                    }
-                }
+    /**
+     * Marks the cache as out of date, so that the next getter call refreshes it from the database.
+     * This should be called whenever an object in the cache is inserted, updated or removed.
+     */
+    public void invalidate() {
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Returns the cached item with the given ID without cloning it.
+     */
+    protected V getItemById(String id) {
+        refreshCache();
+
+        return snapshot.byId.get(id);
+    }
+
+    protected void refreshCache() {
+        if (isValid()) {
+            return;
+        }
+
+        synchronized (this) {
+            // Another thread may have refreshed the cache while this one was waiting
+            if (isValid()) {
+                return;
             }
 
-            // Put any new or updated items in the database in the cache
-            for (Entry<String, Integer> revisionEntry : databaseRevisions.entrySet()) {
-                String id = revisionEntry.getKey();
-
-                if (!cacheById.containsKey(id) || revisionEntry.getValue() > cacheById.get(id).getRevision()) {
-                    V item = getItem(id);
-
-                    if (item != null) {
-                        String name = item.getName();
-                        V oldItem = cacheById.get(id);
-
-                        cacheById.put(id, item);
-
-                        if (nameUnique) {
-                            cacheByName.put(name, item);
-
-                            // If the name changed, remove the old name from the cache
-                            if (oldItem != null) {
-                                String oldName = oldItem.getName();
-                                if (!oldName.equals(name)) {
-                                    cacheByName.remove(oldName);
-                                }
-                            }
-                        }
-                    } else {
-                        /*
-                         * The item was either removed from the database after the initial revision
-                         * query or an error occurred while attempting to retrieve it, remove it
-                         * from the cache if it already existed.
-                         */
-                        if (cacheById.containsKey(id)) {
-                            V oldItem = cacheById.remove(id);
-                            if (nameUnique) {
-                                cacheByName.remove(oldItem.getName());
-                            }
-                        }
-                    }
-                }
+            long currentInvalidations = invalidations.get();
+            long validated = System.currentTimeMillis();
+
+            try {
+                snapshot = createSnapshot(snapshot, getRevisions());
+                validatedInvalidations = currentInvalidations;
+                lastValidated = validated;
+            } catch (Exception e) {
+                logger.error("Error refreshing " + cacheName + " cache", e);
             }
-        } catch (Exception e) {
-            logger.error("Error refreshing " + cacheName + " cache", e);
         }
     }
 
+    private boolean isValid() {
+        return validatedInvalidations == invalidations.get() && System.currentTimeMillis() - lastValidated < revalidateInterval;
+    }
+
+    private Snapshot<V> createSnapshot(Snapshot<V> currentSnapshot, Map<String, Integer> databaseRevisions) {
+        Map<String, V> cacheById = new HashMap<String, V>();
+
+        for (Entry<String, Integer> revisionEntry : databaseRevisions.entrySet()) {
+            String id = revisionEntry.getKey();
+            V item = currentSnapshot.byId.get(id);
+
+            // Load any new or updated items in the database, and leave out any that were removed
+            if (item == null || revisionEntry.getValue() > item.getRevision()) {
+                /*
+                 * If the item is null here, it was either removed from the database after the
+                 * initial revision query or an error occurred while attempting to retrieve it.
+                 */
+                item = loadItem(id);
+            }
+
+            if (item != null) {
+                cacheById.put(id, item);
+            }
+        }
+
+        return new Snapshot<V>(cacheById, nameUnique ? new HashMap<String, V>() : null);
+    }
+
     private V cloneIfNeeded(V item) {
         return item != null ? item.cloneIfNeeded() : item;
     }
 
-    private V getItem(String id) {
+    private V loadItem(String id) {
         try {
             return getSqlSessionManager().selectOne(selectQueryId, id);
         } catch (Exception e) {
@@ -211,4 +220,43 @@ public class Cache<V extends Cacheable<V>> {
             return SqlConfig.getInstance().getSqlSessionManager();
         }
     }
+
+    private static long getRevalidateInterval() {
+        Properties properties = PropertyLoader.loadProperties("mirth");
+        return MapUtils.isNotEmpty(properties) ? NumberUtils.toLong(StringUtils.trim(properties.getProperty(REVALIDATE_INTERVAL)), DEFAULT_REVALIDATE_INTERVAL) : DEFAULT_REVALIDATE_INTERVAL;
+    }
+
+    /**
+     * The items in the cache at one point in time. A new snapshot replaces the old one whenever the
+     * cache is refreshed, so readers never see a partially refreshed cache.
+     */
+    private static class Snapshot<V extends Cacheable<V>> {
+        private final Map<String, V> byId;
+        private final Map<String, V> byName;
+        private final List<V> sortedItems;
+
+        private Snapshot(Map<String, V> byId, Map<String, V> byName) {
+            this.byId = Collections.unmodifiableMap(byId);
+
+            if (byName != null) {
+                for (V item : byId.values()) {
+                    byName.put(item.getName(), item);
+                }
+
+                this.byName = Collections.unmodifiableMap(byName);
+                this.sortedItems = Collections.unmodifiableList(new ArrayList<V>(new TreeMap<String, V>(byName).values()));
+            } else {
+                List<V> list = new ArrayList<V>(byId.values());
+                Collections.sort(list, new Comparator<V>() {
+                    @Override
+                    public int compare(V o1, V o2) {
+                        return o1.getName().compareToIgnoreCase(o2.getName());
+                    }
+                });
+
+                this.byName = null;
+                this.sortedItems = Collections.unmodifiableList(list);
+            }
+        }
+    }
 }
\ No newline at end of file
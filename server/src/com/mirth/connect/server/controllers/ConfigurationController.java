@@ -259,6 +259,10 @@ public abstract class ConfigurationController extends Controller {
 
     public abstract Integer getRhinoLanguageVersion();
 
+    public abstract String getRhinoExecutionMode();
+
+    public abstract boolean isRhinoScriptCacheEnabled();
+
     public abstract int getStartupLockSleep();
 
     /**
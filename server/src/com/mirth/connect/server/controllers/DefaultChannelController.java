@@ -315,6 +315,7 @@ public class DefaultChannelController extends ChannelController {
                         // Update the new channel in the database
                         logger.debug("updating channel");
                         SqlConfig.getInstance().getSqlSessionManager().update("Channel.updateChannel", params);
+                        channelCache.invalidate();
 
                         // invoke the channel plugins
                         for (ChannelPlugin channelPlugin : extensionController.getChannelPlugins().values()) {
@@ -441,6 +442,8 @@ public class DefaultChannelController extends ChannelController {
                 SqlConfig.getInstance().getSqlSessionManager().update("Channel.updateChannel", params);
             }
 
+            channelCache.invalidate();
+
             // invoke the channel plugins
             for (ChannelPlugin channelPlugin : extensionController.getChannelPlugins().values()) {
                 channelPlugin.save(channel, context);
@@ -529,6 +532,7 @@ public class DefaultChannelController extends ChannelController {
             com.mirth.connect.donkey.server.controllers.ChannelController.getInstance().removeChannel(channel.getId());
             // Delete the channel record from the "channel" table
             SqlConfig.getInstance().getSqlSessionManager().delete("Channel.deleteChannel", channel.getId());
+            channelCache.invalidate();
 
             if (DatabaseUtil.statementExists("Channel.vacuumChannelTable")) {
                 vacuumChannelTable();
@@ -745,11 +749,21 @@ public class DefaultChannelController extends ChannelController {
     @Override
     public void resetStatistics(Map<String, List<Integer>> channelConnectorMap, Set<Status> statuses) {
         com.mirth.connect.donkey.server.controllers.ChannelController.getInstance().resetStatistics(channelConnectorMap, statuses);
+
+        EngineController engineController = ControllerFactory.getFactory().createEngineController();
+        for (String channelId : channelConnectorMap.keySet()) {
+            engineController.channelStatusChanged(channelId);
+        }
     }
 
     @Override
     public void resetAllStatistics() {
         com.mirth.connect.donkey.server.controllers.ChannelController.getInstance().resetAllStatistics();
+
+        EngineController engineController = ControllerFactory.getFactory().createEngineController();
+        for (String channelId : engineController.getDeployedIds()) {
+            engineController.channelStatusChanged(channelId);
+        }
     }
 
     @Override
@@ -886,6 +900,7 @@ public class DefaultChannelController extends ChannelController {
         } catch (Exception e) {
             throw new ControllerException(e);
         } finally {
+            channelGroupCache.invalidate();
             StatementLock.getInstance(VACUUM_LOCK_CHANNEL_GROUP_STATEMENT_ID).readUnlock();
         }
 
@@ -927,6 +942,7 @@ public class DefaultChannelController extends ChannelController {
         } catch (Exception e) {
             throw new ControllerException(e);
         } finally {
+            channelGroupCache.invalidate();
             StatementLock.getInstance(VACUUM_LOCK_CHANNEL_GROUP_STATEMENT_ID).readUnlock();
         }
 
@@ -936,9 +952,8 @@ public class DefaultChannelController extends ChannelController {
     // ---------- CHANNEL CACHE ----------
 
     /**
-     * The Channel cache holds all channels currently stored in the database. Every method first
-     * should call refreshCache() to update any outdated, missing, or removed channels in the cache
-     * before performing its function. No two threads should refresh the cache simultaneously.
+     * The Channel cache holds all channels currently stored in the database. It must be invalidated
+     * whenever a channel is inserted, updated or removed, so that the next read picks up the change.
      */
     private class ChannelCache extends Cache<Channel> {
 
@@ -947,8 +962,7 @@ public class DefaultChannelController extends ChannelController {
         }
 
         private String getCachedDestinationName(String channelId, int metaDataId) {
-            refreshCache();
-            Channel channel = cacheById.get(channelId);
+            Channel channel = getItemById(channelId);
 
             if (channel != null) {
                 for (Connector connector : channel.getDestinationConnectors()) {
@@ -200,6 +200,7 @@ public class DefaultCodeTemplateController extends CodeTemplateController {
         try {
             for (CodeTemplateLibrary library : librariesToRemove) {
                 SqlConfig.getInstance().getSqlSessionManager().delete("CodeTemplate.deleteLibrary", library.getId());
+                libraryCache.invalidate();
 
                 // Invoke the code template plugins
                 for (CodeTemplateServerPlugin codeTemplateServerPlugin : extensionController.getCodeTemplateServerPlugins().values()) {
@@ -247,6 +248,8 @@ public class DefaultCodeTemplateController extends CodeTemplateController {
                         SqlConfig.getInstance().getSqlSessionManager().update("CodeTemplate.updateLibrary", params);
                     }
 
+                    libraryCache.invalidate();
+
                     // Invoke the code template plugins
                     for (CodeTemplateServerPlugin codeTemplateServerPlugin : extensionController.getCodeTemplateServerPlugins().values()) {
                         codeTemplateServerPlugin.save(library, context);
@@ -496,6 +499,8 @@ public class DefaultCodeTemplateController extends CodeTemplateController {
                 SqlConfig.getInstance().getSqlSessionManager().update("CodeTemplate.updateCodeTemplate", params);
             }
 
+            codeTemplateCache.invalidate();
+
             // Invoke the code template plugins
             for (CodeTemplateServerPlugin codeTemplateServerPlugin : extensionController.getCodeTemplateServerPlugins().values()) {
                 codeTemplateServerPlugin.save(codeTemplate, context);
@@ -526,6 +531,7 @@ public class DefaultCodeTemplateController extends CodeTemplateController {
         StatementLock.getInstance(VACUUM_LOCK_CODE_TEMPLATE_STATEMENT_ID).writeLock();
         try {
             SqlConfig.getInstance().getSqlSessionManager().delete("CodeTemplate.deleteCodeTemplate", codeTemplate.getId());
+            codeTemplateCache.invalidate();
 
             if (DatabaseUtil.statementExists("CodeTemplate.vacuumCodeTemplateTable")) {
                 vacuumCodeTemplateTable();
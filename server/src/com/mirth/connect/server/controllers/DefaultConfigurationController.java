@@ -125,6 +125,7 @@ import com.mirth.connect.server.util.PasswordRequirementsChecker;
 import com.mirth.connect.server.util.ResourceUtil;
 import com.mirth.connect.server.util.SqlConfig;
 import com.mirth.connect.server.util.StatementLock;
+import com.mirth.connect.server.util.javascript.JavaScriptUtil;
 import com.mirth.connect.util.ChannelDependencyException;
 import com.mirth.connect.util.ChannelDependencyGraph;
 import com.mirth.connect.util.ConfigurationProperty;
@@ -171,6 +172,8 @@ public class DefaultConfigurationController extends ConfigurationController {
     private static String apiBypassword;
     private static int statsUpdateInterval;
     private static Integer rhinoLanguageVersion;
+    private static String rhinoExecutionMode;
+    private static boolean rhinoScriptCache;
     private static int startupLockSleep;
     protected volatile boolean configMapLoaded = false;
 
@@ -190,6 +193,8 @@ public class DefaultConfigurationController extends ConfigurationController {
     private static final String API_BYPASSWORD = "server.api.bypassword";
     private static final String STATS_UPDATE_INTERVAL = "donkey.statsupdateinterval";
     private static final String RHINO_LANGUAGE_VERSION = "rhino.languageversion";
+    private static final String RHINO_EXECUTION_MODE = "rhino.executionmode";
+    private static final String RHINO_SCRIPT_CACHE = "rhino.scriptcache";
     private static final String SERVER_STARTUP_LOCK_SLEEP = "server.startuplocksleep";
     private static final String XSTREAM_DENY_TYPES = "xstream.denytypes";
     private static final String XSTREAM_ALLOW_TYPES = "xstream.allowtypes";
@@ -404,6 +409,9 @@ public class DefaultConfigurationController extends ConfigurationController {
                 JavaScriptSharedUtil.setRhinoLanguageVersion(rhinoLanguageVersion);
             }
 
+            rhinoExecutionMode = StringUtils.defaultIfBlank(StringUtils.trim(mirthConfig.getString(RHINO_EXECUTION_MODE)), JavaScriptUtil.EXECUTION_MODE_POOL);
+            rhinoScriptCache = BooleanUtils.toBoolean(StringUtils.trim(mirthConfig.getString(RHINO_SCRIPT_CACHE)));
+
             startupLockSleep = NumberUtils.toInt(mirthConfig.getString(SERVER_STARTUP_LOCK_SLEEP), 0);
 
             String[] xstreamAllowTypesArray = mirthConfig.getStringArray(XSTREAM_ALLOW_TYPES);
@@ -798,6 +806,16 @@ public class DefaultConfigurationController extends ConfigurationController {
         return rhinoLanguageVersion;
     }
 
+    @Override
+    public String getRhinoExecutionMode() {
+        return rhinoExecutionMode;
+    }
+
+    @Override
+    public boolean isRhinoScriptCacheEnabled() {
+        return rhinoScriptCache;
+    }
+
     @Override
     public int getStartupLockSleep() {
         return startupLockSleep;
@@ -17,7 +17,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.exceptions.PersistenceException;
@@ -45,12 +44,12 @@ public class DefaultEventController extends EventController {
 
     private static EventController instance = null;
 
-    private static Map<Object, BlockingQueue<Event>> messageEventQueues = new ConcurrentHashMap<Object, BlockingQueue<Event>>();
-    private static Map<Object, BlockingQueue<Event>> errorEventQueues = new ConcurrentHashMap<Object, BlockingQueue<Event>>();
-    private static Map<Object, BlockingQueue<Event>> deployedStateEventQueues = new ConcurrentHashMap<Object, BlockingQueue<Event>>();
-    private static Map<Object, BlockingQueue<Event>> connectionStatusEventQueues = new ConcurrentHashMap<Object, BlockingQueue<Event>>();
-    private static Map<Object, BlockingQueue<Event>> serverEventQueues = new ConcurrentHashMap<Object, BlockingQueue<Event>>();
-    private static Map<Object, BlockingQueue<Event>> genericEventQueues = new ConcurrentHashMap<Object, BlockingQueue<Event>>();
+    private static Map<Object, EventListener> messageEventListeners = new ConcurrentHashMap<Object, EventListener>();
+    private static Map<Object, EventListener> errorEventListeners = new ConcurrentHashMap<Object, EventListener>();
+    private static Map<Object, EventListener> deployedStateEventListeners = new ConcurrentHashMap<Object, EventListener>();
+    private static Map<Object, EventListener> connectionStatusEventListeners = new ConcurrentHashMap<Object, EventListener>();
+    private static Map<Object, EventListener> serverEventListeners = new ConcurrentHashMap<Object, EventListener>();
+    private static Map<Object, EventListener> genericEventListeners = new ConcurrentHashMap<Object, EventListener>();
 
     protected DefaultEventController() {
         addListener(new AuditableEventListener());
@@ -73,72 +72,67 @@ public class DefaultEventController extends EventController {
     @Override
     public void addListener(EventListener listener) {
         Set<EventType> types = listener.getEventTypes();
-        BlockingQueue<Event> queue = listener.getQueue();
 
         if (types.contains(EventType.MESSAGE)) {
-            messageEventQueues.put(listener, queue);
+            messageEventListeners.put(listener, listener);
         }
 
         if (types.contains(EventType.ERROR)) {
-            errorEventQueues.put(listener, queue);
+            errorEventListeners.put(listener, listener);
         }
 
         if (types.contains(EventType.DEPLOY_STATE)) {
-            deployedStateEventQueues.put(listener, queue);
+            deployedStateEventListeners.put(listener, listener);
         }
 
         if (types.contains(EventType.CONNECTION_STATUS)) {
-            connectionStatusEventQueues.put(listener, queue);
+            connectionStatusEventListeners.put(listener, listener);
         }
 
         if (types.contains(EventType.SERVER)) {
-            serverEventQueues.put(listener, queue);
+            serverEventListeners.put(listener, listener);
         }
 
         if (types.contains(EventType.GENERIC)) {
-            genericEventQueues.put(listener, queue);
+            genericEventListeners.put(listener, listener);
         }
     }
 
     @Override
     public void removeListener(EventListener listener) {
-        messageEventQueues.remove(listener);
-        errorEventQueues.remove(listener);
-        deployedStateEventQueues.remove(listener);
-        connectionStatusEventQueues.remove(listener);
-        serverEventQueues.remove(listener);
-        genericEventQueues.remove(listener);
+        messageEventListeners.remove(listener);
+        errorEventListeners.remove(listener);
+        deployedStateEventListeners.remove(listener);
+        connectionStatusEventListeners.remove(listener);
+        serverEventListeners.remove(listener);
+        genericEventListeners.remove(listener);
 
         listener.shutdown();
     }
 
     @Override
     public void dispatchEvent(Event event) {
-        try {
-            Map<Object, BlockingQueue<Event>> queues = null;
-            /*
-             * Using instanceof is several thousand times faster than using a map to store the
-             * different queue sets.
-             */
-            if (event instanceof MessageEvent) {
-                queues = messageEventQueues;
-            } else if (event instanceof ErrorEvent) {
-                queues = errorEventQueues;
-            } else if (event instanceof DeployedStateEvent) {
-                queues = deployedStateEventQueues;
-            } else if (event instanceof ConnectionStatusEvent) {
-                queues = connectionStatusEventQueues;
-            } else if (event instanceof ServerEvent) {
-                queues = serverEventQueues;
-            } else {
-                queues = genericEventQueues;
-            }
+        Map<Object, EventListener> listeners = null;
+        /*
+         * Using instanceof is several thousand times faster than using a map to store the
+         * different listener sets.
+         */
+        if (event instanceof MessageEvent) {
+            listeners = messageEventListeners;
+        } else if (event instanceof ErrorEvent) {
+            listeners = errorEventListeners;
+        } else if (event instanceof DeployedStateEvent) {
+            listeners = deployedStateEventListeners;
+        } else if (event instanceof ConnectionStatusEvent) {
+            listeners = connectionStatusEventListeners;
+        } else if (event instanceof ServerEvent) {
+            listeners = serverEventListeners;
+        } else {
+            listeners = genericEventListeners;
+        }
 
-            for (BlockingQueue<Event> queue : queues.values()) {
-                queue.put(event);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        for (EventListener listener : listeners.values()) {
+            listener.offerEvent(event);
         }
     }
 
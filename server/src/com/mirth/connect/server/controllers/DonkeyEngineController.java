@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -96,6 +97,8 @@ import com.mirth.connect.donkey.server.message.batch.ResponseHandler;
 import com.mirth.connect.donkey.server.message.batch.SimpleResponseHandler;
 import com.mirth.connect.donkey.server.queue.DestinationQueue;
 import com.mirth.connect.donkey.server.queue.SourceQueue;
+import com.mirth.connect.donkey.util.ActionTimer;
+import com.mirth.connect.donkey.util.LatencyHistogram;
 import com.mirth.connect.donkey.util.Serializer;
 import com.mirth.connect.donkey.util.SerializerProvider;
 import com.mirth.connect.model.ChannelMetadata;
@@ -104,12 +107,14 @@ import com.mirth.connect.model.ChannelStatistics;
 import com.mirth.connect.model.ConnectorMetaData;
 import com.mirth.connect.model.DashboardStatus;
 import com.mirth.connect.model.DashboardStatus.StatusType;
+import com.mirth.connect.model.DashboardStatusChanges;
 import com.mirth.connect.model.DebugUsage;
 import com.mirth.connect.model.DeployedChannelInfo;
 import com.mirth.connect.model.Filter;
 import com.mirth.connect.model.InvalidChannel;
 import com.mirth.connect.model.MessageStorageMode;
 import com.mirth.connect.model.ServerEventContext;
+import com.mirth.connect.model.StageLatency;
 import com.mirth.connect.model.Transformer;
 import com.mirth.connect.model.attachments.AttachmentHandlerType;
 import com.mirth.connect.model.codetemplates.CodeTemplateLibrary;
@@ -132,6 +137,7 @@ import com.mirth.connect.server.channel.DelegateErrorTaskHandler;
 import com.mirth.connect.server.channel.LoggingTaskHandler;
 import com.mirth.connect.server.channel.MirthMessageMaps;
 import com.mirth.connect.server.channel.MirthMetaDataReplacer;
+import com.mirth.connect.server.event.DashboardStatusChangeListener;
 import com.mirth.connect.server.message.DataTypeFactory;
 import com.mirth.connect.server.message.DefaultResponseValidator;
 import com.mirth.connect.server.mybatis.MessageSearchResult;
@@ -181,6 +187,7 @@ public class DonkeyEngineController implements EngineController {
     private Map<String, ExecutorService> engineExecutors = new ConcurrentHashMap<String, ExecutorService>();
     private Set<Channel> deployingChannels = Collections.synchronizedSet(new HashSet<Channel>());
     private Set<Channel> undeployingChannels = Collections.synchronizedSet(new HashSet<Channel>());
+    private volatile DashboardStatusChangeListener statusChangeListener;
 
     protected AtomicInteger queueBufferSize = new AtomicInteger(Constants.DEFAULT_QUEUE_BUFFER_SIZE);
 
@@ -267,6 +274,9 @@ public class DonkeyEngineController implements EngineController {
         Properties donkeyProperties = configurationController.getDatabaseSettings().getProperties();
         donkeyProperties.setProperty("donkey.statsupdateinterval", String.valueOf(configurationController.getStatsUpdateInterval()));
 
+        statusChangeListener = new DashboardStatusChangeListener();
+        eventController.addListener(statusChangeListener);
+
         donkey.startEngine(new DonkeyConfiguration(configurationController.getApplicationDataDir(), donkeyProperties, donkeyEncryptor, eventDispatcher, configurationController.getServerId()));
     }
 
@@ -274,6 +284,11 @@ public class DonkeyEngineController implements EngineController {
     public void stopEngine() throws StopException, InterruptedException {
         undeployChannels(getDeployedIds(), ServerEventContext.SYSTEM_USER_EVENT_CONTEXT, null);
         donkey.stopEngine();
+
+        if (statusChangeListener != null) {
+            eventController.removeListener(statusChangeListener);
+            statusChangeListener = null;
+        }
     }
 
     @Override
@@ -689,7 +704,12 @@ public class DonkeyEngineController implements EngineController {
 
         tasks.add(new RemoveMessagesTask(channelId, results));
 
-        waitForTasks(submitTasks(tasks, handler));
+        try {
+            waitForTasks(submitTasks(tasks, handler));
+        } finally {
+            // Removing messages fires no message events, but can change the queue sizes
+            channelStatusChanged(channelId);
+        }
     };
 
     @Override
@@ -700,7 +720,14 @@ public class DonkeyEngineController implements EngineController {
             tasks.add(new RemoveAllMessagesTask(channelId, force, clearStatistics));
         }
 
-        waitForTasks(submitTasks(tasks, handler));
+        try {
+            waitForTasks(submitTasks(tasks, handler));
+        } finally {
+            // Removing messages and clearing statistics fire no message events
+            for (String channelId : channelIds) {
+                channelStatusChanged(channelId);
+            }
+        }
     }
 
     @Override
@@ -712,6 +739,85 @@ public class DonkeyEngineController implements EngineController {
         return null;
     }
 
+    @Override
+    public DashboardStatusChanges getChannelStatusChanges(long sinceVersion, long timeout) {
+        DashboardStatusChangeListener listener = statusChangeListener;
+
+        if (listener == null || !listener.isKnownVersion(sinceVersion)) {
+            return new DashboardStatusChanges(listener != null ? listener.getVersion() : 0, true);
+        }
+
+        try {
+            listener.awaitChanges(sinceVersion, timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Read the version before the statuses, so that channels changing in between are sent again
+        DashboardStatusChanges changes = new DashboardStatusChanges(listener.getVersion(), false);
+        Set<String> channelIds = listener.getChangedChannelIds(sinceVersion);
+
+        if (!channelIds.isEmpty()) {
+            changes.setDashboardStatuses(getChannelStatusList(channelIds));
+            changes.getRemovedChannelIds().addAll(channelIds);
+
+            for (DashboardStatus status : changes.getDashboardStatuses()) {
+                changes.getRemovedChannelIds().remove(status.getChannelId());
+            }
+        }
+
+        return changes;
+    }
+
+    @Override
+    public void channelStatusChanged(String channelId) {
+        DashboardStatusChangeListener listener = statusChangeListener;
+
+        if (listener != null) {
+            listener.channelChanged(channelId);
+        }
+    }
+
+    @Override
+    public List<StageLatency> getChannelLatencies(String channelId) {
+        Channel channel = donkey.getDeployedChannels().get(channelId);
+        if (channel == null) {
+            return null;
+        }
+
+        List<StageLatency> latencies = new ArrayList<StageLatency>();
+        addStageLatencies(latencies, channelId, null, "", channel.getLatencyTimer());
+        addStageLatencies(latencies, channelId, 0, "", channel.getSourceConnector().getLatencyTimer());
+
+        for (DestinationChainProvider chain : channel.getDestinationChainProviders()) {
+            for (Entry<Integer, DestinationConnector> entry : chain.getDestinationConnectors().entrySet()) {
+                addStageLatencies(latencies, channelId, entry.getKey(), "", entry.getValue().getLatencyTimer());
+            }
+        }
+
+        addStageLatencies(latencies, channelId, null, "database.", channel.getDaoTimer());
+        return latencies;
+    }
+
+    private void addStageLatencies(List<StageLatency> latencies, String channelId, Integer metaDataId, String prefix, ActionTimer timer) {
+        for (Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(timer.getHistograms()).entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().getSnapshot();
+
+            StageLatency latency = new StageLatency();
+            latency.setChannelId(channelId);
+            latency.setMetaDataId(metaDataId);
+            latency.setStage(prefix + entry.getKey());
+            latency.setCount(snapshot.getCount());
+            latency.setMean(snapshot.getMean());
+            latency.setP50(snapshot.getPercentile(50));
+            latency.setP90(snapshot.getPercentile(90));
+            latency.setP99(snapshot.getPercentile(99));
+            latency.setP999(snapshot.getPercentile(99.9));
+            latency.setMax(snapshot.getMax());
+            latencies.add(latency);
+        }
+    }
+
     @Override
     public List<DashboardStatus> getChannelStatusList() {
         return getChannelStatusList(null);
@@ -1198,6 +1304,8 @@ public class DonkeyEngineController implements EngineController {
             SerializerProvider serializerProvider = createSerializerProvider(channelModel);
             BufferedDaoFactory bufferedDaoFactory = new BufferedDaoFactory(donkey.getDaoFactory(), serializerProvider, donkey.getStatisticsUpdater());
             bufferedDaoFactory.setEncryptData(channelProperties.isEncryptMessageContent(), channelProperties.isEncryptAttachments(), channelProperties.isEncryptCustomMetaData());
+            bufferedDaoFactory.setGroupCommitWriter(donkey.getGroupCommitWriter());
+            bufferedDaoFactory.setTimer(channel.getDaoTimer());
 
             channel.setDaoFactory(bufferedDaoFactory);
         } else {
@@ -1395,6 +1503,10 @@ public class DonkeyEngineController implements EngineController {
         if (batchProperties != null && sourceConnectorProperties.isProcessBatch()) {
             BatchAdaptorFactory batchAdaptorFactory = dataTypePlugin.getBatchAdaptorFactory(sourceConnector, serializerProperties);
             batchAdaptorFactory.setUseFirstReponse(sourceConnectorProperties.isFirstResponse());
+
+            if (sourceConnectorProperties.isProcessBatchConcurrently()) {
+                batchAdaptorFactory.setDispatchWindow(sourceConnectorProperties.getProcessingThreads());
+            }
             sourceConnector.setBatchAdaptorFactory(batchAdaptorFactory);
         }
 
@@ -1455,6 +1567,10 @@ public class DonkeyEngineController implements EngineController {
             runFilterTransformer = true;
         }
 
+        if (JavaScriptBuilder.isTransformedMessageRaw(transformer, StringUtils.isNotBlank(template))) {
+            outboundDataType = getRawDataType(outboundDataType);
+        }
+
         FilterTransformerExecutor filterTransformerExecutor = new FilterTransformerExecutor(inboundDataType, outboundDataType);
 
         if (runFilterTransformer) {
@@ -1516,6 +1632,10 @@ public class DonkeyEngineController implements EngineController {
             runResponseTransformer = true;
         }
 
+        if (JavaScriptBuilder.isTransformedMessageRaw(transformer, StringUtils.isNotBlank(template))) {
+            outboundDataType = getRawDataType(outboundDataType);
+        }
+
         ResponseTransformerExecutor responseTransformerExecutor = new ResponseTransformerExecutor(inboundDataType, outboundDataType);
 
         if (runResponseTransformer) {
@@ -1526,6 +1646,14 @@ public class DonkeyEngineController implements EngineController {
         return responseTransformerExecutor;
     }
 
+    /*
+     * The transformed message is already in the outbound format (e.g. with the lazy HL7 v2.x
+     * message model), so it is stored as raw content and used as the encoded message as it is.
+     */
+    private DataType getRawDataType(DataType dataType) {
+        return new DataType(dataType.getType(), dataType.getSerializer(), dataType.getAutoResponder(), SerializationType.RAW, dataType.getTemplateSerializationType());
+    }
+
     private DestinationChainProvider createDestinationChain(Channel channel) {
         DestinationChainProvider chain = new DestinationChainProvider();
         chain.setChannelId(channel.getChannelId());
@@ -2041,6 +2169,7 @@ public class DonkeyEngineController implements EngineController {
                 throw e;
             } finally {
                 deployingChannels.remove(channel);
+                channelStatusChanged(channelId);
             }
         }
     }
@@ -2151,6 +2280,7 @@ public class DonkeyEngineController implements EngineController {
                 channelController.removeDeployedChannelFromCache(channelId);
             } finally {
                 undeployingChannels.remove(channel);
+                channelStatusChanged(channelId);
             }
         }
     }
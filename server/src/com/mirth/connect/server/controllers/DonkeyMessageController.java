@@ -9,7 +9,11 @@
 
 package com.mirth.connect.server.controllers;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,6 +30,7 @@ import java.util.TreeSet;
 
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionManager;
@@ -48,6 +53,8 @@ import com.mirth.connect.donkey.server.channel.Channel;
 import com.mirth.connect.donkey.server.channel.ChannelException;
 import com.mirth.connect.donkey.server.controllers.ChannelController;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.data.index.MessageContentIndex;
+import com.mirth.connect.donkey.server.data.index.MessageContentIndex.SearchResult;
 import com.mirth.connect.donkey.server.message.DataType;
 import com.mirth.connect.donkey.util.MapUtil;
 import com.mirth.connect.donkey.util.xstream.SerializerException;
@@ -176,7 +183,7 @@ public class DonkeyMessageController extends MessageController {
                 params.put("minMessageId", currentMinMessageId);
                 maxMessageId -= batchSize;
 
-                Map<Long, MessageSearchResult> foundMessages = searchAll(session, params, filter, localChannelId, false, filterOptions);
+                Map<Long, MessageSearchResult> foundMessages = searchAll(session, params, filter, channelId, localChannelId, false, filterOptions);
 
                 count += foundMessages.size();
             }
@@ -293,6 +300,17 @@ public class DonkeyMessageController extends MessageController {
         }
     }
 
+    @Override
+    public boolean writeMessageAttachment(String channelId, String attachmentId, Long messageId, OutputStream outputStream, boolean readOnly) {
+        DonkeyDao dao = getDao(readOnly);
+
+        try {
+            return dao.writeMessageAttachment(channelId, attachmentId, messageId, outputStream);
+        } finally {
+            dao.close();
+        }
+    }
+
     @Override
     public void removeMessages(String channelId, MessageFilter filter) {
         EngineController engineController = ControllerFactory.getFactory().createEngineController();
@@ -323,7 +341,7 @@ public class DonkeyMessageController extends MessageController {
             params.put("minMessageId", currentMinMessageId);
             maxMessageId -= batchSize;
 
-            Map<Long, MessageSearchResult> results = searchAll(session, params, filter, localChannelId, true, filterOptions);
+            Map<Long, MessageSearchResult> results = searchAll(session, params, filter, channelId, localChannelId, true, filterOptions);
 
             ErrorTaskHandler handler = new ErrorTaskHandler();
             engineController.removeMessages(channelId, results, handler);
@@ -378,7 +396,7 @@ public class DonkeyMessageController extends MessageController {
             params.put("minMessageId", minMessageId);
             minMessageId += batchSize;
 
-            Map<Long, MessageSearchResult> foundMessages = new TreeMap<Long, MessageSearchResult>(searchAll(session, params, filter, localChannelId, true, filterOptions));
+            Map<Long, MessageSearchResult> foundMessages = new TreeMap<Long, MessageSearchResult>(searchAll(session, params, filter, channelId, localChannelId, true, filterOptions));
 
             for (Entry<Long, MessageSearchResult> entry : foundMessages.entrySet()) {
                 Long messageId = entry.getKey();
@@ -518,7 +536,29 @@ public class DonkeyMessageController extends MessageController {
 
     @Override
     public void exportAttachment(String channelId, String attachmentId, Long messageId, String filePath, boolean binary) throws IOException {
-        AttachmentUtil.writeToFile(filePath, getMessageAttachment(channelId, attachmentId, messageId, true), binary);
+        /*
+         * Copy the attachment one stored segment at a time into a temporary file next to the
+         * target, so that the target is only created or replaced once the attachment was found and
+         * copied completely.
+         */
+        File file = new File(filePath);
+        FileUtils.forceMkdirParent(file);
+        File tempFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+
+        try {
+            boolean found;
+            try (OutputStream outputStream = AttachmentUtil.openFileStream(tempFile.getPath(), binary)) {
+                found = writeMessageAttachment(channelId, attachmentId, messageId, outputStream, true);
+            }
+
+            if (!found) {
+                throw new IOException("Attachment " + attachmentId + " for message " + messageId + " was not found.");
+            }
+
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
     }
 
     @Override
@@ -594,7 +634,7 @@ public class DonkeyMessageController extends MessageController {
                 maxMessageId -= batchSize;
                 totalSearched += batchSize;
 
-                Map<Long, MessageSearchResult> foundMessages = searchAll(session, params, filter, localChannelId, false, filterOptions);
+                Map<Long, MessageSearchResult> foundMessages = searchAll(session, params, filter, channelId, localChannelId, false, filterOptions);
 
                 if (!foundMessages.isEmpty()) {
                     /*
@@ -676,7 +716,7 @@ public class DonkeyMessageController extends MessageController {
         }
     }
 
-    private Map<Long, MessageSearchResult> searchAll(SqlSession session, Map<String, Object> params, MessageFilter filter, Long localChannelId, boolean includeMessageData, FilterOptions filterOptions) {
+    private Map<Long, MessageSearchResult> searchAll(SqlSession session, Map<String, Object> params, MessageFilter filter, String channelId, Long localChannelId, boolean includeMessageData, FilterOptions filterOptions) {
         Map<Long, MessageSearchResult> foundMessages = new HashMap<Long, MessageSearchResult>();
 
         // Search the message table to find which message ids meet the search criteria.
@@ -798,7 +838,7 @@ public class DonkeyMessageController extends MessageController {
                 if (searchContent) {
                     Map<Long, MessageSearchResult> contentMessages = new HashMap<Long, MessageSearchResult>();
                     // Perform the content search
-                    searchContent(session, new HashMap<String, Object>(contentParams), potentialMessages, contentMessages, filter.getContentSearch());
+                    searchContent(session, channelId, new HashMap<String, Object>(contentParams), potentialMessages, contentMessages, filter.getContentSearch());
 
                     if (tempMessages == null) {
                         /*
@@ -825,7 +865,7 @@ public class DonkeyMessageController extends MessageController {
                 }
                 if (searchText) {
                     // Perform the text search
-                    searchText(session, new HashMap<String, Object>(contentParams), potentialMessages, textMessages, filter.getTextSearchRegex(), filter.getTextSearch(), filter.getTextSearchMetaDataColumns());
+                    searchText(session, channelId, new HashMap<String, Object>(contentParams), potentialMessages, textMessages, filter.getTextSearchRegex(), filter.getTextSearch(), filter.getTextSearchMetaDataColumns());
 
                     if (tempMessages == null) {
                         /*
@@ -907,7 +947,7 @@ public class DonkeyMessageController extends MessageController {
         }
     }
 
-    private void searchContent(SqlSession session, Map<String, Object> params, Map<Long, MessageSearchResult> potentialMessages, Map<Long, MessageSearchResult> contentMessages, List<ContentSearchElement> contentSearchElements) {
+    private void searchContent(SqlSession session, String channelId, Map<String, Object> params, Map<Long, MessageSearchResult> potentialMessages, Map<Long, MessageSearchResult> contentMessages, List<ContentSearchElement> contentSearchElements) {
         int index = 0;
 
         while (index < contentSearchElements.size() && (index == 0 || !contentMessages.isEmpty())) {
@@ -921,7 +961,7 @@ public class DonkeyMessageController extends MessageController {
                  * Search the content table for message and metadata ids matching the content search
                  * criteria
                  */
-                List<MessageTextResult> results = session.selectList("Message.searchContentTable", params);
+                List<MessageTextResult> results = searchContentTable(session, channelId, params, potentialMessages);
 
                 Map<Long, MessageSearchResult> tempMessages = new HashMap<Long, MessageSearchResult>();
 
@@ -961,7 +1001,7 @@ public class DonkeyMessageController extends MessageController {
                     params.put("metaDataId", 0);
                     params.put("contentType", ContentType.ENCODED.getContentTypeCode());
 
-                    results = session.selectList("Message.searchContentTable", params);
+                    results = searchContentTable(session, channelId, params, potentialMessages);
                     params.remove("metaDataId");
 
                     for (MessageTextResult result : results) {
@@ -1009,7 +1049,7 @@ public class DonkeyMessageController extends MessageController {
         }
     }
 
-    private void searchText(SqlSession session, Map<String, Object> params, Map<Long, MessageSearchResult> potentialMessages, Map<Long, MessageSearchResult> textMessages, Boolean textSearchRegex, String text, List<String> textSearchMetaDataColumns) {
+    private void searchText(SqlSession session, String channelId, Map<String, Object> params, Map<Long, MessageSearchResult> potentialMessages, Map<Long, MessageSearchResult> textMessages, Boolean textSearchRegex, String text, List<String> textSearchMetaDataColumns) {
         params.put("contents", Collections.singletonList(text));
         params.put("textSearch", text);
         params.put("textSearchRegex", textSearchRegex);
@@ -1043,7 +1083,7 @@ public class DonkeyMessageController extends MessageController {
         /*
          * Search the content table for message and metadata ids matching the text search criteria
          */
-        results = session.selectList("Message.searchContentTable", params);
+        results = searchContentTable(session, channelId, params, potentialMessages);
 
         for (MessageTextResult result : results) {
             Long messageId = result.getMessageId();
@@ -1073,6 +1113,71 @@ public class DonkeyMessageController extends MessageController {
         }
     }
 
+    /*
+     * Searches the content table. If the message content index is enabled, only the messages it
+     * finds are searched in the database, along with any messages created before the index covered
+     * them. Regular expressions can't be looked up in the index, so they search the whole range.
+     */
+    private List<MessageTextResult> searchContentTable(SqlSession session, String channelId, Map<String, Object> params, Map<Long, MessageSearchResult> potentialMessages) {
+        MessageContentIndex contentIndex = Donkey.getInstance().getContentIndex();
+
+        if (contentIndex == null || Boolean.TRUE.equals(params.get("textSearchRegex"))) {
+            return session.selectList("Message.searchContentTable", params);
+        }
+
+        long minMessageId = (Long) params.get("minMessageId");
+        long maxMessageId = (Long) params.get("maxMessageId");
+        @SuppressWarnings("unchecked")
+        List<String> contents = (List<String>) params.get("contents");
+
+        SearchResult searchResult = contentIndex.search(channelId, (Integer) params.get("contentType"), contents, minMessageId, maxMessageId);
+
+        if (searchResult == null) {
+            return session.selectList("Message.searchContentTable", params);
+        }
+
+        List<MessageTextResult> results = new ArrayList<MessageTextResult>();
+        Map<String, Object> indexParams = new HashMap<String, Object>(params);
+
+        if (searchResult.getFirstMessageId() > minMessageId) {
+            indexParams.put("maxMessageId", Math.min(maxMessageId, searchResult.getFirstMessageId() - 1));
+            results.addAll(session.<MessageTextResult> selectList("Message.searchContentTable", indexParams));
+        }
+
+        List<Long> candidates = new ArrayList<Long>();
+        for (Long messageId : potentialMessages.keySet()) {
+            if (messageId >= searchResult.getFirstMessageId() && searchResult.contains(messageId)) {
+                candidates.add(messageId);
+            }
+        }
+        Collections.sort(candidates);
+
+        ListRangeIterator listRangeIterator = new ListRangeIterator(candidates.iterator(), ListRangeIterator.DEFAULT_LIST_LIMIT, true, null);
+
+        while (listRangeIterator.hasNext()) {
+            ListRangeItem item = listRangeIterator.next();
+            List<Long> list = item.getList();
+            Long startRange = item.getStartRange();
+            Long endRange = item.getEndRange();
+
+            if (list != null || (startRange != null && endRange != null)) {
+                if (list != null) {
+                    indexParams.remove("minMessageId");
+                    indexParams.remove("maxMessageId");
+                    indexParams.put("includeMessageList", StringUtils.join(list, ","));
+                } else {
+                    indexParams.remove("includeMessageList");
+                    indexParams.put("minMessageId", startRange);
+                    indexParams.put("maxMessageId", endRange);
+                }
+
+                results.addAll(session.<MessageTextResult> selectList("Message.searchContentTable", indexParams));
+            }
+        }
+
+        return results;
+    }
+
     private void addMessageToMap(Map<Long, MessageSearchResult> messages, Long messageId, Integer metaDataId) {
         MessageSearchResult result = messages.get(messageId);
 
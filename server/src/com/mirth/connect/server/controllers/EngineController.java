@@ -24,7 +24,9 @@ import com.mirth.connect.donkey.server.channel.DispatchResult;
 import com.mirth.connect.donkey.server.message.batch.BatchMessageException;
 import com.mirth.connect.model.ChannelStatistics;
 import com.mirth.connect.model.DashboardStatus;
+import com.mirth.connect.model.DashboardStatusChanges;
 import com.mirth.connect.model.ServerEventContext;
+import com.mirth.connect.model.StageLatency;
 import com.mirth.connect.server.channel.ChannelFuture;
 import com.mirth.connect.server.channel.ChannelTask;
 import com.mirth.connect.server.channel.ChannelTaskHandler;
@@ -104,6 +106,26 @@ public interface EngineController {
      */
     public DashboardStatus getChannelStatus(String channelId);
 
+    /**
+     * Waits up to the given timeout (in milliseconds) for dashboard statuses to change after the
+     * given version. Returns the statuses of the changed channels that are deployed, and the IDs of
+     * the changed channels that are not.
+     */
+    public DashboardStatusChanges getChannelStatusChanges(long sinceVersion, long timeout);
+
+    /**
+     * Records that the dashboard status of a channel changed without a message or deployed state
+     * event, for example when its statistics were reset, so that it is included in the next status
+     * changes.
+     */
+    public void channelStatusChanged(String channelId);
+
+    /**
+     * Returns the latency of each processing stage and database operation of a deployed channel,
+     * or null if the channel is not deployed.
+     */
+    public List<StageLatency> getChannelLatencies(String channelId);
+
     /**
      * Returns a list of deployed channel ids.
      * 
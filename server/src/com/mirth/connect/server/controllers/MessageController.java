@@ -10,6 +10,7 @@
 package com.mirth.connect.server.controllers;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -44,6 +45,8 @@ public abstract class MessageController {
 
     public abstract List<Attachment> getMessageAttachment(String channelId, Long messageId, boolean readOnly);
 
+    public abstract boolean writeMessageAttachment(String channelId, String attachmentId, Long messageId, OutputStream outputStream, boolean readOnly);
+
     public abstract void removeMessages(String channelId, MessageFilter filter);
 
     public abstract void reprocessMessages(String channelId, MessageFilter filter, boolean replace, Collection<Integer> reprocessMetaDataIds) throws ControllerException;
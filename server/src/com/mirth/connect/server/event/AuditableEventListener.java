@@ -30,6 +30,12 @@ public class AuditableEventListener extends EventListener {
 
     }
 
+    @Override
+    protected int getMaxQueueSize() {
+        // Audit events are never dropped
+        return 0;
+    }
+
     @Override
     public Set<EventType> getEventTypes() {
         Set<EventType> eventTypes = new HashSet<EventType>();
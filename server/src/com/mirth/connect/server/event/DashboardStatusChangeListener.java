@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.event;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.mirth.connect.donkey.model.event.Event;
+import com.mirth.connect.donkey.server.event.DeployedStateEvent;
+import com.mirth.connect.donkey.server.event.EventType;
+import com.mirth.connect.donkey.server.event.MessageEvent;
+
+/**
+ * Keeps track of which channels had their dashboard status changed, so that clients only need to
+ * retrieve the statuses of those channels. Every statistics, queue size or deployed state change
+ * of a channel advances the version, and records it as the version the channel last changed at.
+ */
+public class DashboardStatusChangeListener extends EventListener {
+
+    private Map<String, Long> channelVersions = new ConcurrentHashMap<String, Long>();
+    private Lock versionLock = new ReentrantLock();
+    private Condition versionChanged = versionLock.newCondition();
+
+    /*
+     * Versions start from the current time shifted left, so that a version handed out before a
+     * server restart is always lower than the initial version, and is detected as unknown.
+     */
+    private final long initialVersion;
+    private volatile long version;
+
+    public DashboardStatusChangeListener() {
+        this(System.currentTimeMillis() << 20);
+    }
+
+    public DashboardStatusChangeListener(long initialVersion) {
+        this.initialVersion = initialVersion;
+        this.version = initialVersion;
+    }
+
+    @Override
+    protected void onShutdown() {}
+
+    @Override
+    public Set<EventType> getEventTypes() {
+        Set<EventType> eventTypes = new HashSet<EventType>();
+
+        eventTypes.add(EventType.MESSAGE);
+        eventTypes.add(EventType.DEPLOY_STATE);
+
+        return eventTypes;
+    }
+
+    @Override
+    protected void processEvent(Event event) {
+        channelChanged(getChannelId(event));
+    }
+
+    @Override
+    protected void processEvents(List<Event> events) {
+        // Advance the version once for the whole batch
+        Set<String> channelIds = new HashSet<String>();
+
+        for (Event event : events) {
+            String channelId = getChannelId(event);
+
+            if (channelId != null) {
+                channelIds.add(channelId);
+            }
+        }
+
+        channelsChanged(channelIds);
+    }
+
+    public void channelChanged(String channelId) {
+        if (channelId != null) {
+            channelsChanged(Collections.singleton(channelId));
+        }
+    }
+
+    private void channelsChanged(Collection<String> channelIds) {
+        if (channelIds.isEmpty()) {
+            return;
+        }
+
+        versionLock.lock();
+        try {
+            long newVersion = ++version;
+
+            for (String channelId : channelIds) {
+                channelVersions.put(channelId, newVersion);
+            }
+
+            versionChanged.signalAll();
+        } finally {
+            versionLock.unlock();
+        }
+    }
+
+    private String getChannelId(Event event) {
+        if (event instanceof MessageEvent) {
+            return ((MessageEvent) event).getChannelId();
+        } else if (event instanceof DeployedStateEvent) {
+            return ((DeployedStateEvent) event).getChannelId();
+        }
+
+        return null;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns true if the given version was handed out by this listener, meaning the changes after
+     * it can be determined.
+     */
+    public boolean isKnownVersion(long sinceVersion) {
+        return sinceVersion >= initialVersion && sinceVersion <= version;
+    }
+
+    /**
+     * Waits until the version advances past the given version, or the timeout elapses. Returns
+     * true if the version was advanced.
+     */
+    public boolean awaitChanges(long sinceVersion, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+
+        versionLock.lock();
+        try {
+            while (version <= sinceVersion) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = versionChanged.awaitNanos(nanos);
+            }
+
+            return true;
+        } finally {
+            versionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the channels that changed after the given version.
+     */
+    public Set<String> getChangedChannelIds(long sinceVersion) {
+        Set<String> channelIds = new HashSet<String>();
+
+        for (Entry<String, Long> entry : channelVersions.entrySet()) {
+            if (entry.getValue() > sinceVersion) {
+                channelIds.add(entry.getKey());
+            }
+        }
+
+        return channelIds;
+    }
+}
@@ -9,26 +9,52 @@
 
 package com.mirth.connect.server.event;
 
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import com.mirth.connect.donkey.model.event.Event;
 import com.mirth.connect.donkey.server.event.EventType;
+import com.mirth.connect.donkey.server.event.MessageEvent;
 
 public abstract class EventListener implements Runnable {
 
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 100000;
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int DROPPED_WARNING_INTERVAL = 10000;
+
+    private Logger logger = LogManager.getLogger(getClass());
     private Thread workerThread = new Thread(this, getClass().getSimpleName() + " Consumer Thread");
-    protected BlockingQueue<Event> queue = new LinkedBlockingQueue<Event>();
+    protected EventQueue queue = new EventQueue(getMaxQueueSize());
 
     public EventListener() {
         workerThread.start();
     }
 
-    public BlockingQueue<Event> getQueue() {
+    public EventQueue getQueue() {
         return queue;
     }
 
+    /**
+     * Adds the event to this listener's queue. Returns false if the queue is full and the event was
+     * dropped.
+     */
+    public boolean offerEvent(Event event) {
+        if (queue.offer(event, getCoalesceKey(event))) {
+            return true;
+        }
+
+        if (queue.getDroppedCount() % DROPPED_WARNING_INTERVAL == 1) {
+            logger.warn(getClass().getSimpleName() + " is not keeping up with events, " + queue.getDroppedCount() + " events have been dropped.");
+        }
+
+        return false;
+    }
+
     public void shutdown() {
         workerThread.interrupt();
 
@@ -41,13 +67,48 @@ public abstract class EventListener implements Runnable {
 
     protected abstract void processEvent(Event event);
 
+    /**
+     * Processes a batch of events taken from the queue. By default each event is processed in turn.
+     */
+    protected void processEvents(List<Event> events) {
+        for (Event event : events) {
+            try {
+                processEvent(event);
+            } catch (Throwable t) {
+
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of pending events, or 0 for no maximum. This is called while the
+     * listener is constructed, so it must not depend on fields of the subclass.
+     */
+    protected int getMaxQueueSize() {
+        return DEFAULT_MAX_QUEUE_SIZE;
+    }
+
+    /**
+     * Returns the key of the latest-value slot the event is kept in while it is pending, or null if
+     * every occurrence of the event must be processed. By default only message events (which carry
+     * the current count) are coalesced per channel, connector and type. Connection status events are
+     * not, since each one may be logged and connector count events increment or decrement the count.
+     * Listeners that only need the latest connection state may override this to coalesce them.
+     */
+    protected Object getCoalesceKey(Event event) {
+        if (event instanceof MessageEvent) {
+            MessageEvent messageEvent = (MessageEvent) event;
+            return new CoalesceKey(messageEvent.getChannelId(), messageEvent.getMetaDataId(), messageEvent.getType());
+        }
+
+        return null;
+    }
+
     @Override
     public void run() {
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                Event event = queue.take();
-
-                processEvent(event);
+                processEvents(queue.take(MAX_BATCH_SIZE));
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             } catch (Throwable t) {
@@ -55,4 +116,31 @@ public abstract class EventListener implements Runnable {
             }
         }
     }
+
+    protected static class CoalesceKey {
+        private final String channelId;
+        private final Integer metaDataId;
+        private final Object type;
+
+        public CoalesceKey(String channelId, Integer metaDataId, Object type) {
+            this.channelId = channelId;
+            this.metaDataId = metaDataId;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CoalesceKey)) {
+                return false;
+            }
+
+            CoalesceKey key = (CoalesceKey) obj;
+            return Objects.equals(channelId, key.channelId) && Objects.equals(metaDataId, key.metaDataId) && Objects.equals(type, key.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(channelId, metaDataId, type);
+        }
+    }
 }
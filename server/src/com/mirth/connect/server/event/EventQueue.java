@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.mirth.connect.donkey.model.event.Event;
+
+/**
+ * The pending events of an EventListener. Events given a coalesce key are kept in a latest-value
+ * slot: while an event with the same key is still pending, a new one replaces it in place instead
+ * of being added. Other events are added in order, up to the maximum size. Once the queue is full,
+ * new events that cannot be merged into a pending slot are dropped.
+ */
+public class EventQueue {
+
+    private final int maxSize;
+    private final ArrayDeque<Object> entries = new ArrayDeque<Object>();
+    private final Map<Object, Slot> pendingSlots = new HashMap<Object, Slot>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong mergedCount = new AtomicLong();
+
+    /**
+     * @param maxSize
+     *            The maximum number of pending events, or 0 for no maximum.
+     */
+    public EventQueue(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds the event to the queue, or merges it into the pending event with the same coalesce key.
+     * Returns false if the event was dropped because the queue is full.
+     */
+    public boolean offer(Event event, Object coalesceKey) {
+        lock.lock();
+        try {
+            if (coalesceKey != null) {
+                Slot slot = pendingSlots.get(coalesceKey);
+
+                if (slot != null) {
+                    slot.event = event;
+                    mergedCount.incrementAndGet();
+                    return true;
+                }
+            }
+
+            if (maxSize > 0 && entries.size() >= maxSize) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+
+            if (coalesceKey != null) {
+                Slot slot = new Slot(coalesceKey, event);
+                pendingSlots.put(coalesceKey, slot);
+                entries.add(slot);
+            } else {
+                entries.add(event);
+            }
+
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until at least one event is pending, then removes and returns up to maxEvents events in
+     * the order they were added.
+     */
+    public List<Event> take(int maxEvents) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (entries.isEmpty()) {
+                notEmpty.await();
+            }
+
+            return drain(maxEvents);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of events that replaced a pending event with the same coalesce key.
+     */
+    public long getMergedCount() {
+        return mergedCount.get();
+    }
+
+    private List<Event> drain(int maxEvents) {
+        List<Event> events = new ArrayList<Event>(Math.min(entries.size(), maxEvents));
+
+        while (events.size() < maxEvents && !entries.isEmpty()) {
+            Object entry = entries.poll();
+
+            if (entry instanceof Slot) {
+                Slot slot = (Slot) entry;
+                pendingSlots.remove(slot.key);
+                events.add(slot.event);
+            } else {
+                events.add((Event) entry);
+            }
+        }
+
+        return events;
+    }
+
+    private static class Slot {
+        private final Object key;
+        private Event event;
+
+        private Slot(Object key, Event event) {
+            this.key = key;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.mbeans;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.mirth.connect.donkey.server.channel.Channel;
+import com.mirth.connect.donkey.server.channel.Connector;
+import com.mirth.connect.donkey.util.ActionTimer;
+import com.mirth.connect.donkey.util.LatencyHistogram;
+import com.mirth.connect.model.StageLatency;
+import com.mirth.connect.server.controllers.ControllerFactory;
+import com.mirth.connect.server.controllers.EngineController;
+
+/**
+ * Exposes the latency histograms of the deployed channels over JMX.
+ */
+public class ChannelLatency implements ChannelLatencyMBean {
+    public static final String OBJECT_NAME = "com.mirth.connect:type=ChannelLatency";
+
+    private static final String DATABASE_PREFIX = "database.";
+
+    private EngineController engineController = ControllerFactory.getFactory().createEngineController();
+
+    @Override
+    public String[] getDeployedChannelIds() {
+        return engineController.getDeployedIds().toArray(new String[0]);
+    }
+
+    @Override
+    public String getLatencyReport(String channelId) {
+        List<StageLatency> latencies = engineController.getChannelLatencies(channelId);
+        if (latencies == null) {
+            return "Channel " + channelId + " is not deployed.";
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(StringUtils.rightPad("Connector", 10) + StringUtils.rightPad("Stage", 40) + StringUtils.leftPad("Count", 12) + StringUtils.leftPad("Mean", 10) + StringUtils.leftPad("p50", 10) + StringUtils.leftPad("p90", 10) + StringUtils.leftPad("p99", 10) + StringUtils.leftPad("p99.9", 10) + StringUtils.leftPad("Max", 10) + "\n");
+
+        for (StageLatency latency : latencies) {
+            report.append(StringUtils.rightPad(latency.getMetaDataId() != null ? String.valueOf(latency.getMetaDataId()) : "", 10) + StringUtils.rightPad(latency.getStage(), 40) + StringUtils.leftPad(String.valueOf(latency.getCount()), 12) + StringUtils.leftPad(String.valueOf(latency.getMean()), 10) + StringUtils.leftPad(String.valueOf(latency.getP50()), 10) + StringUtils.leftPad(String.valueOf(latency.getP90()), 10) + StringUtils.leftPad(String.valueOf(latency.getP99()), 10) + StringUtils.leftPad(String.valueOf(latency.getP999()), 10) + StringUtils.leftPad(String.valueOf(latency.getMax()), 10) + "\n");
+        }
+
+        report.append("All times are in microseconds.\n");
+        return report.toString();
+    }
+
+    @Override
+    public long getLatencyPercentile(String channelId, int metaDataId, String stage, double percentile) {
+        Channel channel = engineController.getDeployedChannel(channelId);
+        if (channel == null || stage == null) {
+            return 0;
+        }
+
+        ActionTimer timer = null;
+
+        if (metaDataId < 0) {
+            if (stage.startsWith(DATABASE_PREFIX)) {
+                timer = channel.getDaoTimer();
+                stage = stage.substring(DATABASE_PREFIX.length());
+            } else {
+                timer = channel.getLatencyTimer();
+            }
+        } else {
+            Connector connector = metaDataId == 0 ? channel.getSourceConnector() : channel.getDestinationConnector(metaDataId);
+            if (connector != null) {
+                timer = connector.getLatencyTimer();
+            }
+        }
+
+        LatencyHistogram histogram = timer != null ? timer.getHistograms().get(stage) : null;
+        return histogram != null ? histogram.getSnapshot().getPercentile(percentile) : 0;
+    }
+}
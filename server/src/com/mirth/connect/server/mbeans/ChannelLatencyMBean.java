@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.mbeans;
+
+public interface ChannelLatencyMBean {
+    public String[] getDeployedChannelIds();
+
+    /**
+     * Returns a table of the latency percentiles of each processing stage of a deployed channel.
+     */
+    public String getLatencyReport(String channelId);
+
+    /**
+     * Returns the given percentile in microseconds of a processing stage. The metaDataId is -1 for
+     * channel wide stages and database operations, which are prefixed with "database.".
+     */
+    public long getLatencyPercentile(String channelId, int metaDataId, String stage, double percentile);
+}
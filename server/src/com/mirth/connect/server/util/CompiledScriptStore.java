@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.GeneratedClassLoader;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.optimizer.ClassCompiler;
+
+import com.mirth.connect.server.controllers.ConfigurationController;
+import com.mirth.connect.server.controllers.ControllerFactory;
+
+/**
+ * Stores the class files of compiled Rhino scripts on disk, keyed by a hash of the script source,
+ * its source name and every compiler setting that affects the generated classes. A script is only
+ * compiled again when one of them changes, so the classes are reused across deploys and server
+ * restarts. The source name (which includes the channel ID) is kept, so that errors and stack
+ * traces name the same script as a freshly compiled one. Only scripts compiled to Java classes (optimization level 0
+ * or higher) are stored; interpreted scripts are always compiled normally.
+ *
+ * Each entry holds a hash of its class files, which is checked before any class is defined, so a
+ * damaged or altered entry is compiled again instead of being loaded. The store directory can be
+ * deleted at any time. Entries that have not been used for 30 days are removed on startup.
+ */
+public class CompiledScriptStore {
+    private static final String DIRECTORY_NAME = "scriptcache";
+    private static final String FILE_EXTENSION = ".classes";
+    private static final int FORMAT_VERSION = 2;
+    private static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private Logger logger = LogManager.getLogger(this.getClass());
+    private boolean enabled = false;
+    private File directory;
+
+    // singleton pattern
+    private static CompiledScriptStore instance = null;
+
+    private CompiledScriptStore() {
+        this(getDirectory());
+    }
+
+    /**
+     * Creates a store in the given directory, or a disabled store if the directory is null.
+     */
+    CompiledScriptStore(File directory) {
+        this.directory = directory;
+
+        if (directory != null) {
+            if (directory.isDirectory() || directory.mkdirs()) {
+                enabled = true;
+                removeUnusedEntries();
+            } else {
+                logger.warn("Unable to create compiled script cache directory " + directory.getAbsolutePath() + ", compiled scripts will not be cached.");
+            }
+        }
+    }
+
+    private static File getDirectory() {
+        ConfigurationController configurationController = ControllerFactory.getFactory().createConfigurationController();
+        return configurationController.isRhinoScriptCacheEnabled() ? new File(configurationController.getApplicationDataDir(), DIRECTORY_NAME) : null;
+    }
+
+    public static CompiledScriptStore getInstance() {
+        synchronized (CompiledScriptStore.class) {
+            if (instance == null)
+                instance = new CompiledScriptStore();
+
+            return instance;
+        }
+    }
+
+    /**
+     * Returns true if scripts compiled with the given context can be taken from the store.
+     * Interpreted scripts and scripts compiled for the debugger are never stored.
+     */
+    public boolean isEnabled(Context context) {
+        return enabled && context.getOptimizationLevel() >= 0 && context.getDebugger() == null && !context.isGeneratingDebug();
+    }
+
+    /**
+     * Returns the compiled script, loading its classes from the store if it was compiled before and
+     * compiling and storing it otherwise. Compile errors are thrown the same way as
+     * Context.compileString.
+     */
+    public Script getScript(Context context, String script, String sourceName) {
+        CompilerEnvirons compilerEnv = new CompilerEnvirons();
+        compilerEnv.initFromContext(context);
+
+        String hash = getHash(context, compilerEnv, script, sourceName);
+        String mainClassName = "org.mozilla.javascript.gen.cached_" + hash;
+        File file = new File(directory, hash + FILE_EXTENSION);
+        Object[] classFiles = null;
+
+        if (file.isFile()) {
+            try {
+                classFiles = readClassFiles(file);
+                file.setLastModified(System.currentTimeMillis());
+                logger.debug("loaded compiled script " + sourceName + " from " + file.getName());
+            } catch (IOException e) {
+                logger.debug("Unable to read compiled script " + file.getAbsolutePath() + ", recompiling.", e);
+            }
+        }
+
+        if (classFiles == null) {
+            classFiles = new ClassCompiler(compilerEnv).compileToClassFiles(script, sourceName, 1, mainClassName);
+
+            try {
+                writeClassFiles(file, classFiles);
+            } catch (IOException e) {
+                logger.warn("Unable to store compiled script " + file.getAbsolutePath() + ".", e);
+            }
+        }
+
+        return loadScript(context, classFiles, mainClassName);
+    }
+
+    private Script loadScript(Context context, Object[] classFiles, String mainClassName) {
+        GeneratedClassLoader loader = context.createClassLoader(context.getApplicationClassLoader());
+        Class<?> mainClass = null;
+
+        for (int i = 0; i < classFiles.length; i += 2) {
+            Class<?> clazz = loader.defineClass((String) classFiles[i], (byte[]) classFiles[i + 1]);
+
+            if (mainClassName.equals(classFiles[i])) {
+                mainClass = clazz;
+            }
+        }
+
+        if (mainClass == null) {
+            throw new IllegalStateException("Compiled script does not contain class " + mainClassName);
+        }
+
+        loader.linkClass(mainClass);
+
+        try {
+            return (Script) mainClass.newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to instantiate compiled script " + mainClassName, e);
+        }
+    }
+
+    private String getHash(Context context, CompilerEnvirons compilerEnv, String script, String sourceName) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(FORMAT_VERSION).append('\n');
+        builder.append(context.getImplementationVersion()).append('\n');
+        builder.append(compilerEnv.getOptimizationLevel()).append('\n');
+        builder.append(compilerEnv.getLanguageVersion()).append('\n');
+        builder.append(compilerEnv.isGenerateObserverCount()).append('\n');
+        builder.append(compilerEnv.isGeneratingSource()).append('\n');
+        builder.append(compilerEnv.isGenerateDebugInfo()).append('\n');
+        builder.append(compilerEnv.isStrictMode()).append('\n');
+        builder.append(compilerEnv.isXmlAvailable()).append('\n');
+        builder.append(sourceName).append('\n');
+        builder.append(script);
+
+        return DigestUtils.sha256Hex(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String getContentHash(Object[] classFiles) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+
+        for (int i = 0; i < classFiles.length; i += 2) {
+            byte[] bytes = (byte[]) classFiles[i + 1];
+            digest.update(((String) classFiles[i]).getBytes(StandardCharsets.UTF_8));
+            digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+            digest.update(bytes);
+        }
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private Object[] readClassFiles(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            if (input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported format version");
+            }
+
+            Object[] classFiles = new Object[input.readInt() * 2];
+
+            for (int i = 0; i < classFiles.length; i += 2) {
+                classFiles[i] = input.readUTF();
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                classFiles[i + 1] = bytes;
+            }
+
+            // Nothing is defined from an entry that was not written completely by this store
+            if (!getContentHash(classFiles).equals(input.readUTF())) {
+                throw new IOException("Content hash does not match");
+            }
+
+            return classFiles;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /*
+     * Writes to a temporary file first and then moves it into place, so that other servers or
+     * threads never read a partially written entry.
+     */
+    private void writeClassFiles(File file, Object[] classFiles) throws IOException {
+        File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+            try {
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(classFiles.length / 2);
+
+                for (int i = 0; i < classFiles.length; i += 2) {
+                    byte[] bytes = (byte[]) classFiles[i + 1];
+                    output.writeUTF((String) classFiles[i]);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+
+                output.writeUTF(getContentHash(classFiles));
+            } finally {
+                output.close();
+            }
+
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private void removeUnusedEntries() {
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            long cutoff = System.currentTimeMillis() - MAX_UNUSED_MILLIS;
+
+            for (File file : files) {
+                if ((file.getName().endsWith(FILE_EXTENSION) && file.lastModified() < cutoff) || file.getName().endsWith(".tmp")) {
+                    file.delete();
+                }
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ public abstract class JavaScriptTask<T> implements Callable<T> {
     private String threadName;
     private Context context;
     private boolean contextCreated = false;
+    private boolean haltOnInterrupt = false;
 
     public JavaScriptTask(MirthContextFactory contextFactory, String name) {
         this(contextFactory, name, null, null);
@@ -104,6 +105,10 @@ public abstract class JavaScriptTask<T> implements Callable<T> {
         return context;
     }
 
+    void setHaltOnInterrupt(boolean haltOnInterrupt) {
+        this.haltOnInterrupt = haltOnInterrupt;
+    }
+
     public abstract T doCall() throws Exception;
 
     @Override
@@ -139,6 +144,7 @@ public abstract class JavaScriptTask<T> implements Callable<T> {
 
                 if (context instanceof MirthContext) {
                     ((MirthContext) context).setRunning(true);
+                    ((MirthContext) context).setHaltOnInterrupt(haltOnInterrupt);
                 }
             }
 
@@ -43,6 +43,7 @@ import com.mirth.connect.donkey.model.message.Status;
 import com.mirth.connect.donkey.model.message.attachment.AttachmentException;
 import com.mirth.connect.donkey.server.ConnectorTaskException;
 import com.mirth.connect.donkey.util.Base64Util;
+import com.mirth.connect.donkey.util.ThreadUtils;
 import com.mirth.connect.model.Channel;
 import com.mirth.connect.model.ServerEvent;
 import com.mirth.connect.model.ServerEvent.Level;
@@ -57,20 +58,35 @@ import com.mirth.connect.server.controllers.ScriptCompileException;
 import com.mirth.connect.server.controllers.ScriptController;
 import com.mirth.connect.server.userutil.Attachment;
 import com.mirth.connect.server.util.CompiledScriptCache;
+import com.mirth.connect.server.util.CompiledScriptStore;
 import com.mirth.connect.server.util.ServerUUIDGenerator;
 import com.mirth.connect.userutil.ImmutableConnectorMessage;
 
 public class JavaScriptUtil {
+    public static final String EXECUTION_MODE_POOL = "pool";
+    public static final String EXECUTION_MODE_CALLER = "caller";
+
     private static Logger logger = LogManager.getLogger(JavaScriptUtil.class);
     private static CompiledScriptCache compiledScriptCache = CompiledScriptCache.getInstance();
+    private static CompiledScriptStore compiledScriptStore = CompiledScriptStore.getInstance();
     private static final int SOURCE_CODE_LINE_WRAPPER = 5;
     private static final RejectedExecutionHandler defaultHandler = new AbortPolicy();
     private static ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new MirthJavaScriptThreadFactory(), defaultHandler);
     private static ContextFactoryController contextFactoryController = ControllerFactory.getFactory().createContextFactoryController();
     private static volatile String globalScriptContextFactoryId = null;
     private static String serverId = ControllerFactory.getFactory().createConfigurationController().getServerId();
+    private static boolean callerThreadExecution = EXECUTION_MODE_CALLER.equalsIgnoreCase(ControllerFactory.getFactory().createConfigurationController().getRhinoExecutionMode());
 
     public static <T> T execute(JavaScriptTask<T> task) throws JavaScriptExecutorException, InterruptedException {
+        /*
+         * If the calling thread is already running a script (e.g. a channel routing a message to
+         * another channel), it has a context of its own that would otherwise be reused by the
+         * nested script, so the nested script still runs in a separate thread.
+         */
+        if (callerThreadExecution && Context.getCurrentContext() == null) {
+            return executeInCallerThread(task);
+        }
+
         Future<T> future = executor.submit(task);
 
         try {
@@ -94,6 +110,37 @@ public class JavaScriptUtil {
         }
     }
 
+    static void setCallerThreadExecution(boolean callerThreadExecution) {
+        JavaScriptUtil.callerThreadExecution = callerThreadExecution;
+    }
+
+    private static <T> T executeInCallerThread(JavaScriptTask<T> task) throws JavaScriptExecutorException, InterruptedException {
+        Thread currentThread = Thread.currentThread();
+        ClassLoader contextClassLoader = currentThread.getContextClassLoader();
+        T result;
+
+        // Interrupting the calling thread halts the script, since there is no future to cancel
+        task.setHaltOnInterrupt(true);
+
+        try {
+            result = task.call();
+        } catch (Throwable t) {
+            // A halted script ends with an error, which is reported as an interrupt like it is for pooled threads
+            if (currentThread.isInterrupted() || ExceptionUtils.indexOfThrowable(t, InterruptedException.class) >= 0) {
+                currentThread.interrupt();
+                throw t instanceof InterruptedException ? (InterruptedException) t : new InterruptedException();
+            }
+
+            throw new JavaScriptExecutorException(t);
+        } finally {
+            // Scripts set the context class loader of the thread they run in
+            currentThread.setContextClassLoader(contextClassLoader);
+        }
+
+        ThreadUtils.checkInterruptedStatus();
+        return result;
+    }
+
     public static String executeAttachmentScript(MirthContextFactory contextFactory, RawMessage message, final String channelId, final String channelName, final List<Attachment> attachments) throws InterruptedException, AttachmentException, JavaScriptExecutorException {
         final boolean isBinary = message.isBinary();
         if (isBinary) {
@@ -635,10 +682,19 @@ public class JavaScriptUtil {
      * Returns a compiled Script object from a String.
      */
     private static Script compileScript(Context context, String script) {
+        // The generated name would make every compilation unique, so stored scripts use a fixed one
+        if (compiledScriptStore.isEnabled(context)) {
+            return compiledScriptStore.getScript(context, script, "Global_Sealed_Script");
+        }
+
         return compileScript(context, script, ServerUUIDGenerator.getUUID());
     }
 
     private static Script compileScript(Context context, String script, String scriptId) {
+        if (compiledScriptStore.isEnabled(context)) {
+            return compiledScriptStore.getScript(context, script, scriptId);
+        }
+
         return context.compileString(script, scriptId, 1, null);
     }
 
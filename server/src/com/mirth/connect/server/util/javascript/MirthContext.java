@@ -20,6 +20,7 @@ public class MirthContext extends Context {
     private final static int INSTRUCTION_THRESHOLD = 1;
 
     private final AtomicBoolean running = new AtomicBoolean(true);
+    private volatile boolean haltOnInterrupt = false;
     private Logger logger = LogManager.getLogger(this.getClass());
     private ScriptableObject sealedSharedScope;
 
@@ -38,13 +39,21 @@ public class MirthContext extends Context {
         this.running.set(running);
     }
 
+    /**
+     * If enabled, the script is also halted when the thread running it is interrupted. This is used
+     * when scripts run directly in the calling thread, where there is no executor to halt them.
+     */
+    public void setHaltOnInterrupt(boolean haltOnInterrupt) {
+        this.haltOnInterrupt = haltOnInterrupt;
+    }
+
     protected ScriptableObject getSealedSharedScope() {
         return sealedSharedScope;
     }
 
     @Override
     protected void observeInstructionCount(int count) {
-        if (!running.get()) {
+        if (!running.get() || (haltOnInterrupt && Thread.currentThread().isInterrupted())) {
             logger.debug("Halting JavaScript execution");
             throw new Error();
         }
@@ -11,8 +11,10 @@ package com.mirth.connect.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
+import org.apache.commons.codec.binary.Base64OutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 
@@ -39,6 +41,15 @@ public class AttachmentUtil {
         }
     }
 
+    /**
+     * Opens a stream that writes attachment content to the given file, creating any missing parent
+     * directories. If binary is true, the content is decoded from Base64 as it is written.
+     */
+    public static OutputStream openFileStream(String filePath, boolean binary) throws IOException {
+        OutputStream outputStream = FileUtils.openOutputStream(new File(filePath));
+        return binary ? new Base64OutputStream(outputStream, false) : outputStream;
+    }
+
     public static void decodeBase64(List<Attachment> attachments) {
         for (Attachment attachment : attachments) {
             decodeBase64(attachment);
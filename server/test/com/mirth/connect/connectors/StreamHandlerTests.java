@@ -10,8 +10,11 @@
 package com.mirth.connect.connectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FilterInputStream;
@@ -32,7 +35,10 @@ import com.mirth.connect.model.transmission.batch.DelimiterBatchStreamReader;
 import com.mirth.connect.model.transmission.batch.RegexBatchStreamReader;
 import com.mirth.connect.model.transmission.framemode.FrameModeProperties;
 import com.mirth.connect.model.transmission.framemode.FrameStreamHandler;
+import com.mirth.connect.model.transmission.framemode.FrameStreamHandlerException;
 import com.mirth.connect.plugins.datatypes.hl7v2.ER7BatchStreamReader;
+import com.mirth.connect.plugins.mllpmode.MLLPModeProperties;
+import com.mirth.connect.plugins.mllpmode.MLLPv2StreamHandler;
 import com.mirth.connect.util.TcpUtil;
 
 public class StreamHandlerTests {
@@ -212,6 +218,147 @@ public class StreamHandlerTests {
         assertTrue(Arrays.equals(testBytes, ArrayUtils.addAll(firstBytes, nextBytes)));
     }
 
+    @Test
+    public void readConsecutiveFramesInBlocks() throws Exception {
+        byte[] testBytes = testMessageBytes;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        // Three frames sent back to back, followed by extra bytes
+        for (int i = 0; i < 3; i++) {
+            bos.write(llpStartBytes);
+            bos.write(testBytes);
+            bos.write(llpEndBytes);
+        }
+        bos.write("Testing".getBytes(testMessageCharset));
+
+        // Deliver the bytes in small chunks, like a socket would
+        InputStream is = new BufferedInputStream(new ChunkedInputStream(bos.toByteArray(), 7));
+        FrameStreamHandler streamHandler = new FrameStreamHandler(is, null, new DefaultBatchStreamReader(is), defaultMLLPProps);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(Arrays.equals(testBytes, streamHandler.read()));
+            // Bytes after the end of the frame must be left in the stream
+            assertEquals(i < 2 ? llpStartBytes[0] : 'T', peek(is));
+            streamHandler.reset();
+        }
+
+        // The extra bytes at the end are not a frame
+        try {
+            streamHandler.read();
+            fail("Exception should have been thrown");
+        } catch (FrameStreamHandlerException e) {
+        }
+
+        // An empty frame
+        is = new ByteArrayInputStream(ArrayUtils.addAll(llpStartBytes, llpEndBytes));
+        streamHandler = new FrameStreamHandler(is, null, new DefaultBatchStreamReader(is), defaultMLLPProps);
+        assertEquals(0, streamHandler.read().length);
+
+        // A frame larger than the read buffer, with the end bytes split across blocks
+        byte[] largeBytes = new byte[100000];
+        Arrays.fill(largeBytes, (byte) 'A');
+        largeBytes[largeBytes.length - 1] = llpEndBytes[0];
+        bos = new ByteArrayOutputStream();
+        bos.write(llpStartBytes);
+        bos.write(largeBytes);
+        bos.write(llpEndBytes);
+        is = new BufferedInputStream(new ChunkedInputStream(bos.toByteArray(), 8191));
+        streamHandler = new FrameStreamHandler(is, null, new DefaultBatchStreamReader(is), defaultMLLPProps);
+        assertTrue(Arrays.equals(largeBytes, streamHandler.read()));
+        assertEquals(-1, is.read());
+    }
+
+    @Test
+    public void readFrameWithoutEndBytes() throws Exception {
+        byte[] testBytes = testMessageBytes;
+        InputStream is = new ByteArrayInputStream(ArrayUtils.addAll(llpStartBytes, testBytes));
+        FrameStreamHandler streamHandler = new FrameStreamHandler(is, null, new DefaultBatchStreamReader(is), defaultMLLPProps);
+
+        try {
+            streamHandler.read();
+            fail("Exception should have been thrown");
+        } catch (FrameStreamHandlerException e) {
+        }
+        assertNull(streamHandler.read());
+
+        // Without end bytes, the rest of the stream is the message
+        FrameModeProperties frameModeProperties = new FrameModeProperties();
+        frameModeProperties.setStartOfMessageBytes("0B");
+        frameModeProperties.setEndOfMessageBytes("");
+        is = new ByteArrayInputStream(ArrayUtils.addAll(llpStartBytes, testBytes));
+        streamHandler = new FrameStreamHandler(is, null, new DefaultBatchStreamReader(is), frameModeProperties);
+        assertTrue(Arrays.equals(testBytes, streamHandler.read()));
+        assertNull(streamHandler.read());
+    }
+
+    @Test
+    public void writeMLLPv2WithCommitAcknowledgement() throws Exception {
+        MLLPModeProperties mllpModeProperties = new MLLPModeProperties();
+        mllpModeProperties.setUseMLLPv2(true);
+
+        // The commit acknowledgement is followed by the start of a response frame
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        response.write(llpStartBytes);
+        response.write(0x06);
+        response.write(llpEndBytes);
+        response.write(llpStartBytes);
+
+        InputStream is = new BufferedInputStream(new ChunkedInputStream(response.toByteArray(), 2));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        MLLPv2StreamHandler streamHandler = new MLLPv2StreamHandler(is, os, new DefaultBatchStreamReader(is), mllpModeProperties);
+        streamHandler.write(testMessageBytes);
+
+        assertTrue(Arrays.equals(ArrayUtils.addAll(ArrayUtils.addAll(llpStartBytes, testMessageBytes), llpEndBytes), os.toByteArray()));
+        assertEquals(llpStartBytes[0], is.read());
+    }
+
+    private int peek(InputStream is) throws IOException {
+        is.mark(1);
+        int b = is.read();
+        is.reset();
+        return b;
+    }
+
+    /*
+     * Returns at most chunkSize bytes per read, and reports only the rest of the current chunk as
+     * available.
+     */
+    private class ChunkedInputStream extends ByteArrayInputStream {
+        private int chunkSize;
+        private int chunkRemaining;
+
+        public ChunkedInputStream(byte[] buf, int chunkSize) {
+            super(buf);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int read() {
+            if (chunkRemaining == 0) {
+                chunkRemaining = chunkSize;
+            }
+            chunkRemaining--;
+            return super.read();
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            if (chunkRemaining == 0) {
+                chunkRemaining = chunkSize;
+            }
+            int count = super.read(b, off, Math.min(len, chunkRemaining));
+            if (count > 0) {
+                chunkRemaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public synchronized int available() {
+            return Math.min(super.available(), chunkRemaining);
+        }
+    }
+
     @Test
     public void readDelimiterBatch() throws Exception {
         byte[] testBytes = testMessageBytes;
@@ -10,6 +10,7 @@
 package com.mirth.connect.connectors.file;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
@@ -26,8 +27,11 @@ import static org.mockito.Mockito.when;
 import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.commons.logging.LogFactory;
@@ -615,11 +619,84 @@ public class FileReceiverTest {
         assertTrue(exceptionThrown);
     }
 
+    /*
+     * No batch messages, uses directory recursion, files processed concurrently
+     */
+    @Test
+    public void testPollConcurrently() throws Exception {
+        final String fileDirectory = "tests/filereader/nonbatch";
+        final int expectedMessageCount = 8;
+
+        TestFileReceiver receiver = createReceiver(fileDirectory, true, false, FileReceiverProperties.SORT_BY_NAME, null, false, 4);
+
+        for (int poll = 0; poll < 2; poll++) {
+            receiver.rawMessages.clear();
+            receiver.poll();
+            assertEquals(expectedMessageCount, receiver.rawMessages.size());
+
+            Set<Object> pollIds = new HashSet<Object>();
+            Set<Object> pollSequenceIds = new HashSet<Object>();
+            for (int i = 0; i < receiver.rawMessages.size(); i++) {
+                Map<String, Object> sourceMap = receiver.rawMessages.get(i).getSourceMap();
+                pollIds.add(sourceMap.get(POLL_ID));
+                pollSequenceIds.add(sourceMap.get(POLL_SEQUENCE_ID));
+
+                // The file that completes the poll is always processed last
+                if (i == receiver.rawMessages.size() - 1) {
+                    assertTrue(((Boolean) sourceMap.get(POLL_COMPLETE)).booleanValue());
+                    assertEquals(expectedMessageCount, sourceMap.get(POLL_SEQUENCE_ID));
+                } else {
+                    assertNull(sourceMap.get(POLL_COMPLETE));
+                }
+            }
+
+            assertEquals(1, pollIds.size());
+            assertEquals(expectedMessageCount, pollSequenceIds.size());
+            for (int i = 1; i <= expectedMessageCount; i++) {
+                assertTrue(pollSequenceIds.contains(i));
+            }
+        }
+
+        receiver.stop();
+    }
+
+    @Test
+    public void testFileClaims() throws Exception {
+        final FileClaims claims = new FileClaims();
+        assertTrue(claims.tryClaim("a"));
+        assertFalse(claims.tryClaim("a"));
+        assertTrue(claims.tryClaim("b"));
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    claims.claim("a");
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        thread.start();
+
+        // The other thread waits until the path is released
+        thread.join(200);
+        assertTrue(thread.isAlive());
+
+        claims.release("a");
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertFalse(claims.tryClaim("a"));
+    }
+
     private TestFileReceiver createReceiver(String directory, boolean directoryRecursion, boolean batchProcess, String sortBy, String fileSizeMaximum) throws Exception {
         return createReceiver(directory, directoryRecursion, batchProcess, sortBy, fileSizeMaximum, false);
     }
 
     private TestFileReceiver createReceiver(String directory, boolean directoryRecursion, boolean batchProcess, String sortBy, String fileSizeMaximum, boolean fileTypeBinary) throws Exception {
+        return createReceiver(directory, directoryRecursion, batchProcess, sortBy, fileSizeMaximum, fileTypeBinary, 0);
+    }
+
+    private TestFileReceiver createReceiver(String directory, boolean directoryRecursion, boolean batchProcess, String sortBy, String fileSizeMaximum, boolean fileTypeBinary, int concurrentThreads) throws Exception {
         TestFileReceiver receiver = spy(new TestFileReceiver() {
             @Override
             protected String getConfigurationClass() {
@@ -645,6 +722,10 @@ public class FileReceiverTest {
             connectorProperties.setFileSizeMaximum(fileSizeMaximum);
         }
         connectorProperties.setBinary(fileTypeBinary);
+        if (concurrentThreads > 0) {
+            connectorProperties.setProcessFilesConcurrently(true);
+            connectorProperties.getSourceConnectorProperties().setProcessingThreads(concurrentThreads);
+        }
         receiver.setConnectorProperties(connectorProperties);
 
         FileConnector fileConnector = mock(FileConnector.class);
@@ -672,7 +753,7 @@ public class FileReceiverTest {
     }
 
     class TestFileReceiver extends FileReceiver {
-        List<RawMessage> rawMessages = new ArrayList<>();
+        List<RawMessage> rawMessages = Collections.synchronizedList(new ArrayList<>());
 
         public TestFileReceiver() {
             logger = spy(LogFactory.getLog(getClass()));
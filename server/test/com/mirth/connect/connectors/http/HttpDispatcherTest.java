@@ -2,24 +2,52 @@ package com.mirth.connect.connectors.http;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.ServletRequest;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.mirth.connect.donkey.model.channel.ConnectorPluginProperties;
+import com.mirth.connect.donkey.model.channel.DestinationConnectorProperties;
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
 import com.mirth.connect.donkey.model.message.Message;
 import com.mirth.connect.donkey.model.message.Response;
 import com.mirth.connect.donkey.server.channel.Channel;
+import com.mirth.connect.donkey.server.channel.Connector;
+import com.mirth.connect.donkey.server.channel.SourceConnector;
 import com.mirth.connect.donkey.util.MessageMaps;
+import com.mirth.connect.server.controllers.ConfigurationController;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 public class HttpDispatcherTest {
 
@@ -290,6 +318,129 @@ public class HttpDispatcherTest {
     	assertTrue(dispatcher.shouldParseMultipart(props, "multipart/form-data"));
     }
 
+    @Test
+    public void testPoolSizedForSendingThreads() throws Exception {
+        DestinationConnectorProperties destinationProperties = props.getDestinationConnectorProperties();
+        HttpReceiverProperties sourceProperties = new HttpReceiverProperties();
+        sourceProperties.getSourceConnectorProperties().setProcessingThreads(4);
+        SourceConnector sourceConnector = Mockito.mock(SourceConnector.class);
+        doReturn(sourceProperties).when(sourceConnector).getConnectorProperties();
+        doReturn(sourceConnector).when(channel).getSourceConnector();
+
+        // Without a queue, messages are sent by the source processing threads
+        destinationProperties.setQueueEnabled(false);
+        dispatcher.onStart();
+        assertEquals(4, dispatcher.getMaxConnections());
+
+        // Messages queued first are only sent by the queue threads
+        destinationProperties.setQueueEnabled(true);
+        destinationProperties.setSendFirst(false);
+        destinationProperties.setThreadCount(3);
+        dispatcher.onStart();
+        assertEquals(3, dispatcher.getMaxConnections());
+
+        destinationProperties.setSendFirst(true);
+        dispatcher.onStart();
+        assertEquals(7, dispatcher.getMaxConnections());
+    }
+
+    @Test
+    public void testClientSharedAcrossDispatcherThreads() throws Exception {
+        final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        final String url = "http://localhost:" + server.getAddress().getPort() + "/";
+        final int threads = 4;
+        final int requestsPerThread = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            deploy();
+            props.getDestinationConnectorProperties().setQueueEnabled(true);
+            props.getDestinationConnectorProperties().setSendFirst(false);
+            props.getDestinationConnectorProperties().setThreadCount(2);
+            dispatcher.onStart();
+
+            List<Future<CloseableHttpClient>> futures = new ArrayList<Future<CloseableHttpClient>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<CloseableHttpClient>() {
+                    @Override
+                    public CloseableHttpClient call() throws Exception {
+                        CloseableHttpClient client = dispatcher.getClient(props, 5000);
+
+                        for (int j = 0; j < requestsPerThread; j++) {
+                            try (CloseableHttpResponse response = client.execute(new HttpGet(url), HttpClientContext.create())) {
+                                assertEquals("ok", EntityUtils.toString(response.getEntity()));
+                            }
+                        }
+
+                        return client;
+                    }
+                }));
+            }
+
+            CloseableHttpClient client = futures.get(0).get();
+            for (Future<CloseableHttpClient> future : futures) {
+                assertSame(client, future.get());
+            }
+
+            // All threads lease from one pool, which never opens more connections than its maximum
+            assertEquals(2, dispatcher.getConnectionManager().getTotalStats().getMax());
+            assertTrue(clientPorts.size() <= 2);
+            assertEquals(0, dispatcher.getConnectionManager().getTotalStats().getLeased());
+
+            // A different socket timeout is applied to the shared pool instead of being ignored
+            assertSame(client, dispatcher.getClient(props, 9000));
+            assertEquals(9000, dispatcher.getConnectionManager().getDefaultSocketConfig().getSoTimeout());
+        } finally {
+            executor.shutdownNow();
+            dispatcher.onStop();
+            server.stop(0);
+        }
+    }
+
+    private void deploy() throws Exception {
+        // Only plain HTTP is registered, without loading the server's TLS settings
+        ConfigurationController configurationController = Mockito.mock(ConfigurationController.class);
+        doReturn(PlainHttpConfiguration.class.getName()).when(configurationController).getProperty(props.getProtocol(), "httpConfigurationClass");
+        dispatcher.configurationController = configurationController;
+        dispatcher.onDeploy();
+    }
+
+    public static class PlainHttpConfiguration implements HttpConfiguration {
+        @Override
+        public void configureConnectorDeploy(Connector connector) throws Exception {}
+
+        @Override
+        public void configureConnectorUndeploy(Connector connector) {}
+
+        @Override
+        public void configureReceiver(HttpReceiver connector) throws Exception {}
+
+        @Override
+        public void configureDispatcher(HttpDispatcher connector, HttpDispatcherProperties connectorProperties) throws Exception {}
+
+        @Override
+        public void configureSocketFactoryRegistry(ConnectorPluginProperties properties, RegistryBuilder<ConnectionSocketFactory> registry) throws Exception {}
+
+        @Override
+        public Map<String, Object> getRequestInformation(ServletRequest request) {
+            return new HashMap<String, Object>();
+        }
+    }
+
     class CustomMessageMap extends MessageMaps {
         protected Map<Object, Object> map;
 
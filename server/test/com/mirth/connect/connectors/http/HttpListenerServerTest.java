@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpListenerServerTest {
+
+    private HttpListenerServer listenerServer;
+    private int port;
+
+    @Before
+    public void setup() throws Exception {
+        listenerServer = new HttpListenerServer(16);
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+    }
+
+    @After
+    public void teardown() throws Exception {
+        listenerServer.getServer().stop();
+    }
+
+    @Test
+    public void testListenersShareAPort() throws Exception {
+        HttpListenerServer.Registration root = register("", "root");
+        HttpListenerServer.Registration api = register("/api", "api");
+
+        assertEquals(1, listenerServer.getServer().getConnectors().length);
+        assertEquals("root", get("/"));
+        assertEquals("root", get("/apiary"));
+        assertEquals("api", get("/api"));
+        assertEquals("api", get("/api/patients"));
+
+        api.unregister();
+        assertEquals("root", get("/api/patients"));
+
+        root.unregister();
+        assertEquals(0, listenerServer.getServer().getConnectors().length);
+        assertFalse(listenerServer.getServer().isStarted());
+    }
+
+    @Test
+    public void testDuplicateContextPath() throws Exception {
+        HttpListenerServer.Registration first = register("/api", "first");
+
+        try {
+            register("/api", "second");
+            fail("Expected the duplicate context path to be rejected");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("/api"));
+        }
+
+        assertEquals(1, listenerServer.getServer().getConnectors().length);
+        assertEquals("first", get("/api"));
+        first.unregister();
+    }
+
+    @Test
+    public void testThreadsReservedPerPort() throws Exception {
+        HttpListenerServer.Registration registration = register("", "root");
+        assertEquals(17, listenerServer.getThreadPool().getMaxThreads());
+
+        registration.unregister();
+        assertEquals(16, listenerServer.getThreadPool().getMaxThreads());
+    }
+
+    @Test
+    public void testDifferentConnectionSettingsAreRejected() throws Exception {
+        HttpListenerServer.Registration first = register("/api", "first");
+
+        try {
+            listenerServer.register("localhost", port, "/other", new ContextHandler(), new HttpListenerServer.ConnectorConfigurer() {
+                @Override
+                public void configure() throws Exception {
+                    listenerServer.getServer().addConnector(createTlsConnector("keystore.jks"));
+                }
+            });
+            fail("Expected the different connection settings to be rejected");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("different protocol"));
+        }
+
+        assertEquals(1, listenerServer.getServer().getConnectors().length);
+        assertEquals("first", get("/api"));
+        first.unregister();
+    }
+
+    @Test
+    public void testTlsConnectionSettings() throws Exception {
+        assertNull(getDifference(createTlsConnector("keystore.jks"), createTlsConnector("keystore.jks")));
+
+        assertEquals("key store", getDifference(createTlsConnector("keystore.jks"), createTlsConnector("other.jks")));
+
+        ServerConnector connector = createTlsConnector("keystore.jks");
+        ((SslContextFactory.Server) connector.getConnectionFactory(SslConnectionFactory.class).getSslContextFactory()).setNeedClientAuth(true);
+        assertEquals("client authentication", getDifference(createTlsConnector("keystore.jks"), connector));
+
+        connector = createTlsConnector("keystore.jks");
+        ((SslContextFactory.Server) connector.getConnectionFactory(SslConnectionFactory.class).getSslContextFactory()).setWantClientAuth(true);
+        assertEquals("client authentication", getDifference(createTlsConnector("keystore.jks"), connector));
+
+        connector = createTlsConnector("keystore.jks");
+        connector.getConnectionFactory(SslConnectionFactory.class).getSslContextFactory().setIncludeCipherSuites("TLS_AES_128_GCM_SHA256");
+        assertEquals("cipher suites", getDifference(createTlsConnector("keystore.jks"), connector));
+
+        connector = createTlsConnector("keystore.jks");
+        connector.getConnectionFactory(SslConnectionFactory.class).getSslContextFactory().setIncludeProtocols("TLSv1.3");
+        assertEquals("TLS protocols", getDifference(createTlsConnector("keystore.jks"), connector));
+    }
+
+    private String getDifference(Connector connector1, Connector connector2) {
+        return HttpListenerServer.getDifference(HttpListenerServer.getConnectionSettings(Collections.singletonList(connector1)), HttpListenerServer.getConnectionSettings(Collections.singletonList(connector2)));
+    }
+
+    private ServerConnector createTlsConnector(String keyStorePath) {
+        SslContextFactory sslContextFactory = new SslContextFactory.Server();
+        sslContextFactory.setKeyStorePath(keyStorePath);
+
+        ServerConnector connector = new ServerConnector(listenerServer.getServer(), 0, 1, new SslConnectionFactory(sslContextFactory, "http/1.1"), new HttpConnectionFactory());
+        connector.setHost("localhost");
+        connector.setPort(port);
+        return connector;
+    }
+
+    private HttpListenerServer.Registration register(String contextPath, final String body) throws Exception {
+        ContextHandler contextHandler = new ContextHandler();
+        contextHandler.setContextPath(contextPath);
+        contextHandler.setAllowNullPathInfo(true);
+        contextHandler.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+                response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+                baseRequest.setHandled(true);
+            }
+        });
+
+        return listenerServer.register("localhost", port, contextPath, contextHandler, new HttpListenerServer.ConnectorConfigurer() {
+            @Override
+            public void configure() throws Exception {
+                ServerConnector connector = new ServerConnector(listenerServer.getServer(), 0, 1);
+                connector.setHost("localhost");
+                connector.setPort(port);
+                listenerServer.getServer().addConnector(connector);
+            }
+        });
+    }
+
+    private String get(String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+
+        try (InputStream inputStream = connection.getInputStream()) {
+            return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.jdbc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DatabaseDispatcherQueryTest {
+
+    @Test
+    public void testPlainDmlIsBatchable() {
+        assertTrue(DatabaseDispatcherQuery.isPlainDml("INSERT INTO patients (id, name) VALUES (?, ?)"));
+        assertTrue(DatabaseDispatcherQuery.isPlainDml("  update patients set name = ? where id = ?;\n"));
+        assertTrue(DatabaseDispatcherQuery.isPlainDml("DELETE FROM patients WHERE id = ?"));
+        assertTrue(DatabaseDispatcherQuery.isPlainDml("-- upsert\n/* patient */ MERGE INTO patients USING dual ON (id = ?) WHEN NOT MATCHED THEN INSERT (id) VALUES (?)"));
+    }
+
+    @Test
+    public void testResultReturningStatementsAreNotBatchable() {
+        assertFalse(DatabaseDispatcherQuery.isPlainDml(null));
+        assertFalse(DatabaseDispatcherQuery.isPlainDml("SELECT my_procedure(?, ?)"));
+        assertFalse(DatabaseDispatcherQuery.isPlainDml("{call my_procedure(?, ?)}"));
+        assertFalse(DatabaseDispatcherQuery.isPlainDml("CALL my_procedure(?, ?)"));
+        assertFalse(DatabaseDispatcherQuery.isPlainDml("EXEC my_procedure ?, ?"));
+        assertFalse(DatabaseDispatcherQuery.isPlainDml("WITH p AS (SELECT ?) INSERT INTO patients SELECT * FROM p"));
+        assertFalse(DatabaseDispatcherQuery.isPlainDml("INSERT INTO patients (name) VALUES (?) RETURNING id"));
+        assertFalse(DatabaseDispatcherQuery.isPlainDml("INSERT INTO patients (name) OUTPUT inserted.id VALUES (?)"));
+        assertFalse(DatabaseDispatcherQuery.isPlainDml("INSERT INTO patients (name) VALUES (?); SELECT 1"));
+    }
+}
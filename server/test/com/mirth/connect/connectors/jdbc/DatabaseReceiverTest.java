@@ -23,7 +23,9 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -116,6 +118,61 @@ public class DatabaseReceiverTest {
         assertTrue(tagNames.contains("_ab_c_"));
     }
 
+    @Test
+    public void testWriteResultMatchesResultMapToXml() throws Exception {
+        DatabaseReceiver receiver = new DatabaseReceiver();
+        receiver.connectorProperties = new DatabaseReceiverProperties();
+
+        Map<String, Object> resultMap = new LinkedHashMap<String, Object>();
+        resultMap.put("ID", 1);
+        resultMap.put("name", "a<b>&c\"d'e");
+        resultMap.put("whitespace", "  x\r\ny\tz ");
+        resultMap.put("control", "a\u0001b\u007fc\u0085d");
+        resultMap.put("unicode", "\u00e9\u2028\uD83D\uDE00");
+        resultMap.put("bytes", "abc".getBytes("UTF-8"));
+        resultMap.put("empty", "");
+        resultMap.put("missing", null);
+        assertEquals(receiver.resultMapToXml(resultMap), writeResult(receiver, resultMap));
+
+        // Invalid column names are fixed the same way
+        resultMap.put("[ab c ]", "test");
+        assertEquals(receiver.resultMapToXml(resultMap), writeResult(receiver, resultMap));
+
+        resultMap.clear();
+        resultMap.put("missing", null);
+        assertEquals(receiver.resultMapToXml(resultMap), writeResult(receiver, resultMap));
+    }
+
+    @Test
+    public void testWriteResultsMatchesAggregateXml() throws Exception {
+        DatabaseReceiver receiver = new DatabaseReceiver();
+        receiver.connectorProperties = new DatabaseReceiverProperties();
+
+        Map<String, Object> resultMap1 = new LinkedHashMap<String, Object>();
+        resultMap1.put("id", 1);
+        resultMap1.put("name", "a & b");
+        Map<String, Object> resultMap2 = new LinkedHashMap<String, Object>();
+        resultMap2.put("id", null);
+
+        DonkeyElement results = new DonkeyElement("<results/>");
+        ResultXmlWriter writer = new ResultXmlWriter();
+        writer.startResults();
+        for (Map<String, Object> resultMap : Arrays.asList(resultMap1, resultMap2)) {
+            results.addChildElementFromXml(receiver.resultMapToXml(resultMap));
+            receiver.writeResult(writer, resultMap);
+        }
+        writer.endResults();
+
+        assertEquals(results.toXml(), writer.toString());
+    }
+
+    private String writeResult(DatabaseReceiver receiver, Map<String, Object> resultMap) throws Exception {
+        ResultXmlWriter writer = new ResultXmlWriter();
+        writer.writeDeclaration();
+        receiver.writeResult(writer, resultMap);
+        return writer.toString();
+    }
+
     @Test
     public void testCheckForDuplicateColumns() throws Exception {
         ResultSetMetaData metaData = mock(ResultSetMetaData.class);
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ResultSetReadAheadTest {
+
+    @Test
+    public void testRowsInOrder() throws Exception {
+        final AtomicInteger rowCount = new AtomicInteger();
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenAnswer(invocation -> rowCount.incrementAndGet() <= 10);
+        when(resultSet.getRow()).thenAnswer(invocation -> rowCount.get());
+
+        ResultSetReadAhead<Integer> rows = new ResultSetReadAhead<Integer>(resultSet, (ResultSet currentRow) -> currentRow.getRow(), 2, "Test Read-Ahead Thread");
+        rows.start();
+
+        try {
+            for (int i = 1; i <= 10; i++) {
+                assertEquals(Integer.valueOf(i), rows.take());
+            }
+            assertNull(rows.take());
+            assertNull(rows.take());
+        } finally {
+            rows.close();
+        }
+    }
+
+    @Test
+    public void testBoundedReadAhead() throws Exception {
+        final AtomicInteger rowCount = new AtomicInteger();
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenAnswer(invocation -> rowCount.incrementAndGet() <= 100);
+
+        ResultSetReadAhead<Integer> rows = new ResultSetReadAhead<Integer>(resultSet, (ResultSet currentRow) -> rowCount.get(), 5, "Test Read-Ahead Thread");
+        rows.start();
+        Thread.sleep(200);
+
+        // The buffer is full, and the reading thread waits with the next row converted
+        assertTrue(rowCount.get() <= 6);
+
+        rows.take();
+        rows.close();
+        assertTrue(rowCount.get() < 100);
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final AtomicInteger rowCount = new AtomicInteger();
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenAnswer(invocation -> {
+            if (rowCount.incrementAndGet() > 2) {
+                throw new SQLException("Connection lost");
+            }
+            return true;
+        });
+
+        ResultSetReadAhead<Integer> rows = new ResultSetReadAhead<Integer>(resultSet, (ResultSet currentRow) -> rowCount.get(), 10, "Test Read-Ahead Thread");
+        rows.start();
+
+        try {
+            assertEquals(Integer.valueOf(1), rows.take());
+            assertEquals(Integer.valueOf(2), rows.take());
+
+            try {
+                rows.take();
+                fail("Exception should have been thrown");
+            } catch (DatabaseReceiverException e) {
+                assertTrue(e.getCause() instanceof SQLException);
+            }
+
+            assertNull(rows.take());
+        } finally {
+            rows.close();
+        }
+    }
+}
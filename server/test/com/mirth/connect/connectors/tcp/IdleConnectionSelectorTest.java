@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.connectors.tcp.IdleConnectionSelector.IdleConnection;
+
+public class IdleConnectionSelectorTest {
+
+    private ServerSocketChannel serverSocketChannel;
+    private IdleConnectionSelector selector;
+
+    @Before
+    public void setUp() throws Exception {
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (selector != null) {
+            selector.close();
+        }
+        serverSocketChannel.close();
+    }
+
+    @Test
+    public void testParkedConnectionResumedWhenDataArrives() throws Exception {
+        selector = new IdleConnectionSelector("Test Selector", 0);
+        selector.start();
+
+        Socket client = connect();
+        TestConnection connection = new TestConnection(serverSocketChannel.accept());
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                selector.park(connection);
+                assertFalse(connection.readable.await(200, TimeUnit.MILLISECONDS));
+
+                client.getOutputStream().write('A' + i);
+                client.getOutputStream().flush();
+                assertTrue(connection.awaitReadable());
+
+                // The channel is back in blocking mode, so it can be read with a regular stream
+                assertTrue(connection.channel.isBlocking());
+                InputStream inputStream = connection.channel.socket().getInputStream();
+                assertEquals('A' + i, inputStream.read());
+            }
+
+            // Closing the remote side also resumes the connection
+            selector.park(connection);
+            client.close();
+            assertTrue(connection.awaitReadable());
+            assertEquals(-1, connection.channel.socket().getInputStream().read());
+            assertEquals(0, connection.closed.get());
+        } finally {
+            client.close();
+            connection.channel.close();
+        }
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        selector = new IdleConnectionSelector("Test Selector", 100);
+        selector.start();
+
+        Socket client = connect();
+        TestConnection connection = new TestConnection(serverSocketChannel.accept());
+
+        try {
+            selector.park(connection);
+            assertTrue(connection.idleTimeout.await(5, TimeUnit.SECONDS));
+            assertEquals(1, connection.readable.getCount());
+        } finally {
+            client.close();
+            connection.channel.close();
+        }
+    }
+
+    @Test
+    public void testParkedConnectionsClosedWithSelector() throws Exception {
+        selector = new IdleConnectionSelector("Test Selector", 0);
+        selector.start();
+
+        Socket client = connect();
+        TestConnection connection = new TestConnection(serverSocketChannel.accept());
+
+        try {
+            selector.park(connection);
+            Thread.sleep(100);
+            selector.close();
+            assertEquals(1, connection.closed.get());
+
+            // Connections parked after the selector is closed are closed right away
+            TestConnection lateConnection = new TestConnection(connection.channel);
+            selector.park(lateConnection);
+            assertEquals(1, lateConnection.closed.get());
+            assertEquals(1, lateConnection.readable.getCount());
+        } finally {
+            selector = null;
+            client.close();
+            connection.channel.close();
+        }
+    }
+
+    private Socket connect() throws Exception {
+        Socket client = new Socket();
+        client.connect(serverSocketChannel.socket().getLocalSocketAddress(), 5000);
+        return client;
+    }
+
+    private static class TestConnection implements IdleConnection {
+        private SocketChannel channel;
+        private volatile CountDownLatch readable = new CountDownLatch(1);
+        private CountDownLatch idleTimeout = new CountDownLatch(1);
+        private AtomicInteger closed = new AtomicInteger();
+
+        private TestConnection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private boolean awaitReadable() throws InterruptedException {
+            boolean result = readable.await(5, TimeUnit.SECONDS);
+            readable = new CountDownLatch(1);
+            return result;
+        }
+
+        @Override
+        public SocketChannel getSocketChannel() {
+            return channel;
+        }
+
+        @Override
+        public void readable() {
+            readable.countDown();
+        }
+
+        @Override
+        public void idleTimeout() {
+            idleTimeout.countDown();
+        }
+
+        @Override
+        public void closed() {
+            closed.incrementAndGet();
+        }
+    }
+}
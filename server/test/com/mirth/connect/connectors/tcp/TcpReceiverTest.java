@@ -1,6 +1,8 @@
 package com.mirth.connect.connectors.tcp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -138,6 +140,30 @@ public class TcpReceiverTest {
 		assertEquals(6666, receiver.getServerSocket().getLocalPort());
 	}
 	
+	@Test
+	public void testServerSocketEventDrivenConnections() throws Exception {
+		TcpReceiverProperties props = new TcpReceiverProperties();
+		props.getListenerConnectorProperties().setHost("127.0.0.1");
+		props.getListenerConnectorProperties().setPort("6666");
+		props.setEventDrivenConnections(true);
+		setupReceiver(props);
+		
+		// Sockets have to be accepted from a channel so idle connections can be selected
+		assertNotNull(receiver.getServerSocket().getChannel());
+		assertEquals(6666, receiver.getServerSocket().getLocalPort());
+	}
+	
+	@Test
+	public void testServerSocketThreadPerConnection() throws Exception {
+		TcpReceiverProperties props = new TcpReceiverProperties();
+		props.getListenerConnectorProperties().setHost("127.0.0.1");
+		props.getListenerConnectorProperties().setPort("6666");
+		setupReceiver(props);
+		
+		assertNull(receiver.getServerSocket().getChannel());
+		assertTrue(receiver.getServerSocket() instanceof StateAwareServerSocket);
+	}
+	
 	@Test
 	public void testServerSocketUnknownHost(){
 		TcpReceiverProperties props = new TcpReceiverProperties();
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.ws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.connectors.http.HttpListenerServer;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+
+public class WebServiceListenerServerTest {
+
+    private SSLContext sslContext;
+
+    @Before
+    public void setup() throws Exception {
+        sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, null, null);
+    }
+
+    @Test
+    public void testSameConnectionSettings() throws Exception {
+        assertNull(getDifference(HttpServer.create(), HttpServer.create()));
+        assertNull(getDifference(createHttpsServer(sslContext, false), createHttpsServer(sslContext, false)));
+    }
+
+    @Test
+    public void testDifferentConnectionSettings() throws Exception {
+        assertEquals("protocol", getDifference(HttpServer.create(), createHttpsServer(sslContext, false)));
+        assertEquals("client authentication", getDifference(createHttpsServer(sslContext, false), createHttpsServer(sslContext, true)));
+
+        SSLContext otherContext = SSLContext.getInstance("TLS");
+        otherContext.init(null, null, null);
+        assertEquals("key store", getDifference(createHttpsServer(sslContext, false), createHttpsServer(otherContext, false)));
+    }
+
+    private String getDifference(HttpServer server1, HttpServer server2) {
+        return HttpListenerServer.getDifference(Collections.singletonList(WebServiceListenerServer.getConnectionSettings(server1)), Collections.singletonList(WebServiceListenerServer.getConnectionSettings(server2)));
+    }
+
+    private HttpsServer createHttpsServer(SSLContext sslContext, final boolean needClientAuth) throws Exception {
+        HttpsServer server = HttpsServer.create();
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
+            @Override
+            public void configure(HttpsParameters parameters) {
+                SSLParameters sslParameters = getSSLContext().getDefaultSSLParameters();
+                sslParameters.setNeedClientAuth(needClientAuth);
+                parameters.setSSLParameters(sslParameters);
+            }
+        });
+        return server;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.dashboardstatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.event.ConnectionStatusEventType;
+import com.mirth.connect.donkey.model.event.Event;
+import com.mirth.connect.donkey.server.event.ConnectionStatusEvent;
+import com.mirth.connect.donkey.server.event.ConnectorCountEvent;
+
+public class DashboardConnectorEventListenerTest {
+
+    @Test
+    public void testEveryEventIsLogged() throws Exception {
+        RecordingLogController logController = new RecordingLogController();
+        DashboardConnectorEventListener listener = new DashboardConnectorEventListener(logController);
+
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 50; i++) {
+            events.add(new ConnectionStatusEvent("channel1", 0, "Source", ConnectionStatusEventType.RECEIVING));
+            events.add(new ConnectorCountEvent("channel1", 0, "Source", ConnectionStatusEventType.CONNECTED, null, true));
+            events.add(new ConnectionStatusEvent("channel1", 0, "Source", ConnectionStatusEventType.IDLE));
+        }
+
+        try {
+            for (Event event : events) {
+                listener.offerEvent(event);
+            }
+
+            List<Event> logged = logController.awaitEvents(events.size(), 10000);
+            assertEquals(events.size(), logged.size());
+            for (int i = 0; i < events.size(); i++) {
+                assertSame(events.get(i), logged.get(i));
+            }
+            assertEquals(0, listener.getQueue().getMergedCount());
+        } finally {
+            listener.shutdown();
+        }
+    }
+
+    private static class RecordingLogController extends ConnectionStatusLogController {
+        private List<Event> events = new ArrayList<Event>();
+
+        @Override
+        public synchronized void processEvent(Event event) {
+            events.add(event);
+            notifyAll();
+        }
+
+        public synchronized List<Event> awaitEvents(int count, long timeout) throws InterruptedException {
+            long end = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+
+            while (events.size() < count && remaining > 0) {
+                wait(remaining);
+                remaining = end - System.currentTimeMillis();
+            }
+
+            return new ArrayList<Event>(events);
+        }
+
+        @Override
+        public LinkedList<ConnectionLogItem> getChannelLog(String serverId, String channelId, int fetchSize, Long lastLogId) {
+            return null;
+        }
+
+        @Override
+        public Map<String, Object[]> getConnectorStateMap(String serverId) {
+            return null;
+        }
+
+        @Override
+        public Map<String, Map<String, List<ConnectionStateItem>>> getConnectionStatesForServer(String serverId) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.datatypes.hl7v2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import com.mirth.connect.model.converters.XMLPrettyPrinter;
+import com.mirth.connect.model.datatype.SerializerProperties;
+
+public class ER7XMLEncoderTest {
+
+    private static final String ADT = "MSH|^~\\&|ADT1|GOOD HEALTH HOSPITAL|GHH LAB, INC.|GOOD HEALTH HOSPITAL|198808181126|SECURITY|ADT^A01^ADT_A01|MSG00001|P|2.8||\r" + "EVN|A01|200708181123||\r" + "PID|1||PATID1234^^^GOOD HEALTH HOSPITAL^MR^GOOD HEALTH HOSPITAL~123456789^^^USSSA^SS||EVERYMAN^ADAM^A^III||19610615|M||2106-3^White^HL70005|2222 HOME STREET^^GREENSBORO^NC^27401-1020|GL|(555) 555-2004|(555)555-2004||S||PATID12345001^2^M10^ADT1^AN^A|444333333|987654^NC|\r" + "NK1|1|NUCLEAR^NELDA^W|SPO^SPOUSE||||NK^NEXT OF KIN\r" + "PV1|1|I|2000^2012^01||||004777^ATTEND^AARON^A|||SUR||||ADM|A0|";
+
+    private static final String ORU = "MSH|^~\\&|GHH LAB|ELAB-3|GHH OE|BLDG4|200202150930||ORU^R01|CNTRL-3456|P|2.4\r" + "PID|||555-44-4444||EVERYWOMAN^EVE^E^^^^L|JONES|19620320|F|||153 FERNWOOD DR.^^STATESVILLE^OH^35292||(206)3345232|(206)752-121||||AC555444444||67-A4335^OH^20030520\r" + "OBR|1|845439^GHH OE|1045813^GHH LAB|15545^GLUCOSE|||200202150730|||||||||555-55-5555^PRIMARY^PATRICIA P^^^^MD^^|||||||||F||||||444-44-4444^HIPPOCRATES^HOWARD H^^^^MD\r" + "OBX|1|SN|1554-5^GLUCOSE^POST 12H CFST:MCNC:PT:SER/PLAS:QN||^182|mg/dl|70_105|H|||F\r" + "OBX|2|TX|NOTE^Comment||Result <verified> by \"Dr. Smith\" & 'team' \u00e9\u4e2d\ud83d\ude00 &amp;T\\.br\\ok~second&sub&&x^^||||||F\r" + "NTE|1||~~a~&b&~^c^~\r" + "NTE|2\r" + "ZZZ||||";
+
+    @Test
+    public void testSameOutputAsER7Reader() throws Exception {
+        List<String> messages = new ArrayList<String>();
+        messages.add(ADT);
+        messages.add(ORU);
+        messages.add(FileUtils.readFileToString(new File("tests/test-hl7-input.txt"), "UTF-8"));
+        messages.add(FileUtils.readFileToString(new File("tests/test-hl7-batch-input.txt"), "UTF-8"));
+        messages.add(FileUtils.readFileToString(new File("tests/test-hl7-repetitions-input.txt"), "UTF-8"));
+        messages.add(FileUtils.readFileToString(new File("tests/test-hl7-subcomponents-input.txt"), "UTF-8"));
+        messages.add(FileUtils.readFileToString(new File("tests/test-hl7-whitespace-input.txt"), "UTF-8"));
+
+        // Special cases for the encoding characters
+        messages.add("MSH|^~\\&");
+        messages.add("MSH|^~&|A|B~C&D^E\rPID|1|A~B&C");
+        messages.add("MSH|^~|A|B~C&D^E\rPID|1|A~B&C^D");
+        messages.add("MSH|^|A|B~C&D^E\rPID|1|A~B&C^D");
+        messages.add("MSH||A|B~C&D^E\rPID|1|A~B&C^D");
+        messages.add("MSH*#~\\$*A*B~C$D#E\rPID*1*A|B~C$D#E");
+        messages.add("msh|^~\\&|lower|case\rMSH|^~\\&|header|again");
+        messages.add("FHS|^~\\&|A\rBHS|^~\\&|B\rMSH|^~\\&|C\rBTS|1\rFTS|1");
+        messages.add("PID|1|no header~rep^comp&sub\r\r\n\nOBX|2");
+        messages.add("  \r\n MSH|^~\\&|padded||\r|starts with separator\r  PID  |1  \r\n ");
+        messages.add("\rMSH|^~\\&|leading delimiter");
+        messages.add("|||||||");
+        messages.add("ABCDEF");
+
+        for (String message : messages) {
+            assertSameOutput(message);
+        }
+    }
+
+    @Test
+    public void testRandomMessages() throws Exception {
+        Random random = new Random(1234);
+        String alphabet = "|^~\\&\r\n <>\"'AB1\u00e9";
+
+        for (int i = 0; i < 500; i++) {
+            StringBuilder builder = new StringBuilder(random.nextBoolean() ? "MSH|^~\\&|" : "PID|");
+            int length = random.nextInt(60);
+
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            assertSameOutput(builder.toString());
+        }
+    }
+
+    @Test(expected = SAXException.class)
+    public void testMessageTooShort() throws Exception {
+        new ER7XMLEncoder(false, false, "\r").encode("  MSH|  ");
+    }
+
+    @Test
+    public void testSerializerUsesEncoder() throws Exception {
+        HL7v2SerializationProperties serializationProperties = new HL7v2SerializationProperties();
+        serializationProperties.setHandleRepetitions(true);
+        serializationProperties.setHandleSubcomponents(true);
+        ER7Serializer serializer = new ER7Serializer(new SerializerProperties(serializationProperties, new HL7v2DeserializationProperties(), null));
+
+        assertEquals(encodeWithER7Reader(ORU, true, true, "\r"), serializer.toXML(ORU.replace("\r", "\r\n")));
+    }
+
+    @Test
+    public void testStripWhitespaceSameAsPatterns() throws Exception {
+        Pattern prettyPattern1 = Pattern.compile("\\s*<([^/][^>]*)>");
+        Pattern prettyPattern2 = Pattern.compile("<([^>]*/|/[^>]*)>\\s*");
+
+        String xml = FileUtils.readFileToString(new File("tests/test-hl7-whitespace-output.xml"), "UTF-8");
+        assertEquals(prettyPattern1.matcher(xml).replaceAll("<$1>"), ER7Serializer.stripWhitespaceBeforeStartTags(xml));
+        assertEquals(prettyPattern2.matcher(xml).replaceAll("<$1>"), ER7Serializer.stripWhitespaceAfterEndTags(xml));
+
+        Random random = new Random(1234);
+        String alphabet = "<>/ \t\r\na!?";
+
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(30);
+
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            String source = builder.toString();
+            assertEquals(source, prettyPattern1.matcher(source).replaceAll("<$1>"), ER7Serializer.stripWhitespaceBeforeStartTags(source));
+            assertEquals(source, prettyPattern2.matcher(source).replaceAll("<$1>"), ER7Serializer.stripWhitespaceAfterEndTags(source));
+        }
+    }
+
+    private void assertSameOutput(String message) throws Exception {
+        for (String segmentDelimiter : new String[] { "\r", "\r\n", "\n" }) {
+            for (int options = 0; options < 4; options++) {
+                boolean handleRepetitions = (options & 1) != 0;
+                boolean handleSubcomponents = (options & 2) != 0;
+                String expected;
+                String actual;
+
+                try {
+                    expected = encodeWithER7Reader(message, handleRepetitions, handleSubcomponents, segmentDelimiter);
+                } catch (SAXException e) {
+                    expected = e.getMessage();
+                }
+
+                try {
+                    actual = new ER7XMLEncoder(handleRepetitions, handleSubcomponents, segmentDelimiter).encode(message);
+                } catch (SAXException e) {
+                    actual = e.getMessage();
+                }
+
+                assertEquals(message, expected, actual);
+            }
+        }
+    }
+
+    private String encodeWithER7Reader(String message, boolean handleRepetitions, boolean handleSubcomponents, String segmentDelimiter) throws Exception {
+        ER7Reader er7Reader = new ER7Reader(handleRepetitions, handleSubcomponents, segmentDelimiter);
+        StringWriter stringWriter = new StringWriter();
+        XMLPrettyPrinter serializer = new XMLPrettyPrinter(stringWriter);
+        serializer.setEncodeEntities(true);
+        er7Reader.setContentHandler(serializer);
+        er7Reader.parse(new InputSource(new StringReader(message)));
+        return stringWriter.toString();
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.datatypes.hl7v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.ScriptableObject;
+
+import com.mirth.connect.model.datatype.SerializerProperties;
+import com.mirth.connect.util.StringUtil;
+
+public class LazyHL7v2MessageTest {
+
+    private static final String ADT = "MSH|^~\\&|ADT1|GOOD HEALTH HOSPITAL|GHH LAB, INC.|GOOD HEALTH HOSPITAL|198808181126|SECURITY|ADT^A01^ADT_A01|MSG00001|P|2.8||\r" + "EVN|A01|200708181123||\r" + "PID|1||PATID1234^^^GOOD HEALTH HOSPITAL^MR^GOOD HEALTH HOSPITAL~123456789^^^USSSA^SS||EVERYMAN^ADAM^A^III||19610615|M||2106-3^White^HL70005|2222 HOME STREET^^GREENSBORO^NC^27401-1020|GL|(555) 555-2004|(555)555-2004||S||PATID12345001^2^M10^ADT1^AN^A|444333333|987654^NC|\r" + "NK1|1|NUCLEAR^NELDA^W|SPO^SPOUSE||||NK^NEXT OF KIN\r" + "PV1|1|I|2000^2012^01||||004777^ATTEND^AARON^A|||SUR||||ADM|A0|\r" + "OBX|1|SN|1554-5^GLUCOSE^POST 12H CFST:MCNC:PT:SER/PLAS:QN||^182|mg/dl|70_105|H|||F\r" + "OBX|2|TX|NOTE^Comment||Result <verified> & 'ok' é sub&comp&&x~second||||||F\r" + "NTE|1||~~a~&b&~^c^~\r";
+
+    // The same helper functions as in JavaScriptBuilder
+    private static final String HELPERS = "function createSegment(name, msgObj, index) { if (arguments.length == 1) { return new XML('<' + name + '></' + name + '>'); }; if (arguments.length == 2) { index = 0; }; msgObj[name][index] = new XML('<' + name + '></' + name + '>'); return msgObj[name][index]; }\n" + "function createSegmentAfter(name, segment) { var msgObj = segment; while (msgObj.parent() != undefined) { msgObj = msgObj.parent(); } msgObj.insertChildAfter(segment[0], new XML('<' + name + '></' + name + '>')); return msgObj.child(segment[0].childIndex() + 1); }\n" + "function validate(mapping, defaultValue, replacement) { var result = mapping; if ((result == undefined) || (result.toString().length == 0)) { if (defaultValue == undefined) { defaultValue = ''; } result = defaultValue; } if ('string' === typeof result || result instanceof java.lang.String || 'xml' === typeof result) { result = new java.lang.String(result.toString()); } return result; }\n" + "function getArrayOrXmlLength(obj) { if (typeof obj == 'xml' || obj instanceof java.lang.String) { return obj.length(); } else if (typeof obj != 'undefined' && obj != null) { return obj.length || 0; } return 0; }\n";
+
+    private Context context;
+    private ScriptableObject scope;
+
+    @Before
+    public void setUp() {
+        context = Context.enter();
+        scope = context.initStandardObjects();
+        context.evaluateString(scope, HELPERS + "XML.ignoreWhitespace=true; XML.prettyPrinting=false;", "helpers", 1, null);
+    }
+
+    @After
+    public void tearDown() {
+        Context.exit();
+    }
+
+    @Test
+    public void testUnmodifiedMessage() throws Exception {
+        List<String> messages = new ArrayList<String>();
+        messages.add(ADT);
+        messages.add(FileUtils.readFileToString(new File("tests/test-hl7-input.txt"), "UTF-8"));
+        messages.add(FileUtils.readFileToString(new File("tests/test-hl7-repetitions-input.txt"), "UTF-8"));
+        messages.add(FileUtils.readFileToString(new File("tests/test-hl7-subcomponents-input.txt"), "UTF-8"));
+
+        for (String message : messages) {
+            for (int options = 0; options < 4; options++) {
+                boolean handleRepetitions = (options & 1) != 0;
+                boolean handleSubcomponents = (options & 2) != 0;
+                LazyHL7v2Message lazyMessage = new LazyHL7v2Message(message, "\r", handleRepetitions, handleSubcomponents, true);
+                String expectedXML = new ER7XMLEncoder(handleRepetitions, handleSubcomponents, "\r").encode(StringUtil.convertLineBreaks(message, "\r"));
+
+                // Segments are copied as they are
+                assertEquals(StringUtil.convertLineBreaks(message.trim(), "\r") + "\r", lazyMessage.toString());
+
+                // Parsed segments have the same structure as the non-strict XML
+                assertEquals(expectedXML.substring(expectedXML.indexOf("?>") + 2), lazyMessage.getRoot().toXMLString());
+
+                // Segments that were parsed are encoded the same way
+                for (LazyHL7v2Message.Element segment : lazyMessage.getRoot().getChildren()) {
+                    LazyHL7v2Message.Element copy = segment.copy(lazyMessage.getRoot());
+                    assertEquals(segment.toString().trim(), copy.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnaccessedSegmentsAreNotParsed() throws Exception {
+        LazyHL7v2XMLList msg = LazyHL7v2Message.create(ADT.replace("NK1|1|NUCLEAR", "NK1|1|NUCLEAR\u0000"), "\\r", true, true, true);
+        scope.put("msg", scope, msg);
+
+        assertEquals("MSG00001", evaluate("msg['MSH']['MSH.10']['MSH.10.1'].toString()"));
+        evaluate("msg['PID']['PID.5']['PID.5.1'] = 'DOE'");
+
+        // The NK1 segment is kept exactly as it was
+        assertTrue(msg.toString().contains("\rNK1|1|NUCLEAR\u0000^NELDA^W|SPO^SPOUSE||||NK^NEXT OF KIN\r"));
+        assertTrue(msg.toString().contains("\rPID|1||PATID1234^^^GOOD HEALTH HOSPITAL^MR^GOOD HEALTH HOSPITAL~123456789^^^USSSA^SS||DOE^ADAM^A^III||"));
+    }
+
+    @Test
+    public void testSameResultsAsE4X() throws Exception {
+        String[] scripts = new String[] { "typeof msg", "msg['MSH']['MSH.9']['MSH.9.1'].toString()",
+                "msg['MSH']['MSH.9']['MSH.9.1'] + '-' + msg.MSH['MSH.9']['MSH.9.2']",
+                "msg['MSH']['MSH.1'].toString() + msg['MSH']['MSH.2'].toString()",
+                "msg['PID']['PID.5']['PID.5.1'] == 'EVERYMAN'",
+                "msg['PID']['PID.5']['PID.5.1'] != 'EVERYMAN'", "msg['ZZZ'] == undefined",
+                "msg['PID'] == undefined", "msg['PID']['PID.99']['PID.99.1'] == undefined",
+                "msg['PID']['PID.3'][1]['PID.3.1'].toString()", "msg['PID']['PID.3'].length()",
+                "msg['OBX'].length()", "msg['ZZZ'].length()", "msg.children().length()",
+                "msg['OBX'][1]['OBX.5'][0]['OBX.5.1']['OBX.5.1.1'].toString()",
+                "msg['OBX'][1]['OBX.5'][0]['OBX.5.1']['OBX.5.1.3'].toString()",
+                "msg['OBX'][1].childIndex()", "msg['PID'].children()[2].name().toString()",
+                "msg.child(2).name().toString()", "msg['PID']['PID.5']['PID.5.2'].text().toString()",
+                "msg['PID']['PID.5']['PID.5.2'].hasSimpleContent()",
+                "msg['PID']['PID.5'].hasSimpleContent()",
+                "msg['PID']['PID.5']['PID.5.1'].parent().name().toString()",
+                "msg['NTE']['NTE.3'].length()", "msg..OBX.length()",
+                "validate(msg['PID']['PID.99']['PID.99.1'], 'default')",
+                "validate(msg['PID']['PID.7']['PID.7.1'], 'default')",
+                "getArrayOrXmlLength(msg['OBX'])",
+                "var s = ''; for (var i = 0; i < getArrayOrXmlLength(msg['OBX']); i++) { s += msg['OBX'][i]['OBX.3']['OBX.3.1'] + ','; } s",
+                "var s = ''; for each (var seg in msg.children()) { s += seg.name() + ','; } s",
+                "var s = ''; for (var i in msg['PID']['PID.3']) { s += i + ','; } s",
+                "msg['PID']['PID.8']['PID.8.1'].toString().toLowerCase()",
+                "'<' + msg['PID']['PID.8']['PID.8.1'] + '>'" };
+
+        for (String script : scripts) {
+            assertEquals(script, evaluateE4X(ADT, script), evaluateLazy(ADT, script));
+        }
+    }
+
+    @Test
+    public void testSameMessageAsE4X() throws Exception {
+        String[] scripts = new String[] { "", "msg['PID']['PID.5']['PID.5.1'] = 'DOE'",
+                "msg.PID['PID.5']['PID.5.1'] = 'DOE'", "msg['PID']['PID.3'][1]['PID.3.1'] = 'X'",
+                "msg['PID']['PID.3'][2]['PID.3.1'] = 'third'", "msg['MSH']['MSH.9']['MSH.9.2'] = 'A08'",
+                "msg['MSH']['MSH.3']['MSH.3.1'] = 'A&B <C>'", "delete msg['NK1']", "delete msg['OBX'][0]",
+                "delete msg['PID']['PID.3']", "delete msg['PID']['PID.5']['PID.5.2']",
+                "msg['PID']['PID.30']['PID.30.2'] = 'new'", "msg['ZZZ']['ZZZ.3']['ZZZ.3.2'] = 'new'",
+                "msg['PV1']['PV1.2']['PV1.2.1'] = msg['PID']['PID.8']['PID.8.1'].toString()",
+                "msg['PV1']['PV1.2']['PV1.2.1'] = validate(msg['PID']['PID.8']['PID.8.1'], '')",
+                "msg['PID']['PID.5']['PID.5.1'] = ''", "msg['PID']['PID.5']['PID.5.1'] = 42",
+                "msg['OBX'][1]['OBX.5']['OBX.5.1']['OBX.5.1.2'] = 'S'",
+                "msg['EVN']['EVN.1']['EVN.1.1']['EVN.1.1.2'] = 'S'",
+                "createSegment('ZZZ', msg); msg['ZZZ']['ZZZ.1']['ZZZ.1.1'] = 'a'",
+                "createSegment('OBX', msg, 2); msg['OBX'][2]['OBX.1']['OBX.1.1'] = '3'",
+                "createSegment('OBX', msg, 0)",
+                "createSegmentAfter('ZNT', msg['PID']); msg['ZNT']['ZNT.1']['ZNT.1.1'] = 'x'",
+                "createSegmentAfter('ZNT', msg['OBX'][0])",
+                "msg.appendChild(new XML('<ZAP></ZAP>')); msg['ZAP']['ZAP.2']['ZAP.2.1'] = 'end'",
+                "msg.insertChildBefore(msg['PID'][0], new XML('<ZBF></ZBF>'))",
+                "for each (var seg in msg.children()) { if (seg.name().toString() == 'OBX') { seg['OBX.5']['OBX.5.1'] = 'v'; } }",
+                "for (var i = 0; i < msg['OBX'].length(); i++) { msg['OBX'][i]['OBX.1']['OBX.1.1'] = i + 10; }",
+                "msg['PID']['PID.3']['PID.3.4'] = 'X'" };
+
+        ER7Serializer serializer = new ER7Serializer(new SerializerProperties(new HL7v2SerializationProperties(), new HL7v2DeserializationProperties(), null));
+
+        for (String script : scripts) {
+            String expected;
+            String actual;
+
+            try {
+                expected = serializer.fromXML(evaluateE4X(ADT, script + ";\nmsg.toXMLString()"));
+            } catch (Exception e) {
+                expected = "error";
+            }
+
+            try {
+                // The lazy model's transformed message is already ER7 and is used as it is
+                actual = evaluateLazy(ADT, script + ";\nmsg.toString()");
+            } catch (RhinoException e) {
+                actual = "error";
+            }
+
+            assertEquals(script, expected, actual);
+        }
+    }
+
+    @Test
+    public void testCopyElements() throws Exception {
+        scope.put("msg", scope, LazyHL7v2Message.create(ADT, "\\r", true, true, true));
+
+        // Elements are copied into the target, which keeps its name
+        evaluate("msg['NK1']['NK1.2'] = msg['PID']['PID.5']");
+        evaluate("msg['EVN'] = msg['PV1']");
+        evaluate("var copy = msg['OBX'][0].copy(); copy['OBX.1']['OBX.1.1'] = 'copy'; msg['OBX'][2] = copy");
+        evaluate("msg['ZZZ'] = 'ZZZ|a^b|c'");
+
+        assertEquals("NK1|1|EVERYMAN^ADAM^A^III|SPO^SPOUSE||||NK^NEXT OF KIN", evaluate("msg['NK1'].toString()"));
+        assertEquals("EVN|1|I|2000^2012^01||||004777^ATTEND^AARON^A|||SUR||||ADM|A0|", evaluate("msg['EVN'].toString()"));
+        assertEquals("OBX|copy|SN|1554-5^GLUCOSE^POST 12H CFST:MCNC:PT:SER/PLAS:QN||^182|mg/dl|70_105|H|||F", evaluate("msg['OBX'][2].toString()"));
+        assertEquals("1", evaluate("msg['OBX'][0]['OBX.1']['OBX.1.1'].toString()"));
+        assertEquals("b", evaluate("msg['ZZZ']['ZZZ.1']['ZZZ.1.2'].toString()"));
+        assertEquals("<ZZZ><ZZZ.1><ZZZ.1.1>a</ZZZ.1.1><ZZZ.1.2>b</ZZZ.1.2></ZZZ.1><ZZZ.2><ZZZ.2.1>c</ZZZ.2.1></ZZZ.2></ZZZ>", evaluate("msg['ZZZ'].toXMLString()"));
+    }
+
+    @Test
+    public void testSerializationProperties() throws Exception {
+        HL7v2SerializationProperties properties = new HL7v2SerializationProperties();
+        assertEquals(null, properties.getSerializationType());
+        assertEquals(null, properties.getRawMessageScript("template"));
+
+        properties.setUseLazyModel(true);
+        assertEquals(com.mirth.connect.donkey.model.message.SerializationType.RAW, properties.getSerializationType());
+        assertEquals("Packages.com.mirth.connect.plugins.datatypes.hl7v2.LazyHL7v2Message.create(template, '\\\\r', true, true, true)", properties.getRawMessageScript("template"));
+
+        scope.put("template", scope, ADT.replace('\r', '\n'));
+        assertEquals("ADT", evaluate("tmp = " + properties.getRawMessageScript("template") + "; tmp['MSH']['MSH.9']['MSH.9.1'].toString()"));
+        assertEquals(ADT, evaluate("tmp.toString()"));
+
+        properties.setUseStrictParser(true);
+        assertEquals(null, properties.getSerializationType());
+        assertEquals(null, properties.getRawMessageScript("template"));
+    }
+
+    private String evaluateLazy(String message, String script) {
+        scope.put("msg", scope, LazyHL7v2Message.create(message, "\\r", true, true, true));
+        return evaluate(script);
+    }
+
+    private String evaluateE4X(String message, String script) throws Exception {
+        scope.put("xml", scope, new ER7XMLEncoder(true, true, "\r").encode(message));
+        return evaluate("msg = new XML(xml);\n" + script);
+    }
+
+    private String evaluate(String script) {
+        return Context.toString(context.evaluateString(scope, script, "test", 1, null));
+    }
+}
@@ -10,8 +10,10 @@
 package com.mirth.connect.server.api.servlets;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -38,6 +40,7 @@ import com.mirth.connect.donkey.model.channel.DeployedState;
 import com.mirth.connect.model.ChannelTag;
 import com.mirth.connect.model.DashboardChannelInfo;
 import com.mirth.connect.model.DashboardStatus;
+import com.mirth.connect.model.DashboardStatusChanges;
 import com.mirth.connect.server.api.ServletTestBase;
 import com.mirth.connect.server.controllers.EngineController;
 
@@ -61,6 +64,12 @@ public class ChannelStatusServletTest extends ServletTestBase {
         when(engineController.getChannelStatusList(any())).thenAnswer((InvocationOnMock invocation) -> {
             return getStatusList();
         });
+        when(engineController.getChannelStatusChanges(anyLong(), anyLong())).thenAnswer((InvocationOnMock invocation) -> {
+            DashboardStatusChanges changes = new DashboardStatusChanges(invocation.<Long> getArgument(0) + 1, false);
+            changes.setDashboardStatuses(getStatusList());
+            changes.getRemovedChannelIds().add("6");
+            return changes;
+        });
         when(engineController.getDeployedIds()).thenAnswer((InvocationOnMock invocation) -> {
             Set<String> deployed = new HashSet<>();
             deployed.add("3");
@@ -187,6 +196,21 @@ public class ChannelStatusServletTest extends ServletTestBase {
         assertEquals("4", dashboardChannelInfo.getDashboardStatuses().get(1).getChannelId());
     }
 
+    @Test
+    public void testGetChannelStatusChangesFilterByTag() throws Exception {
+        ChannelStatusServlet servlet = new ChannelStatusServlet(request, sc, controllerFactory);
+        DashboardStatusChanges changes = servlet.getChannelStatusChanges(10, 0, "Tag:Tag3");
+        assertEquals(11, changes.getVersion());
+        assertFalse(changes.isFullRefresh());
+        assertEquals(3, changes.getDeployedChannelCount());
+        // changes.getDashboardStatuses() == [{Dashboard Status with ID = "3"}, {Dashboard Status with ID = "4"}]
+        assertEquals(2, changes.getDashboardStatuses().size());
+        assertEquals("3", changes.getDashboardStatuses().get(0).getChannelId());
+        assertEquals("4", changes.getDashboardStatuses().get(1).getChannelId());
+        // Changed channels that no longer match the filter are removed along with the undeployed ones
+        assertEquals(Sets.newHashSet("1", "2", "5", "6"), changes.getRemovedChannelIds());
+    }
+
     @Test
     public void getChannelStatus() throws Throwable {
         DashboardStatus status = (DashboardStatus) ih.invoke(new ChannelStatusServlet(request, sc, controllerFactory), ChannelStatusServlet.class.getMethod("getChannelStatus", String.class), new Object[] {
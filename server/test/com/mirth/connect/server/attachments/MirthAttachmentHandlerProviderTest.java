@@ -9,7 +9,12 @@
 
 package com.mirth.connect.server.attachments;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -17,15 +22,20 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.UUID;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
 import com.mirth.connect.donkey.model.message.MessageContent;
 import com.mirth.connect.donkey.model.message.attachment.Attachment;
+import com.mirth.connect.donkey.util.Base64Util;
 import com.mirth.connect.server.attachments.passthru.PassthruAttachmentHandlerProvider;
 import com.mirth.connect.server.controllers.MessageController;
 
@@ -59,6 +69,22 @@ public class MirthAttachmentHandlerProviderTest {
         when(messageController.getMessageAttachment(channelId2, messageId2, false)).thenReturn(Collections.singletonList(attachment2));
         when(messageController.getMessageAttachment(channelId1, attachment1.getId(), messageId1, false)).thenReturn(attachment1);
         when(messageController.getMessageAttachment(channelId2, attachment2.getId(), messageId2, false)).thenReturn(attachment2);
+        when(messageController.writeMessageAttachment(anyString(), anyString(), anyLong(), any(OutputStream.class), eq(false))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                String attachmentId = invocation.getArgument(1);
+                OutputStream outputStream = invocation.getArgument(3);
+
+                for (Attachment attachment : new Attachment[] { attachment1, attachment2 }) {
+                    if (attachment.getId().equals(attachmentId)) {
+                        outputStream.write(attachment.getContent());
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+        });
 
         attachmentHandlerProvider = new PassthruAttachmentHandlerProvider(messageController);
     }
@@ -256,6 +282,64 @@ public class MirthAttachmentHandlerProviderTest {
         assertEquals(expected, result);
     }
 
+    /**
+     * Stream content from attachments 1 and 2 without loading the attachments
+     */
+    @Test
+    public void testReAttachMessageStream1() throws Exception {
+        String encoded = new StringBuilder("test1${ATTACH:").append(channelId1).append(':').append(messageId1).append(':').append(attachment1.getId()).append("}test2").append(attachment2.getAttachmentId()).append("test3").toString();
+        ConnectorMessage connectorMessage = getMockConnectorMessage(channelId2, messageId2, encoded);
+
+        clearInvocations(messageController);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        attachmentHandlerProvider.reAttachMessage(encoded, connectorMessage, CHARSET, false, true, outputStream);
+
+        verify(messageController).writeMessageAttachment(eq(channelId1), eq(attachment1.getId()), eq(messageId1), any(OutputStream.class), eq(false));
+        verify(messageController).writeMessageAttachment(eq(channelId2), eq(attachment2.getId()), eq(messageId2), any(OutputStream.class), eq(false));
+        verifyNoMoreInteractions(messageController);
+
+        assertArrayEquals(attachmentHandlerProvider.reAttachMessage(encoded, connectorMessage, CHARSET, false, true), outputStream.toByteArray());
+    }
+
+    /**
+     * Stream Base64 encoded content and decode it as it is written
+     */
+    @Test
+    public void testReAttachMessageStream2() throws Exception {
+        final byte[] binary = new byte[] { 0, 1, 2, 3, (byte) 0xFF, (byte) 0xFE };
+        final String attachmentId = UUID.randomUUID().toString();
+        String template = "${ATTACH:" + channelId1 + ":" + messageId1 + ":" + attachmentId + "}";
+        ConnectorMessage connectorMessage = getMockConnectorMessage(channelId2, messageId2, template);
+
+        when(messageController.writeMessageAttachment(eq(channelId1), eq(attachmentId), eq(messageId1), any(OutputStream.class), eq(false))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                ((OutputStream) invocation.getArgument(3)).write(Base64Util.encodeBase64(binary));
+                return true;
+            }
+        });
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        attachmentHandlerProvider.reAttachMessage(template, connectorMessage, null, true, true, outputStream);
+
+        assertArrayEquals(binary, outputStream.toByteArray());
+    }
+
+    /**
+     * Convert streamed content to the requested charset
+     */
+    @Test
+    public void testReAttachMessageStream3() throws Exception {
+        String encoded = new StringBuilder("caf\u00e9 ").append(attachment1.getAttachmentId()).toString();
+        ConnectorMessage connectorMessage = getMockConnectorMessage(channelId1, messageId1, encoded);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        attachmentHandlerProvider.reAttachMessage(encoded, connectorMessage, "UTF-16LE", false, true, outputStream);
+
+        assertEquals(encoded.replace(attachment1.getAttachmentId(), new String(attachment1.getContent(), CHARSET)), new String(outputStream.toByteArray(), "UTF-16LE"));
+    }
+
     private ConnectorMessage getMockConnectorMessage(String channelId, Long messageId, String encoded) {
         ConnectorMessage connectorMessage = mock(ConnectorMessage.class);
         when(connectorMessage.getChannelId()).thenReturn(channelId);
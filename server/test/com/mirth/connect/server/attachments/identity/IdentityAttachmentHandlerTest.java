@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.attachments.identity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.HashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.message.RawMessage;
+import com.mirth.connect.donkey.model.message.attachment.Attachment;
+import com.mirth.connect.donkey.model.message.attachment.AttachmentHandler;
+import com.mirth.connect.donkey.model.message.attachment.AttachmentHandlerProperties;
+import com.mirth.connect.donkey.server.channel.Channel;
+import com.mirth.connect.donkey.util.Base64Util;
+import com.mirth.connect.donkey.util.StringUtil;
+import com.mirth.connect.server.controllers.MessageController;
+
+public class IdentityAttachmentHandlerTest {
+
+    private Channel channel;
+    private IdentityAttachmentHandlerProvider provider;
+
+    @Before
+    public void setup() {
+        channel = new Channel();
+        channel.setChannelId("testChannelId");
+        channel.setName("testChannel");
+
+        provider = new IdentityAttachmentHandlerProvider(mock(MessageController.class));
+        provider.setProperties(channel, new AttachmentHandlerProperties(null, null));
+    }
+
+    @Test
+    public void testTextAttachmentIsStreamed() throws Exception {
+        // Long enough to span several Base64 lines and includes multi-byte characters
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("MSH|^~\\&|é中😀|").append(i).append('\r');
+        }
+        String rawData = builder.toString();
+
+        AttachmentHandler handler = provider.getHandler();
+        handler.initialize(new RawMessage(rawData), channel);
+
+        Attachment attachment = handler.nextAttachment();
+        assertTrue(attachment.hasBinaryStream());
+        assertEquals("text/plain", attachment.getType());
+        assertArrayEquals(StringUtil.getBytesUncheckedChunked(rawData, "UTF-8"), IOUtils.toByteArray(attachment.getBinaryStream()));
+
+        assertNull(handler.nextAttachment());
+        assertEquals(attachment.getAttachmentId(), handler.shutdown());
+    }
+
+    @Test
+    public void testBinaryAttachmentIsStreamed() throws Exception {
+        byte[] rawBytes = new byte[10000];
+        for (int i = 0; i < rawBytes.length; i++) {
+            rawBytes[i] = (byte) i;
+        }
+
+        AttachmentHandler handler = provider.getHandler();
+        handler.initialize(new RawMessage(rawBytes.clone()), channel);
+
+        Attachment attachment = handler.nextAttachment();
+        assertTrue(attachment.hasBinaryStream());
+        assertArrayEquals(Base64Util.encodeBase64(rawBytes), IOUtils.toByteArray(attachment.getBinaryStream()));
+
+        assertNull(handler.nextAttachment());
+        assertEquals(attachment.getAttachmentId(), handler.shutdown());
+    }
+
+    @Test
+    public void testEmptyMessage() throws Exception {
+        AttachmentHandler handler = provider.getHandler();
+        handler.initialize(new RawMessage(""), channel);
+
+        assertNull(handler.nextAttachment());
+        assertEquals("", handler.shutdown());
+    }
+}
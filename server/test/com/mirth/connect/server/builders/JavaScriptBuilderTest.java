@@ -10,6 +10,8 @@
 package com.mirth.connect.server.builders;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -23,6 +25,8 @@ import com.mirth.connect.model.IteratorStepProperties;
 import com.mirth.connect.model.Rule;
 import com.mirth.connect.model.Step;
 import com.mirth.connect.model.Transformer;
+import com.mirth.connect.plugins.datatypes.hl7v2.HL7v2DataTypeProperties;
+import com.mirth.connect.plugins.datatypes.hl7v2.HL7v2SerializationProperties;
 import com.mirth.connect.plugins.javascriptrule.JavaScriptRule;
 import com.mirth.connect.plugins.javascriptstep.JavaScriptStep;
 import com.mirth.connect.plugins.mapper.MapperStep;
@@ -225,4 +229,28 @@ public class JavaScriptBuilderTest {
 
         assertEquals(scriptEmpty, scriptInnerDisabled);
     }
+
+    @Test
+    public void testTransformedMessageRaw() {
+        HL7v2DataTypeProperties inboundProperties = new HL7v2DataTypeProperties();
+        HL7v2DataTypeProperties outboundProperties = new HL7v2DataTypeProperties();
+        Transformer transformer = new Transformer();
+        transformer.setInboundProperties(inboundProperties);
+        transformer.setOutboundProperties(outboundProperties);
+
+        assertFalse(JavaScriptBuilder.isTransformedMessageRaw(transformer, false));
+
+        // Without a template the transformed message is msg, which uses the inbound properties
+        ((HL7v2SerializationProperties) inboundProperties.getSerializationProperties()).setUseLazyModel(true);
+        assertTrue(JavaScriptBuilder.isTransformedMessageRaw(transformer, false));
+        assertFalse(JavaScriptBuilder.isTransformedMessageRaw(transformer, true));
+
+        // With a template it is tmp, which uses the outbound properties
+        ((HL7v2SerializationProperties) outboundProperties.getSerializationProperties()).setUseLazyModel(true);
+        assertTrue(JavaScriptBuilder.isTransformedMessageRaw(transformer, true));
+
+        // The lazy model is not used with the strict parser
+        ((HL7v2SerializationProperties) inboundProperties.getSerializationProperties()).setUseStrictParser(true);
+        assertFalse(JavaScriptBuilder.isTransformedMessageRaw(transformer, false));
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.SqlSessionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+
+import com.google.common.collect.Sets;
+import com.mirth.connect.model.ChannelGroup;
+import com.mirth.connect.server.util.SqlConfig;
+
+public class CacheTest {
+
+    private static final String REVISIONS_QUERY = "Test.getRevisions";
+    private static final String ITEM_QUERY = "Test.getItem";
+
+    private Object previousSqlConfig;
+    private SqlSessionManager sqlSessionManager;
+    private Map<String, ChannelGroup> database = new HashMap<String, ChannelGroup>();
+
+    @Before
+    public void setup() throws Exception {
+        sqlSessionManager = mock(SqlSessionManager.class);
+        when(sqlSessionManager.selectList(REVISIONS_QUERY)).thenAnswer((InvocationOnMock invocation) -> {
+            List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
+            for (ChannelGroup group : database.values()) {
+                Map<String, Object> result = new HashMap<String, Object>();
+                result.put("id", group.getId());
+                result.put("revision", group.getRevision());
+                results.add(result);
+            }
+            return results;
+        });
+        when(sqlSessionManager.selectOne(anyString(), anyString())).thenAnswer((InvocationOnMock invocation) -> {
+            ChannelGroup group = database.get(invocation.getArgument(1));
+            return group != null ? new ChannelGroup(group) : null;
+        });
+
+        SqlConfig sqlConfig = mock(SqlConfig.class);
+        when(sqlConfig.getSqlSessionManager()).thenReturn(sqlSessionManager);
+        previousSqlConfig = setSqlConfig(sqlConfig);
+
+        putGroup("1", "One", 1);
+        putGroup("2", "Two", 1);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        setSqlConfig(previousSqlConfig);
+    }
+
+    @Test
+    public void testReadsWithinIntervalUseSnapshot() throws Exception {
+        Cache<ChannelGroup> cache = new Cache<ChannelGroup>("Test", REVISIONS_QUERY, ITEM_QUERY, true, 60000);
+
+        assertEquals("One", cache.getCachedItemById("1").getName());
+        assertEquals("Two", cache.getCachedItemByName("Two").getName());
+        assertEquals(Sets.newHashSet("1", "2"), cache.getCachedIds());
+
+        // Changes made outside of the controller are not seen until the interval elapses
+        putGroup("3", "Three", 1);
+        assertNull(cache.getCachedItemById("3"));
+
+        verify(sqlSessionManager, times(1)).selectList(REVISIONS_QUERY);
+        verify(sqlSessionManager, times(2)).selectOne(anyString(), anyString());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        Cache<ChannelGroup> cache = new Cache<ChannelGroup>("Test", REVISIONS_QUERY, ITEM_QUERY, true, 60000);
+        assertEquals(2, cache.getAllItems().size());
+
+        putGroup("1", "Renamed", 2);
+        database.remove("2");
+        putGroup("3", "Three", 1);
+        cache.invalidate();
+
+        Map<String, ChannelGroup> items = cache.getAllItems();
+        assertEquals(Sets.newHashSet("1", "3"), items.keySet());
+        assertEquals("Renamed", cache.getCachedItemById("1").getName());
+        assertNull(cache.getCachedItemByName("One"));
+        assertNull(cache.getCachedItemById("2"));
+        assertEquals(Sets.newHashSet("Renamed", "Three"), cache.getCachedNames());
+
+        verify(sqlSessionManager, times(2)).selectList(REVISIONS_QUERY);
+        // Unchanged items are not loaded again
+        verify(sqlSessionManager, times(4)).selectOne(anyString(), anyString());
+    }
+
+    @Test
+    public void testRevalidateEveryAccess() throws Exception {
+        Cache<ChannelGroup> cache = new Cache<ChannelGroup>("Test", REVISIONS_QUERY, ITEM_QUERY, true, 0);
+        assertEquals("One", cache.getCachedItemById("1").getName());
+
+        putGroup("1", "Renamed", 2);
+        assertEquals("Renamed", cache.getCachedItemById("1").getName());
+
+        verify(sqlSessionManager, times(2)).selectList(REVISIONS_QUERY);
+    }
+
+    private void putGroup(String id, String name, int revision) {
+        ChannelGroup group = new ChannelGroup(id, name, "");
+        group.setRevision(revision);
+        database.put(id, group);
+    }
+
+    private static Object setSqlConfig(Object sqlConfig) throws Exception {
+        Field field = SqlConfig.class.getDeclaredField("instance");
+        field.setAccessible(true);
+        Object previous = field.get(null);
+        field.set(null, sqlConfig);
+        return previous;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+import com.mirth.connect.donkey.model.event.DeployedStateEventType;
+import com.mirth.connect.donkey.model.event.Event;
+import com.mirth.connect.donkey.model.event.MessageEventType;
+import com.mirth.connect.donkey.server.event.DeployedStateEvent;
+import com.mirth.connect.donkey.server.event.MessageEvent;
+
+public class DashboardStatusChangeListenerTest {
+
+    private DashboardStatusChangeListener listener;
+
+    @Before
+    public void setup() {
+        listener = new DashboardStatusChangeListener(100);
+    }
+
+    @After
+    public void teardown() {
+        listener.shutdown();
+    }
+
+    @Test
+    public void testChangedChannelIds() throws Exception {
+        assertEquals(100, listener.getVersion());
+
+        listener.processEvent(new MessageEvent("channel1", 0, MessageEventType.RECEIVED, 1L, false));
+        long version = listener.getVersion();
+        listener.processEvent(new DeployedStateEvent("channel2", "Channel 2", null, null, DeployedStateEventType.STOPPED));
+        listener.processEvent(new MessageEvent("channel1", 1, MessageEventType.SENT, 1L, false));
+
+        assertEquals(103, listener.getVersion());
+        assertEquals(Sets.newHashSet("channel1", "channel2"), listener.getChangedChannelIds(100));
+        assertEquals(Sets.newHashSet("channel1", "channel2"), listener.getChangedChannelIds(version));
+        assertEquals(Collections.emptySet(), listener.getChangedChannelIds(listener.getVersion()));
+    }
+
+    @Test
+    public void testBatchAdvancesVersionOnce() throws Exception {
+        List<Event> events = new ArrayList<Event>();
+        events.add(new MessageEvent("channel1", 0, MessageEventType.RECEIVED, 1L, false));
+        events.add(new MessageEvent("channel2", 0, MessageEventType.RECEIVED, 1L, false));
+        events.add(new MessageEvent("channel1", 1, MessageEventType.SENT, 1L, false));
+
+        listener.processEvents(events);
+
+        assertEquals(101, listener.getVersion());
+        assertEquals(Sets.newHashSet("channel1", "channel2"), listener.getChangedChannelIds(100));
+    }
+
+    @Test
+    public void testKnownVersion() throws Exception {
+        listener.channelChanged("channel1");
+
+        assertTrue(listener.isKnownVersion(100));
+        assertTrue(listener.isKnownVersion(101));
+        // Versions from before a restart, or that were never handed out
+        assertFalse(listener.isKnownVersion(0));
+        assertFalse(listener.isKnownVersion(99));
+        assertFalse(listener.isKnownVersion(102));
+    }
+
+    @Test
+    public void testAwaitChanges() throws Exception {
+        assertFalse(listener.awaitChanges(listener.getVersion(), 10, TimeUnit.MILLISECONDS));
+
+        final long version = listener.getVersion();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                }
+                listener.channelChanged("channel1");
+            }
+        };
+        thread.start();
+
+        long start = System.currentTimeMillis();
+        assertTrue(listener.awaitChanges(version, 10, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(Sets.newHashSet("channel1"), listener.getChangedChannelIds(version));
+        thread.join();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.event.ConnectionStatusEventType;
+import com.mirth.connect.donkey.model.event.Event;
+import com.mirth.connect.donkey.model.event.MessageEventType;
+import com.mirth.connect.donkey.server.event.ConnectionStatusEvent;
+import com.mirth.connect.donkey.server.event.ConnectorCountEvent;
+import com.mirth.connect.donkey.server.event.ErrorEvent;
+import com.mirth.connect.donkey.server.event.EventType;
+import com.mirth.connect.donkey.server.event.MessageEvent;
+
+public class EventQueueTest {
+
+    @Test
+    public void testCoalesceInPlace() throws Exception {
+        EventQueue queue = new EventQueue(0);
+        Event queued1 = queued("channel1", 1, 1);
+        Event error = new ErrorEvent("channel1", 1, null, null, null, null, null, null);
+        Event queued2 = queued("channel1", 1, 2);
+        Event otherConnector = queued("channel1", 2, 1);
+
+        queue.offer(queued1, "channel1-1");
+        queue.offer(error, null);
+        queue.offer(queued2, "channel1-1");
+        queue.offer(otherConnector, "channel1-2");
+
+        assertEquals(3, queue.size());
+        assertEquals(1, queue.getMergedCount());
+
+        // The latest value is delivered at the position of the first pending event
+        List<Event> events = queue.take(10);
+        assertEquals(3, events.size());
+        assertSame(queued2, events.get(0));
+        assertSame(error, events.get(1));
+        assertSame(otherConnector, events.get(2));
+
+        // Once delivered, the same key gets a new slot
+        Event queued3 = queued("channel1", 1, 3);
+        queue.offer(queued3, "channel1-1");
+        assertEquals(1, queue.size());
+        assertSame(queued3, queue.take(10).get(0));
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        EventQueue queue = new EventQueue(2);
+
+        assertTrue(queue.offer(queued("channel1", 1, 1), "channel1-1"));
+        assertTrue(queue.offer(queued("channel1", 2, 1), null));
+        assertFalse(queue.offer(queued("channel1", 3, 1), null));
+        assertFalse(queue.offer(queued("channel1", 4, 1), "channel1-4"));
+
+        // Events that merge into a pending slot are accepted while the queue is full
+        assertTrue(queue.offer(queued("channel1", 1, 2), "channel1-1"));
+
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.getDroppedCount());
+    }
+
+    @Test
+    public void testTakeBatch() throws Exception {
+        EventQueue queue = new EventQueue(0);
+
+        for (int i = 0; i < 5; i++) {
+            queue.offer(queued("channel1", i, i), null);
+        }
+
+        assertEquals(3, queue.take(3).size());
+        assertEquals(2, queue.take(3).size());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testDefaultCoalesceKeys() throws Exception {
+        EventListener listener = new EventListener() {
+            @Override
+            protected void onShutdown() {}
+
+            @Override
+            public Set<EventType> getEventTypes() {
+                return new HashSet<EventType>();
+            }
+
+            @Override
+            protected void processEvent(Event event) {}
+        };
+
+        try {
+            assertEquals(listener.getCoalesceKey(queued("channel1", 1, 1)), listener.getCoalesceKey(queued("channel1", 1, 2)));
+            assertFalse(listener.getCoalesceKey(queued("channel1", 1, 1)).equals(listener.getCoalesceKey(queued("channel1", 2, 1))));
+            assertFalse(listener.getCoalesceKey(queued("channel1", 1, 1)).equals(listener.getCoalesceKey(new MessageEvent("channel1", 1, MessageEventType.SENT, 1L, false))));
+
+            assertNull(listener.getCoalesceKey(new ConnectionStatusEvent("channel1", 0, "Source", ConnectionStatusEventType.RECEIVING)));
+            assertNull(listener.getCoalesceKey(new ConnectorCountEvent("channel1", 0, "Source", ConnectionStatusEventType.CONNECTED, null, true)));
+            assertNull(listener.getCoalesceKey(new ErrorEvent("channel1", 1, null, null, null, null, null, null)));
+        } finally {
+            listener.shutdown();
+        }
+    }
+
+    private MessageEvent queued(String channelId, int metaDataId, long count) {
+        return new MessageEvent(channelId, metaDataId, MessageEventType.QUEUED, count, true);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.EcmaError;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+public class CompiledScriptStoreTest {
+
+    private static final String SOURCE_NAME = "testChannelId_JavaScript_Filter_Transformer_1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private CompiledScriptStore store;
+    private Context context;
+
+    @Before
+    public void setup() throws Exception {
+        directory = folder.newFolder("scriptcache");
+        store = new CompiledScriptStore(directory);
+        context = new ContextFactory().enterContext();
+        context.setOptimizationLevel(0);
+    }
+
+    @After
+    public void teardown() {
+        Context.exit();
+    }
+
+    @Test
+    public void testDisabled() {
+        assertFalse(new CompiledScriptStore(null).isEnabled(context));
+
+        assertTrue(store.isEnabled(context));
+        context.setOptimizationLevel(-1);
+        assertFalse(store.isEnabled(context));
+    }
+
+    @Test
+    public void testCacheMissAndHit() throws Exception {
+        assertEquals(3, execute(store.getScript(context, "1 + 2", SOURCE_NAME)));
+
+        File[] entries = directory.listFiles();
+        assertEquals(1, entries.length);
+        byte[] entry = FileUtils.readFileToByteArray(entries[0]);
+
+        // A hit loads the stored classes and marks the entry as used
+        long lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+        entries[0].setLastModified(lastModified);
+        assertEquals(3, execute(store.getScript(context, "1 + 2", SOURCE_NAME)));
+
+        assertEquals(1, directory.listFiles().length);
+        assertTrue(entries[0].lastModified() > lastModified);
+        assertArrayEquals(entry, FileUtils.readFileToByteArray(entries[0]));
+    }
+
+    @Test
+    public void testKeyChanges() throws Exception {
+        store.getScript(context, "1 + 2", SOURCE_NAME);
+        assertEquals(1, directory.listFiles().length);
+
+        // A different script, source name or compiler setting is a miss
+        assertEquals(4, execute(store.getScript(context, "2 + 2", SOURCE_NAME)));
+        assertEquals(2, directory.listFiles().length);
+
+        store.getScript(context, "1 + 2", "otherChannelId_JavaScript_Filter_Transformer_1");
+        assertEquals(3, directory.listFiles().length);
+
+        context.setOptimizationLevel(9);
+        store.getScript(context, "1 + 2", SOURCE_NAME);
+        assertEquals(4, directory.listFiles().length);
+    }
+
+    @Test
+    public void testSourceNameIsKept() throws Exception {
+        // Load the script from the store, then make sure errors still name the original source
+        store.getScript(context, "undefinedFunction()", SOURCE_NAME);
+        Script script = store.getScript(context, "undefinedFunction()", SOURCE_NAME);
+
+        try {
+            execute(script);
+            fail("Expected the script to fail");
+        } catch (EcmaError e) {
+            assertEquals(SOURCE_NAME, e.sourceName());
+        }
+    }
+
+    @Test
+    public void testAlteredEntryIsRecompiled() throws Exception {
+        store.getScript(context, "1 + 2", SOURCE_NAME);
+        File entry = directory.listFiles()[0];
+        byte[] original = FileUtils.readFileToByteArray(entry);
+
+        // Alter a byte of the class files, which the content hash no longer matches
+        byte[] altered = original.clone();
+        altered[altered.length / 2] ^= 1;
+        FileUtils.writeByteArrayToFile(entry, altered);
+
+        assertEquals(3, execute(store.getScript(context, "1 + 2", SOURCE_NAME)));
+        assertArrayEquals(original, FileUtils.readFileToByteArray(entry));
+
+        // A truncated entry is recompiled as well
+        FileUtils.writeByteArrayToFile(entry, new byte[] { 0, 0, 0, 2, 0, 0 });
+        assertEquals(3, execute(store.getScript(context, "1 + 2", SOURCE_NAME)));
+        assertArrayEquals(original, FileUtils.readFileToByteArray(entry));
+    }
+
+    @Test
+    public void testUnusedEntriesRemoved() throws Exception {
+        store.getScript(context, "1 + 2", SOURCE_NAME);
+        store.getScript(context, "2 + 2", SOURCE_NAME);
+        File[] entries = directory.listFiles();
+        assertEquals(2, entries.length);
+
+        entries[0].setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31));
+        new CompiledScriptStore(directory);
+
+        assertFalse(entries[0].exists());
+        assertTrue(entries[1].exists());
+    }
+
+    private int execute(Script script) {
+        Scriptable scope = context.initStandardObjects();
+        return ((Number) script.exec(context, scope)).intValue();
+    }
+}
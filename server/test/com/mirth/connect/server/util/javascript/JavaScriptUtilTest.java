@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.util.javascript;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+
+public class JavaScriptUtilTest {
+
+    private MirthContextFactory contextFactory;
+
+    @Before
+    public void setup() {
+        contextFactory = new MirthContextFactory(new URL[0], new HashSet<String>(), true);
+    }
+
+    @After
+    public void teardown() {
+        JavaScriptUtil.setCallerThreadExecution(false);
+    }
+
+    @Test
+    public void testPoolMode() throws Exception {
+        JavaScriptUtil.setCallerThreadExecution(false);
+        assertNotSame(Thread.currentThread(), JavaScriptUtil.execute(new ThreadTask()));
+    }
+
+    @Test
+    public void testCallerMode() throws Exception {
+        JavaScriptUtil.setCallerThreadExecution(true);
+        assertSame(Thread.currentThread(), JavaScriptUtil.execute(new ThreadTask()));
+        assertEquals(3, ((Number) JavaScriptUtil.execute(new ScriptTask("1 + 2"))).intValue());
+    }
+
+    @Test
+    public void testCallerModeNestedScript() throws Exception {
+        JavaScriptUtil.setCallerThreadExecution(true);
+
+        // A thread already running a script keeps its context to itself
+        contextFactory.enterContext();
+        try {
+            assertNotSame(Thread.currentThread(), JavaScriptUtil.execute(new ThreadTask()));
+        } finally {
+            Context.exit();
+        }
+    }
+
+    @Test
+    public void testCallerModeFailure() throws Exception {
+        JavaScriptUtil.setCallerThreadExecution(true);
+        final Exception failure = new Exception("test");
+
+        try {
+            JavaScriptUtil.execute(new JavaScriptTask<Object>(contextFactory, "Test") {
+                @Override
+                public Object doCall() throws Exception {
+                    throw failure;
+                }
+            });
+            fail("Expected the failure to be thrown");
+        } catch (JavaScriptExecutorException e) {
+            assertSame(failure, e.getCause());
+        }
+
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testCallerModeRestoresContextClassLoader() throws Exception {
+        JavaScriptUtil.setCallerThreadExecution(true);
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        JavaScriptUtil.execute(new JavaScriptTask<Object>(contextFactory, "Test") {
+            @Override
+            public Object doCall() throws Exception {
+                Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[0]));
+                return null;
+            }
+        });
+
+        assertSame(contextClassLoader, Thread.currentThread().getContextClassLoader());
+    }
+
+    @Test
+    public void testCallerModeInterruptHaltsScript() throws Exception {
+        JavaScriptUtil.setCallerThreadExecution(true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        final AtomicReference<Boolean> interrupted = new AtomicReference<Boolean>();
+
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    JavaScriptUtil.execute(new ScriptTask("while (true) {}", started));
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        };
+        thread.start();
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        thread.interrupt();
+        thread.join(10000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(thrown.get() instanceof InterruptedException);
+        assertTrue(interrupted.get());
+    }
+
+    private class ThreadTask extends JavaScriptTask<Thread> {
+        private ThreadTask() {
+            super(contextFactory, "Test");
+        }
+
+        @Override
+        public Thread doCall() throws Exception {
+            return Thread.currentThread();
+        }
+    }
+
+    private class ScriptTask extends JavaScriptTask<Object> {
+        private String script;
+        private CountDownLatch started;
+
+        private ScriptTask(String script) {
+            this(script, new CountDownLatch(1));
+        }
+
+        private ScriptTask(String script, CountDownLatch started) {
+            super(contextFactory, "Test");
+            this.script = script;
+            this.started = started;
+        }
+
+        @Override
+        public Object doCall() throws Exception {
+            Context context = contextFactory.enterContext();
+
+            try {
+                Script compiledScript = context.compileString(script, "Test", 1, null);
+                started.countDown();
+                return executeScript(compiledScript, context.initStandardObjects());
+            } finally {
+                Context.exit();
+            }
+        }
+    }
+}